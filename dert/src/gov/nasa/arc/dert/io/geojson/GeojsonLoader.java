@@ -116,7 +116,6 @@ import gov.nasa.arc.dert.io.geojson.json.MultiPolygon;
 import gov.nasa.arc.dert.io.geojson.json.Point;
 import gov.nasa.arc.dert.io.geojson.json.Polygon;
 import gov.nasa.arc.dert.landscape.Landscape;
-import gov.nasa.arc.dert.landscape.srs.Projection;
 import gov.nasa.arc.dert.landscape.srs.SpatialReferenceSystem;
 import gov.nasa.arc.dert.scene.featureset.Feature;
 import gov.nasa.arc.dert.scene.featureset.FeatureSet;
@@ -156,8 +155,6 @@ public class GeojsonLoader {
 
 	private String filePath;
 	private double minZ, maxZ;
-	private Vector3 coord = new Vector3();
-	private double[] dcoord = new double[3];
 	private SpatialReferenceSystem srs;
 	private double landscapeMinZ;
 	private String elevAttrName;
@@ -341,8 +338,9 @@ public class GeojsonLoader {
 				return (false);
 			if (pCoord.length == 0)
 				return (false);
-			pos = toWorld(pCoord, ground);
-			if (pos != null) {
+			double[][] pLocal = toWorld(new double[][] { pCoord }, ground);
+			if (!Double.isNaN(pLocal[2][0])) {
+				pos = new Vector3(pLocal[0][0], pLocal[1][0], pLocal[2][0]);
 				FigureMarker fm = new FigureMarker(parent.getName(), pos, size, 0, color, false, true, true);
 				fm.setShape(ShapeType.crystal, false);
 				fm.setAutoShowLabel(true);
@@ -361,12 +359,10 @@ public class GeojsonLoader {
 			if (mpCoord.length == 0) {
 				return (false);
 			}
+			double[][] mpLocal = toWorld(mpCoord, ground);
 			for (int i = 0; i < mpCoord.length; ++i) {
-				if (mpCoord[i].length == 0) {
-					continue;
-				}
-				pos = toWorld(mpCoord[i], ground);
-				if (coord != null) {
+				if (!Double.isNaN(mpLocal[2][i])) {
+					pos = new Vector3(mpLocal[0][i], mpLocal[1][i], mpLocal[2][i]);
 					FigureMarker fm = new FigureMarker(parent.getName()+i, pos, size, 0, color, false, true, true);
 					fm.setShape(ShapeType.crystal, false);
 					fm.setAutoShowLabel(true);
@@ -493,39 +489,57 @@ public class GeojsonLoader {
 		
 	}
 
-	private ReadOnlyVector3 toWorld(double[] coordinate, boolean getZ) {
-		if (coordinate.length == 3) {
-			translate(coordinate);
-			coord.set(coordinate[0], coordinate[1], coordinate[2]);
-			srs.getProjection().worldToLocal(coord);
-			if (getZ)
-				coord.setZ(Landscape.getInstance().getZ(coord.getX(), coord.getY()));
-			else
-				coord.setZ(coord.getZ() - landscapeMinZ);
-		} else if (coordinate.length == 2) {
-			translate(coordinate);
-			coord.set(coordinate[0], coordinate[1], 0);
-			srs.getProjection().worldToLocal(coord);
-			if (getZ)
-				coord.setZ(Landscape.getInstance().getZ(coord.getX(), coord.getY()));
-		} else {
-			throw new IllegalArgumentException("GeoJSON Position has < 2 elements.");
+	/**
+	 * Convert GeoJSON positions to OpenGL coordinates. All of the positions
+	 * are projected with one call to the spatial reference system.
+	 * 
+	 * @param coordinate
+	 *            the positions (lon/lat degrees)
+	 * @param getZ
+	 *            take the Z coordinate from the landscape
+	 * @return the X, Y, and Z arrays, Z is NaN where a position is empty or
+	 *         has no elevation
+	 */
+	private double[][] toWorld(double[][] coordinate, boolean getZ) {
+		int n = coordinate.length;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		for (int i = 0; i < n; ++i) {
+			if (coordinate[i].length == 0) {
+				continue;
+			}
+			if ((coordinate[i].length < 2) || (coordinate[i].length > 3)) {
+				throw new IllegalArgumentException("GeoJSON Position has < 2 elements.");
+			}
+			x[i] = coordinate[i][0];
+			y[i] = coordinate[i][1];
+			if (coordinate[i].length == 3) {
+				z[i] = coordinate[i][2];
+			}
 		}
-		if (Double.isNaN(coord.getZ())) {
-			return (null);
-		} else {
-			return (coord);
+		srs.sphericalToLocal(x, y, z, n);
+		for (int i = 0; i < n; ++i) {
+			if ((coordinate[i].length == 0) || Double.isInfinite(x[i]) || Double.isInfinite(y[i])) {
+				z[i] = Double.NaN;
+			} else if (getZ) {
+				z[i] = Landscape.getInstance().getZ(x[i], y[i]);
+			} else if (coordinate[i].length == 3) {
+				z[i] -= landscapeMinZ;
+			}
 		}
+		return (new double[][] { x, y, z });
 	}
 	
 	private LineStrip createLineStrip(String name, double[][] coord, Color color) {
+		double[][] local = toWorld(coord, ground);
 		FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(3 * coord.length);
 		for (int i = 0; i < coord.length; ++i) {
-			ReadOnlyVector3 pos = toWorld(coord[i], ground);
-			if (pos != null) {
-				vertexBuffer.put(pos.getXf()).put(pos.getYf()).put(pos.getZf());
-				minZ = Math.min(minZ, pos.getZ());
-				maxZ = Math.max(maxZ, pos.getZ());
+			double z = local[2][i];
+			if (!Double.isNaN(z)) {
+				vertexBuffer.put((float) local[0][i]).put((float) local[1][i]).put((float) z);
+				minZ = Math.min(minZ, z);
+				maxZ = Math.max(maxZ, z);
 			}
 		}
 		vertexBuffer.flip();
@@ -540,19 +554,5 @@ public class GeojsonLoader {
 		}
 		return(null);
 	}
-	
-	public void translate(double[] coordinate) {
-		Projection projection = srs.getProjection();
-		if (coordinate.length == 3)
-			projection.sphericalToWorld(coordinate);
-		else {
-			dcoord[0] = coordinate[0];
-			dcoord[1] = coordinate[1];
-			dcoord[2] = 0;
-			projection.sphericalToWorld(dcoord);
-			coordinate[0] = dcoord[0];
-			coordinate[1] = dcoord[1];
-		}
-	}				
 
 }
@@ -0,0 +1,769 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.io.TileSource;
+import gov.nasa.arc.dert.landscape.layer.RasterLayer;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+import gov.nasa.arc.dert.util.PolygonRasterizer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides elevation samples for analysis tools without building QuadTree
+ * meshes. Elevation tiles are read from the tile source as float arrays and
+ * kept in a least-recently-used cache that is separate from the QuadTree
+ * cache. Coordinates and elevations are in the same frame as
+ * Landscape.getElevationAtHighestLevel. Missing values are returned as NaN.
+ *
+ */
+public class ElevationSampler {
+
+	// The maximum amount of memory for the tile cache (in bytes)
+	public static long MAX_CACHE_MEMORY = 100000000l;
+
+	// Placeholder for tiles that could not be read
+	private static final float[] NO_TILE = new float[0];
+
+	// Source of the elevation tiles
+	private TileSource source;
+	private String layerName;
+
+	// Tile dimensions
+	private int tileWidth, tileLength;
+	private int columns, rows;
+
+	// Full terrain dimensions
+	private double terrainWidth, terrainLength;
+
+	// Pixel scale factor for millimeter scale terrains
+	private float pixelScale;
+
+	// Least recently used tiles, keyed by packed QuadKey
+	private LinkedHashMap<Long, float[]> tileMap;
+	private int maxTiles;
+
+	// Least recently used summed-area tables, built on demand
+	private LinkedHashMap<Long, SummedAreaTable> tableMap;
+	private int maxTables;
+
+	// Number of levels in the pyramid
+	private int numLevels;
+
+	// Statistics
+	private long hitCount, missCount;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param source
+	 *            source of tiles
+	 * @param baseLayer
+	 *            the elevation layer
+	 * @param pixelScale
+	 *            scale factor for millimeter scale terrains
+	 */
+	public ElevationSampler(TileSource source, RasterLayer baseLayer, double pixelScale) {
+		this.source = source;
+		this.pixelScale = (float) pixelScale;
+		layerName = baseLayer.getLayerName();
+		tileWidth = baseLayer.getTileWidth();
+		tileLength = baseLayer.getTileLength();
+		columns = tileWidth + 1;
+		rows = tileLength + 1;
+		terrainWidth = baseLayer.getRasterWidth() * baseLayer.getPixelWidth() * pixelScale;
+		terrainLength = baseLayer.getRasterLength() * baseLayer.getPixelLength() * pixelScale;
+		numLevels = baseLayer.getNumberOfLevels();
+		maxTiles = (int) Math.max(4, MAX_CACHE_MEMORY / (columns * rows * 4));
+		tileMap = new LinkedHashMap<Long, float[]>(256, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, float[]> eldest) {
+				return (size() > maxTiles);
+			}
+		};
+		maxTables = (int) Math.max(4, MAX_CACHE_MEMORY / ((columns + 1) * (rows + 1) * 20l));
+		tableMap = new LinkedHashMap<Long, SummedAreaTable>(64, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, SummedAreaTable> eldest) {
+				return (size() > maxTables);
+			}
+		};
+	}
+
+	/**
+	 * Get the elevation at a coordinate from the highest level tile.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return the elevation, NaN if outside the landscape or missing
+	 */
+	public double getElevation(double x, double y) {
+		return (getElevation(x, y, -1));
+	}
+
+	/**
+	 * Get the elevation at a coordinate from the given level, or the highest
+	 * level that exists if the level is not reached.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @return the elevation, NaN if outside the landscape or missing
+	 */
+	public double getElevation(double x, double y, int level) {
+		if (!contains(x, y)) {
+			return (Double.NaN);
+		}
+		QuadKey key = source.getKey(x, y, terrainWidth, terrainLength, level);
+		if (key == null) {
+			return (Double.NaN);
+		}
+		float[] data = getTile(key);
+		if (data == null) {
+			return (Double.NaN);
+		}
+		double[] origin = getTileOrigin(key, new double[4]);
+		return (sample(data, (x - origin[0]) / origin[2], (y - origin[1]) / origin[3]));
+	}
+
+	/**
+	 * Get the elevations at a set of coordinates. The coordinates are grouped
+	 * by tile so each tile is fetched once.
+	 * 
+	 * @param x
+	 *            the X coordinates
+	 * @param y
+	 *            the Y coordinates
+	 * @param n
+	 *            the number of coordinates
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @param result
+	 *            the elevations, NaN if outside the landscape or missing
+	 * @return the number of valid elevations
+	 */
+	public int getElevations(double[] x, double[] y, int n, int level, double[] result) {
+		long[] id = new long[n];
+		QuadKey[] keys = new QuadKey[n];
+		int[] order = new int[n];
+		int m = 0;
+		for (int i = 0; i < n; ++i) {
+			result[i] = Double.NaN;
+			if (!contains(x[i], y[i])) {
+				continue;
+			}
+			QuadKey key = source.getKey(x[i], y[i], terrainWidth, terrainLength, level);
+			if (key == null) {
+				continue;
+			}
+			keys[i] = key;
+			id[i] = key.toLong();
+			order[m++] = i;
+		}
+		sortByKey(id, order, 0, m - 1);
+
+		int count = 0;
+		double[] origin = new double[4];
+		int i = 0;
+		while (i < m) {
+			QuadKey key = keys[order[i]];
+			long tileId = id[order[i]];
+			float[] data = getTile(key);
+			getTileOrigin(key, origin);
+			for (; (i < m) && (id[order[i]] == tileId); ++i) {
+				int k = order[i];
+				if (data != null) {
+					result[k] = sample(data, (x[k] - origin[0]) / origin[2], (y[k] - origin[1]) / origin[3]);
+					if (!Double.isNaN(result[k])) {
+						count++;
+					}
+				}
+			}
+		}
+		return (count);
+	}
+
+	/**
+	 * Get the elevations along a profile, such as the points of a line in
+	 * order. The points are walked in order and the tile is only looked up
+	 * again when a point leaves the current tile, so each tile crossed is
+	 * found once and all of its points are interpolated from its values.
+	 * 
+	 * @param x
+	 *            the X coordinates
+	 * @param y
+	 *            the Y coordinates
+	 * @param n
+	 *            the number of points
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @param result
+	 *            the elevations, NaN if outside the landscape or missing
+	 * @return the number of valid elevations
+	 */
+	public int getProfile(double[] x, double[] y, int n, int level, double[] result) {
+		int count = 0;
+		float[] data = null;
+		double[] origin = new double[4];
+		// extent of the current tile, empty until a tile is found
+		double tx0 = 0, ty0 = 0, tx1 = -1, ty1 = -1;
+		for (int i = 0; i < n; ++i) {
+			result[i] = Double.NaN;
+			if (!inTile(x[i], y[i], tx0, ty0, tx1, ty1)) {
+				data = null;
+				tx1 = -1;
+				if (!contains(x[i], y[i])) {
+					continue;
+				}
+				QuadKey key = source.getKey(x[i], y[i], terrainWidth, terrainLength, level);
+				if (key == null) {
+					continue;
+				}
+				getTileOrigin(key, origin);
+				tx0 = origin[0];
+				ty0 = origin[1];
+				tx1 = origin[0] + tileWidth * origin[2];
+				ty1 = origin[1] + tileLength * origin[3];
+				data = getTile(key);
+			}
+			if (data != null) {
+				result[i] = sample(data, (x[i] - origin[0]) / origin[2], (y[i] - origin[1]) / origin[3]);
+				if (!Double.isNaN(result[i])) {
+					count++;
+				}
+			}
+		}
+		return (count);
+	}
+
+	/**
+	 * Get the elevations along several profiles, such as a fan or swath of
+	 * lines. The profiles share the tile cache.
+	 * 
+	 * @param x
+	 *            the X coordinates of each profile
+	 * @param y
+	 *            the Y coordinates of each profile
+	 * @param n
+	 *            the number of points in each profile
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @param result
+	 *            the elevations of each profile
+	 * @return the number of valid elevations
+	 */
+	public int getProfiles(double[][] x, double[][] y, int[] n, int level, double[][] result) {
+		int count = 0;
+		for (int i = 0; i < n.length; ++i) {
+			count += getProfile(x[i], y[i], n[i], level, result[i]);
+		}
+		return (count);
+	}
+
+	/**
+	 * Get the elevations on a regular grid. Row 0 is at yMin and column 0 is
+	 * at xMin.
+	 * 
+	 * @param xMin
+	 *            the X coordinate of the first column
+	 * @param yMin
+	 *            the Y coordinate of the first row
+	 * @param numColumns
+	 *            the number of columns
+	 * @param numRows
+	 *            the number of rows
+	 * @param xSpacing
+	 *            the distance between columns
+	 * @param ySpacing
+	 *            the distance between rows
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @param result
+	 *            the elevations in row order, NaN if outside the landscape or
+	 *            missing
+	 * @return the number of valid elevations
+	 */
+	public int getWindow(double xMin, double yMin, int numColumns, int numRows, double xSpacing, double ySpacing,
+		int level, double[] result) {
+		int n = numColumns * numRows;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		int k = 0;
+		for (int r = 0; r < numRows; ++r) {
+			for (int c = 0; c < numColumns; ++c) {
+				x[k] = xMin + c * xSpacing;
+				y[k] = yMin + r * ySpacing;
+				k++;
+			}
+		}
+		return (getElevations(x, y, n, level, result));
+	}
+
+	/**
+	 * Get the scaled elevation values of a tile. The array is shared with the
+	 * cache and must not be modified. Values are in row order starting with
+	 * the top row.
+	 * 
+	 * @param key
+	 * @return the tile values, or null if the tile could not be read
+	 */
+	public float[] getTile(QuadKey key) {
+		Long id = key.toLong();
+		float[] data;
+		synchronized (this) {
+			data = tileMap.get(id);
+			if (data == null) {
+				missCount++;
+			} else {
+				hitCount++;
+			}
+		}
+		if (data == null) {
+			data = readTile(key);
+			synchronized (this) {
+				tileMap.put(id, data);
+			}
+		}
+		if (data == NO_TILE) {
+			return (null);
+		}
+		return (data);
+	}
+
+	/**
+	 * Get the summed-area table of a tile, building it from the tile values
+	 * the first time it is needed.
+	 * 
+	 * @param key
+	 * @return the table, or null if the tile could not be read
+	 */
+	public SummedAreaTable getSummedAreaTable(QuadKey key) {
+		Long id = key.toLong();
+		SummedAreaTable table;
+		synchronized (this) {
+			table = tableMap.get(id);
+		}
+		if (table == null) {
+			float[] data = getTile(key);
+			if (data == null) {
+				return (null);
+			}
+			table = new SummedAreaTable(data, columns, rows);
+			synchronized (this) {
+				tableMap.put(id, table);
+			}
+		}
+		return (table);
+	}
+
+	/**
+	 * Get the statistics of the tile posts in a rectangular window. Each tile
+	 * contributes with its summed-area table in constant time.
+	 * 
+	 * @param xMin
+	 * @param yMin
+	 * @param xMax
+	 * @param yMax
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @param store
+	 *            sum, sum of squares, and count of valid posts
+	 * @return store
+	 */
+	public double[] getWindowStatistics(double xMin, double yMin, double xMax, double yMax, int level, double[] store) {
+		Arrays.fill(store, 0, 3, 0);
+		level = getLevel(level);
+		int[] window = getPostWindow(xMin, yMin, xMax, yMax, level);
+		if (window != null) {
+			addStatistics(level, window[0], window[1], window[2], window[3], store);
+		}
+		return (store);
+	}
+
+	/**
+	 * Get the statistics of the tile posts inside a polygon. The posts inside
+	 * each row are found with the rasterizer and each span is summed with the
+	 * summed-area tables, so the work grows with the number of rows rather
+	 * than the number of posts.
+	 * 
+	 * @param rasterizer
+	 *            the polygon
+	 * @param xMin
+	 *            the polygon bounds
+	 * @param yMin
+	 * @param xMax
+	 * @param yMax
+	 * @param level
+	 *            the level, -1 for the highest level
+	 * @param store
+	 *            sum, sum of squares, and count of valid posts
+	 * @return store
+	 */
+	public double[] getRegionStatistics(PolygonRasterizer rasterizer, double xMin, double yMin, double xMax,
+		double yMax, int level, double[] store) {
+		Arrays.fill(store, 0, 3, 0);
+		level = getLevel(level);
+		int[] window = getPostWindow(xMin, yMin, xMax, yMax, level);
+		if (window == null) {
+			return (store);
+		}
+		double pw = terrainWidth / tileWidth / (1 << level);
+		double pl = terrainLength / tileLength / (1 << level);
+		int[] span = new int[rasterizer.getMaximumSpanArraySize()];
+		for (int r = window[2]; r < window[3]; ++r) {
+			int n = rasterizer.getSpans(-terrainLength / 2 + r * pl, -terrainWidth / 2 + window[0] * pw, pw, window[1]
+				- window[0], span);
+			for (int k = 0; k < n; ++k) {
+				addStatistics(level, window[0] + span[k * 2], window[0] + span[k * 2 + 1], r, r + 1, store);
+			}
+		}
+		return (store);
+	}
+
+	/**
+	 * Get the lower left corner and pixel dimensions of a tile.
+	 * 
+	 * @param key
+	 * @param store
+	 *            x, y, pixel width, pixel length
+	 * @return store
+	 */
+	public double[] getTileOrigin(QuadKey key, double[] store) {
+		double pixelWidth = terrainWidth / tileWidth;
+		double pixelLength = terrainLength / tileLength;
+		double x = -terrainWidth / 2;
+		double y = -terrainLength / 2;
+		int level = key.getLevel();
+		for (int i = 0; i < level; ++i) {
+			pixelWidth /= 2;
+			pixelLength /= 2;
+			int quadrant = key.getPath(i);
+			if ((quadrant == 2) || (quadrant == 4)) {
+				x += pixelWidth * tileWidth;
+			}
+			if ((quadrant == 1) || (quadrant == 2)) {
+				y += pixelLength * tileLength;
+			}
+		}
+		store[0] = x;
+		store[1] = y;
+		store[2] = pixelWidth;
+		store[3] = pixelLength;
+		return (store);
+	}
+
+	/**
+	 * Clear the tile cache.
+	 */
+	public synchronized void clear() {
+		tileMap.clear();
+		tableMap.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return ("ElevationSampler tiles=" + tileMap.size() + " tables=" + tableMap.size() + " hits=" + hitCount + " misses=" + missCount);
+	}
+
+	private int getLevel(int level) {
+		if ((level < 0) || (level >= numLevels)) {
+			return (Math.max(0, numLevels - 1));
+		}
+		return (level);
+	}
+
+	/**
+	 * Get the range of posts at a level inside a rectangle, as first column,
+	 * column after the last, first row, and row after the last. Row 0 is at
+	 * the bottom of the landscape.
+	 */
+	private int[] getPostWindow(double xMin, double yMin, double xMax, double yMax, int level) {
+		int n = 1 << level;
+		double pw = terrainWidth / tileWidth / n;
+		double pl = terrainLength / tileLength / n;
+		int c0 = Math.max(0, (int) Math.ceil((xMin + terrainWidth / 2) / pw));
+		int c1 = Math.min(tileWidth * n + 1, (int) Math.floor((xMax + terrainWidth / 2) / pw) + 1);
+		int r0 = Math.max(0, (int) Math.ceil((yMin + terrainLength / 2) / pl));
+		int r1 = Math.min(tileLength * n + 1, (int) Math.floor((yMax + terrainLength / 2) / pl) + 1);
+		if ((c0 >= c1) || (r0 >= r1)) {
+			return (null);
+		}
+		return (new int[] { c0, c1, r0, r1 });
+	}
+
+	/**
+	 * Add the statistics of a block of posts at a level. Neighboring tiles
+	 * share their edge posts, so each tile counts its last column and row
+	 * only at the edge of the landscape.
+	 */
+	private void addStatistics(int level, int c0, int c1, int r0, int r1, double[] store) {
+		int n = 1 << level;
+		int tx0 = Math.min(c0 / tileWidth, n - 1);
+		int tx1 = Math.min((c1 - 1) / tileWidth, n - 1);
+		int ty0 = Math.min(r0 / tileLength, n - 1);
+		int ty1 = Math.min((r1 - 1) / tileLength, n - 1);
+		for (int ty = ty0; ty <= ty1; ++ty) {
+			int rEnd = (ty == n - 1) ? tileLength + 1 : tileLength;
+			for (int tx = tx0; tx <= tx1; ++tx) {
+				int cEnd = (tx == n - 1) ? tileWidth + 1 : tileWidth;
+				QuadKey key = getKey(level, tx, ty);
+				if (!source.tileExists(key)) {
+					continue;
+				}
+				SummedAreaTable table = getSummedAreaTable(key);
+				if (table == null) {
+					continue;
+				}
+				int cx = tx * tileWidth;
+				int ry = ty * tileLength;
+				table.addStatistics(Math.max(c0 - cx, 0), Math.max(r0 - ry, 0), Math.min(c1 - cx, cEnd),
+					Math.min(r1 - ry, rEnd), store);
+			}
+		}
+	}
+
+	/**
+	 * Get the key of a tile from its column and row (from the bottom) at a
+	 * level.
+	 */
+	private static QuadKey getKey(int level, int tx, int ty) {
+		byte[] path = new byte[level];
+		for (int i = 0; i < level; ++i) {
+			int bit = level - 1 - i;
+			boolean right = ((tx >> bit) & 1) == 1;
+			boolean upper = ((ty >> bit) & 1) == 1;
+			if (upper) {
+				path[i] = (byte) (right ? 2 : 1);
+			} else {
+				path[i] = (byte) (right ? 4 : 3);
+			}
+		}
+		return (new QuadKey(path));
+	}
+
+	/**
+	 * Determine if a point is in a tile extent. Like QuadKey lookups, a tile
+	 * includes its left and bottom edges, and its right and top edges only at
+	 * the edge of the landscape.
+	 */
+	private boolean inTile(double x, double y, double x0, double y0, double x1, double y1) {
+		if ((x < x0) || (y < y0) || (x > x1) || (y > y1)) {
+			return (false);
+		}
+		if ((x == x1) && (x1 < terrainWidth / 2)) {
+			return (false);
+		}
+		if ((y == y1) && (y1 < terrainLength / 2)) {
+			return (false);
+		}
+		return (true);
+	}
+
+	/**
+	 * Determine if a coordinate is inside the landscape.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean contains(double x, double y) {
+		return ((Math.abs(x) <= terrainWidth / 2) && (Math.abs(y) <= terrainLength / 2));
+	}
+
+	private float[] readTile(QuadKey key) {
+		try {
+			QuadTreeTile tile = source.getTile(layerName, key, DataType.Float);
+			if ((tile == null) || (tile.columns != columns) || (tile.rows != rows)) {
+				return (NO_TILE);
+			}
+			float[] data = new float[columns * rows];
+			tile.raster.asFloatBuffer().get(data);
+			// scale the same way as the mesh vertices
+			if (pixelScale != 1) {
+				for (int i = 0; i < data.length; ++i) {
+					data[i] *= pixelScale;
+				}
+			}
+			return (data);
+		} catch (Exception e) {
+			System.out.println("Unable to read tile " + key + " for elevation sampling, see log.");
+			e.printStackTrace();
+			return (NO_TILE);
+		}
+	}
+
+	/**
+	 * Bilinear interpolation, in the same way as QuadTreeMesh, at a position
+	 * given in pixels from the lower left corner of the tile.
+	 */
+	private double sample(float[] data, double x, double y) {
+		x = Math.min(Math.max(x, 0), tileWidth);
+		y = Math.min(Math.max(y, 0), tileLength);
+		int c0 = (int) Math.floor(x);
+		int c1 = Math.min((int) Math.ceil(x), tileWidth);
+		int r0 = (int) Math.floor(y);
+		int r1 = Math.min((int) Math.ceil(y), tileLength);
+		// flip rows (this is like an image)
+		int i0 = (tileLength - r0) * columns;
+		int i1 = (tileLength - r1) * columns;
+		double xIn1, xIn2;
+		if (c0 == c1) {
+			xIn1 = data[i0 + c0];
+			xIn2 = data[i1 + c0];
+		} else {
+			xIn1 = interpolate(data[i0 + c0], data[i0 + c1], x - c0);
+			xIn2 = interpolate(data[i1 + c0], data[i1 + c1], x - c0);
+		}
+		if (r0 == r1) {
+			return ((float) xIn1);
+		}
+		return ((float) interpolate(xIn1, xIn2, y - r0));
+	}
+
+	private static double interpolate(double v0, double v1, double t) {
+		// a missing value with no weight does not spoil the result
+		if (t == 0) {
+			return (v0);
+		}
+		if (t == 1) {
+			return (v1);
+		}
+		return ((1 - t) * v0 + t * v1);
+	}
+
+	private static void sortByKey(long[] id, int[] order, int lo, int hi) {
+		while (lo < hi) {
+			long pivot = id[order[(lo + hi) >>> 1]];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (id[order[i]] < pivot) {
+					i++;
+				}
+				while (id[order[j]] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			// recurse into the smaller part
+			if (j - lo < hi - i) {
+				sortByKey(id, order, lo, j);
+				lo = i;
+			} else {
+				sortByKey(id, order, i, hi);
+				hi = j;
+			}
+		}
+	}
+
+}
@@ -110,17 +110,18 @@ import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTreeFactory;
 import gov.nasa.arc.dert.landscape.srs.SpatialReferenceSystem;
 import gov.nasa.arc.dert.render.LayerEffects;
+import gov.nasa.arc.dert.util.CompensatedSum;
 import gov.nasa.arc.dert.util.MathUtil;
+import gov.nasa.arc.dert.util.PolygonRasterizer;
+import gov.nasa.arc.dert.util.TriangleGrid;
 import gov.nasa.arc.dert.view.Console;
 
 import java.awt.Color;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import com.ardor3d.intersection.IntersectionRecord;
-import com.ardor3d.intersection.PickData;
-import com.ardor3d.intersection.PickingUtil;
-import com.ardor3d.intersection.PrimitivePickResults;
-import com.ardor3d.math.Ray3;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyVector3;
 import com.ardor3d.renderer.state.MaterialState;
@@ -128,8 +129,8 @@ import com.ardor3d.renderer.state.MaterialState.MaterialFace;
 import com.ardor3d.renderer.state.RenderState;
 import com.ardor3d.renderer.state.TextureState;
 import com.ardor3d.renderer.state.WireframeState;
+import com.ardor3d.scenegraph.Mesh;
 import com.ardor3d.scenegraph.Node;
-import com.ardor3d.scenegraph.Spatial;
 import com.ardor3d.scenegraph.event.DirtyType;
 import com.ardor3d.scenegraph.hint.LightCombineMode;
 
@@ -146,6 +147,18 @@ public class Landscape
 
 	public static int MAX_LEVELS = 50;
 
+	// number of samples across a region at the first level of a tolerance
+	// driven region computation
+	public static final int MIN_REGION_SAMPLES = 32;
+
+	// number of rows in a band of a parallel region computation
+	public static final int BAND_ROWS = 32;
+
+	// thread pool for region computations and its number of threads (0 for
+	// the number of processors)
+	private static ForkJoinPool regionPool;
+	private static int regionThreads;
+
 	// terrain tile source
 	protected TileSource source;
 
@@ -197,6 +210,9 @@ public class Landscape
 
 	// spatial reference system for base layer
 	private SpatialReferenceSystem srs;
+
+	// elevation sampler for analysis tools
+	private ElevationSampler sampler;
 	
 	private static Landscape INSTANCE;
 	
@@ -246,6 +262,7 @@ public class Landscape
 		bounds[4] = terrainLength/2;
 		bounds[2] = minZ;
 		bounds[5] = maxZ;
+		sampler = new ElevationSampler(source, baseLayer, pixelScale);
 		textureState = new TextureState();
 		textureState.setEnabled(true);
 		setRenderState(textureState);
@@ -385,6 +402,16 @@ public class Landscape
 		return (maxZ);
 	}
 
+	/**
+	 * Get the elevation that the landscape mesh shows where the base layer
+	 * has no value, scaled like the mesh vertices.
+	 * 
+	 * @return
+	 */
+	public double getFillElevation() {
+		return (baseLayer.getFillValue() * pixelScale);
+	}
+
 	/**
 	 * Get the center of the landscape in contents frame (minimum Z subtracted
 	 * from the elevation).
@@ -432,6 +459,30 @@ public class Landscape
 		return (n);
 	}
 
+	/**
+	 * Get the vertices (x,y,z) along several lines on the landscape, such as a
+	 * fan or swath of profiles, from the highest level tiles. The lines share
+	 * the tile cache of the elevation sampler.
+	 * 
+	 * @param vertex
+	 *            the arrays to put the vertices of each line
+	 * @param p0
+	 *            first point of each line
+	 * @param p1
+	 *            second point of each line
+	 * @param contentsFrame
+	 *            get the Z coordinate in the contents frame
+	 * @return the number of values put in each array, -1 if the line is not
+	 *         on the landscape
+	 */
+	public int[] getVertices(float[][] vertex, Vector3[] p0, Vector3[] p1, boolean contentsFrame) {
+		int[] n = new int[p0.length];
+		for (int i = 0; i < p0.length; ++i) {
+			n[i] = getVertices(vertex[i], p0[i], p1[i], true, contentsFrame);
+		}
+		return (n);
+	}
+
 	/**
 	 * Get the elevation at the given coordinate
 	 * 
@@ -499,15 +550,7 @@ public class Landscape
 	 * @return
 	 */
 	public double getElevationAtHighestLevel(double x, double y) {
-		QuadKey key = source.getKey(x, y, terrainWidth, terrainLength);
-		if (key == null) {
-			return (Double.NaN);
-		}
-		QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(key);
-		if (qt == null) {
-			return (Double.NaN);
-		}
-		return (qt.getElevation(x, y));
+		return (sampler.getElevation(x, y));
 	}
 
 	/**
@@ -518,15 +561,16 @@ public class Landscape
 	 * @return
 	 */
 	public double getElevation(double x, double y, int level) {
-		QuadKey key = source.getKey(x, y, terrainWidth, terrainLength, level);
-		if (key == null) {
-			return (Double.NaN);
-		}
-		QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(key);
-		if (qt == null) {
-			return (Double.NaN);
-		}
-		return (qt.getElevation(x, y));
+		return (sampler.getElevation(x, y, level));
+	}
+
+	/**
+	 * Get the elevation sampler used by analysis tools.
+	 * 
+	 * @return
+	 */
+	public ElevationSampler getElevationSampler() {
+		return (sampler);
 	}
 
 	/**
@@ -629,29 +673,11 @@ public class Landscape
 	 */
 	public double getSampledMeanElevationOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound,
 		ReadOnlyVector3 upperBound) {
-		double xMin = lowerBound.getX();
-		double yMin = lowerBound.getY();
-		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
-		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		Vector3 vert = new Vector3();
-		double meanElevation = 0;
-		int count = 0;
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(Double.NaN);
-				vert.set(xMin + j * pixelWidth, yMin + i * pixelLength, 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY());
-					if (!Double.isNaN(el)) {
-						meanElevation += el;
-						count++;
-					}
-				}
-			}
-		}
-		meanElevation /= count;
-		return (meanElevation);
+		RegionStatistics stats = getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.MEAN_ELEVATION,
+			Double.NaN, null);
+		if (stats == null)
+			return(Double.NaN);
+		return (stats.meanElevation);
 	}
 
 	/**
@@ -663,31 +689,11 @@ public class Landscape
 	 * @return
 	 */
 	public double getSampledMeanSlopeOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound) {
-		double xMin = lowerBound.getX();
-		double yMin = lowerBound.getY();
-		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
-		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		Vector3 vert = new Vector3();
-		Vector3 meanNormal = new Vector3();
-		Vector3 store = new Vector3();
-		int count = 0;
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(Double.NaN);
-				vert.set((float) (xMin + j * pixelWidth), (float) (yMin + i * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					boolean success = getNormalAtHighestLevel(vert.getX(), vert.getY(), store);
-					if (success) {
-						meanNormal.addLocal(store);
-						count++;
-					}
-				}
-			}
-		}
-		vert.set(meanNormal);
-		vert.multiplyLocal(1.0 / count);
-		return (MathUtil.getSlopeFromNormal(vert));
+		RegionStatistics stats = getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.MEAN_SLOPE,
+			Double.NaN, null);
+		if (stats == null)
+			return(Double.NaN);
+		return (stats.meanSlope);
 	}
 
 	/**
@@ -736,87 +742,31 @@ public class Landscape
 //		return (volume);
 //	}
 
-	public double[] getSampledVolumeOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound, Spatial polygon) {
-		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
-		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		Vector3 vert = new Vector3();
-		double volumeAbove = 0;
-		double volumeBelow = 0;
-		// sample the landscape for elevation
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(null);
-				vert.set((float) (lowerBound.getX() + j * pixelWidth), (float) (lowerBound.getY() + i * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY())-minZ * pixelScale;
-					if (!Double.isNaN(el)) {
-						vert.setZ(upperBound.getZ()+1);
-						double pZ = sampleSpatial(vert, Vector3.NEG_UNIT_Z, polygon);
-//							System.err.println("Landscape.getSampledVolumeOfRegion "+el+" "+maxZ+" "+minZ+" "+pZ+" "+vert);
-						if (!Double.isNaN(pZ)) {
-							if (el < pZ) {
-								volumeBelow += (pZ-el);
-							}
-							else {
-								volumeAbove += (el-pZ);
-							}
-						}
-					}
-				}
-			}
-		}
-		return (new double[] {volumeAbove*pixelWidth*pixelLength, volumeBelow*pixelWidth*pixelLength});
+	/**
+	 * Given a region, return the volume between the landscape and a
+	 * triangulated polygon surface.
+	 * 
+	 * @param vertex
+	 * @param lowerBound
+	 * @param upperBound
+	 * @param polygon
+	 *            the tessellated polygon
+	 * @return volume above and below the polygon, or null if interrupted
+	 */
+	public double[] getSampledVolumeOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound, Mesh polygon) {
+		RegionStatistics stats = getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.VOLUME,
+			Double.NaN, new TriangleGrid(polygon));
+		if (stats == null)
+			return(null);
+		return (stats.getVolume());
 	}
 
 	public double[] getSampledVolumeOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound, double elev) {
-		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
-		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		Vector3 vert = new Vector3();
-		double volumeAbove = 0;
-		double volumeBelow = 0;
-		// sample the landscape for elevation
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(null);
-				vert.set((float) (lowerBound.getX() + j * pixelWidth), (float) (lowerBound.getY() + i * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY());
-					if (!Double.isNaN(el)) {
-						if (el < elev)
-							volumeBelow += (elev-el);
-						else
-							volumeAbove += (el-elev);
-					}
-				}
-			}
-		}
-		return (new double[] {volumeAbove*pixelWidth*pixelLength, volumeBelow*pixelWidth*pixelLength});
-	}
-
-	private double sampleSpatial(Vector3 p0, ReadOnlyVector3 dir, Spatial node) {
-		// Create a ray starting from the point, and going in the given
-		// direction
-		PrimitivePickResults pr = new PrimitivePickResults();
-		final Ray3 ray = new Ray3(p0, dir);
-		pr.setCheckDistance(true);
-//		System.err.println("Landscape.sampleSpatial "+ray+" "+node.getWorldBound());
-		PickingUtil.findPick(node, ray, pr, false);
-		if (pr.getNumber() == 0) {
-			return (Double.NaN);
-		}
-		double dist = Double.MAX_VALUE;
-		for (int i = 0; i < pr.getNumber(); ++i) {
-			PickData pd = pr.getPickData(i);
-			IntersectionRecord ir = pd.getIntersectionRecord();
-			int closestIndex = ir.getClosestIntersection();
-			double d = ir.getIntersectionDistance(closestIndex);
-			if (d < dist) {
-				dist = d;
-			}
-		}
-		return (p0.getZ()-dist);
+		RegionStatistics stats = getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.VOLUME,
+			elev, null);
+		if (stats == null)
+			return(null);
+		return (stats.getVolume());
 	}
 
 	/**
@@ -828,41 +778,71 @@ public class Landscape
 	 * @param samples
 	 *            the number of samples on a side of the rectangular region
 	 *            defined by the polygon bounds
-	 * @return an array of elevation difference
+	 * @return the number of rows and columns of elevation differences, or null
+	 *         if interrupted
 	 */
 	public int[] getSampledDifferenceOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound,
-		double[] planeEq, double sampleSize, float[][] result, float[] minMaxElev) {
-		int columns = (int) ((upperBound.getX() - lowerBound.getX()) / sampleSize);
-		int rows = (int) ((upperBound.getY() - lowerBound.getY()) / sampleSize);
-		Vector3 vert = new Vector3();
-		minMaxElev[0] = Float.MAX_VALUE;
-		minMaxElev[1] = -Float.MAX_VALUE;
-		// sample the landscape for elevation
+		final double[] planeEq, final double sampleSize, final float[][] result, float[] minMaxElev) {
+		final double xMin = lowerBound.getX();
+		final double yMin = lowerBound.getY();
+		final int columns = (int) ((upperBound.getX() - xMin) / sampleSize);
+		int rows = (int) ((upperBound.getY() - yMin) / sampleSize);
+		for (int i = 0; i < result.length; ++i) {
+			Arrays.fill(result[i], Float.NaN);
+		}
+		// find the spans of samples inside the polygon, the rasterizer is
+		// not shared with the bands
+		PolygonRasterizer rasterizer = new PolygonRasterizer(vertex);
+		int[] span = new int[rasterizer.getMaximumSpanArraySize()];
+		final int[][] sampleSpan = new int[rows][];
 		for (int i = 0; i < rows; ++i) {
-			for (int j = 0; j < columns; ++j) {
-				vert.set((float) (lowerBound.getX() + j * sampleSize), (float) (lowerBound.getY() + i * sampleSize), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY())-minZ;
-					double elPoly = MathUtil.getPlaneZ(vert.getX(), vert.getY(), planeEq);
-//					System.err.println("Landscape.getSampledDifferenceOfRegion "+el+" "+elPoly);
-					result[i][j] = (float) (el - elPoly);
-					if (result[i][j] < minMaxElev[0]) {
-						minMaxElev[0] = result[i][j];
-					}
-					if (result[i][j] > minMaxElev[1]) {
-						minMaxElev[1] = result[i][j];
+			int n = rasterizer.getSpans(yMin + i * sampleSize, xMin, sampleSize, columns, span);
+			sampleSpan[i] = Arrays.copyOf(span, n * 2);
+		}
+		// sample the landscape for elevation, only inside the polygon, in
+		// bands of rows on the fork/join pool
+		final float[][] bandMinMax = new float[(rows + BAND_ROWS - 1) / BAND_ROWS][];
+		RegionJob job = new RegionJob(rows) {
+			@Override
+			protected void computeBand(int band, int firstRow, int lastRow) {
+				float[] minMax = new float[] { Float.MAX_VALUE, -Float.MAX_VALUE };
+				double[] elev = new double[columns];
+				for (int i = firstRow; i < lastRow; ++i) {
+					if (isCancelled())
+						break;
+					double y = yMin + i * sampleSize;
+					int[] rowSpan = sampleSpan[i];
+					for (int k = 0; k < rowSpan.length; k += 2) {
+						int first = rowSpan[k];
+						int last = rowSpan[k + 1];
+						sampler.getWindow(xMin + first * sampleSize, y, last - first, 1, sampleSize, sampleSize, -1, elev);
+						for (int j = first; j < last; ++j) {
+							double x = xMin + j * sampleSize;
+							double el = elev[j - first] - minZ;
+							double elPoly = MathUtil.getPlaneZ(x, y, planeEq);
+							result[i][j] = (float) (el - elPoly);
+							if (result[i][j] < minMax[0]) {
+								minMax[0] = result[i][j];
+							}
+							if (result[i][j] > minMax[1]) {
+								minMax[1] = result[i][j];
+							}
+						}
 					}
-				} else {
-					result[i][j] = Float.NaN;
 				}
+				bandMinMax[band] = minMax;
 			}
-			for (int j = columns; j < result[0].length; ++j) {
-				result[i][j] = Float.NaN;
+		};
+		if (!job.run())
+			return (null);
+		minMaxElev[0] = Float.MAX_VALUE;
+		minMaxElev[1] = -Float.MAX_VALUE;
+		for (int i = 0; i < bandMinMax.length; ++i) {
+			if (bandMinMax[i] != null) {
+				minMaxElev[0] = Math.min(minMaxElev[0], bandMinMax[i][0]);
+				minMaxElev[1] = Math.max(minMaxElev[1], bandMinMax[i][1]);
 			}
 		}
-		for (int i = rows; i < result.length; ++i) {
-			Arrays.fill(result[i], Float.NaN);
-		}
 		return (new int[] { rows, columns });
 	}
 
@@ -898,58 +878,393 @@ public class Landscape
 	 * @return
 	 */
 	public double getSampledSurfaceAreaOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound) {
-		Vector3 vert = new Vector3();
-		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
-		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		double surfaceArea = 0;
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(Double.NaN);
-				vert.set((float) (lowerBound.getX() + (j+0.5) * pixelWidth), (float) (lowerBound.getY() + (i+0.5) * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double sa = getSurfaceArea(vert);
-					if (!Double.isNaN(sa)) {
-						surfaceArea += sa;
+		RegionStatistics stats = getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.SURFACE_AREA,
+			Double.NaN, null);
+		if (stats == null)
+			return(Double.NaN);
+		return (stats.surfaceArea);
+	}
+
+	/**
+	 * Compute statistics of the landscape inside a polygon region in a single
+	 * pass at the highest level.
+	 * 
+	 * @param vertex
+	 *            the vertices of the polygon
+	 * @param lowerBound
+	 *            the lower bound of the region
+	 * @param upperBound
+	 *            the upper bound of the region
+	 * @param statistics
+	 *            the statistics to compute (RegionStatistics constants)
+	 * @param volElev
+	 *            the reference elevation for volume, or NaN
+	 * @param surface
+	 *            the reference polygon surface for volume if volElev is NaN
+	 * @return the statistics, or null if interrupted
+	 */
+	public RegionStatistics getRegionStatistics(Vector3[] vertex, ReadOnlyVector3 lowerBound,
+		ReadOnlyVector3 upperBound, int statistics, double volElev, TriangleGrid surface) {
+		return (getRegionStatistics(vertex, lowerBound, upperBound, statistics, volElev, surface, baseMapLevel));
+	}
+
+	/**
+	 * Compute statistics of the landscape inside a polygon region, choosing
+	 * the pyramid level from an error budget. The statistics are computed
+	 * first at the coarsest level that puts MIN_REGION_SAMPLES samples across
+	 * the region, then at each finer level until the relative change from
+	 * the previous level is within the tolerance or the highest level is
+	 * reached. Each level costs about four times the one before, so the total
+	 * is about a third more than the last level alone.
+	 * 
+	 * @param vertex
+	 *            the vertices of the polygon
+	 * @param lowerBound
+	 *            the lower bound of the region
+	 * @param upperBound
+	 *            the upper bound of the region
+	 * @param statistics
+	 *            the statistics to compute (RegionStatistics constants)
+	 * @param volElev
+	 *            the reference elevation for volume, or NaN
+	 * @param surface
+	 *            the reference polygon surface for volume if volElev is NaN
+	 * @param tolerance
+	 *            the relative error allowed (0.001 for 0.1%), 0 to refine to
+	 *            the highest level
+	 * @param listener
+	 *            notified with the result of each level, may be null
+	 * @return the statistics, with the level used and the error estimate, or
+	 *         null if interrupted
+	 */
+	public RegionStatistics getRegionStatistics(Vector3[] vertex, ReadOnlyVector3 lowerBound,
+		ReadOnlyVector3 upperBound, int statistics, double volElev, TriangleGrid surface, double tolerance,
+		RegionStatisticsListener listener) {
+		// coarsest level with enough samples across the region
+		double size = Math.min(upperBound.getX() - lowerBound.getX(), upperBound.getY() - lowerBound.getY());
+		int level = baseMapLevel;
+		while ((level > 0) && (size / (pixelWidth * (1 << (baseMapLevel - level + 1))) >= MIN_REGION_SAMPLES)) {
+			level--;
+		}
+		RegionStatistics previous = null;
+		while (true) {
+			RegionStatistics stats = getRegionStatistics(vertex, lowerBound, upperBound, statistics, volElev, surface,
+				level);
+			if (stats == null) {
+				return (null);
+			}
+			if (level == baseMapLevel) {
+				// the highest level is the reference
+				stats.errorEstimate = 0;
+			} else if (previous != null) {
+				stats.errorEstimate = getRelativeChange(previous, stats, statistics);
+			}
+			if (listener != null) {
+				listener.statisticsUpdated(stats);
+			}
+			if ((level == baseMapLevel) || (stats.errorEstimate <= tolerance)) {
+				return (stats);
+			}
+			previous = stats;
+			level++;
+		}
+	}
+
+	/**
+	 * Get the largest relative change of the requested statistics between
+	 * two levels. Mean elevation is relative to the elevation range of the
+	 * landscape since elevations have an arbitrary datum.
+	 */
+	private double getRelativeChange(RegionStatistics coarse, RegionStatistics fine, int statistics) {
+		double change = 0;
+		if ((statistics & RegionStatistics.MEAN_ELEVATION) != 0) {
+			change = Math.max(change, getRelativeChange(coarse.meanElevation, fine.meanElevation, (maxZ - minZ)
+				* pixelScale));
+		}
+		if ((statistics & RegionStatistics.MEAN_SLOPE) != 0) {
+			change = Math.max(change, getRelativeChange(coarse.meanSlope, fine.meanSlope, Math.abs(fine.meanSlope)));
+		}
+		if ((statistics & RegionStatistics.SURFACE_AREA) != 0) {
+			change = Math.max(change, getRelativeChange(coarse.surfaceArea, fine.surfaceArea, fine.surfaceArea));
+		}
+		if ((statistics & RegionStatistics.VOLUME) != 0) {
+			double total = Math.abs(fine.volumeAbove) + Math.abs(fine.volumeBelow);
+			change = Math.max(change, getRelativeChange(coarse.volumeAbove, fine.volumeAbove, total));
+			change = Math.max(change, getRelativeChange(coarse.volumeBelow, fine.volumeBelow, total));
+		}
+		return (change);
+	}
+
+	private double getRelativeChange(double coarse, double fine, double scale) {
+		if (Double.isNaN(coarse) && Double.isNaN(fine)) {
+			return (0);
+		}
+		if (Double.isNaN(coarse) || Double.isNaN(fine)) {
+			return (Double.POSITIVE_INFINITY);
+		}
+		double diff = Math.abs(coarse - fine);
+		if (diff == 0) {
+			return (0);
+		}
+		if (!(scale > 0)) {
+			return (Double.POSITIVE_INFINITY);
+		}
+		return (diff / scale);
+	}
+
+	/**
+	 * Compute statistics of the landscape inside a polygon region in a single
+	 * pass. Samples are taken from the lower bound at the pixel spacing of
+	 * the given level. The inside samples of each row are found with a scanline
+	 * rasterizer and elevations are read a row at a time from the elevation
+	 * sampler. Slope and surface area use elevations at half sample spacing.
+	 * 
+	 * @param vertex
+	 *            the vertices of the polygon
+	 * @param lowerBound
+	 *            the lower bound of the region
+	 * @param upperBound
+	 *            the upper bound of the region
+	 * @param statistics
+	 *            the statistics to compute (RegionStatistics constants)
+	 * @param volElev
+	 *            the reference elevation for volume, or NaN
+	 * @param surface
+	 *            the reference polygon surface for volume if volElev is NaN
+	 * @param level
+	 *            the pyramid level
+	 * @return the statistics, or null if interrupted
+	 */
+	private RegionStatistics getRegionStatistics(Vector3[] vertex, ReadOnlyVector3 lowerBound,
+		final ReadOnlyVector3 upperBound, int statistics, final double volElev, final TriangleGrid surface, int level) {
+		final double sampleWidth = pixelWidth * (1 << (baseMapLevel - level));
+		final double sampleLength = pixelLength * (1 << (baseMapLevel - level));
+		final double xMin = lowerBound.getX();
+		final double yMin = lowerBound.getY();
+		int columns = (int) ((upperBound.getX() - xMin) / sampleWidth);
+		int rows = (int) ((upperBound.getY() - yMin) / sampleLength);
+		final boolean doSlope = (statistics & RegionStatistics.MEAN_SLOPE) != 0;
+		final boolean doArea = (statistics & RegionStatistics.SURFACE_AREA) != 0;
+		final boolean doVolume = ((statistics & RegionStatistics.VOLUME) != 0) && (!Double.isNaN(volElev) || (surface != null));
+		final boolean volumeFromPolygon = doVolume && Double.isNaN(volElev);
+
+		// Elevations are sampled on a lattice with s points per pixel and a
+		// margin of one pixel. Sample (j, i) is at lattice (s*j+s, s*i+s).
+		final int s = (doSlope || doArea) ? 2 : 1;
+		final LatticeRows lattice = new LatticeRows((level == baseMapLevel) ? -1 : level, xMin - sampleWidth, yMin - sampleLength, sampleWidth / s, sampleLength / s,
+			s * columns + 2 * s + 1, s * rows + 2 * s + 1, 2 * s + 1);
+
+		// find the spans of samples and pixel centers inside the polygon
+		// and the lattice columns needed from each lattice row
+		PolygonRasterizer rasterizer = new PolygonRasterizer(vertex);
+		int[] span = new int[rasterizer.getMaximumSpanArraySize()];
+		final int[][] sampleSpan = new int[rows][];
+		final int[][] centerSpan = new int[rows][];
+		int sMargin = doSlope ? s : 0;
+		for (int i = 0; i < rows; ++i) {
+			int n = rasterizer.getSpans(yMin + i * sampleLength, xMin, sampleWidth, columns, span);
+			sampleSpan[i] = Arrays.copyOf(span, n * 2);
+			for (int k = 0; k < n; ++k) {
+				lattice.require(s * i + s - sMargin, s * i + s + sMargin, s * span[k * 2] + s - sMargin, s
+					* (span[k * 2 + 1] - 1) + s + sMargin);
+			}
+			if (doArea) {
+				n = rasterizer.getSpans(yMin + (i + 0.5) * sampleLength, xMin + 0.5 * sampleWidth, sampleWidth, columns, span);
+				centerSpan[i] = Arrays.copyOf(span, n * 2);
+				for (int k = 0; k < n; ++k) {
+					lattice.require(2 * i + 2, 2 * i + 4, 2 * span[k * 2] + 2, 2 * span[k * 2 + 1] + 2);
+				}
+			}
+		}
+
+		// process the rows in bands on the fork/join pool
+		final BandStatistics[] bandStats = new BandStatistics[(rows + BAND_ROWS - 1) / BAND_ROWS];
+		RegionJob job = new RegionJob(rows) {
+			@Override
+			protected void computeBand(int band, int firstRow, int lastRow) {
+				bandStats[band] = getBandStatistics(firstRow, lastRow, xMin, yMin, sampleWidth, sampleLength, s, new LatticeRows(lattice), sampleSpan,
+					centerSpan, doSlope, doArea, doVolume, volumeFromPolygon, volElev, surface, this);
+			}
+		};
+		if (!job.run())
+			return (null);
+
+		// combine the bands in order so the result does not depend on the
+		// number of threads
+		BandStatistics total = new BandStatistics();
+		for (int i = 0; i < bandStats.length; ++i) {
+			total.add(bandStats[i]);
+		}
+
+		RegionStatistics stats = new RegionStatistics();
+		stats.level = level;
+		stats.sampleCount = total.count;
+		if ((statistics & RegionStatistics.MEAN_ELEVATION) != 0) {
+			stats.meanElevation = total.elevSum.getSum() / total.count;
+		}
+		if (doSlope) {
+			Vector3 meanNormal = new Vector3(total.normalX.getSum(), total.normalY.getSum(), total.normalZ.getSum());
+			meanNormal.multiplyLocal(1.0 / total.normalCount);
+			stats.meanSlope = MathUtil.getSlopeFromNormal(meanNormal);
+		}
+		if (doArea) {
+			stats.surfaceArea = total.surfaceArea.getSum();
+		}
+		if (doVolume) {
+			stats.volumeAbove = total.volumeAbove.getSum() * sampleWidth * sampleLength;
+			stats.volumeBelow = total.volumeBelow.getSum() * sampleWidth * sampleLength;
+		}
+		return (stats);
+	}
+
+	/**
+	 * Accumulate the statistics for a band of sample rows.
+	 */
+	private BandStatistics getBandStatistics(int firstRow, int lastRow, double xMin, double yMin, double sampleWidth,
+		double sampleLength, int s,
+		LatticeRows lattice, int[][] sampleSpan, int[][] centerSpan, boolean doSlope, boolean doArea, boolean doVolume,
+		boolean volumeFromPolygon, double volElev, TriangleGrid surface, RegionJob job) {
+		BandStatistics band = new BandStatistics();
+		Vector3 normal = new Vector3();
+		for (int i = firstRow; i < lastRow; ++i) {
+			if (job.isCancelled())
+				return (band);
+			double y = yMin + i * sampleLength;
+			int k = s * i + s;
+			if (sampleSpan[i].length > 0) {
+				double[] z = lattice.getRow(k);
+				double[] zS = doSlope ? lattice.getRow(k - s) : null;
+				double[] zN = doSlope ? lattice.getRow(k + s) : null;
+				for (int n = 0; n < sampleSpan[i].length; n += 2) {
+					for (int j = sampleSpan[i][n]; j < sampleSpan[i][n + 1]; ++j) {
+						int m = s * j + s;
+						double el = z[m];
+						if (!Double.isNaN(el)) {
+							band.elevSum.add(el);
+							band.count++;
+							if (volumeFromPolygon) {
+								double pZ = surface.getZ(xMin + j * sampleWidth, y);
+								double zc = el - minZ * pixelScale;
+								if (!Double.isNaN(pZ)) {
+									if (zc < pZ)
+										band.volumeBelow.add(pZ - zc);
+									else
+										band.volumeAbove.add(zc - pZ);
+								}
+							} else if (doVolume) {
+								if (el < volElev)
+									band.volumeBelow.add(volElev - el);
+								else
+									band.volumeAbove.add(el - volElev);
+							}
+						}
+						if (doSlope) {
+							double dx = getSlope(z[m - s], el, z[m + s], sampleWidth);
+							double dy = getSlope(zS[m], el, zN[m], sampleLength);
+							if (!Double.isNaN(dx) && !Double.isNaN(dy)) {
+								normal.set(-dx, -dy, 1);
+								normal.normalizeLocal();
+								band.normalX.add(normal.getX());
+								band.normalY.add(normal.getY());
+								band.normalZ.add(normal.getZ());
+								band.normalCount++;
+							}
+						}
+					}
+				}
+			}
+			if (doArea && (centerSpan[i].length > 0)) {
+				double yd = sampleLength / 2;
+				double xd = sampleWidth / 2;
+				double yc = y + yd;
+				double[] zLower = lattice.getRow(k);
+				double[] zCenter = lattice.getRow(k + 1);
+				double[] zUpper = lattice.getRow(k + 2);
+				for (int n = 0; n < centerSpan[i].length; n += 2) {
+					for (int j = centerSpan[i][n]; j < centerSpan[i][n + 1]; ++j) {
+						int m = 2 * j + 3;
+						double xc = xMin + j * sampleWidth + xd;
+						double zc = zCenter[m];
+						if (Double.isNaN(zc))
+							continue;
+						double area = getAreaOfTriangle(xc, yc, zc, xc - xd, yc + yd, zUpper[m - 1], xc, yc + yd, zUpper[m]);
+						area += getAreaOfTriangle(xc, yc, zc, xc + xd, yc + yd, zUpper[m + 1], xc, yc + yd, zUpper[m]);
+						area += getAreaOfTriangle(xc, yc, zc, xc - xd, yc, zCenter[m - 1], xc - xd, yc + yd, zUpper[m - 1]);
+						area += getAreaOfTriangle(xc, yc, zc, xc + xd, yc, zCenter[m + 1], xc + xd, yc + yd, zUpper[m + 1]);
+						area += getAreaOfTriangle(xc, yc, zc, xc - xd, yc, zCenter[m - 1], xc - xd, yc - yd, zLower[m - 1]);
+						area += getAreaOfTriangle(xc, yc, zc, xc + xd, yc, zCenter[m + 1], xc + xd, yc - yd, zLower[m + 1]);
+						area += getAreaOfTriangle(xc, yc, zc, xc - xd, yc - yd, zLower[m - 1], xc, yc - yd, zLower[m]);
+						area += getAreaOfTriangle(xc, yc, zc, xc + xd, yc - yd, zLower[m + 1], xc, yc - yd, zLower[m]);
+						band.surfaceArea.add(area);
 					}
 				}
 			}
 		}
-		return (surfaceArea);
-	}
-
-	private double getSurfaceArea(ReadOnlyVector3 point) {
-		double xd = pixelWidth / 2;
-		double yd = pixelLength / 2;
-		double x = point.getX();
-		double y = point.getY();
-		double surfaceArea = 0;
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y + yd, x, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y + yd, x, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y, x - xd, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y, x + xd, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y, x - xd, y - yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y, x + xd, y - yd);
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y - yd, x, y - yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y - yd, x, y - yd);
-		return (surfaceArea);
-	}
-
-	private double getAreaOfTriangle(double x0, double y0, double x1, double y1, double x2, double y2) {
-		double z0 = getElevationAtHighestLevel(x0, y0);
-		if (Double.isNaN(z0)) {
-			return (0);
+		return (band);
+	}
+
+	/**
+	 * Get the mean and standard deviation of the elevation inside a region
+	 * from the summed-area tables of the elevation tiles. The posts of the
+	 * highest level tiles are used, rather than samples from the lower bound,
+	 * and the tables are kept for later queries so repeated calls while a
+	 * region is being edited are fast.
+	 * 
+	 * @param vertex
+	 *            the vertices of the polygon, or null for the whole
+	 *            rectangle
+	 * @param lowerBound
+	 *            the lower bound of the region
+	 * @param upperBound
+	 *            the upper bound of the region
+	 * @return the statistics
+	 */
+	public RegionStatistics getElevationStatistics(Vector3[] vertex, ReadOnlyVector3 lowerBound,
+		ReadOnlyVector3 upperBound) {
+		double[] total = new double[3];
+		if (vertex == null) {
+			sampler.getWindowStatistics(lowerBound.getX(), lowerBound.getY(), upperBound.getX(), upperBound.getY(), -1,
+				total);
+		} else {
+			sampler.getRegionStatistics(new PolygonRasterizer(vertex), lowerBound.getX(), lowerBound.getY(),
+				upperBound.getX(), upperBound.getY(), -1, total);
+		}
+		RegionStatistics stats = new RegionStatistics();
+		stats.sampleCount = (int) total[2];
+		if (stats.sampleCount > 0) {
+			stats.meanElevation = total[0] / total[2];
+			double variance = total[1] / total[2] - stats.meanElevation * stats.meanElevation;
+			stats.elevationDeviation = Math.sqrt(Math.max(variance, 0));
+		}
+		return (stats);
+	}
+
+	/**
+	 * Get the slope in one direction from three elevations a distance d apart.
+	 * Uses a central difference if possible, otherwise a one sided difference.
+	 */
+	private double getSlope(double z0, double z1, double z2, double d) {
+		if (!Double.isNaN(z0) && !Double.isNaN(z2)) {
+			return ((z2 - z0) / (2 * d));
 		}
-		double z1 = getElevationAtHighestLevel(x1, y1);
 		if (Double.isNaN(z1)) {
-			return (0);
+			return (Double.NaN);
+		}
+		if (!Double.isNaN(z2)) {
+			return ((z2 - z1) / d);
 		}
-		double z2 = getElevationAtHighestLevel(x2, y2);
-		if (Double.isNaN(z2)) {
+		if (!Double.isNaN(z0)) {
+			return ((z1 - z0) / d);
+		}
+		return (Double.NaN);
+	}
+
+	private double getAreaOfTriangle(double x0, double y0, double z0, double x1, double y1, double z1, double x2,
+		double y2, double z2) {
+		if (Double.isNaN(z0) || Double.isNaN(z1) || Double.isNaN(z2)) {
 			return (0);
 		}
-		double area = MathUtil.getAreaOfTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2);
-		return(area);
+		return (MathUtil.getAreaOfTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2));
 	}
 
 	/**
@@ -971,47 +1286,43 @@ public class Landscape
 		double lineLength = Math.sqrt(dx * dx + dy * dy);
 		double step = Math.min(stepWidth, stepLength);
 		int n = (int) (lineLength / step);
+		double[] x, y;
 		if (n == 0) {
-			vertex[0] = p0.getXf();
-			vertex[1] = p0.getYf();
-			if (maxLevel) {
-				vertex[2] = (float) getElevationAtHighestLevel(p0.getX(), p0.getY());
-			} else {
-				vertex[2] = (float) getElevation(p0.getX(), p0.getY());
-			}
-			vertex[3] = p1.getXf();
-			vertex[4] = p1.getYf();
-			if (maxLevel) {
-				vertex[5] = (float) getElevationAtHighestLevel(p1.getX(), p1.getY());
-			} else {
-				vertex[5] = (float) getElevation(p1.getX(), p1.getY());
+			x = new double[] { p0.getX(), p1.getX() };
+			y = new double[] { p0.getY(), p1.getY() };
+			n = 2;
+		} else {
+			dx = stepWidth * dx / lineLength;
+			dy = stepLength * dy / lineLength;
+			if (n * step < lineLength) {
+				n++;
 			}
-			return (6);
-		}
-		dx = stepWidth * dx / lineLength;
-		dy = stepLength * dy / lineLength;
-		if (n * step < lineLength) {
-			n++;
-		}
-		double x = p0.getX();
-		double y = p0.getY();
-		for (int i = 0; i < n - 1; ++i) {
-			vertex[i * 3] = (float) x;
-			vertex[i * 3 + 1] = (float) y;
-			if (maxLevel) {
-				vertex[i * 3 + 2] = (float) getElevationAtHighestLevel(x, y);
-			} else {
-				vertex[i * 3 + 2] = (float) getElevation(x, y);
+			x = new double[n];
+			y = new double[n];
+			double xx = p0.getX();
+			double yy = p0.getY();
+			for (int i = 0; i < n - 1; ++i) {
+				x[i] = xx;
+				y[i] = yy;
+				xx += dx;
+				yy += dy;
 			}
-			x += dx;
-			y += dy;
+			x[n - 1] = p1.getX();
+			y[n - 1] = p1.getY();
 		}
-		vertex[(n - 1) * 3] = p1.getXf();
-		vertex[(n - 1) * 3 + 1] = p1.getYf();
+		double[] z = new double[n];
 		if (maxLevel) {
-			vertex[(n - 1) * 3 + 2] = (float) getElevationAtHighestLevel(p1.getX(), p1.getY());
+			// walk the tiles along the line, looking each up once
+			sampler.getProfile(x, y, n, -1, z);
 		} else {
-			vertex[(n - 1) * 3 + 2] = (float) getElevation(p1.getX(), p1.getY());
+			for (int i = 0; i < n; ++i) {
+				z[i] = getElevation(x[i], y[i]);
+			}
+		}
+		for (int i = 0; i < n; ++i) {
+			vertex[i * 3] = (float) x[i];
+			vertex[i * 3 + 1] = (float) y[i];
+			vertex[i * 3 + 2] = (float) z[i];
 		}
 		return (n * 3);
 	}
@@ -1081,6 +1392,7 @@ public class Landscape
 	public void dispose() {
 		quadTree = null;
 		QuadTreeFactory.destroy();
+		sampler.clear();
 		for (int i = 0; i < layerList.length; ++i) {
 			if (layerList[i] != null) {
 				layerList[i].dispose();
@@ -1174,6 +1486,7 @@ public class Landscape
 				quadTree.stitch();
 //				quadTree.isDirty();
 			}
+			QuadTreeFactory.getInstance().updateScheduler(camera);
 		}
 		return(qtChanged);
 	}
@@ -1246,4 +1559,224 @@ public class Landscape
 	public double[] getBounds() {
 		return(bounds);
 	}
+
+	/**
+	 * A rolling window of rows of elevations on a regular lattice. Each row is
+	 * read from the elevation sampler once, over the range of columns that was
+	 * required for it.
+	 */
+	private class LatticeRows {
+
+		private int level;
+		private double x0, y0, xStep, yStep;
+		private int[] colMin, colMax;
+		private double[][] row;
+		private int[] rowIndex;
+		private double[] work;
+
+		public LatticeRows(int level, double x0, double y0, double xStep, double yStep, int columns, int rows, int window) {
+			this.level = level;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.xStep = xStep;
+			this.yStep = yStep;
+			colMin = new int[rows];
+			colMax = new int[rows];
+			Arrays.fill(colMin, columns);
+			row = new double[window][columns];
+			rowIndex = new int[window];
+			Arrays.fill(rowIndex, -1);
+			work = new double[columns];
+		}
+
+		/**
+		 * Create a window over the same lattice and required columns, with
+		 * its own row buffers. Used to process bands of rows in parallel.
+		 */
+		public LatticeRows(LatticeRows that) {
+			level = that.level;
+			x0 = that.x0;
+			y0 = that.y0;
+			xStep = that.xStep;
+			yStep = that.yStep;
+			colMin = that.colMin;
+			colMax = that.colMax;
+			row = new double[that.row.length][that.work.length];
+			rowIndex = new int[row.length];
+			Arrays.fill(rowIndex, -1);
+			work = new double[that.work.length];
+		}
+
+		/**
+		 * Mark a block of lattice rows and columns (inclusive) as needed.
+		 */
+		public void require(int firstRow, int lastRow, int firstCol, int lastCol) {
+			for (int k = firstRow; k <= lastRow; ++k) {
+				colMin[k] = Math.min(colMin[k], firstCol);
+				colMax[k] = Math.max(colMax[k], lastCol + 1);
+			}
+		}
+
+		/**
+		 * Get a lattice row. Columns that were not required are NaN.
+		 */
+		public double[] getRow(int k) {
+			int i = k % row.length;
+			if (rowIndex[i] != k) {
+				Arrays.fill(row[i], Double.NaN);
+				int n = colMax[k] - colMin[k];
+				if (n > 0) {
+					sampler.getWindow(x0 + colMin[k] * xStep, y0 + k * yStep, n, 1, xStep, yStep, level, work);
+					System.arraycopy(work, 0, row[i], colMin[k], n);
+				}
+				rowIndex[i] = k;
+			}
+			return (row[i]);
+		}
+	}
+
+
+	/**
+	 * Get the pool used for region computations.
+	 * 
+	 * @return
+	 */
+	private static synchronized ForkJoinPool getRegionPool() {
+		if (regionPool == null) {
+			int n = regionThreads;
+			if (n <= 0) {
+				n = Runtime.getRuntime().availableProcessors();
+			}
+			regionPool = new ForkJoinPool(Math.max(1, n));
+		}
+		return (regionPool);
+	}
+
+	/**
+	 * Set the number of threads used for region computations. The pool is
+	 * replaced the next time it is used. Results do not depend on this.
+	 * 
+	 * @param n
+	 *            the number of threads, 0 for the number of processors
+	 */
+	public static synchronized void setRegionThreads(int n) {
+		regionThreads = n;
+		if (regionPool != null) {
+			regionPool.shutdown();
+			regionPool = null;
+		}
+	}
+
+	/**
+	 * A computation over the rows of a region, divided into bands of
+	 * BAND_ROWS rows. The bands do not depend on the number of threads.
+	 */
+	private abstract class RegionJob {
+
+		protected int rows, numBands;
+		private volatile boolean cancelled;
+
+		public RegionJob(int rows) {
+			this.rows = rows;
+			numBands = (rows + BAND_ROWS - 1) / BAND_ROWS;
+		}
+
+		/**
+		 * Process a band of rows from firstRow to lastRow (exclusive).
+		 */
+		protected abstract void computeBand(int band, int firstRow, int lastRow);
+
+		/**
+		 * Determine if the computation has been cancelled. Bands should stop
+		 * early when this is true.
+		 */
+		public boolean isCancelled() {
+			return (cancelled);
+		}
+
+		/**
+		 * Process all bands on the region pool and wait for them to finish.
+		 * If the calling thread is interrupted the bands are cancelled and the
+		 * interrupt status is kept for the caller.
+		 * 
+		 * @return false if interrupted
+		 */
+		public boolean run() {
+			if (numBands == 0)
+				return (true);
+			if (Thread.currentThread().isInterrupted())
+				return (false);
+			BandTask task = new BandTask(this, 0, numBands);
+			getRegionPool().execute(task);
+			try {
+				task.get();
+				return (true);
+			} catch (InterruptedException e) {
+				cancelled = true;
+				task.cancel(true);
+				Thread.currentThread().interrupt();
+				return (false);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Divides a range of bands in half until one band is left.
+	 */
+	private static class BandTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private RegionJob job;
+		private int firstBand, lastBand;
+
+		public BandTask(RegionJob job, int firstBand, int lastBand) {
+			this.job = job;
+			this.firstBand = firstBand;
+			this.lastBand = lastBand;
+		}
+
+		@Override
+		protected void compute() {
+			if (job.isCancelled())
+				return;
+			if (lastBand - firstBand == 1) {
+				int firstRow = firstBand * BAND_ROWS;
+				job.computeBand(firstBand, firstRow, Math.min(firstRow + BAND_ROWS, job.rows));
+			} else {
+				int mid = (firstBand + lastBand) / 2;
+				invokeAll(new BandTask(job, firstBand, mid), new BandTask(job, mid, lastBand));
+			}
+		}
+	}
+
+	/**
+	 * Statistics accumulated for one band of rows.
+	 */
+	private static class BandStatistics {
+
+		public CompensatedSum elevSum = new CompensatedSum();
+		public CompensatedSum normalX = new CompensatedSum();
+		public CompensatedSum normalY = new CompensatedSum();
+		public CompensatedSum normalZ = new CompensatedSum();
+		public CompensatedSum surfaceArea = new CompensatedSum();
+		public CompensatedSum volumeAbove = new CompensatedSum();
+		public CompensatedSum volumeBelow = new CompensatedSum();
+		public int count, normalCount;
+
+		public void add(BandStatistics that) {
+			elevSum.add(that.elevSum);
+			normalX.add(that.normalX);
+			normalY.add(that.normalY);
+			normalZ.add(that.normalZ);
+			surfaceArea.add(that.surfaceArea);
+			volumeAbove.add(that.volumeAbove);
+			volumeBelow.add(that.volumeBelow);
+			count += that.count;
+			normalCount += that.normalCount;
+		}
+	}
+
 }
@@ -0,0 +1,160 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape;
+
+/**
+ * Holds the statistics of the landscape inside a polygon region, computed in
+ * a single pass by Landscape.getRegionStatistics.
+ *
+ */
+public class RegionStatistics {
+
+	// Statistics that can be requested
+	public static final int MEAN_ELEVATION = 1;
+	public static final int MEAN_SLOPE = 2;
+	public static final int SURFACE_AREA = 4;
+	public static final int VOLUME = 8;
+	public static final int ALL = MEAN_ELEVATION | MEAN_SLOPE | SURFACE_AREA | VOLUME;
+
+	// Mean elevation of the samples inside the region
+	public double meanElevation = Double.NaN;
+
+	// Standard deviation of the elevation
+	public double elevationDeviation = Double.NaN;
+
+	// Slope of the mean surface normal
+	public double meanSlope = Double.NaN;
+
+	// Surface area
+	public double surfaceArea = Double.NaN;
+
+	// Volume above and below the reference elevation or polygon
+	public double volumeAbove = Double.NaN, volumeBelow = Double.NaN;
+
+	// Number of samples inside the region that have an elevation
+	public int sampleCount;
+
+	// Pyramid level of the samples
+	public int level = -1;
+
+	// Estimated relative error, from the change since the previous coarser
+	// level (0 at the highest level)
+	public double errorEstimate = Double.NaN;
+
+	/**
+	 * Get the volume as an array.
+	 * 
+	 * @return volume above and volume below
+	 */
+	public double[] getVolume() {
+		return (new double[] { volumeAbove, volumeBelow });
+	}
+
+	@Override
+	public String toString() {
+		return ("RegionStatistics level=" + level + " error=" + errorEstimate + " samples=" + sampleCount
+			+ " meanElevation=" + meanElevation + " elevationDeviation=" + elevationDeviation + " meanSlope="
+			+ meanSlope + " surfaceArea=" + surfaceArea + " volumeAbove=" + volumeAbove + " volumeBelow="
+			+ volumeBelow);
+	}
+
+}
@@ -0,0 +1,200 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape;
+
+/**
+ * A summed-area table (integral image) of the values of one elevation tile.
+ * It holds the running sum, sum of squares, and count of valid (not NaN)
+ * values so the statistics of any rectangle of posts are found with four
+ * lookups.
+ *
+ */
+public class SummedAreaTable {
+
+	// Dimensions of the tile in posts
+	private int columns, rows;
+
+	// Tables of (columns+1)*(rows+1) entries. Entry (c, r) holds the totals
+	// for posts with column < c and row < r, with row 0 at the bottom.
+	private double[] sum, sumSq;
+	private int[] count;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param data
+	 *            the tile values in row order starting with the top row
+	 * @param columns
+	 *            the number of posts in a row
+	 * @param rows
+	 *            the number of rows
+	 */
+	public SummedAreaTable(float[] data, int columns, int rows) {
+		this.columns = columns;
+		this.rows = rows;
+		int width = columns + 1;
+		sum = new double[width * (rows + 1)];
+		sumSq = new double[sum.length];
+		count = new int[sum.length];
+		for (int r = 0; r < rows; ++r) {
+			// flip rows (the tile is like an image)
+			int k = (rows - 1 - r) * columns;
+			int i0 = r * width;
+			int i1 = i0 + width;
+			double rowSum = 0, rowSumSq = 0;
+			int rowCount = 0;
+			for (int c = 0; c < columns; ++c) {
+				float v = data[k + c];
+				if (!Float.isNaN(v)) {
+					rowSum += v;
+					rowSumSq += (double) v * v;
+					rowCount++;
+				}
+				sum[i1 + c + 1] = sum[i0 + c + 1] + rowSum;
+				sumSq[i1 + c + 1] = sumSq[i0 + c + 1] + rowSumSq;
+				count[i1 + c + 1] = count[i0 + c + 1] + rowCount;
+			}
+		}
+	}
+
+	/**
+	 * Add the statistics of a rectangle of posts to a running total.
+	 * 
+	 * @param c0
+	 *            the first column
+	 * @param r0
+	 *            the first row, counting from the bottom
+	 * @param c1
+	 *            the column after the last
+	 * @param r1
+	 *            the row after the last
+	 * @param store
+	 *            sum, sum of squares, and count, added to
+	 */
+	public void addStatistics(int c0, int r0, int c1, int r1, double[] store) {
+		c0 = Math.max(c0, 0);
+		r0 = Math.max(r0, 0);
+		c1 = Math.min(c1, columns);
+		r1 = Math.min(r1, rows);
+		if ((c0 >= c1) || (r0 >= r1)) {
+			return;
+		}
+		int width = columns + 1;
+		int i00 = r0 * width + c0;
+		int i01 = r0 * width + c1;
+		int i10 = r1 * width + c0;
+		int i11 = r1 * width + c1;
+		store[0] += sum[i11] - sum[i10] - sum[i01] + sum[i00];
+		store[1] += sumSq[i11] - sumSq[i10] - sumSq[i01] + sumSq[i00];
+		store[2] += count[i11] - count[i10] - count[i01] + count[i00];
+	}
+
+	/**
+	 * Get the approximate memory used by the table.
+	 * 
+	 * @return the size in bytes
+	 */
+	public long getMemorySize() {
+		return (sum.length * 20l);
+	}
+
+}
@@ -103,7 +103,7 @@ package gov.nasa.arc.dert.landscape.io;
 
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Interface to source of landscape tiles.
@@ -112,8 +112,8 @@ import java.util.ArrayList;
 public abstract class AbstractTileSource
 	implements TileSource {
 
-	// Quad tree structure of existing tile keys
-	protected DepthTree depthTree;
+	// Index of existing tile keys
+	protected volatile DepthIndex depthIndex;
 
 	/**
 	 * Given an X,Y coordinate, find the highest level tile key that contains
@@ -125,8 +125,8 @@ public abstract class AbstractTileSource
 	 *            , worldHeight the physical dimensions of the source
 	 * @return the key string
 	 */
-	public synchronized QuadKey getKey(double x, double y, double worldWidth, double worldLength) {
-		return (getKey(depthTree, x, y, new ArrayList<Byte>(), worldWidth / 2, worldLength / 2, -1));
+	public QuadKey getKey(double x, double y, double worldWidth, double worldLength) {
+		return (getKey(x, y, worldWidth, worldLength, -1));
 	}
 
 	/**
@@ -139,40 +139,85 @@ public abstract class AbstractTileSource
 	 *            , worldHeight the physical dimensions of the source
 	 * @return the key string
 	 */
-	public synchronized QuadKey getKey(double x, double y, double worldWidth, double worldLength, int lvl) {
-		return (getKey(depthTree, x, y, new ArrayList<Byte>(), worldWidth / 2, worldLength / 2, lvl));
-	}
-
-	private QuadKey getKey(DepthTree depthTree, double x, double y, ArrayList<Byte> qList, double width, double length, int lvl) {
-		if (depthTree.child == null)
-			return (new QuadKey(qList));
-		if (lvl == 0)
-			return(new QuadKey(qList));	
-		double w = width / 2;
-		double l = length / 2;
-		if (x < 0) {
-			if (y >= 0) {
-				depthTree = depthTree.child[0];
-				qList.add(new Byte((byte)1));
-				return (getKey(depthTree, x + w, y - l, qList, w, l, lvl-1));
+	public QuadKey getKey(double x, double y, double worldWidth, double worldLength, int lvl) {
+		DepthIndex dIndex = depthIndex;
+		int n = dIndex.getNumberOfLevels() - 1;
+		if ((lvl >= 0) && (lvl < n)) {
+			n = lvl;
+		}
+		byte[] path = new byte[n];
+		double width = worldWidth / 2;
+		double length = worldLength / 2;
+		long index = 0;
+		int level = 0;
+		while (level < n) {
+			width /= 2;
+			length /= 2;
+			int quadrant;
+			if (x < 0) {
+				if (y >= 0) {
+					quadrant = 1;
+					x += width;
+					y -= length;
+				} else {
+					quadrant = 3;
+					x += width;
+					y += length;
+				}
 			} else {
-				depthTree = depthTree.child[2];
-				qList.add(new Byte((byte)3));
-				return (getKey(depthTree, x + w, y + l, qList, w, l, lvl-1));
+				if (y >= 0) {
+					quadrant = 2;
+					x -= width;
+					y -= length;
+				} else {
+					quadrant = 4;
+					x -= width;
+					y += length;
+				}
 			}
-		} else {
-			if (y >= 0) {
-				depthTree = depthTree.child[1];
-				qList.add(new Byte((byte)2));
-				return (getKey(depthTree, x - w, y - l, qList, w, l, lvl-1));
-			} else {
-				depthTree = depthTree.child[3];
-				qList.add(new Byte((byte)4));
-				return (getKey(depthTree, x - w, y + l, qList, w, l, lvl-1));
+			index = dIndex.getChild(level, index, quadrant);
+			if (index < 0) {
+				break;
 			}
+			path[level] = (byte) quadrant;
+			level++;
+		}
+		if (level < n) {
+			path = Arrays.copyOf(path, level);
+		}
+		return (new QuadKey(path));
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 *            the tile key
+	 */
+	@Override
+	public boolean tileExists(QuadKey key) {
+		DepthIndex dIndex = depthIndex;
+		if (dIndex == null) {
+			return (false);
+		}
+		return (dIndex.exists(key));
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 *            the tile path string
+	 */
+	@Override
+	public boolean tileExists(String key) {
+		DepthIndex dIndex = depthIndex;
+		if (dIndex == null) {
+			return (false);
 		}
+		return (dIndex.exists(key));
 	}
 	
-	protected abstract DepthTree getDepthTree();
+	protected abstract DepthIndex getDepthIndex();
 
 }
@@ -0,0 +1,449 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+
+/**
+ * Provides a compact index of the tiles that exist in a landscape. Each level
+ * of the quad tree is a bitset with 4 bits per existing tile, one for each
+ * child quadrant. The children of a tile are found by counting the bits set
+ * before it in the level, using a rank directory that holds the count at the
+ * start of each 64 bit word. A tile lookup walks the QuadKey digits with one
+ * bit test and one rank per level.
+ * 
+ * File layout (big endian):
+ * <pre>
+ * magic (4 bytes), version (4), level count (4), tile count per level (8 each)
+ * for each level except the last: child bits (8 bytes per word), rank (4 bytes per word)
+ * </pre>
+ * The file is memory mapped and never modified so lookups need no locking.
+ *
+ */
+public class DepthIndex {
+
+	// Name of the index file in the landscape dert directory
+	public static final String FILE_NAME = "depthindex.bin";
+
+	// "DPTX"
+	public static final int MAGIC = 0x44505458;
+	public static final int VERSION = 1;
+
+	// The index contents
+	private ByteBuffer buffer;
+
+	// Number of levels that hold tiles
+	private int numLevels;
+
+	// Number of tiles in each level
+	private long[] tileCount;
+
+	// Offsets of the child bits and rank directory for each level
+	private int[] bitsOffset, rankOffset;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param buffer
+	 *            the index contents
+	 * @throws IOException
+	 */
+	protected DepthIndex(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < 12) {
+			throw new IOException("Depth index is truncated.");
+		}
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a depth index.");
+		}
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IOException("Unsupported depth index version " + version + ".");
+		}
+		numLevels = buffer.getInt(8);
+		if ((numLevels < 1) || (numLevels > QuadKey.MAX_PACKED_LEVEL + 1)) {
+			throw new IOException("Invalid depth index level count " + numLevels + ".");
+		}
+		tileCount = new long[numLevels];
+		bitsOffset = new int[numLevels - 1];
+		rankOffset = new int[numLevels - 1];
+		long offset = 12 + numLevels * 8;
+		for (int i = 0; i < numLevels; ++i) {
+			tileCount[i] = buffer.getLong(12 + i * 8);
+		}
+		for (int i = 0; i < numLevels - 1; ++i) {
+			int words = getWordCount(tileCount[i]);
+			bitsOffset[i] = (int) offset;
+			offset += words * 8L;
+			rankOffset[i] = (int) offset;
+			offset += words * 4L;
+		}
+		if (offset > buffer.capacity()) {
+			throw new IOException("Depth index is truncated.");
+		}
+	}
+
+	/**
+	 * Map an index file.
+	 * 
+	 * @param filePath
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static DepthIndex load(String filePath) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(filePath, "r");
+		try {
+			FileChannel fileChannel = raf.getChannel();
+			// the mapping remains valid after the file is closed
+			return (new DepthIndex(fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size())));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Create an index from the child bits of each level. Level 0 holds the
+	 * root tile. Bit 4*i+q-1 of a level is set if quadrant q of tile i in that
+	 * level exists. Tiles in the next level are numbered in the order of their
+	 * bits.
+	 * 
+	 * @param childBits
+	 *            the child bits of each level that has children
+	 * @return the index
+	 */
+	public static DepthIndex create(ArrayList<long[]> childBits) {
+		int numLevels = childBits.size() + 1;
+		long[] count = new long[numLevels];
+		count[0] = 1;
+		long size = 12 + numLevels * 8;
+		for (int i = 0; i < childBits.size(); ++i) {
+			long[] bits = childBits.get(i);
+			if (bits.length != getWordCount(count[i])) {
+				throw new IllegalArgumentException("Depth index level " + i + " has the wrong number of bits.");
+			}
+			for (int j = 0; j < bits.length; ++j) {
+				count[i + 1] += Long.bitCount(bits[j]);
+			}
+			size += bits.length * 12L;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Depth index is too large.");
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate((int) size);
+		buf.putInt(MAGIC);
+		buf.putInt(VERSION);
+		buf.putInt(numLevels);
+		for (int i = 0; i < numLevels; ++i) {
+			buf.putLong(count[i]);
+		}
+		for (int i = 0; i < childBits.size(); ++i) {
+			long[] bits = childBits.get(i);
+			for (int j = 0; j < bits.length; ++j) {
+				buf.putLong(bits[j]);
+			}
+			int rank = 0;
+			for (int j = 0; j < bits.length; ++j) {
+				buf.putInt(rank);
+				rank += Long.bitCount(bits[j]);
+			}
+		}
+		buf.clear();
+		try {
+			return (new DepthIndex(buf));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Create an index from a depth tree.
+	 * 
+	 * @param depthTree
+	 * @return the index
+	 */
+	public static DepthIndex create(DepthTree depthTree) {
+		ArrayList<long[]> childBits = new ArrayList<long[]>();
+		ArrayList<DepthTree> level = new ArrayList<DepthTree>();
+		level.add(depthTree);
+		while (true) {
+			long[] bits = new long[getWordCount(level.size())];
+			ArrayList<DepthTree> nextLevel = new ArrayList<DepthTree>();
+			for (int i = 0; i < level.size(); ++i) {
+				DepthTree[] child = level.get(i).child;
+				if (child == null) {
+					continue;
+				}
+				for (int q = 0; q < child.length; ++q) {
+					if (child[q] != null) {
+						setBit(bits, i * 4 + q);
+						nextLevel.add(child[q]);
+					}
+				}
+			}
+			if (nextLevel.isEmpty()) {
+				break;
+			}
+			childBits.add(bits);
+			level = nextLevel;
+		}
+		return (create(childBits));
+	}
+
+	/**
+	 * Write the index to a file.
+	 * 
+	 * @param filePath
+	 * @throws IOException
+	 */
+	public void store(String filePath) throws IOException {
+		File file = new File(filePath);
+		File tmpFile = new File(filePath + ".tmp");
+		FileOutputStream stream = new FileOutputStream(tmpFile);
+		try {
+			ByteBuffer buf = buffer.duplicate();
+			buf.clear();
+			FileChannel fileChannel = stream.getChannel();
+			while (buf.hasRemaining()) {
+				fileChannel.write(buf);
+			}
+		} finally {
+			stream.close();
+		}
+		// replace the file only when complete so a partial index is never loaded
+		file.delete();
+		if (!tmpFile.renameTo(file)) {
+			throw new IOException("Unable to rename " + tmpFile + " to " + file + ".");
+		}
+	}
+
+	/**
+	 * Get the number of levels that hold tiles.
+	 * 
+	 * @return the number of levels
+	 */
+	public int getNumberOfLevels() {
+		return (numLevels);
+	}
+
+	/**
+	 * Get the number of tiles in a level.
+	 * 
+	 * @param level
+	 * @return the tile count
+	 */
+	public long getTileCount(int level) {
+		if ((level < 0) || (level >= numLevels)) {
+			return (0);
+		}
+		return (tileCount[level]);
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 * @return true if it exists
+	 */
+	public boolean exists(QuadKey key) {
+		long index = 0;
+		int n = key.getLevel();
+		for (int level = 0; (level < n) && (index >= 0); ++level) {
+			index = getChild(level, index, key.getPath(level));
+		}
+		return (index >= 0);
+	}
+
+	/**
+	 * Determine if a tile exists given its path string (for example "/1/4/2").
+	 * 
+	 * @param key
+	 * @return true if it exists
+	 */
+	public boolean exists(String key) {
+		long index = 0;
+		int level = 0;
+		for (int i = 0; (i < key.length()) && (index >= 0); ++i) {
+			char c = key.charAt(i);
+			if (c == '/') {
+				continue;
+			}
+			index = getChild(level, index, c - '0');
+			level++;
+		}
+		return (index >= 0);
+	}
+
+	/**
+	 * Get a child of a tile.
+	 * 
+	 * @param level
+	 *            the level of the tile
+	 * @param index
+	 *            the position of the tile in the level
+	 * @param quadrant
+	 *            the child quadrant (1 to 4)
+	 * @return the position of the child in the next level, or -1 if it does
+	 *         not exist
+	 */
+	public long getChild(int level, long index, int quadrant) {
+		if ((level >= numLevels - 1) || (quadrant < 1) || (quadrant > 4)) {
+			return (-1);
+		}
+		long bit = index * 4 + quadrant - 1;
+		int word = (int) (bit >>> 6);
+		long bits = buffer.getLong(bitsOffset[level] + word * 8);
+		long mask = 1L << (bit & 63);
+		if ((bits & mask) == 0) {
+			return (-1);
+		}
+		return (buffer.getInt(rankOffset[level] + word * 4) + Long.bitCount(bits & (mask - 1)));
+	}
+
+	/**
+	 * Determine if a tile has any children.
+	 * 
+	 * @param level
+	 *            the level of the tile
+	 * @param index
+	 *            the position of the tile in the level
+	 * @return true if at least one child exists
+	 */
+	public boolean hasChildren(int level, long index) {
+		if (level >= numLevels - 1) {
+			return (false);
+		}
+		long bit = index * 4;
+		long bits = buffer.getLong(bitsOffset[level] + (int) (bit >>> 6) * 8);
+		return (((bits >>> (bit & 63)) & 0xf) != 0);
+	}
+
+	/**
+	 * Get the number of 64 bit words needed for the child bits of a level.
+	 * 
+	 * @param count
+	 *            the number of tiles in the level
+	 * @return the number of words
+	 */
+	public static int getWordCount(long count) {
+		return ((int) ((count * 4 + 63) / 64));
+	}
+
+	/**
+	 * Set a bit in a bitset.
+	 * 
+	 * @param bits
+	 * @param bit
+	 */
+	public static void setBit(long[] bits, long bit) {
+		bits[(int) (bit >>> 6)] |= 1L << (bit & 63);
+	}
+
+}
@@ -115,6 +115,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 
@@ -199,7 +202,7 @@ public class FileSystemTileSource
 				if (type != null) {
 					layers.add(new String[] { filename, type, null });
 					if (type.equals("elevation"))
-						getDepthTree();
+						getDepthIndex();
 				}
 			}
 		}
@@ -238,11 +241,12 @@ public class FileSystemTileSource
 		return (dirName);
 	}
 
-	private boolean tileExists(String layerName, String key) {
-		if (depthTree != null) {
-			return (tileExists(key, depthTree));
+	protected boolean tileExists(String layerName, String key) {
+		DepthIndex dIndex = depthIndex;
+		if (dIndex != null) {
+			return (dIndex.exists(key));
 		}
-		String fileName = layerPath(layerName) + key + "/0.png";
+		String fileName = layerPath(layerName) + key + "/0." + FloatTileCodec.getFileExtension(getTileFormat(layerName));
 		File file = new File(fileName);
 		try {
 			if (file.getCanonicalFile().exists()) {
@@ -254,39 +258,48 @@ public class FileSystemTileSource
 		}
 	}
 
-	/**
-	 * Determine if a tile exists.
-	 * 
-	 * @param id
-	 *            the tile id
-	 */
 	@Override
-	public boolean tileExists(String key) {
-		return (tileExists(key, depthTree));
+	public QuadTreeTile getTile(String layerName, QuadKey qKey, DataType dataType) {
+		if (tileExists(layerName, qKey.toString())) {
+			String tileFormat = getTileFormat(layerName);
+			if ((dataType == DataType.Float) && FloatTileCodec.isFloatFormat(tileFormat)) {
+				return (getTileFloat(layerName, qKey, tileFormat));
+			}
+			return (getTilePng(layerName, qKey, dataType));
+		}
+		return (null);
 	}
 
-	private boolean tileExists(String key, DepthTree dTree) {
-		if (key.equals(dTree.key)) {
-			return (true);
-		}
-		if (!key.startsWith(dTree.key)) {
-			return (false);
-		}
-		if (dTree.child == null) {
-			return (false);
-		}
-		for (int i = 0; i < dTree.child.length; ++i) {
-			if (tileExists(key, dTree.child[i])) {
-				return (true);
-			}
+	/**
+	 * Get the tile format (the TileFormat property) for a layer.
+	 * 
+	 * @param layerName
+	 * @return the tile format, PNG if not specified
+	 */
+	protected String getTileFormat(String layerName) {
+		Properties prop = getProperties(layerName);
+		if (prop == null) {
+			return ("PNG");
 		}
-		return (false);
+		return (prop.getProperty("TileFormat", "PNG"));
 	}
 
-	@Override
-	public QuadTreeTile getTile(String layerName, QuadKey qKey, DataType dataType) {
-		if (tileExists(layerName, qKey.toString())) {
-			return (getTilePng(layerName, qKey, dataType));
+	/**
+	 * Given a layer and an id, load the contents of a RAW or DEFLATE float tile.
+	 */
+	public QuadTreeTile getTileFloat(String layerName, QuadKey qKey, String tileFormat) {
+		try {
+			Properties prop = getProperties(layerName);
+			int columns = Integer.parseInt(prop.getProperty("TileWidth")) + 1;
+			int rows = Integer.parseInt(prop.getProperty("TileLength")) + 1;
+			String fileName = layerPath(layerName) + qKey + "/0." + FloatTileCodec.getFileExtension(tileFormat);
+			ByteBuffer bBuf = FloatTileCodec.decode(tileFormat, new File(fileName), columns * rows);
+			if (bBuf != null) {
+				return (new QuadTreeTile(bBuf, qKey, columns, rows, DataType.Float, 4));
+			}
+		} catch (Exception e) {
+			System.out.println("Unable to read tile " + qKey + " for layer "+layerName+", see log.");
+			e.printStackTrace();
 		}
 		return (null);
 	}
@@ -327,15 +340,67 @@ public class FileSystemTileSource
 		return (null);
 	}
 
-	protected synchronized void fillDepthTree(DepthTree dTree, String path, String layerName) {
-		String key = path + "/";
-		if (tileExists(layerName, key + "1")) {
-			// if one child exists they should all exist
-			dTree.child = new DepthTree[] { new DepthTree(), new DepthTree(), new DepthTree(), new DepthTree() };
-			for (int i = 0; i < dTree.child.length; ++i) {
-				dTree.child[i].key = key + (i + 1);
-				fillDepthTree(dTree.child[i], key + (i + 1), layerName);
+	/**
+	 * Build the depth index for a layer by probing for tiles one level at a
+	 * time. The tiles in each level are probed in parallel.
+	 * 
+	 * @param layerName
+	 * @return the index
+	 */
+	protected DepthIndex buildDepthIndex(final String layerName) {
+		int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			ArrayList<long[]> childBits = new ArrayList<long[]>();
+			String[] keys = new String[] { "" };
+			while (true) {
+				final String[] parentKeys = keys;
+				final boolean[] hasChildren = new boolean[keys.length];
+				int chunk = Math.max(64, (keys.length + numThreads - 1) / numThreads);
+				ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+				for (int i = 0; i < keys.length; i += chunk) {
+					final int first = i;
+					final int last = Math.min(i + chunk, keys.length);
+					futures.add(executor.submit(new Runnable() {
+						@Override
+						public void run() {
+							for (int j = first; j < last; ++j) {
+								// if one child exists they should all exist
+								hasChildren[j] = tileExists(layerName, parentKeys[j] + "/1");
+							}
+						}
+					}));
+				}
+				for (int i = 0; i < futures.size(); ++i) {
+					futures.get(i).get();
+				}
+				int count = 0;
+				for (int j = 0; j < hasChildren.length; ++j) {
+					if (hasChildren[j]) {
+						count++;
+					}
+				}
+				if (count == 0) {
+					break;
+				}
+				long[] bits = new long[DepthIndex.getWordCount(keys.length)];
+				keys = new String[count * 4];
+				int k = 0;
+				for (int j = 0; j < hasChildren.length; ++j) {
+					if (hasChildren[j]) {
+						for (int q = 0; q < 4; ++q) {
+							DepthIndex.setBit(bits, j * 4L + q);
+							keys[k++] = parentKeys[j] + "/" + (q + 1);
+						}
+					}
+				}
+				childBits.add(bits);
 			}
+			return (DepthIndex.create(childBits));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		} finally {
+			executor.shutdown();
 		}
 	}
 
@@ -343,47 +408,56 @@ public class FileSystemTileSource
 		return (dirName + "/" + layerName);
 	}
 
-	protected DepthTree getDepthTree() {
-		if (depthTree != null) {
-			return (depthTree);
+	protected DepthIndex getDepthIndex() {
+		if (depthIndex != null) {
+			return (depthIndex);
 		}
-		final String depthFileName = dirName + "/dert/depthtree.txt";
-		File depthFile = new File(depthFileName);
-		if (depthFile.exists()) {
+		final String indexFileName = dirName + "/dert/" + DepthIndex.FILE_NAME;
+		if (new File(indexFileName).exists()) {
 			try {
-				depthTree = DepthTree.load(depthFileName);
+				depthIndex = DepthIndex.load(indexFileName);
+				return (depthIndex);
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.out.println("Error reading depth index file.");
+			}
+		}
+		// convert a depth tree file from an earlier version
+		String depthFileName = dirName + "/dert/depthtree.txt";
+		DepthIndex dIndex = null;
+		if (new File(depthFileName).exists()) {
+			try {
+				dIndex = DepthIndex.create(DepthTree.load(depthFileName));
 			} catch (Exception e) {
 				e.printStackTrace();
 				System.out.println("Error reading depth tree file.");
-				depthTree = null;
 			}
 		}
-		if (depthTree == null) {
-			// assign after filling so tileExists method will work
-			if (tileExists("elevation", "")) {
-				Console.print("Filling depth tree. This may take a bit for large landscapes . . .");
-				DepthTree dTree = new DepthTree();
-				dTree.key = "";
-				fillDepthTree(dTree, "", "elevation");
-				depthTree = dTree;
-				Console.println(" complete.");
-				Thread thread = new Thread(new Runnable() {
-					@Override
-					public void run() {
-						Thread.yield();
-						try {
-							DepthTree.store(depthTree, depthFileName);
-						} catch (Exception e) {
-							e.printStackTrace();
-							Console.println("Error writing depth tree file.");
-							depthTree = null;
-						}
+		if ((dIndex == null) && tileExists("elevation", "")) {
+			Console.print("Filling depth index. This may take a bit for large landscapes . . .");
+			dIndex = buildDepthIndex("elevation");
+			Console.println(" complete.");
+		}
+		if (dIndex != null) {
+			// assign after filling so tileExists method will probe the files
+			depthIndex = dIndex;
+			final DepthIndex storeIndex = dIndex;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Thread.yield();
+					try {
+						storeIndex.store(indexFileName);
+						Console.println("Depth index saved to " + indexFileName);
+					} catch (Exception e) {
+						e.printStackTrace();
+						Console.println("Error writing depth index file.");
 					}
-				});
-				thread.start();
-			}
+				}
+			});
+			thread.start();
 		}
-		return (depthTree);
+		return (depthIndex);
 	}
 
 }
@@ -0,0 +1,291 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes and decodes elevation and field tiles stored as 32 bit floating
+ * point samples instead of PNG images. Two encodings are supported:
+ * 
+ * RAW: little endian floats, read directly into a direct buffer.
+ * DEFLATE: the bytes of the little endian floats are shuffled into 4 planes (all
+ * first bytes, then all second bytes, ...) and compressed with deflate.
+ * Shuffling groups the slowly changing exponent bytes which makes
+ * elevation data compress much better.
+ *
+ */
+public class FloatTileCodec {
+
+	// TileFormat property values
+	public static final String RAW = "RAW";
+	public static final String DEFLATE = "DEFLATE";
+
+	/**
+	 * Determine if a tile format is one of the float encodings.
+	 * 
+	 * @param tileFormat
+	 * @return
+	 */
+	public static boolean isFloatFormat(String tileFormat) {
+		return (RAW.equals(tileFormat) || DEFLATE.equals(tileFormat));
+	}
+
+	/**
+	 * Get the tile file name extension for a tile format.
+	 * 
+	 * @param tileFormat
+	 * @return the extension without the dot
+	 */
+	public static String getFileExtension(String tileFormat) {
+		if (RAW.equals(tileFormat)) {
+			return ("raw");
+		}
+		if (DEFLATE.equals(tileFormat)) {
+			return ("dfl");
+		}
+		return ("png");
+	}
+
+	/**
+	 * Encode a tile.
+	 * 
+	 * @param tileFormat
+	 *            RAW or DEFLATE
+	 * @param bbArray
+	 *            big endian float samples
+	 * @return the encoded bytes
+	 */
+	public static byte[] encode(String tileFormat, byte[] bbArray) {
+		int n = bbArray.length / 4;
+		byte[] out = new byte[bbArray.length];
+		if (DEFLATE.equals(tileFormat)) {
+			// shuffle little endian bytes into planes
+			for (int i = 0; i < n; ++i) {
+				int k = i * 4;
+				out[i] = bbArray[k + 3];
+				out[n + i] = bbArray[k + 2];
+				out[2 * n + i] = bbArray[k + 1];
+				out[3 * n + i] = bbArray[k];
+			}
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			deflater.setInput(out);
+			deflater.finish();
+			byte[] buf = new byte[out.length + 64];
+			int len = 0;
+			while (!deflater.finished()) {
+				if (len == buf.length) {
+					byte[] tmp = new byte[buf.length * 2];
+					System.arraycopy(buf, 0, tmp, 0, len);
+					buf = tmp;
+				}
+				len += deflater.deflate(buf, len, buf.length - len);
+			}
+			deflater.end();
+			out = new byte[len];
+			System.arraycopy(buf, 0, out, 0, len);
+		} else {
+			// swap to little endian
+			for (int k = 0; k < bbArray.length; k += 4) {
+				out[k] = bbArray[k + 3];
+				out[k + 1] = bbArray[k + 2];
+				out[k + 2] = bbArray[k + 1];
+				out[k + 3] = bbArray[k];
+			}
+		}
+		return (out);
+	}
+
+	/**
+	 * Read and decode a tile file.
+	 * 
+	 * @param tileFormat
+	 *            RAW or DEFLATE
+	 * @param file
+	 *            the tile file
+	 * @param numSamples
+	 *            the number of samples in the tile
+	 * @return a direct little endian buffer of float samples, or null if the
+	 *         file is empty
+	 * @throws IOException
+	 */
+	public static ByteBuffer decode(String tileFormat, File file, int numSamples) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			int size = (int) channel.size();
+			if (size == 0) {
+				return (null);
+			}
+			if (RAW.equals(tileFormat)) {
+				if (size != numSamples * 4) {
+					throw new IOException("Tile " + file + " has " + size + " bytes, expected " + (numSamples * 4) + ".");
+				}
+				ByteBuffer bBuf = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+				while (bBuf.hasRemaining()) {
+					if (channel.read(bBuf) < 0) {
+						throw new IOException("Unexpected end of tile " + file + ".");
+					}
+				}
+				bBuf.flip();
+				return (bBuf);
+			}
+			byte[] input = new byte[size];
+			ByteBuffer iBuf = ByteBuffer.wrap(input);
+			while (iBuf.hasRemaining()) {
+				if (channel.read(iBuf) < 0) {
+					throw new IOException("Unexpected end of tile " + file + ".");
+				}
+			}
+			return (decodeDeflate(input, numSamples));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Decode deflated, shuffled samples.
+	 * 
+	 * @param input
+	 * @param numSamples
+	 * @return a direct little endian buffer of float samples
+	 * @throws IOException
+	 */
+	public static ByteBuffer decodeDeflate(byte[] input, int numSamples) throws IOException {
+		byte[] planes = new byte[numSamples * 4];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(input);
+			int len = 0;
+			while ((len < planes.length) && !inflater.finished()) {
+				int n = inflater.inflate(planes, len, planes.length - len);
+				if ((n == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				len += n;
+			}
+			if (len != planes.length) {
+				throw new IOException("Tile has " + len + " bytes, expected " + planes.length + ".");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		ByteBuffer bBuf = ByteBuffer.allocateDirect(planes.length).order(ByteOrder.LITTLE_ENDIAN);
+		int n = numSamples;
+		for (int i = 0; i < n; ++i) {
+			bBuf.put(planes[i]).put(planes[n + i]).put(planes[2 * n + i]).put(planes[3 * n + i]);
+		}
+		bBuf.flip();
+		return (bBuf);
+	}
+
+}
@@ -0,0 +1,240 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+
+import com.ardor3d.image.Image;
+import com.ardor3d.image.ImageDataFormat;
+import com.ardor3d.image.PixelDataType;
+
+/**
+ * Provides an implementation of the TileSource interface for landscapes on the
+ * local file system where a layer may store all of its tiles in a single
+ * TileArchive file instead of a directory of PNG files. Layers with a
+ * TileFormat of PACK in their layer.properties are read from the archive,
+ * other layers are read as PNG files.
+ * 
+ * Archived tiles are stored ready to use: elevation and field samples are big
+ * endian floats, color samples are BGRA bytes, and gray samples are luminance
+ * bytes.
+ *
+ */
+public class PackedTileSource
+	extends FileSystemTileSource {
+
+	// Value of the TileFormat property for an archived layer
+	public static final String TILE_FORMAT = "PACK";
+
+	// Open archives by layer name
+	private HashMap<String, TileArchive> archiveMap;
+
+	/**
+	 * Constructor
+	 */
+	public PackedTileSource() {
+		archiveMap = new HashMap<String, TileArchive>();
+	}
+
+	/**
+	 * Get information about each layer. Any open archives are closed.
+	 */
+	@Override
+	public String[][] getLayerInfo() {
+		close();
+		return (super.getLayerInfo());
+	}
+
+	/**
+	 * Determine if a tile exists in a layer.
+	 */
+	@Override
+	protected boolean tileExists(String layerName, String key) {
+		TileArchive archive = getArchive(layerName);
+		if (archive == null) {
+			return (super.tileExists(layerName, key));
+		}
+		return (archive.contains(new QuadKey(key).toLong()));
+	}
+
+	/**
+	 * Get a tile from the archive for the layer, or from the PNG file if the
+	 * layer is not archived.
+	 */
+	@Override
+	public QuadTreeTile getTile(String layerName, QuadKey qKey, DataType dataType) {
+		TileArchive archive = getArchive(layerName);
+		if (archive == null) {
+			return (super.getTile(layerName, qKey, dataType));
+		}
+		try {
+			ByteBuffer bBuf = archive.getTile(qKey.toLong());
+			if (bBuf == null) {
+				return (null);
+			}
+			Properties prop = getProperties(layerName);
+			int columns = Integer.parseInt(prop.getProperty("TileWidth")) + 1;
+			int rows = Integer.parseInt(prop.getProperty("TileLength")) + 1;
+			switch (dataType) {
+			case Float:
+				return (new QuadTreeTile(bBuf, qKey, columns, rows, dataType, 4));
+			case UnsignedInteger:
+			case UnsignedByte:
+				ImageDataFormat format = (dataType == DataType.UnsignedInteger) ? ImageDataFormat.BGRA : ImageDataFormat.Luminance;
+				ArrayList<ByteBuffer> list = new ArrayList<ByteBuffer>(1);
+				list.add(bBuf);
+				Image image = new Image(format, PixelDataType.UnsignedByte, columns, rows, list, null);
+				return (new QuadTreeTile(image, qKey, dataType));
+			default:
+				return (null);
+			}
+		} catch (Exception e) {
+			System.out.println("Unable to read tile " + qKey + " for layer "+layerName+", see log.");
+			e.printStackTrace();
+		}
+		return (null);
+	}
+
+	/**
+	 * Get the archive for a layer.
+	 * 
+	 * @param layerName
+	 * @return the archive or null if the layer is not archived
+	 */
+	protected synchronized TileArchive getArchive(String layerName) {
+		if (archiveMap.containsKey(layerName)) {
+			return (archiveMap.get(layerName));
+		}
+		TileArchive archive = null;
+		Properties prop = getProperties(layerName);
+		if ((prop != null) && TILE_FORMAT.equals(prop.getProperty("TileFormat"))) {
+			try {
+				archive = new TileArchive(new File(layerPath(layerName), TileArchive.FILE_NAME));
+			} catch (Exception e) {
+				System.out.println("Unable to open tile archive for layer "+layerName+", see log.");
+				e.printStackTrace();
+			}
+		}
+		archiveMap.put(layerName, archive);
+		return (archive);
+	}
+
+	/**
+	 * Close all archives.
+	 */
+	public synchronized void close() {
+		for (TileArchive archive : archiveMap.values()) {
+			if (archive != null) {
+				archive.close();
+			}
+		}
+		archiveMap.clear();
+	}
+
+}
@@ -0,0 +1,290 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Provides read access to a single file that holds all of the tiles for a
+ * layer. The file begins with a fixed size header followed by the tile data.
+ * An index at the end of the file lists the packed QuadKey, offset, and length
+ * of each tile sorted by key. The index and data are memory mapped so a tile
+ * is returned as a slice of the file without copying.
+ * 
+ * Header layout (big endian):
+ * <pre>
+ * magic (8 bytes), version (4), tile count (4), index offset (8), reserved (8)
+ * </pre>
+ * Index layout: keys (8 bytes each), offsets (8 bytes each), lengths (4 bytes each).
+ * No tile crosses a SEGMENT_SIZE boundary in the file.
+ *
+ */
+public class TileArchive {
+
+	// Name of the archive file in the layer directory
+	public static final String FILE_NAME = "tiles.pack";
+
+	// "DERTPACK"
+	public static final long MAGIC = 0x444552545041434BL;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+
+	// Size of each mapped region of tile data
+	public static final long SEGMENT_SIZE = 1L << 30;
+
+	// The archive file
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel fileChannel;
+	private long fileSize;
+
+	// The index
+	private LongBuffer keyIndex;
+	private LongBuffer offsetIndex;
+	private IntBuffer lengthIndex;
+	private int tileCount;
+
+	// Tile data regions, mapped on demand
+	private MappedByteBuffer[] segment;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param file
+	 *            the archive file
+	 * @throws IOException
+	 */
+	public TileArchive(File file) throws IOException {
+		this.file = file;
+		raf = new RandomAccessFile(file, "r");
+		fileChannel = raf.getChannel();
+		fileSize = fileChannel.size();
+		if (fileSize < HEADER_SIZE) {
+			close();
+			throw new IOException("Tile archive " + file + " is truncated.");
+		}
+		ByteBuffer header = fileChannel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+		if (header.getLong() != MAGIC) {
+			close();
+			throw new IOException(file + " is not a tile archive.");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			close();
+			throw new IOException("Unsupported tile archive version " + version + ".");
+		}
+		tileCount = header.getInt();
+		long indexOffset = header.getLong();
+		long indexSize = (long) tileCount * 20;
+		if ((indexOffset < HEADER_SIZE) || (indexOffset + indexSize > fileSize)) {
+			close();
+			throw new IOException("Tile archive " + file + " has an invalid index.");
+		}
+
+		ByteBuffer index = fileChannel.map(MapMode.READ_ONLY, indexOffset, indexSize);
+		index.limit(tileCount * 8);
+		keyIndex = index.slice().asLongBuffer();
+		index.clear();
+		index.position(tileCount * 8);
+		index.limit(tileCount * 16);
+		offsetIndex = index.slice().asLongBuffer();
+		index.clear();
+		index.position(tileCount * 16);
+		lengthIndex = index.slice().asIntBuffer();
+
+		segment = new MappedByteBuffer[(int) ((indexOffset + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+	}
+
+	/**
+	 * Get the number of tiles in the archive.
+	 * 
+	 * @return the tile count
+	 */
+	public int getTileCount() {
+		return (tileCount);
+	}
+
+	/**
+	 * Determine if a tile is in the archive.
+	 * 
+	 * @param key
+	 *            the packed QuadKey
+	 * @return true if it exists
+	 */
+	public boolean contains(long key) {
+		return (find(key) >= 0);
+	}
+
+	/**
+	 * Get the contents of a tile.
+	 * 
+	 * @param key
+	 *            the packed QuadKey
+	 * @return a read-only view of the tile data in the file, or null if the
+	 *         tile is not in the archive
+	 * @throws IOException
+	 */
+	public ByteBuffer getTile(long key) throws IOException {
+		int i = find(key);
+		if (i < 0) {
+			return (null);
+		}
+		long offset = offsetIndex.get(i);
+		int length = lengthIndex.get(i);
+		int s = (int) (offset / SEGMENT_SIZE);
+		ByteBuffer buf = getSegment(s).duplicate();
+		int position = (int) (offset - s * SEGMENT_SIZE);
+		buf.limit(position + length);
+		buf.position(position);
+		return (buf.slice());
+	}
+
+	/**
+	 * Close the archive. Subsequent calls to getTile will throw an
+	 * IOException.
+	 */
+	public synchronized void close() {
+		try {
+			raf.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		segment = null;
+	}
+
+	private synchronized MappedByteBuffer getSegment(int s) throws IOException {
+		if (segment == null) {
+			throw new IOException("Tile archive " + file + " is closed.");
+		}
+		if (segment[s] == null) {
+			long position = s * SEGMENT_SIZE;
+			segment[s] = fileChannel.map(MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, fileSize - position));
+		}
+		return (segment[s]);
+	}
+
+	private int find(long key) {
+		int lo = 0;
+		int hi = tileCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			long k = keyIndex.get(mid);
+			if (k < key) {
+				lo = mid + 1;
+			} else if (k > key) {
+				hi = mid - 1;
+			} else {
+				return (mid);
+			}
+		}
+		return (-1);
+	}
+
+}
@@ -0,0 +1,218 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TreeMap;
+
+/**
+ * Writes a TileArchive. Tiles may be written in any order and from multiple
+ * threads. The index and header are written when the archive is closed.
+ *
+ */
+public class TileArchiveWriter {
+
+	// The archive file
+	private RandomAccessFile raf;
+	private FileChannel fileChannel;
+
+	// Next write position
+	private long position;
+
+	// Offset and length of each tile, sorted by packed key
+	private TreeMap<Long, long[]> entryMap;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param file
+	 *            the archive file, any existing contents are discarded
+	 * @throws IOException
+	 */
+	public TileArchiveWriter(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		raf = new RandomAccessFile(file, "rw");
+		raf.setLength(0);
+		fileChannel = raf.getChannel();
+		position = TileArchive.HEADER_SIZE;
+		entryMap = new TreeMap<Long, long[]>();
+	}
+
+	/**
+	 * Write a tile. If the tile was written previously it is replaced.
+	 * 
+	 * @param key
+	 *            the tile key
+	 * @param data
+	 *            the tile contents
+	 * @throws IOException
+	 */
+	public synchronized void write(QuadKey key, byte[] data) throws IOException {
+		// keep each tile within a single mapped segment
+		long segmentEnd = (position / TileArchive.SEGMENT_SIZE + 1) * TileArchive.SEGMENT_SIZE;
+		if (position + data.length > segmentEnd) {
+			position = segmentEnd;
+		}
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		long p = position;
+		while (buf.hasRemaining()) {
+			p += fileChannel.write(buf, p);
+		}
+		entryMap.put(key.toLong(), new long[] { position, data.length });
+		position = p;
+	}
+
+	/**
+	 * Get the number of tiles written so far.
+	 * 
+	 * @return the tile count
+	 */
+	public synchronized int getTileCount() {
+		return (entryMap.size());
+	}
+
+	/**
+	 * Write the index and header and close the file.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		int n = entryMap.size();
+		long indexOffset = (position + 7) & ~7L;
+		ByteBuffer index = ByteBuffer.allocate(n * 20);
+		for (Long key : entryMap.keySet()) {
+			index.putLong(key);
+		}
+		for (long[] entry : entryMap.values()) {
+			index.putLong(entry[0]);
+		}
+		for (long[] entry : entryMap.values()) {
+			index.putInt((int) entry[1]);
+		}
+		index.flip();
+		long p = indexOffset;
+		while (index.hasRemaining()) {
+			p += fileChannel.write(index, p);
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(TileArchive.HEADER_SIZE);
+		header.putLong(TileArchive.MAGIC);
+		header.putInt(TileArchive.VERSION);
+		header.putInt(n);
+		header.putLong(indexOffset);
+		header.putLong(0);
+		header.flip();
+		p = 0;
+		while (header.hasRemaining()) {
+			p += fileChannel.write(header, p);
+		}
+		fileChannel.force(true);
+		raf.close();
+	}
+
+}
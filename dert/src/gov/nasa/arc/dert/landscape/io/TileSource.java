@@ -139,6 +139,14 @@ public interface TileSource {
 	 */
 	public boolean tileExists(String key);
 
+	/**
+	 * Given the tile key, return if it exists.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public boolean tileExists(QuadKey key);
+
 	/**
 	 * Get a tile.
 	 * 
@@ -107,6 +107,7 @@ import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTreeMesh;
 import gov.nasa.arc.dert.landscape.srs.ProjectionInfo;
+import gov.nasa.arc.dert.raster.RasterStatistics;
 import gov.nasa.arc.dert.render.SharedTexture2D;
 import gov.nasa.arc.dert.util.ImageUtil;
 import gov.nasa.arc.dert.util.StringUtil;
@@ -137,6 +138,9 @@ public class RasterLayer extends Layer {
 	// value range
 	protected double[] minimumValue, maximumValue;
 
+	// value statistics, null for layers made before they were recorded
+	protected RasterStatistics statistics;
+
 	// tile dimensions, tile dimensions+1, tile size in bytes
 	protected int tileWidth, tileLength, tileWidth1, tileLength1;
 
@@ -214,6 +218,7 @@ public class RasterLayer extends Layer {
 		minimumValue = StringUtil.getDoubleArray(properties, "MinimumValue", null, true);
 		maximumValue = StringUtil.getDoubleArray(properties, "MaximumValue", null, true);
 		fillValue = (float) StringUtil.getDoubleValue(properties, "EdgeFillValue", false, 0.0, false);
+		statistics = RasterStatistics.createFromProperties(properties);
 		Console.println("\nProperties for " + layerName + ":");
 		Console.println("Layer Type = " + layerType);
 		Console.println("Number of Levels = " + numLevels);
@@ -297,6 +302,15 @@ public class RasterLayer extends Layer {
 		return (maximumValue);
 	}
 
+	/**
+	 * Get the value statistics
+	 * 
+	 * @return the statistics or null if the layer has none
+	 */
+	public RasterStatistics getStatistics() {
+		return (statistics);
+	}
+
 	/**
 	 * Get the raster padding value
 	 * 
@@ -108,6 +108,9 @@ import com.ardor3d.math.Vector3;
 
 public class QuadKey {
 	
+	// Deepest level that can be packed into a long identifier (2 bits per level plus 6 bits for the level)
+	public static final int MAX_PACKED_LEVEL = 29;
+	
 	protected byte[] path;
 	
 	// Quadrants
@@ -159,6 +162,22 @@ public class QuadKey {
 		return(str);
 	}
 
+	/**
+	 * Pack this key into a long. The lower 6 bits hold the level and each quadrant
+	 * of the path occupies 2 bits above that. Two keys are equal to each other if and only if
+	 * their packed values are equal.
+	 * 
+	 * @return the packed identifier
+	 */
+	public long toLong() {
+		if (path.length > MAX_PACKED_LEVEL)
+			throw new IllegalStateException("QuadKey level "+path.length+" exceeds maximum of "+MAX_PACKED_LEVEL+".");
+		long id = 0;
+		for (int i=0; i<path.length; ++i)
+			id = (id << 2) | (path[i]-1);
+		return((id << 6) | path.length);
+	}
+
 	public final int getLevel() {
 		return(path.length);
 	}
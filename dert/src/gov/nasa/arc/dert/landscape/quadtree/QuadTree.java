@@ -140,9 +140,6 @@ public class QuadTree
 	// This quad tree is in use
 	public boolean inUse;
 
-	// Last time this quad tree was pulled from the cache
-	protected long timestamp;
-
 	// The mesh that will be rendered
 	protected QuadTreeMesh mesh;
 
@@ -272,6 +269,21 @@ public class QuadTree
 		return(sizeInBytes);
 	}
 
+	/**
+	 * Get the distance from a point to the closest of this quad tree's test points.
+	 * 
+	 * @param loc
+	 * @return the distance
+	 */
+	public double getDistance(ReadOnlyVector3 loc) {
+		if (cornerPoint == null)
+			return (Double.MAX_VALUE);
+		double minDist = loc.distance(centerPoint);
+		for (int i = 0; i < cornerPoint.length; ++i)
+			minDist = Math.min(minDist, loc.distance(cornerPoint[i]));
+		return (minDist);
+	}
+
 	/**
 	 * Does this quad tree contain the coordinate X,Y?
 	 * 
@@ -480,9 +492,7 @@ public class QuadTree
 		for (int i = 0; i < child.length; ++i) {
 			attachChild(child[i]);
 			child[i].inUse = true;
-			World.getInstance().getMarble().landscapeChanged(child[i]);
-			World.getInstance().getLandmarks().landscapeChanged(child[i]);
-			World.getInstance().getFeatureSets().landscapeChanged(child[i]);
+			World.getInstance().getLandscapeChangeBus().post(child[i]);
 		}
 		Arrays.fill(dirty, false);
 		this.child = child;
@@ -540,9 +550,7 @@ public class QuadTree
 	private boolean merge() {
 		boolean success = clearChildren();
 		if (success) {
-			World.getInstance().getMarble().landscapeChanged(this);
-			World.getInstance().getLandmarks().landscapeChanged(this);
-			World.getInstance().getFeatureSets().landscapeChanged(this);
+			World.getInstance().getLandscapeChangeBus().post(this);
 		}
 		return(success);
 	}
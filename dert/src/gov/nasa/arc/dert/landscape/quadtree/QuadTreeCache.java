@@ -101,57 +101,85 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.landscape.quadtree;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * A least-recently-used cache of QuadTree tiles keyed by the packed QuadKey identifier.
+ * Tiles are kept in access order so the eviction candidate is always at the head of
+ * the map.
+ *
+ */
 public class QuadTreeCache {
 
 	// The maximum amount of memory for the cache (in bytes)
 	public static long MAX_CACHE_MEMORY = 400000000l;
 	public static int MAX_CLEANUP_COUNT = 1000;
 
-	// A hash map to keep track of QuadTree tiles
-	protected HashMap<String, QuadTree> quadTreeMap;
+	// An access ordered hash map to keep track of QuadTree tiles, least recently used first
+	protected LinkedHashMap<Long, QuadTree> quadTreeMap;
 
 	// The number of cache cleanups since the last garbage collection
 	protected int cleanupCount;
 
 	// The maximum cache size (in bytes)
 	protected long cacheSize;
+	
+	// Statistics
+	protected long hitCount, missCount, evictionCount;
 
 	/**
 	 * Constructor
 	 * 
 	 */
 	public QuadTreeCache() {
-		quadTreeMap = new HashMap<String, QuadTree>();
+		quadTreeMap = new LinkedHashMap<Long, QuadTree>(1024, 0.75f, true);
 	}
 
 	/**
-	 * Given a key, return the associated QuadTree and update its timestamp.
+	 * Given a key, return the associated QuadTree and mark it as most recently used.
 	 * 
 	 * @param key
 	 * @return the QuadTree
 	 */
-	public synchronized QuadTree getQuadTree(String key) {
-		QuadTree quadTree = quadTreeMap.get(key);
-		if (quadTree != null)
-			quadTree.timestamp = System.currentTimeMillis();
+	public synchronized QuadTree getQuadTree(QuadKey key) {
+		QuadTree quadTree = quadTreeMap.get(key.toLong());
+		if (quadTree == null)
+			missCount ++;
+		else
+			hitCount ++;
 		return(quadTree);
 	}
 
 	/**
-	 * Place a QuadTree in the cache. and set its timestamp
+	 * Place a QuadTree in the cache as the most recently used item.
 	 * 
 	 * @param key
 	 * @param quadTree
 	 */
-	public synchronized void putQuadTree(String key, QuadTree quadTree) {
-		quadTree.timestamp = System.currentTimeMillis();
-		quadTreeMap.put(key, quadTree);
+	public synchronized void putQuadTree(QuadKey key, QuadTree quadTree) {
+		QuadTree old = quadTreeMap.put(key.toLong(), quadTree);
+		if (old != null)
+			cacheSize -= old.getSize();
 		cacheSize += quadTree.getSize();
 		cleanUpCache();
 	}
 	
+	/**
+	 * Remove a QuadTree from the cache if it is still the one stored under the key.
+	 * 
+	 * @param key
+	 * @param quadTree
+	 */
+	public synchronized void removeQuadTree(QuadKey key, QuadTree quadTree) {
+		Long id = key.toLong();
+		if (quadTreeMap.get(id) == quadTree) {
+			quadTreeMap.remove(id);
+			cacheSize -= quadTree.getSize();
+		}
+	}
+	
 	/**
 	 * Clear the entire cache.
 	 */
@@ -167,59 +195,42 @@ public class QuadTreeCache {
 	 * @param label the string
 	 */
 	public synchronized void clear(String label) {
-		Object[] key = new Object[quadTreeMap.size()];
-		key = quadTreeMap.keySet().toArray(key);
-		for (int i=0; i<key.length; ++i) {
-			if (((String)key[i]).startsWith(label)) {
-				QuadTree qt = quadTreeMap.remove(key[i]);
+		Iterator<QuadTree> iterator = quadTreeMap.values().iterator();
+		while (iterator.hasNext()) {
+			QuadTree qt = iterator.next();
+			if (qt.getName().startsWith(label)) {
+				iterator.remove();
 				cacheSize -= qt.getSize();
 			}
 		}
 	}
 
 	protected void cleanUpCache() {
-		// not full yet
-		if (cacheSize < MAX_CACHE_MEMORY) {
-			return;
-		}
-		// get the oldest QuadTree not in use
-		Object[] key = new Object[quadTreeMap.size()];
-		key = quadTreeMap.keySet().toArray(key);
-		Object oldestKey = null;
-		QuadTree oldestItem = null;
-		int k = 1;
-		for (int i=0; i<key.length; ++i) {
-			oldestKey = key[i];
-			oldestItem = quadTreeMap.get(oldestKey);
-			if (!oldestItem.inUse) {
-				k = i+1;
-				break;
+		// Evict least recently used tiles until we are under the limit.
+		// Tiles that are in use are moved to the tail so they are not examined
+		// again until all other tiles have been considered.
+		int pinnedCount = 0;
+		while (cacheSize >= MAX_CACHE_MEMORY) {
+			if (pinnedCount >= quadTreeMap.size())
+				throw new IllegalStateException("Unable to clean up quad tree cache.  All tiles are in use. Increase maximum cache size.");
+			Map.Entry<Long, QuadTree> eldest = quadTreeMap.entrySet().iterator().next();
+			QuadTree qt = eldest.getValue();
+			if (qt.inUse) {
+				quadTreeMap.get(eldest.getKey());
+				pinnedCount ++;
+				continue;
 			}
-		}
-		if (oldestItem == null)
-			throw new IllegalStateException("Unable to clean up quad tree cache.  All tiles are in use. Increase maximum cache size.");
-		for (int i = k; i < key.length; ++i) {
-			QuadTree item = quadTreeMap.get(key[i]);
-			if (!item.inUse) {
-				if (item.timestamp < oldestItem.timestamp) {
-					oldestKey = key[i];
-					oldestItem = item;
-				}
+			quadTreeMap.remove(eldest.getKey());
+			cacheSize -= qt.getSize();
+//			System.err.println("QuadTreeCache.cleanUpCache "+cleanupCount+" "+qt+" "+cacheSize+" "+MAX_CACHE_MEMORY+" "+qt.getSize());
+			qt.dispose();
+			evictionCount ++;
+			cleanupCount ++;
+			if (cleanupCount == MAX_CLEANUP_COUNT) {
+				System.gc();
+				cleanupCount = 0;
 			}
 		}
-		if (oldestItem.inUse)
-			throw new IllegalStateException("Unable to clean up quad tree cache.  All tiles are in use. Increase maximum cache size.");
-		// remove the oldest item if not in use
-		QuadTree qt = quadTreeMap.remove(oldestKey);
-		cacheSize -= qt.getSize();
-//		System.err.println("QuadTreeCache.cleanUpCache "+cleanupCount+" "+qt+" "+cacheSize+" "+MAX_CACHE_MEMORY+" "+qt.getSize());
-		qt.dispose();
-		qt = null;
-		cleanupCount ++;
-		if (cleanupCount == MAX_CLEANUP_COUNT) {
-			System.gc();
-			cleanupCount = 0;
-		}
 	}
 
 	/**
@@ -236,9 +247,51 @@ public class QuadTreeCache {
 	 * @param rgba color
 	 */
 	public synchronized void updateSurfaceColor(float[] rgba) {
-		QuadTree[] entry = new QuadTree[quadTreeMap.size()];
-		quadTreeMap.entrySet().toArray(entry);
-		for (int i = 0; i < entry.length; ++i)
-			entry[i].getMesh().updateSurfaceColor(rgba);
+		for (QuadTree qt : quadTreeMap.values()) {
+			QuadTreeMesh mesh = qt.getMesh();
+			if (mesh != null)
+				mesh.updateSurfaceColor(rgba);
+		}
+	}
+	
+	/**
+	 * Get the number of requests that found their QuadTree in the cache.
+	 * 
+	 * @return the hit count
+	 */
+	public synchronized long getHitCount() {
+		return(hitCount);
+	}
+	
+	/**
+	 * Get the number of requests that did not find their QuadTree in the cache.
+	 * 
+	 * @return the miss count
+	 */
+	public synchronized long getMissCount() {
+		return(missCount);
+	}
+	
+	/**
+	 * Get the number of QuadTrees that were evicted to stay under the memory limit.
+	 * 
+	 * @return the eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return(evictionCount);
+	}
+	
+	/**
+	 * Get the current size of the cache contents.
+	 * 
+	 * @return the size in bytes
+	 */
+	public synchronized long getCacheSize() {
+		return(cacheSize);
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return("QuadTreeCache tiles="+quadTreeMap.size()+" bytes="+cacheSize+" hits="+hitCount+" misses="+missCount+" evictions="+evictionCount);
 	}
 }
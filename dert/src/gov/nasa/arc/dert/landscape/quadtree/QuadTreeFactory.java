@@ -101,6 +101,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.landscape.quadtree;
 
+import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.landscape.io.QuadTreeTile;
 import gov.nasa.arc.dert.landscape.io.TileSource;
 import gov.nasa.arc.dert.landscape.layer.Layer;
@@ -112,8 +113,12 @@ import java.awt.Color;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.image.Image;
@@ -178,6 +183,12 @@ public class QuadTreeFactory {
 	
 	private QuadTreeCache cache;
 	
+	// Loads that are in progress, keyed by packed QuadKey
+	private ConcurrentHashMap<Long, LoadTask> pendingMap;
+	
+	// Orders asynchronous loads
+	private TileRequestScheduler scheduler;
+	
 	public static QuadTreeFactory createInstance(TileSource source, RasterLayer baseLayer, Layer[] layerList, double pixelScale) {
 		if (instance != null)
 			throw new IllegalStateException("QuadTreeFactory already exists!");
@@ -219,6 +230,8 @@ public class QuadTreeFactory {
 		minZ = baseLayer.getMinimumValue()[0];
 
 		bytesPerTile = (tileWidth*tileLength*14+2*tileWidth+2*tileLength)*4;
+		// the heights kept with each mesh
+		bytesPerTile += (tileWidth+1)*(tileLength+1)*4;
 		for (int i = 0; i < layerList.length; ++i) {
 			if (layerList[i] != null) {
 				bytesPerTile += layerList[i].getBytesPerTile();
@@ -226,15 +239,23 @@ public class QuadTreeFactory {
 		}
 		
 		cache = new QuadTreeCache();
+		pendingMap = new ConcurrentHashMap<Long, LoadTask>();
 
-		executor = Executors.newFixedThreadPool(5);
+		executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+		scheduler = new TileRequestScheduler(executor, cache);
 	}
 
 	/**
 	 * Dispose of resources
 	 */
 	public void dispose() {
+		// record how the tile cache and loads did for this landscape in the
+		// log
+		System.err.println(cache);
+		System.err.println(scheduler);
+		scheduler.clear();
 		executor.shutdown();
+		pendingMap.clear();
 		cache.clear();
 	}
 
@@ -249,13 +270,33 @@ public class QuadTreeFactory {
 	 * @return
 	 */
 	public QuadTree getQuadTree(QuadKey key, double pixelWidth, double pixelLength, boolean wait) {
-		QuadTree quadTree = cache.getQuadTree(key.toString());
+		QuadTree quadTree = cache.getQuadTree(key);
 		if (quadTree == null)
 			quadTree = createQuadTree(key, pixelWidth, pixelLength, wait);
 		if (quadTree.getMesh() != null)
 			return (quadTree);
+		// still loading, keep the request alive
+		scheduler.touch(key.toLong());
 		return(null);
 	}
+	
+	/**
+	 * Update the load order for the current camera. Called once per frame.
+	 * 
+	 * @param camera
+	 */
+	public void updateScheduler(BasicCamera camera) {
+		scheduler.update(camera);
+	}
+	
+	/**
+	 * Get the scheduler for asynchronous loads.
+	 * 
+	 * @return the scheduler
+	 */
+	public TileRequestScheduler getScheduler() {
+		return(scheduler);
+	}
 
 	/**
 	 * Given the key, get a QuadTree
@@ -264,7 +305,7 @@ public class QuadTreeFactory {
 	 * @return
 	 */
 	public QuadTree getQuadTree(QuadKey key) {
-		QuadTree quadTree = cache.getQuadTree(key.toString());
+		QuadTree quadTree = cache.getQuadTree(key);
 		if (quadTree == null) {
 			double s = Math.pow(2, key.getLevel());
 			double pixelWidth = (terrainWidth / tileWidth) / s;
@@ -272,7 +313,7 @@ public class QuadTreeFactory {
 			quadTree = createQuadTree(key, pixelWidth, pixelLength, true);
 		}
 		else if (quadTree.getMesh() == null)
-			loadQuadTreeContents(quadTree);
+			quadTree = waitForContents(quadTree);
 		return (quadTree);
 	}
 	
@@ -283,7 +324,7 @@ public class QuadTreeFactory {
 	 * @return have children
 	 */
 	public boolean childrenExist(QuadKey quadKey) {
-		return(source.tileExists(quadKey.createChild(1).toString()));
+		return(source.tileExists(quadKey.createChild(1)));
 	}
 
 	/**
@@ -344,28 +385,46 @@ public class QuadTreeFactory {
 	}
 
 	private QuadTree createQuadTree(QuadKey key, double pixelWidth, double pixelLength, boolean wait) {
-
-		// create the quad tree tile and put it in the cache as a place holder
-		// while we load the contents
-		// this keeps us from starting another load operation for this tile
-		ReadOnlyVector3 p = quadrantToOffset(key.getQuadrant(), pixelWidth, pixelLength);
-		final QuadTree qt = new QuadTree(key, p, pixelWidth, pixelLength, bytesPerTile);
-		qt.createCornerPoints(key.getTileCenter(terrainWidth,  terrainLength), tileWidth, tileLength);
-		cache.putQuadTree(key.toString(), qt);
-
-		// load the quad tree mesh contents
-		if (wait) {
-			loadQuadTreeContents(qt);
-		} else {
-			Runnable runnable = new Runnable() {
-				@Override
-				public void run() {
-					Thread.yield();
-					loadQuadTreeContents(qt);
+		Long id = key.toLong();
+
+		// join a load that is already in progress for this key
+		LoadTask task = pendingMap.get(id);
+		if (task == null) {
+			// create the quad tree tile and put it in the cache as a place holder
+			// while we load the contents
+			// this keeps us from starting another load operation for this tile
+			ReadOnlyVector3 p = quadrantToOffset(key.getQuadrant(), pixelWidth, pixelLength);
+			QuadTree qt = new QuadTree(key, p, pixelWidth, pixelLength, bytesPerTile);
+			qt.createCornerPoints(key.getTileCenter(terrainWidth,  terrainLength), tileWidth, tileLength);
+			LoadTask newTask = new LoadTask(id, qt);
+			task = pendingMap.putIfAbsent(id, newTask);
+			if (task == null) {
+				// another load may have completed since our cache lookup
+				QuadTree cached = cache.getQuadTree(key);
+				if (cached != null) {
+					pendingMap.remove(id, newTask);
+					if (wait && (cached.getMesh() == null))
+						return(waitForContents(cached));
+					return(cached);
 				}
-			};
-			executor.execute(runnable);
+				task = newTask;
+				cache.putQuadTree(key, qt);
+				
+				// load the quad tree mesh contents
+				if (!wait)
+					scheduler.submit(id, qt, task);
+			}
 		}
+		if (wait)
+			return(task.waitForCompletion());
+		return(task.quadTree);
+	}
+	
+	private QuadTree waitForContents(QuadTree qt) {
+		LoadTask task = pendingMap.get(qt.getKey().toLong());
+		if ((task != null) && (task.quadTree == qt))
+			return(task.waitForCompletion());
+		loadQuadTreeContents(qt);
 		return(qt);
 	}
 
@@ -441,7 +500,7 @@ public class QuadTreeFactory {
 		return (texture);
 	}
 
-	private synchronized QuadTreeMesh createMesh(QuadKey key, double pixelWidth, double pixelLength) {
+	private QuadTreeMesh createMesh(QuadKey key, double pixelWidth, double pixelLength) {
 
 		// Get the base layer tile data
 		QuadTreeTile tile = baseLayer.getTile(key);
@@ -452,6 +511,11 @@ public class QuadTreeFactory {
 		int dataSize = tile.columns * tile.rows;
 		FloatBuffer data = tile.raster.asFloatBuffer();
 
+		// keep an unscaled copy of the posts for sampling
+		float[] height = new float[dataSize];
+		data.get(height);
+		data.rewind();
+
 		// create vertex and color buffers
 		FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(dataSize * 3);
 
@@ -477,6 +541,7 @@ public class QuadTreeFactory {
 		vertexBuffer.flip();
 		
 		QuadTreeMesh mesh = new QuadTreeMesh("_mesh_"+key, tile.columns, tile.rows, pixelWidth, pixelLength);
+		mesh.setHeights(height, pixelScale);
 
 		// all NaNs, create "empty mesh"
 		if (empty) {
@@ -497,6 +562,57 @@ public class QuadTreeFactory {
 		return (mesh);
 	}
 
+	/**
+	 * A single load operation for a QuadTree. Requests for the same key share
+	 * the task while it is pending.
+	 */
+	private class LoadTask
+		extends FutureTask<QuadTree> {
+		
+		private final Long id;
+		private final QuadTree quadTree;
+		
+		public LoadTask(Long id, final QuadTree quadTree) {
+			super(new Runnable() {
+				@Override
+				public void run() {
+					loadQuadTreeContents(quadTree);
+				}
+			}, quadTree);
+			this.id = id;
+			this.quadTree = quadTree;
+		}
+		
+		@Override
+		protected void done() {
+			pendingMap.remove(id, this);
+		}
+		
+		/**
+		 * Wait for the load, running it on this thread if no worker has started it yet.
+		 * 
+		 * @return the QuadTree holding the contents
+		 */
+		public QuadTree waitForCompletion() {
+			scheduler.remove(id);
+			run();
+			try {
+				get();
+			} catch (CancellationException e) {
+				// dropped by the scheduler before we claimed it, its place holder has
+				// been removed from the cache so request the tile again to join a newer
+				// load or put a new place holder in the cache
+				return(createQuadTree(quadTree.getKey(), quadTree.pixelWidth, quadTree.pixelLength, true));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				System.out.println("Unable to load tile "+quadTree.getKey()+", see log.");
+				e.getCause().printStackTrace();
+			}
+			return(quadTree);
+		}
+	}
+
 	/**
 	 * Set the surface color for all QuadTrees
 	 * 
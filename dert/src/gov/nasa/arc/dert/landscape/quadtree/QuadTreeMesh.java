@@ -134,6 +134,12 @@ public class QuadTreeMesh extends Mesh {
 	// This mesh is empty
 	protected boolean empty;
 
+	// Unscaled elevation posts, top row first, with missing values left as NaN
+	private float[] height;
+
+	// Scale applied to the elevation posts to get the vertex Z coordinate
+	private double pixelScale = 1;
+
 	// Copy of edge vertices for stitching
 	private float[][] edge;
 
@@ -238,32 +244,117 @@ public class QuadTreeMesh extends Mesh {
 		return (vertexBuffer.get(ii));
 	}
 
+	/**
+	 * Set the elevation posts used for sampling. These are kept separately
+	 * from the vertex buffer, which has been scaled, filled where data is
+	 * missing, and is modified when stitching to neighboring tiles.
+	 * 
+	 * @param height
+	 *            the unscaled elevation posts, top row first, NaN where missing
+	 * @param pixelScale
+	 *            the scale applied to the posts for display
+	 */
+	public void setHeights(float[] height, double pixelScale) {
+		if ((height != null) && (height.length != columns * rows)) {
+			throw new IllegalArgumentException(getName() + " Height array length = " + height.length
+				+ ", Num Columns = " + columns + ", Num Rows = " + rows);
+		}
+		this.height = height;
+		this.pixelScale = pixelScale;
+	}
+
+	/**
+	 * Get the unscaled elevation posts.
+	 * 
+	 * @return null if they have not been set
+	 */
+	public float[] getHeights() {
+		return (height);
+	}
+
 	/**
 	 * Get the elevation using nearest neighbor interpolation at a coordinate in
 	 * the mesh.
 	 * 
 	 * @param x
 	 * @param y
-	 * @return
+	 * @return NaN if the nearest post is missing
 	 */
 	public float getElevationNearestNeighbor(double x, double y) {
 		int c = (int) Math.round(x / pixelWidth);
-		c = Math.min(c, tileWidth);
+		c = Math.max(0, Math.min(c, tileWidth));
 		int r = (int) Math.round(y / pixelLength);
-		r = Math.min(r, tileLength);
+		r = Math.max(0, Math.min(r, tileLength));
 		r = tileLength - r;
-		return (getElevation(c, r));
+		if (height == null) {
+			return (getElevation(c, r));
+		}
+		return ((float) (height[r * columns + c] * pixelScale));
 	}
 
 	/**
 	 * Get the elevation using bilinear interpolation at a coordinate in the
-	 * mesh.
+	 * mesh. Missing posts are left out and the weights of the remaining posts
+	 * are renormalized.
 	 * 
 	 * @param x
 	 * @param y
-	 * @return
+	 * @return NaN if all contributing posts are missing
 	 */
 	public float getElevationBilinear(double x, double y) {
+		if (height == null) {
+			return (getVertexElevationBilinear(x, y));
+		}
+		x /= pixelWidth;
+		y /= pixelLength;
+		// get lower left post, keeping a full cell inside the tile
+		int c0 = Math.max(0, Math.min((int) Math.floor(x), tileWidth - 1));
+		int r0 = Math.max(0, Math.min((int) Math.floor(y), tileLength - 1));
+		double fx = Math.max(0, Math.min(x - c0, 1));
+		double fy = Math.max(0, Math.min(y - r0, 1));
+		// flip rows (this is like an image)
+		int i = (tileLength - r0) * columns + c0;
+		int j = i - columns;
+		double w00 = (1 - fx) * (1 - fy);
+		double w10 = fx * (1 - fy);
+		double w01 = (1 - fx) * fy;
+		double w11 = fx * fy;
+		double sum = 0;
+		double weight = 0;
+		float h = height[i];
+		if (!Float.isNaN(h)) {
+			sum += w00 * h;
+			weight += w00;
+		}
+		h = height[i + 1];
+		if (!Float.isNaN(h)) {
+			sum += w10 * h;
+			weight += w10;
+		}
+		h = height[j];
+		if (!Float.isNaN(h)) {
+			sum += w01 * h;
+			weight += w01;
+		}
+		h = height[j + 1];
+		if (!Float.isNaN(h)) {
+			sum += w11 * h;
+			weight += w11;
+		}
+		if (weight == 0) {
+			return (Float.NaN);
+		}
+		return ((float) (sum / weight * pixelScale));
+	}
+
+	/**
+	 * Get the elevation using bilinear interpolation of the vertex buffer.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	private float getVertexElevationBilinear(double x, double y) {
 		// binary interpolation
 		// get 4 corner posts
 		int c0 = (int) Math.floor(x / pixelWidth);
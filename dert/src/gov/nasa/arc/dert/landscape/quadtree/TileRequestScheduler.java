@@ -0,0 +1,346 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.quadtree;
+
+import gov.nasa.arc.dert.camera.BasicCamera;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+import com.ardor3d.math.Vector3;
+
+/**
+ * Orders pending QuadTree loads by screen space error so the tiles closest to
+ * the camera, relative to their resolution, are loaded first. Priorities are recomputed
+ * once per frame. A request that has not been renewed for MAX_IDLE_FRAMES frames
+ * belongs to a tile that is no longer wanted (for example it was merged away)
+ * and is dropped if its load has not started.
+ *
+ */
+public class TileRequestScheduler {
+
+	// Number of frames a request may go without being renewed before it is dropped
+	public static int MAX_IDLE_FRAMES = 4;
+
+	// A pending load request
+	private static class Request {
+		private long id;
+		private QuadTree quadTree;
+		private FutureTask<QuadTree> task;
+		private double priority;
+		private long lastFrame;
+		private long submitTime;
+	}
+
+	// Highest priority at the end of the queue
+	private static Comparator<Request> comparator = new Comparator<Request>() {
+		@Override
+		public int compare(Request r0, Request r1) {
+			return(Double.compare(r0.priority, r1.priority));
+		}
+	};
+
+	// Worker threads
+	private ExecutorService executor;
+
+	// The cache holding place holders for pending tiles
+	private QuadTreeCache cache;
+
+	// Pending requests
+	private HashMap<Long, Request> requestMap;
+	private ArrayList<Request> queue;
+
+	// Camera location and pixel size from the last frame
+	private BasicCamera camera;
+	private Vector3 camLoc;
+
+	// Current frame
+	private long frame;
+
+	// Statistics
+	private long submitCount, startCount, dropCount, maxQueueDepth;
+	private long totalLatency, maxLatency;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param executor
+	 *            the workers that perform the loads
+	 * @param cache
+	 *            the cache holding the place holder QuadTrees
+	 */
+	public TileRequestScheduler(ExecutorService executor, QuadTreeCache cache) {
+		this.executor = executor;
+		this.cache = cache;
+		requestMap = new HashMap<Long, Request>();
+		queue = new ArrayList<Request>();
+		camLoc = new Vector3();
+	}
+
+	/**
+	 * Queue a load.
+	 * 
+	 * @param id
+	 *            the packed QuadKey
+	 * @param quadTree
+	 *            the place holder QuadTree
+	 * @param task
+	 *            the load task
+	 */
+	public void submit(long id, QuadTree quadTree, FutureTask<QuadTree> task) {
+		synchronized (this) {
+			if (requestMap.containsKey(id))
+				return;
+			Request request = new Request();
+			request.id = id;
+			request.quadTree = quadTree;
+			request.task = task;
+			request.lastFrame = frame;
+			request.submitTime = System.currentTimeMillis();
+			request.priority = getPriority(quadTree);
+			int index = Collections.binarySearch(queue, request, comparator);
+			if (index < 0)
+				index = -index - 1;
+			queue.add(index, request);
+			requestMap.put(id, request);
+			submitCount ++;
+			maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Request request = take();
+				if (request != null)
+					request.task.run();
+			}
+		});
+	}
+
+	/**
+	 * Renew a request so it is not dropped.
+	 * 
+	 * @param id
+	 *            the packed QuadKey
+	 */
+	public synchronized void touch(long id) {
+		Request request = requestMap.get(id);
+		if (request != null)
+			request.lastFrame = frame;
+	}
+
+	/**
+	 * Remove a request from the queue so the caller can perform the load itself.
+	 * 
+	 * @param id
+	 *            the packed QuadKey
+	 * @return true if the request was pending
+	 */
+	public synchronized boolean remove(long id) {
+		Request request = requestMap.remove(id);
+		if (request == null)
+			return(false);
+		queue.remove(request);
+		return(true);
+	}
+
+	/**
+	 * Called once per frame. Drop stale requests and reorder the rest.
+	 * 
+	 * @param camera
+	 */
+	public synchronized void update(BasicCamera camera) {
+		this.camera = camera;
+		camLoc.set(camera.getLocation());
+		int n = 0;
+		for (int i = 0; i < queue.size(); ++i) {
+			Request request = queue.get(i);
+			if (frame - request.lastFrame > MAX_IDLE_FRAMES) {
+				requestMap.remove(request.id);
+				request.task.cancel(false);
+				// remove the place holder so the tile will be requested again when needed
+				cache.removeQuadTree(request.quadTree.getKey(), request.quadTree);
+				dropCount ++;
+			} else {
+				request.priority = getPriority(request.quadTree);
+				queue.set(n++, request);
+			}
+		}
+		for (int i = queue.size() - 1; i >= n; --i)
+			queue.remove(i);
+		Collections.sort(queue, comparator);
+		frame ++;
+	}
+
+	/**
+	 * Remove all requests.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < queue.size(); ++i)
+			queue.get(i).task.cancel(false);
+		queue.clear();
+		requestMap.clear();
+	}
+
+	private synchronized Request take() {
+		if (queue.isEmpty())
+			return(null);
+		Request request = queue.remove(queue.size() - 1);
+		requestMap.remove(request.id);
+		long latency = System.currentTimeMillis() - request.submitTime;
+		totalLatency += latency;
+		maxLatency = Math.max(maxLatency, latency);
+		startCount ++;
+		return(request);
+	}
+
+	/**
+	 * The screen space error of a tile is the ratio of its pixel size to the
+	 * size of a screen pixel at its closest point.
+	 */
+	private double getPriority(QuadTree quadTree) {
+		if (camera == null)
+			return(0);
+		double pixSize = camera.getPixelSizeAt(quadTree.getDistance(camLoc), true);
+		if (pixSize <= 0)
+			return(0);
+		return(quadTree.pixelWidth / pixSize);
+	}
+
+	/**
+	 * Get the number of requests waiting to be started.
+	 * 
+	 * @return the queue depth
+	 */
+	public synchronized int getQueueDepth() {
+		return(queue.size());
+	}
+
+	/**
+	 * Get the mean time between submitting a request and starting it.
+	 * 
+	 * @return the latency in milliseconds
+	 */
+	public synchronized double getMeanLatency() {
+		if (startCount == 0)
+			return(0);
+		return((double) totalLatency / startCount);
+	}
+
+	/**
+	 * Get the number of requests dropped before they were started.
+	 * 
+	 * @return the drop count
+	 */
+	public synchronized long getDropCount() {
+		return(dropCount);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return("TileRequestScheduler submitted="+submitCount+" started="+startCount+" dropped="+dropCount+" depth="+queue.size()
+			+" maxDepth="+maxQueueDepth+" meanLatency="+getMeanLatency()+"ms maxLatency="+maxLatency+"ms");
+	}
+}
@@ -294,6 +294,31 @@ public class Projection {
 		coord.setY(coord.getY() - (physicalLength / 2) + tiePoint[1]);
 	}
 
+	/**
+	 * Convert arrays of local OpenGL coordinates in place to those of the
+	 * virtual world.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            may be null
+	 * @param n
+	 *            number of points
+	 */
+	public void localToWorld(double[] x, double[] y, double[] z, int n) {
+		double dx = physicalWidth / 2 + tiePoint[0];
+		double dy = tiePoint[1] - (physicalLength / 2);
+		for (int i = 0; i < n; ++i) {
+			x[i] += dx;
+			y[i] += dy;
+		}
+		if (z != null) {
+			for (int i = 0; i < n; ++i) {
+				z[i] += tiePoint[2];
+			}
+		}
+	}
+
 	/**
 	 * Convert in place from virtual world coordinates to OpenGL coordinates.
 	 * 
@@ -307,11 +332,35 @@ public class Projection {
 	}
 
 	/**
-	 * Convert virtual world coordinates to lon/lat. Results are in degrees.
+	 * Convert arrays of virtual world coordinates in place to OpenGL
+	 * coordinates.
 	 * 
-	 * @param vec
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            may be null
+	 * @param n
+	 *            number of points
 	 */
-	public void worldToSpherical(Vector3 vec) {
+	public void worldToLocal(double[] x, double[] y, double[] z, int n) {
+		double dx = tiePoint[0] + (physicalWidth / 2);
+		double dy = tiePoint[1] - (physicalLength / 2);
+		for (int i = 0; i < n; ++i) {
+			x[i] -= dx;
+			y[i] -= dy;
+		}
+		if (z != null) {
+			for (int i = 0; i < n; ++i) {
+				z[i] -= tiePoint[2];
+			}
+		}
+	}
+
+	/**
+	 * Create the Proj4 instances for converting between projected and lon/lat
+	 * coordinates.
+	 */
+	private void createTransforms() {
 		if (pjUnprojected == null) {
 			String projStr = "+proj=longlat +a=" + projInfo.getSemiMajorAxis() + " +b=" + projInfo.getSemiMinorAxis()
 				+ " +no_defs";
@@ -321,6 +370,15 @@ public class Projection {
 		if (pjProjected == null) {
 			pjProjected = Proj4.newInstance(proj4String);
 		}
+	}
+
+	/**
+	 * Convert virtual world coordinates to lon/lat. Results are in degrees.
+	 * 
+	 * @param vec
+	 */
+	public void worldToSpherical(Vector3 vec) {
+		createTransforms();
 		try {
 			vec.toArray(coord);
 			pjProjected.transform(pjUnprojected, coord);
@@ -350,19 +408,75 @@ public class Projection {
 	 * @param coord is a double array of 3 elements
 	 */
 	public void sphericalToWorld(double[] coord) {
-		if (pjUnprojected == null) {
-			String projStr = "+proj=longlat +a=" + projInfo.getSemiMajorAxis() + " +b=" + projInfo.getSemiMinorAxis()
-				+ " +no_defs";
-			pjUnprojected = Proj4.newInstance(projStr);
-		}
-		if (pjProjected == null) {
-			pjProjected = Proj4.newInstance(proj4String);
-		}
+		createTransforms();
 		coord[0] = Math.toRadians(coord[0]);
 		coord[1] = Math.toRadians(coord[1]);
 		pjUnprojected.transform(pjProjected, coord);
 	}
 
+	/**
+	 * Convert arrays of virtual world coordinates in place to lon/lat with a
+	 * single call to Proj4. Results are in degrees. Points that Proj4 cannot
+	 * convert are set to infinity.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            may be null
+	 * @param n
+	 *            number of points
+	 */
+	public void worldToSpherical(double[] x, double[] y, double[] z, int n) {
+		if (n < 1) {
+			return;
+		}
+		createTransforms();
+		pjProjected.transform(pjUnprojected, n, 1, x, y, getZ(z, n));
+		for (int i = 0; i < n; ++i) {
+			x[i] = Math.toDegrees(x[i]);
+			y[i] = Math.toDegrees(y[i]);
+		}
+	}
+
+	/**
+	 * Convert arrays of lon/lat (degree) coordinates in place to virtual world
+	 * coordinates with a single call to Proj4. Points that Proj4 cannot
+	 * convert are set to infinity.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            may be null
+	 * @param n
+	 *            number of points
+	 */
+	public void sphericalToWorld(double[] x, double[] y, double[] z, int n) {
+		if (n < 1) {
+			return;
+		}
+		createTransforms();
+		for (int i = 0; i < n; ++i) {
+			x[i] = Math.toRadians(x[i]);
+			y[i] = Math.toRadians(y[i]);
+		}
+		pjUnprojected.transform(pjProjected, n, 1, x, y, getZ(z, n));
+	}
+
+	/**
+	 * The native transform does not handle a missing Z array reliably so
+	 * substitute zeros for it, as the single point transform does.
+	 * 
+	 * @param z
+	 * @param n
+	 * @return
+	 */
+	private double[] getZ(double[] z, int n) {
+		if (z == null) {
+			return (new double[n]);
+		}
+		return (z);
+	}
+
 	/**
 	 * Get the projection information
 	 * 
@@ -157,4 +157,36 @@ public class SpatialReferenceSystem {
 		projection.worldToSpherical(lonLat);
 		return (lonLat);
 	}
+
+	/**
+	 * Convert arrays of lon/lat (degree) coordinates in place to OpenGL
+	 * coordinates. Points that cannot be converted are set to infinity.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            may be null
+	 * @param n
+	 *            number of points
+	 */
+	public void sphericalToLocal(double[] x, double[] y, double[] z, int n) {
+		projection.sphericalToWorld(x, y, z, n);
+		projection.worldToLocal(x, y, z, n);
+	}
+
+	/**
+	 * Convert arrays of OpenGL coordinates in place to lon/lat (degrees).
+	 * Points that cannot be converted are set to infinity.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            may be null
+	 * @param n
+	 *            number of points
+	 */
+	public void localToSpherical(double[] x, double[] y, double[] z, int n) {
+		projection.localToWorld(x, y, z, n);
+		projection.worldToSpherical(x, y, z, n);
+	}
 }
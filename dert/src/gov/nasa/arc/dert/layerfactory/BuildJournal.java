@@ -0,0 +1,272 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.layerfactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+
+/**
+ * Records the progress of a pyramid build in the layer directory so an
+ * interrupted build can be resumed. The journal is a text file. The first line
+ * describes the build. Each following line records a row of tiles ("row level
+ * row") or a whole level ("level level") that has been completely written. A
+ * journal for a different build is discarded.
+ *
+ */
+public class BuildJournal {
+
+	public static final String FILE_NAME = "build.journal";
+
+	// The journal file
+	private File file;
+
+	// Completed rows, keyed by level and row
+	private HashSet<Long> rowSet;
+
+	// Completed levels
+	private HashSet<Integer> levelSet;
+
+	// Output for new entries
+	private PrintWriter writer;
+
+	// This journal continues an earlier build
+	private boolean resumed;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param dir
+	 *            the layer directory
+	 * @param description
+	 *            a single line describing the build
+	 * @throws IOException
+	 */
+	public BuildJournal(File dir, String description) throws IOException {
+		file = new File(dir, FILE_NAME);
+		rowSet = new HashSet<Long>();
+		levelSet = new HashSet<Integer>();
+		if (file.exists()) {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line = reader.readLine();
+			if (description.equals(line)) {
+				resumed = true;
+				while ((line = reader.readLine()) != null) {
+					String[] token = line.trim().split("\\s+");
+					// ignore a partial line at the end
+					try {
+						if (token[0].equals("row") && (token.length == 3)) {
+							rowSet.add(getRowKey(Integer.parseInt(token[1]), Integer.parseInt(token[2])));
+						} else if (token[0].equals("level") && (token.length == 2)) {
+							levelSet.add(Integer.parseInt(token[1]));
+						}
+					} catch (NumberFormatException e) {
+						// do nothing
+					}
+				}
+			}
+			reader.close();
+		}
+		if (resumed) {
+			writer = new PrintWriter(new FileWriter(file, true));
+			// end any partial line
+			writer.println();
+			writer.flush();
+		} else {
+			dir.mkdirs();
+			writer = new PrintWriter(new FileWriter(file, false));
+			writer.println(description);
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Find out if this journal continues an earlier build.
+	 * 
+	 * @return
+	 */
+	public boolean isResumed() {
+		return (resumed);
+	}
+
+	/**
+	 * Get the number of rows of tiles already written.
+	 * 
+	 * @return
+	 */
+	public synchronized int getRowCount() {
+		return (rowSet.size());
+	}
+
+	/**
+	 * Find out if a row of tiles has been written.
+	 * 
+	 * @param level
+	 * @param row
+	 * @return
+	 */
+	public synchronized boolean isRowDone(int level, int row) {
+		return (levelSet.contains(level) || rowSet.contains(getRowKey(level, row)));
+	}
+
+	/**
+	 * Record that a row of tiles has been written.
+	 * 
+	 * @param level
+	 * @param row
+	 */
+	public synchronized void rowDone(int level, int row) {
+		if (rowSet.add(getRowKey(level, row))) {
+			writer.println("row " + level + " " + row);
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Find out if all tiles of a level have been written.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	public synchronized boolean isLevelDone(int level) {
+		return (levelSet.contains(level));
+	}
+
+	/**
+	 * Record that all tiles of a level have been written.
+	 * 
+	 * @param level
+	 */
+	public synchronized void levelDone(int level) {
+		if (levelSet.add(level)) {
+			writer.println("level " + level);
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Close the journal, keeping it so the build can be resumed.
+	 */
+	public synchronized void close() {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	/**
+	 * Close and remove the journal when the build is complete.
+	 */
+	public synchronized void delete() {
+		close();
+		file.delete();
+	}
+
+	private long getRowKey(int level, int row) {
+		return (((long) level << 32) | (row & 0xffffffffL));
+	}
+
+}
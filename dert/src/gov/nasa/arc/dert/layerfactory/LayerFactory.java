@@ -103,8 +103,9 @@ package gov.nasa.arc.dert.layerfactory;
 
 import gov.nasa.arc.dert.action.file.AboutBox;
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
+import gov.nasa.arc.dert.raster.Raster;
 import gov.nasa.arc.dert.raster.RasterFile;
-import gov.nasa.arc.dert.raster.geotiff.GTIF;
+import gov.nasa.arc.dert.raster.geotiff.MappedGTIF;
 import gov.nasa.arc.dert.raster.pds.PDS;
 import gov.nasa.arc.dert.util.StringUtil;
 
@@ -168,6 +169,11 @@ public class LayerFactory {
 	private int[] margin;
 	private Color color;
 	private String elevAttrName;
+	private String tileFormat;
+	private int numThreads;
+	private Raster.Reduction reduction;
+	private boolean streaming;
+	private int[] region;
 
 	// This is a vector file so it needs to be rendered
 	private boolean isVector;
@@ -195,7 +201,9 @@ public class LayerFactory {
 			if (args[0].equals("-usage")) {
 				System.out.println("layerfactory -landscape=landscapePath -file=inputFilePath -tilesize=tileSize -type=layerType "+
 						"[-globe=globename] [-missing=missingValue] [-name=layerName] [-leftmargin=numPixels] [-rightmargin=numPixels]"+
-						" [-bottommargin=numPixels] [-topmargin=numPixels] [-color=R,G,B,A] [-elevattrname=elevation attribute name]");
+						" [-bottommargin=numPixels] [-topmargin=numPixels] [-color=R,G,B,A] [-elevattrname=elevation attribute name]"+
+						" [-format=png|pack|raw|deflate] [-threads=numThreads] [-reduction=mean|min|max]"+
+						" [-stream=true|false] [-region=x,y,width,height]");
 				System.exit(0);
 			}
 		}
@@ -258,7 +266,7 @@ public class LayerFactory {
 					if (filePath.toLowerCase().endsWith(".img")) {
 						rf = new PDS(filePath, dertProperties);
 					} else {
-						rf = new GTIF(filePath, dertProperties);
+						rf = MappedGTIF.createInstance(filePath, dertProperties);
 					}
 					rf.open("r");
 					rf.close();
@@ -269,6 +277,13 @@ public class LayerFactory {
 						tmpPath = System.getProperty(tmpPath.substring(1));
 
 					RasterPyramidLayerFactory factory = new RasterPyramidLayerFactory(rf, tmpPath);
+					factory.setTileFormat(tileFormat);
+					if (numThreads > 0) {
+						factory.setNumberOfThreads(numThreads);
+					}
+					factory.setReduction(reduction);
+					factory.setStreaming(streaming);
+					factory.setUpdateRegion(region);
 					factory.buildPyramid(landscapePath, globe, layerType, layerName, tileSize, missing, margin, null);
 				}
 			} catch (Exception e) {
@@ -358,6 +373,11 @@ public class LayerFactory {
 		globe = PyramidLayerFactory.defaultGlobe;
 		color = Color.white;
 		elevAttrName = null;
+		tileFormat = "PNG";
+		numThreads = 0;
+		reduction = Raster.Reduction.Mean;
+		streaming = false;
+		region = null;
 		for (int i = 0; i < args.length; ++i) {
 			if (args[i].startsWith("-landscape=")) {
 				landscapePath = args[i].substring(11);
@@ -440,6 +460,34 @@ public class LayerFactory {
 				margin[3] = Integer.parseInt(str, 0);
 			} else if (args[i].startsWith("-elevattrname=")) {
 				elevAttrName = args[i].substring(14);
+			} else if (args[i].startsWith("-format=")) {
+				tileFormat = args[i].substring(8);
+			} else if (args[i].startsWith("-threads=")) {
+				String str = args[i].substring(9);
+				if (!str.isEmpty()) {
+					numThreads = Integer.parseInt(str);
+				}
+			} else if (args[i].startsWith("-reduction=")) {
+				String str = args[i].substring(11).toLowerCase();
+				if (str.startsWith("min")) {
+					reduction = Raster.Reduction.Minimum;
+				} else if (str.startsWith("max")) {
+					reduction = Raster.Reduction.Maximum;
+				} else {
+					reduction = Raster.Reduction.Mean;
+				}
+			} else if (args[i].startsWith("-stream=")) {
+				streaming = Boolean.parseBoolean(args[i].substring(8));
+			} else if (args[i].startsWith("-region=")) {
+				String[] str = args[i].substring(8).split(",");
+				if (str.length == 4) {
+					region = new int[4];
+					for (int j = 0; j < 4; ++j) {
+						region[j] = Integer.parseInt(str[j].trim());
+					}
+				} else {
+					System.out.println("Invalid region " + args[i].substring(8) + ". Writing entire layer.");
+				}
 			}
 		}
 		if ((landscapePath == null) || (filePath == null)) {
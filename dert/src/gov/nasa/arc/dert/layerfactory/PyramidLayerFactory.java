@@ -101,8 +101,13 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.layerfactory;
 
+import gov.nasa.arc.dert.landscape.io.FloatTileCodec;
+import gov.nasa.arc.dert.landscape.io.PackedTileSource;
+import gov.nasa.arc.dert.landscape.io.TileArchiveWriter;
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 import gov.nasa.arc.dert.landscape.srs.ProjectionInfo;
+import gov.nasa.arc.dert.raster.RasterStatistics;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
@@ -134,6 +139,11 @@ import javax.imageio.stream.ImageOutputStream;
  * extends an addition pixel on all sides for the OpenGL feature of bilinear
  * interpolation for texture borders.
  * 
+ * Tiles are written either as a directory of PNG files or, for the PACK tile
+ * format, into a single TileArchive file in the layer directory. Elevation and
+ * field tiles may also be written as RAW or DEFLATE float files (see
+ * FloatTileCodec).
+ * 
  * @author lkeelyme
  *
  */
@@ -153,11 +163,23 @@ public abstract class PyramidLayerFactory {
 	// Sample value extremes
 	protected double[] minimumSampleValue, maximumSampleValue;
 
+	// Sample statistics gathered when the source was loaded, may be null
+	protected RasterStatistics statistics;
+
 	// Value to use to fill to the edge of mesh.
 	protected float edgeFillValue;
 
 	// flag for cancellation
-	protected boolean doIt;
+	protected volatile boolean doIt;
+
+	// Number of threads used to write tiles
+	protected int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	// Tile format, PNG, PACK, RAW, or DEFLATE
+	protected String tileFormat = "PNG";
+
+	// Writer for the PACK tile format
+	protected TileArchiveWriter archiveWriter;
 
 	/**
 	 * Constructor
@@ -179,7 +201,10 @@ public abstract class PyramidLayerFactory {
 		properties.setProperty("Source", sourceFilePath);
 		properties.setProperty("MinimumValue", Double.toString(minimumSampleValue[0]));
 		properties.setProperty("MaximumValue", Double.toString(maximumSampleValue[0]));
-		properties.setProperty("TileFormat", "PNG");
+		properties.setProperty("TileFormat", tileFormat);
+		if (statistics != null) {
+			statistics.saveToProperties(properties);
+		}
 		projInfo.saveToProperties(properties, defaultGlobe);
 		if (layerType == LayerType.elevation) {
 			properties.setProperty("EdgeFillValue", Float.toString(edgeFillValue));
@@ -233,7 +258,36 @@ public abstract class PyramidLayerFactory {
 	}
 
 	/**
-	 * Determine the path for a tile.
+	 * Set the tile format.
+	 * 
+	 * @param tileFormat
+	 *            PNG for a directory of PNG files, PACK for a single archive
+	 *            file, RAW or DEFLATE for a directory of float files
+	 */
+	public void setTileFormat(String tileFormat) {
+		if (tileFormat.equalsIgnoreCase(PackedTileSource.TILE_FORMAT)) {
+			this.tileFormat = PackedTileSource.TILE_FORMAT;
+		} else if (tileFormat.equalsIgnoreCase(FloatTileCodec.RAW)) {
+			this.tileFormat = FloatTileCodec.RAW;
+		} else if (tileFormat.equalsIgnoreCase(FloatTileCodec.DEFLATE)) {
+			this.tileFormat = FloatTileCodec.DEFLATE;
+		} else {
+			this.tileFormat = "PNG";
+		}
+	}
+
+	/**
+	 * Set the number of threads used to write tiles.
+	 * 
+	 * @param numThreads
+	 *            the number of worker threads, at least 1
+	 */
+	public void setNumberOfThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Determine the key for a tile.
 	 * 
 	 * @param column
 	 *            the tile column
@@ -243,15 +297,13 @@ public abstract class PyramidLayerFactory {
 	 *            the number of tiles on a side
 	 * @param level
 	 *            the pyramid level
-	 * @param dirPath
-	 *            the directory for the tiles
 	 * @return
 	 */
-	protected String getTileFilePath(int column, int row, int numTiles, int level, String dirPath) {
+	protected QuadKey getTileKey(int column, int row, int numTiles, int level) {
 		numTiles /= 2;
 		int xLine = numTiles;
 		int yLine = numTiles;
-		byte[] id = new byte[level + 1];
+		byte[] id = new byte[level];
 		int l = 0;
 		while (numTiles > 0) {
 			if ((column < xLine) && (row < yLine)) {
@@ -277,11 +329,43 @@ public abstract class PyramidLayerFactory {
 			}
 			l++;
 		}
-		id[l] = 0;
+		return (new QuadKey(id));
+	}
+
+	/**
+	 * Determine the path for a tile.
+	 * 
+	 * @param column
+	 *            the tile column
+	 * @param row
+	 *            the tile row
+	 * @param numTiles
+	 *            the number of tiles on a side
+	 * @param level
+	 *            the pyramid level
+	 * @param dirPath
+	 *            the directory for the tiles
+	 * @return
+	 */
+	protected String getTileFilePath(int column, int row, int numTiles, int level, String dirPath) {
+		return (getTileFilePath(getTileKey(column, row, numTiles, level), dirPath));
+	}
+
+	/**
+	 * Determine the path for a tile.
+	 * 
+	 * @param key
+	 *            the tile key
+	 * @param dirPath
+	 *            the directory for the tiles
+	 * @return
+	 */
+	protected String getTileFilePath(QuadKey key, String dirPath) {
 		String fileName = "";
-		for (int i = 0; i < id.length; ++i) {
-			fileName += File.separator + id[i];
+		for (int i = 0; i < key.getLevel(); ++i) {
+			fileName += File.separator + key.getPath(i);
 		}
+		fileName += File.separator + "0";
 		File file = new File(dirPath + fileName);
 		return (file.getAbsolutePath());
 	}
@@ -294,7 +378,45 @@ public abstract class PyramidLayerFactory {
 	}
 
 	/**
-	 * Write a tile out to the pyramid
+	 * Write a tile out to the pyramid in the current tile format
+	 * 
+	 * @param key
+	 * @param dirPath
+	 * @param bbArray
+	 * @param width
+	 * @param height
+	 * @param layerType
+	 * @throws IOException
+	 */
+	protected void writeTile(QuadKey key, String dirPath, byte[] bbArray, int width, int height, LayerType layerType)
+		throws IOException {
+		if (FloatTileCodec.isFloatFormat(tileFormat)) {
+			File file = new File(getTileFilePath(key, dirPath) + "." + FloatTileCodec.getFileExtension(tileFormat));
+			file.getParentFile().mkdirs();
+			FileOutputStream oStream = new FileOutputStream(file);
+			oStream.write(FloatTileCodec.encode(tileFormat, bbArray));
+			oStream.close();
+			return;
+		}
+		if (archiveWriter == null) {
+			writeTile(getTileFilePath(key, dirPath), bbArray, width, height, layerType);
+			return;
+		}
+		// store color samples as BGRA, the same order used for PNG tiles after loading
+		if (layerType == LayerType.colorimage) {
+			for (int i = 0; i < bbArray.length; i += 4) {
+				byte b = bbArray[i];
+				bbArray[i] = bbArray[i + 1];
+				bbArray[i + 1] = bbArray[i + 2];
+				bbArray[i + 2] = bbArray[i + 3];
+				bbArray[i + 3] = b;
+			}
+		}
+		archiveWriter.write(key, bbArray);
+	}
+
+	/**
+	 * Write a tile out to the pyramid as a PNG file
 	 * 
 	 * @param filePath
 	 * @param bbArray
@@ -353,4 +475,62 @@ public abstract class PyramidLayerFactory {
 		}
 	}
 
+	/**
+	 * Read a tile back from the pyramid, the reverse of writeTile. Tiles
+	 * cannot be read back from the PACK tile format.
+	 * 
+	 * @param key
+	 * @param dirPath
+	 * @param width
+	 * @param height
+	 * @param layerType
+	 * @return the bytes that were written for the tile, or null if the tile is
+	 *         empty
+	 * @throws IOException
+	 */
+	protected byte[] readTile(QuadKey key, String dirPath, int width, int height, LayerType layerType)
+		throws IOException {
+		if (archiveWriter != null) {
+			throw new IllegalStateException("Cannot read tiles back from the " + tileFormat + " tile format.");
+		}
+		if (FloatTileCodec.isFloatFormat(tileFormat)) {
+			File file = new File(getTileFilePath(key, dirPath) + "." + FloatTileCodec.getFileExtension(tileFormat));
+			ByteBuffer bBuf = FloatTileCodec.decode(tileFormat, file, width * height);
+			if (bBuf == null) {
+				return (null);
+			}
+			// swap back to big endian
+			byte[] bbArray = new byte[width * height * 4];
+			bBuf.get(bbArray);
+			for (int k = 0; k < bbArray.length; k += 4) {
+				byte b = bbArray[k];
+				bbArray[k] = bbArray[k + 3];
+				bbArray[k + 3] = b;
+				b = bbArray[k + 1];
+				bbArray[k + 1] = bbArray[k + 2];
+				bbArray[k + 2] = b;
+			}
+			return (bbArray);
+		}
+		File file = new File(getTileFilePath(key, dirPath) + ".png");
+		if (!file.exists()) {
+			throw new FileNotFoundException("Tile " + file + " does not exist.");
+		}
+		// Empty tile
+		if (file.length() == 0) {
+			return (null);
+		}
+		BufferedImage bImage = ImageIO.read(file);
+		if (bImage == null) {
+			throw new IOException("Unable to read tile " + file + ".");
+		}
+		int type = (layerType == LayerType.grayimage) ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_4BYTE_ABGR;
+		if (bImage.getType() != type) {
+			BufferedImage tImage = new BufferedImage(width, height, type);
+			tImage.getRaster().setRect(bImage.getRaster());
+			bImage = tImage;
+		}
+		return (((DataBufferByte) bImage.getRaster().getDataBuffer()).getData());
+	}
+
 }
@@ -103,7 +103,7 @@ package gov.nasa.arc.dert.layerfactory;
 
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
 import gov.nasa.arc.dert.raster.RasterFile;
-import gov.nasa.arc.dert.raster.geotiff.GTIF;
+import gov.nasa.arc.dert.raster.geotiff.MappedGTIF;
 import gov.nasa.arc.dert.raster.pds.PDS;
 import gov.nasa.arc.dert.ui.GBCHelper;
 import gov.nasa.arc.dert.ui.LandscapeChooserDialog;
@@ -433,7 +433,7 @@ public class RasterLayerPanel extends JPanel {
 				rf = new PDS(filetxt, dertProperties);
 			} else if (fPath.endsWith(".tiff") || fPath.endsWith(".tif") || fPath.endsWith(".gtif")
 				|| fPath.endsWith(".gtiff")) {
-				rf = new GTIF(filetxt, dertProperties);
+				rf = MappedGTIF.createInstance(filetxt, dertProperties);
 			} else {
 				messageText.setText("Only NASA PDS and GeoTIFF formats are supported.");
 				return (false);
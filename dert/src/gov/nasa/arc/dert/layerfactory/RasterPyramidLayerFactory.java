@@ -101,10 +101,16 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.layerfactory;
 
+import gov.nasa.arc.dert.landscape.io.FloatTileCodec;
+import gov.nasa.arc.dert.landscape.io.PackedTileSource;
 import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.io.TileArchive;
+import gov.nasa.arc.dert.landscape.io.TileArchiveWriter;
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 import gov.nasa.arc.dert.raster.Raster;
 import gov.nasa.arc.dert.raster.RasterFile;
+import gov.nasa.arc.dert.util.MathUtil;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -115,15 +121,30 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JTextField;
 
 /**
  * Convert a raster layer file such as a DEM or ortho-image to a
- * multi-resolution tiled pyramid. Pixels for new levels are subsampled through
- * averaging. The raster is padded first to extend its size to a power of 2 on
- * each side.
+ * multi-resolution tiled pyramid. The raster is padded first to extend its
+ * size to a power of 2 on each side. Each lower resolution level is built from
+ * the level above it by combining 2x2 blocks of samples (see
+ * Raster.Reduction). Rows of tiles are written in parallel by a pool of worker
+ * threads.
+ * 
+ * Completed rows of tiles are recorded in a BuildJournal so a build that is
+ * interrupted picks up where it stopped when it is run again. An update region
+ * limits the build to the tiles of an existing layer that overlap a changed
+ * window of the source raster. A region update or a resumed build reduces the
+ * lower levels from the tiles already in the layer directory, so only the
+ * tiles that are written are computed.
  *
  */
 public class RasterPyramidLayerFactory extends PyramidLayerFactory {
@@ -154,6 +175,34 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 	// Location of temporary files
 	protected String tmpPath;
 
+	// How to combine samples for lower resolution elevation and field levels
+	protected Raster.Reduction reduction = Raster.Reduction.Mean;
+
+	// Stream the source raster into the pyramid without a padded copy
+	protected boolean streaming;
+
+	// Missing value for the source raster
+	protected float missingValue;
+
+	// Window of the source raster to update (x, y, width, height), null to
+	// write the whole layer
+	protected int[] updateRegion;
+
+	// Tiles to write for each level (first column, last column, first row,
+	// last row)
+	protected int[][] tileRange;
+
+	// Record of rows of tiles that have been written
+	protected BuildJournal journal;
+
+	// State shared with the tile writing threads during a build
+	protected String dirPath, layerName;
+	protected int maxLevel;
+	protected JTextField messageText;
+	protected ExecutorService executor;
+	protected Semaphore permits;
+	protected AtomicReference<Exception> failure;
+
 	/**
 	 * Constructor
 	 * 
@@ -222,6 +271,12 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			break;
 		}
 
+		// Float tile formats only apply to elevation and field layers.
+		if (FloatTileCodec.isFloatFormat(tileFormat) && (layerType != LayerType.elevation) && (layerType != LayerType.field)) {
+			System.out.println("Tile format "+tileFormat+" is not supported for "+layerType+" layers, using PNG.");
+			tileFormat = "PNG";
+		}
+
 		// Determine if we can handle this raster file.
 		int samplesPerPixel = rasterFile.getSamplesPerPixel();
 		if ((samplesPerPixel > 1) && (layerType != LayerType.colorimage)) {
@@ -246,64 +301,89 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		// Build the pyramid
 		try {
 
-			// First save the raster file in a quad with a size that is a power
-			// of 2
-			// Pad and center the raster
-			if (messageText != null) {
-				messageText.setText("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
-				Thread.yield();
-			}
-			else
-				System.out.println("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
-			Raster raster = createPaddedRaster(path, samplesPerPixel, missing);
-			rasterFile.close();
-			System.gc();
-
 			// Create a sub-directory for the layer
 			File dirFile = new File(path, layerName);
 			dirFile.mkdirs();
 			String dirPath = dirFile.getAbsolutePath();
 
-			// Write tiles for each level starting at highest resolution
-			int columnStep = tileWidth;
-			int rowStep = tileLength;
-			for (int level = maxLevel; level >= 0; level--) {
-				if (!doIt) {
-					break;
+			if (updateRegion != null) {
+				checkExistingLayer(dirFile, maxLevel + 1);
+			}
+			this.maxLevel = maxLevel;
+			findTileRanges();
+
+			// The journal lets an interrupted build continue where it left
+			// off. The PACK format archive is always written from the start.
+			if (!tileFormat.equals(PackedTileSource.TILE_FORMAT)) {
+				journal = new BuildJournal(dirFile, getBuildDescription(missing));
+				if (journal.isResumed()) {
+					System.out.println("Resuming build of " + layerName + " with " + journal.getRowCount()
+						+ " rows of tiles already written");
 				}
-				int kernelSize = (int) Math.pow(2, (maxLevel - level));
-				int rcnt = 0;
-				if (messageText == null)
-					System.out.println("Writing "+numTiles+" rows for level "+(level+1)+" of "+(maxLevel+1));
-				for (int r = 0; r < numTiles; ++r) {
-					if (messageText == null) {
-						if (rcnt%10 == 0)
-							System.out.print(rcnt);
-						else 
-							System.out.print(".");
-						rcnt ++;
-					}
-					for (int c = 0; c < numTiles; ++c) {
-						if (!doIt) {
-							break;
-						}
-						if (messageText != null) {
-							messageText.setText("Writing " + layerName + " level " + (level + 1) + " of "
-								+ (maxLevel + 1) + ", tile row " + (r + 1) + " of " + numTiles + " . . .");
-							Thread.yield();
-						}
-						String filePath = getTileFilePath(c, r, numTiles, level, dirPath);
-						writeTile(raster, c * columnStep, r * rowStep, kernelSize, filePath, layerType);
-					}
+			}
+
+			// A region update or a resumed build only writes the tiles that
+			// are missing or out of date.
+			boolean incremental = (updateRegion != null) || ((journal != null) && journal.isResumed());
+
+			Raster raster = null;
+			if (streaming || incremental) {
+				// Tiles are cut from bands of the source file with virtual
+				// padding
+				if (messageText != null) {
+					messageText.setText("Reading "+rasterWidth+" x "+rasterLength+" raster in bands ");
+					Thread.yield();
 				}
-				if (messageText == null)
-					System.out.println();
-				numTiles /= 2;
-				columnStep *= 2;
-				rowStep *= 2;
+				else
+					System.out.println("Reading "+rasterWidth+" x "+rasterLength+" raster in bands of "+rasterFile.getBandLength()+" rows");
+				openSourceRaster(path, missing);
+			} else {
+				// First save the raster file in a quad with a size that is a power
+				// of 2
+				// Pad and center the raster
+				if (messageText != null) {
+					messageText.setText("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
+					Thread.yield();
+				}
+				else
+					System.out.println("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
+				raster = createPaddedRaster(path, samplesPerPixel, missing);
+				rasterFile.close();
+				System.gc();
+			}
+
+			if (tileFormat.equals(PackedTileSource.TILE_FORMAT)) {
+				archiveWriter = new TileArchiveWriter(new File(dirFile, TileArchive.FILE_NAME));
+			}
+
+			// Write tiles for each level starting at highest resolution.
+			this.dirPath = dirPath;
+			this.layerName = layerName;
+			this.messageText = messageText;
+			if (messageText == null)
+				System.out.println("Writing tiles with "+numThreads+" threads");
+			if (incremental) {
+				try {
+					updateTiles();
+				} finally {
+					rasterFile.close();
+				}
+			} else if (streaming) {
+				try {
+					streamTiles(true);
+				} finally {
+					rasterFile.close();
+				}
+			} else {
+				writeTiles(raster);
 			}
 			raster = null;
 			System.gc();
+			if (archiveWriter != null) {
+				System.out.println("Writing index for "+archiveWriter.getTileCount()+" tiles");
+				archiveWriter.close();
+				archiveWriter = null;
+			}
 
 			System.out.println();
 			System.out.println("Writing projection info for " + layerName);
@@ -319,6 +399,10 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			if (doIt) {
 				writeProperties(new File(dirPath, "layer.properties").getAbsolutePath(), maxLevel + 1, tileWidth,
 					tileLength, numberOfTiles);
+				// the build is complete
+				if (journal != null) {
+					journal.delete();
+				}
 			}
 			System.out.println("Number of levels for " + layerName + " = " + (maxLevel + 1) + " with " + numberOfTiles
 				+ " tiles per side at the highest resolution level.");
@@ -345,7 +429,101 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 				+ (float) ((System.currentTimeMillis() - t) / 60000.0) + " minutes.");
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			if (journal != null) {
+				journal.close();
+				journal = null;
+			}
+		}
+	}
+
+	/**
+	 * Make sure an existing layer matches this build before updating a region
+	 * of it.
+	 * 
+	 * @param dirFile
+	 *            the layer directory
+	 * @param numLevels
+	 *            the number of levels for this build
+	 * @throws IOException
+	 */
+	protected void checkExistingLayer(File dirFile, int numLevels) throws IOException {
+		if (tileFormat.equals(PackedTileSource.TILE_FORMAT)) {
+			throw new IllegalStateException("Cannot update a region of a layer with the " + tileFormat
+				+ " tile format.");
+		}
+		File propFile = new File(dirFile, "layer.properties");
+		if (!propFile.exists()) {
+			throw new IllegalStateException("Cannot update a region of " + dirFile
+				+ ", the layer has not been built.");
+		}
+		Properties properties = new Properties();
+		FileInputStream iStream = new FileInputStream(propFile);
+		properties.load(iStream);
+		iStream.close();
+		if (!layerType.toString().equals(properties.getProperty("LayerType"))
+			|| !Integer.toString(numLevels).equals(properties.getProperty("NumberOfLevels"))
+			|| !Integer.toString(numberOfTiles).equals(properties.getProperty("NumberOfTiles"))
+			|| !Integer.toString(tileWidth).equals(properties.getProperty("TileWidth"))
+			|| !Integer.toString(tileLength).equals(properties.getProperty("TileLength"))
+			|| !tileFormat.equals(properties.getProperty("TileFormat", "PNG"))) {
+			throw new IllegalStateException("Cannot update a region of " + dirFile
+				+ ", the layer was built with different parameters.");
+		}
+	}
+
+	/**
+	 * Determine which tiles to write at each level. These are all tiles unless
+	 * there is an update region. Then only the tiles that overlap the region
+	 * and their ancestors are written.
+	 */
+	protected void findTileRanges() {
+		tileRange = new int[maxLevel + 1][];
+		int numTiles = numberOfTiles;
+		// the region in samples of the highest resolution level
+		int x0 = 0;
+		int y0 = 0;
+		int x1 = numTiles * tileWidth;
+		int y1 = numTiles * tileLength;
+		if (updateRegion != null) {
+			int srcLeft = leftMargin - leftInset;
+			int srcTop = topMargin - topInset;
+			x0 = Math.max(x0, srcLeft + updateRegion[0]);
+			y0 = Math.max(y0, srcTop + updateRegion[1]);
+			x1 = Math.min(x1, srcLeft + updateRegion[0] + updateRegion[2] - 1);
+			y1 = Math.min(y1, srcTop + updateRegion[1] + updateRegion[3] - 1);
+		}
+		for (int level = maxLevel; level >= 0; level--) {
+			// tiles share their last row and column with their neighbors
+			tileRange[level] = new int[] { Math.max(0, (x0 - 1) / tileWidth), Math.min(numTiles - 1, x1 / tileWidth),
+				Math.max(0, (y0 - 1) / tileLength), Math.min(numTiles - 1, y1 / tileLength) };
+			x0 /= 2;
+			y0 /= 2;
+			x1 /= 2;
+			y1 /= 2;
+			numTiles /= 2;
+		}
+	}
+
+	/**
+	 * Describe this build for the journal. A journal with a different
+	 * description is for some other build and is not resumed.
+	 * 
+	 * @param missing
+	 *            the missing value argument from the commandline/UI
+	 * @return
+	 */
+	protected String getBuildDescription(String missing) {
+		File file = new File(sourceFilePath);
+		String str = "source=" + sourceFilePath + " size=" + file.length() + " modified=" + file.lastModified()
+			+ " type=" + layerType + " tiles=" + numberOfTiles + " tilesize=" + tileWidth + "x" + tileLength
+			+ " margin=" + leftMargin + "," + topMargin + " format=" + tileFormat + " reduction=" + reduction
+			+ " missing=" + missing;
+		if (updateRegion != null) {
+			str += " region=" + updateRegion[0] + "," + updateRegion[1] + "," + updateRegion[2] + ","
+				+ updateRegion[3];
 		}
+		return (str);
 	}
 
 	protected void findDimensions(int[] margin, int tileSize) {
@@ -415,23 +593,11 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			return (null);
 		}
 
-		projInfo = rasterFile.getProjectionInfo();
-		float missingValue = Float.NaN;
-		if (missing == null) {
-			missingValue = rasterFile.getMissingValue();
-		} else {
-			missingValue = new Float(missing);
-			rasterFile.setMissingValue(missingValue);
+		Raster raster = loadSourceRaster(path, missing);
+		if (raster == null) {
+			return (null);
 		}
 
-		// Get the entire raster file contents
-		dataType = rasterFile.getDataType();
-		if (tmpPath == null)
-			tmpPath = path;
-		Raster raster = loadRasterFile(tmpPath);
-		minimumSampleValue = rasterFile.getMinimumSampleValue();
-		maximumSampleValue = rasterFile.getMaximumSampleValue();
-
 		Raster padded = new Raster(paddedWidth, paddedLength, bytesPerPixel, dataType, tmpPath);
 		byte[] bbArray = new byte[rasterWidth * bytesPerPixel];
 
@@ -462,6 +628,76 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			padded.set(topMargin + i, leftMargin, rasterWidth, 1, bbArray);
 		}
 
+		raster.dispose();
+		return (padded);
+	}
+
+	/**
+	 * Load the source raster file without padding and get its projection,
+	 * missing value, and extrema.
+	 * 
+	 * @param path
+	 *            the landscape path, used for temporary files if no other
+	 *            location was given
+	 * @param missing
+	 *            the missing value argument from the commandline/UI
+	 * @return the raster
+	 * @throws IOException
+	 */
+	protected Raster loadSourceRaster(String path, String missing) throws IOException {
+
+		if (!doIt) {
+			return (null);
+		}
+
+		openSourceRaster(path, missing);
+
+		// Get the entire raster file contents
+		Raster raster = loadRasterFile(tmpPath);
+		finishSourceRaster();
+
+		return (raster);
+	}
+
+	/**
+	 * Get the projection, missing value, and data type of the source raster
+	 * file before loading it.
+	 * 
+	 * @param path
+	 *            the landscape path, used for temporary files if no other
+	 *            location was given
+	 * @param missing
+	 *            the missing value argument from the commandline/UI
+	 */
+	protected void openSourceRaster(String path, String missing) {
+
+		if (!doIt) {
+			return;
+		}
+
+		projInfo = rasterFile.getProjectionInfo();
+		missingValue = Float.NaN;
+		if (missing == null) {
+			missingValue = rasterFile.getMissingValue();
+		} else {
+			missingValue = new Float(missing);
+			rasterFile.setMissingValue(missingValue);
+		}
+
+		dataType = rasterFile.getDataType();
+		if (tmpPath == null)
+			tmpPath = path;
+	}
+
+	/**
+	 * Get the extrema and statistics of the source raster file once all of it
+	 * has been loaded.
+	 */
+	protected void finishSourceRaster() {
+		minimumSampleValue = rasterFile.getMinimumSampleValue();
+		maximumSampleValue = rasterFile.getMaximumSampleValue();
+		statistics = rasterFile.getStatistics();
+
 		if (layerType == LayerType.elevation) {
 			// If the terrain dips below the edge (that is the minimum value < edgeFillValue),
 			// the shadows don't work correctly (this is the case with the Victoria Crater landscape).
@@ -470,9 +706,6 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 //			edgeFillValue = padded.computeEdgeFill();
 			edgeFillValue = (float)minimumSampleValue[0];
 		}
-
-		raster.dispose();
-		return (padded);
 	}
 
 	/**
@@ -512,24 +745,631 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		return (null);
 	}
 
+	/**
+	 * Load a band of rows of the source raster file converting to the data
+	 * type appropriate for the layer. Bands are loaded in order from the top.
+	 * 
+	 * @param band
+	 *            the band raster
+	 * @param top
+	 *            the first row of the band
+	 * @throws IOException
+	 */
+	protected void loadRasterBand(Raster band, int top) throws IOException {
+		switch (layerType) {
+		case none:
+		case footprint:
+		case viewshed:
+		case derivative:
+			break;
+		case elevation:
+			rasterFile.loadBandHeightMap(band, top);
+			this.dataType = DataType.Float;
+			break;
+		case colorimage:
+			rasterFile.loadBandRGBA(band, top);
+			this.dataType = DataType.Integer;
+			break;
+		case field:
+			rasterFile.loadBand(band, top);
+			this.dataType = DataType.Float;
+			break;
+		case grayimage:
+			rasterFile.loadBandGray(band, top);
+			this.dataType = DataType.UnsignedByte;
+			break;
+		}
+	}
+
+	/**
+	 * Set how samples are combined for lower resolution elevation and field
+	 * levels. Image levels always use the mean.
+	 * 
+	 * @param reduction
+	 */
+	public void setReduction(Raster.Reduction reduction) {
+		this.reduction = reduction;
+	}
+
+	/**
+	 * Set a window of the source raster that has changed. Only the tiles of
+	 * an existing layer that overlap the window, and their ancestors, are
+	 * written.
+	 * 
+	 * @param updateRegion
+	 *            x, y, width, and height in source raster pixels, or null to
+	 *            write the whole layer
+	 */
+	public void setUpdateRegion(int[] updateRegion) {
+		this.updateRegion = updateRegion;
+	}
+
+	/**
+	 * Set whether to stream the source raster into the pyramid. When
+	 * streaming, the source file is read one band of rows at a time, the
+	 * tiles for each row of tiles are written as soon as its rows are read,
+	 * and lower resolution levels are reduced from a rolling band of rows.
+	 * Padding is added as tiles are cut, so there is no copy of the raster.
+	 * 
+	 * @param streaming
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Write the tiles for each level from a padded raster, reducing each level
+	 * to get the next.
+	 * 
+	 * @param raster
+	 *            the padded raster
+	 * @throws Exception
+	 */
+	protected void writeTiles(Raster raster) throws Exception {
+		// The raster for the current level and the position of the first
+		// tile in it
+		Raster levelRaster = raster;
+		int levelLeft = leftInset;
+		int levelTop = topInset;
+		int numTiles = numberOfTiles;
+		startWorkers();
+		try {
+			for (int level = maxLevel; level >= 0; level--) {
+				if (!doIt || isDone(level)) {
+					break;
+				}
+				if ((journal != null) && journal.isLevelDone(level)) {
+					if (messageText == null)
+						System.out.println("Level "+(level+1)+" of "+(maxLevel+1)+" is already written");
+				} else {
+					if (messageText == null)
+						System.out.println("Writing "+numTiles+" rows for level "+(level+1)+" of "+(maxLevel+1));
+					AtomicInteger rowsDone = new AtomicInteger();
+					for (int r = 0; r < numTiles; ++r) {
+						if (!doIt) {
+							break;
+						}
+						submitRow(levelRaster, levelLeft, levelTop, null, r, numTiles, level, rowsDone, true);
+					}
+					// wait for all rows of this level to be written
+					waitForWorkers();
+					if ((journal != null) && doIt) {
+						journal.levelDone(level);
+					}
+					if (messageText == null)
+						System.out.println();
+				}
+				numTiles /= 2;
+
+				// Build the next level from this one
+				if ((level > 0) && doIt && !isDone(level - 1)) {
+					Raster nextRaster = new Raster(numTiles * tileWidth + 1, numTiles * tileLength + 1, bytesPerPixel,
+						dataType, tmpPath);
+					switch (layerType) {
+					case none:
+					case footprint:
+					case viewshed:
+					case derivative:
+						break;
+					case elevation:
+					case field:
+						levelRaster.reduce(levelTop, levelLeft, nextRaster, reduction);
+						break;
+					case colorimage:
+						levelRaster.reduceRGBA(levelTop, levelLeft, nextRaster);
+						break;
+					case grayimage:
+						levelRaster.reduce(levelTop, levelLeft, nextRaster, Raster.Reduction.Mean);
+						break;
+					}
+					levelRaster.dispose();
+					levelRaster = nextRaster;
+					levelLeft = 0;
+					levelTop = 0;
+				}
+			}
+		} finally {
+			stopWorkers();
+			if (levelRaster != null) {
+				levelRaster.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Write the tiles for all levels in one pass over the source raster file.
+	 * The file is read in bands of whole strips or tiles of rows. Each level
+	 * keeps a band of one row of tiles. Rows of the highest resolution level
+	 * are taken from the source band, with padding added, and reduced in pairs
+	 * to produce the rows of the next level down. When a band is complete its
+	 * tiles are written by the worker threads.
+	 * 
+	 * @param allLevels
+	 *            reduce the rows to write all levels, otherwise only the
+	 *            highest resolution level is written and rows for tiles that
+	 *            are not written are skipped
+	 * @throws Exception
+	 */
+	protected void streamTiles(boolean allLevels) throws Exception {
+		if (!doIt) {
+			return;
+		}
+
+		// the source band is at least as long as a tile
+		int bandLength = rasterFile.getBandLength();
+		bandLength *= (tileLength + bandLength - 1) / bandLength;
+		Raster source = new Raster(rasterWidth, bandLength, bytesPerPixel, dataType, tmpPath);
+		int bandTop = 0;
+
+		// lower levels without a band are not written
+		LevelBand[] band = new LevelBand[maxLevel + 1];
+		int numTiles = numberOfTiles;
+		for (int level = maxLevel; level >= (allLevels ? 0 : maxLevel); level--) {
+			band[level] = new LevelBand(numTiles);
+			numTiles /= 2;
+		}
+
+		// position of the source in the highest resolution level
+		int srcLeft = leftMargin - leftInset;
+		int srcTop = topMargin - topInset;
+		int gridWidth = band[maxLevel].width;
+		int gridLength = numberOfTiles * tileLength + 1;
+		int c0 = Math.max(0, -srcLeft);
+		int c1 = Math.min(rasterWidth, gridWidth - srcLeft);
+		byte[] srcArray = new byte[rasterWidth * bytesPerPixel];
+		ByteBuffer srcBuf = ByteBuffer.wrap(srcArray);
+
+		// a row of padding
+		byte[] emptyRow = new byte[gridWidth * bytesPerPixel];
+		if ((layerType == LayerType.elevation) || (layerType == LayerType.field)) {
+			FloatBuffer fbuf = ByteBuffer.wrap(emptyRow).asFloatBuffer();
+			for (int c = 0; c < gridWidth; ++c) {
+				fbuf.put(Float.NaN);
+			}
+		}
+
+		if (messageText == null) {
+			if (allLevels)
+				System.out.println("Writing "+numberOfTiles+" rows for level "+(maxLevel+1)+" and "+(numberOfTiles-1)+" rows for "+maxLevel+" lower levels");
+			else
+				System.out.println("Writing "+numberOfTiles+" rows for level "+(maxLevel+1)+" of "+(maxLevel+1));
+		}
+		startWorkers();
+		try {
+			// the bands are loaded in order so the statistics see every row
+			loadRasterBand(source, bandTop);
+			if ((layerType == LayerType.elevation) || (layerType == LayerType.field)) {
+				// samples outside of the range given by the file are missing,
+				// the extrema found while loading are final after the last band
+				minimumSampleValue = rasterFile.getMinimumSampleValue();
+				maximumSampleValue = rasterFile.getMaximumSampleValue();
+			}
+			for (int r = 0; r < gridLength; ++r) {
+				if (!doIt) {
+					break;
+				}
+				// a row is needed if it is reduced or belongs to a row of
+				// tiles that is written
+				int tr = r / tileLength;
+				if (!allLevels && !isRowNeeded(maxLevel, tr)
+					&& !(((r % tileLength) == 0) && (tr > 0) && isRowNeeded(maxLevel, tr - 1))) {
+					addRow(band, maxLevel, emptyRow);
+					continue;
+				}
+				byte[] row = emptyRow.clone();
+				int sr = r - srcTop;
+				if ((sr >= 0) && (sr < rasterLength) && (c1 > c0)) {
+					while (sr >= (bandTop + bandLength)) {
+						bandTop += bandLength;
+						loadRasterBand(source, bandTop);
+					}
+					source.get(sr - bandTop, srcArray);
+					if ((layerType == LayerType.elevation) || (layerType == LayerType.field)) {
+						Raster.setMissingValuesToNaN(srcBuf, rasterWidth, missingValue, minimumSampleValue,
+							maximumSampleValue);
+					}
+					System.arraycopy(srcArray, c0 * bytesPerPixel, row, (srcLeft + c0) * bytesPerPixel, (c1 - c0)
+						* bytesPerPixel);
+				}
+				addRow(band, maxLevel, row);
+			}
+			// rows below the grid still count in the statistics
+			while (doIt && ((bandTop + bandLength) < rasterLength)) {
+				bandTop += bandLength;
+				loadRasterBand(source, bandTop);
+			}
+			if (doIt) {
+				finishSourceRaster();
+			}
+			// the last row of each level has no pair
+			for (int level = maxLevel; (level > 0) && (band[level - 1] != null) && doIt; level--) {
+				if (band[level].pending != null) {
+					byte[] reduced = reduceRows(band[level], band[level - 1], band[level].pending, null);
+					band[level].pending = null;
+					addRow(band, level - 1, reduced);
+				}
+			}
+			waitForWorkers();
+			if (messageText == null)
+				System.out.println();
+		} finally {
+			stopWorkers();
+			source.dispose();
+		}
+	}
+
+	/**
+	 * Write only the tiles that overlap the update region or were not written
+	 * by an earlier build. The highest resolution level is cut from the
+	 * source file as it is streamed. The source is still read from top to
+	 * bottom so the statistics cover all of it. Each lower level is then
+	 * reduced from the tiles of the level above that are already in the
+	 * layer directory, so only the ancestors of the written tiles are
+	 * computed.
+	 * 
+	 * @throws Exception
+	 */
+	protected void updateTiles() throws Exception {
+		streamTiles(false);
+		startWorkers();
+		try {
+			int numTiles = numberOfTiles;
+			for (int level = maxLevel - 1; (level >= 0) && doIt; level--) {
+				numTiles /= 2;
+				reduceTiles(level, numTiles);
+				// the next level reads the tiles of this one
+				waitForWorkers();
+				if (messageText == null)
+					System.out.println();
+			}
+		} finally {
+			stopWorkers();
+		}
+	}
+
+	/**
+	 * Write the tiles of a level that are needed by reducing the tiles of the
+	 * level above it. A row of tiles is reduced from two rows of tiles above
+	 * it and the first two rows of the next row of tiles.
+	 * 
+	 * @param level
+	 * @param numTiles
+	 *            the number of tiles on a side for the level
+	 * @throws Exception
+	 */
+	protected void reduceTiles(int level, int numTiles) throws Exception {
+		LevelBand from = new LevelBand(2 * numTiles);
+		LevelBand to = new LevelBand(numTiles);
+		int[] range = tileRange[level];
+		// the tiles above the range, including the first column of the next
+		int c0 = 2 * range[0];
+		int c1 = Math.min(2 * range[1] + 2, from.numTiles - 1);
+		AtomicInteger rowsDone = new AtomicInteger();
+		if (messageText == null)
+			System.out.println("Writing "+(range[3]-range[2]+1)+" rows for level "+(level+1)+" of "+(maxLevel+1));
+		for (int r = range[2]; (r <= range[3]) && doIt; ++r) {
+			if (!isRowNeeded(level, r)) {
+				continue;
+			}
+			// the last row of the level has no pair
+			byte[][] rows = new byte[2 * tileLength + 2][];
+			readTileRow(from, level + 1, 2 * r, c0, c1, rows, 0);
+			readTileRow(from, level + 1, 2 * r + 1, c0, c1, rows, tileLength);
+			if ((2 * r + 2) < from.numTiles) {
+				readTileRow(from, level + 1, 2 * r + 2, c0, c1, rows, 2 * tileLength);
+			}
+			byte[][] band = new byte[tileLength + 1][];
+			for (int i = 0; i <= tileLength; ++i) {
+				band[i] = reduceRows(from, to, rows[2 * i], rows[2 * i + 1]);
+			}
+			submitRow(null, 0, 0, band, r, numTiles, level, rowsDone, true);
+		}
+	}
+
+	/**
+	 * Read a range of tiles in a row back from the layer directory into rows
+	 * of a level.
+	 * 
+	 * @param lb
+	 *            the band for the level
+	 * @param level
+	 * @param row
+	 *            the row of tiles
+	 * @param c0
+	 *            the first tile column
+	 * @param c1
+	 *            the last tile column
+	 * @param rows
+	 *            the rows to fill, rows that are null are allocated
+	 * @param first
+	 *            the index in rows of the first row of the tiles
+	 * @throws IOException
+	 */
+	protected void readTileRow(LevelBand lb, int level, int row, int c0, int c1, byte[][] rows, int first)
+		throws IOException {
+		int rowSize = (tileWidth + 1) * bytesPerPixel;
+		int n = Math.min(tileLength + 1, rows.length - first);
+		for (int i = 0; i < n; ++i) {
+			if (rows[first + i] == null) {
+				rows[first + i] = new byte[lb.width * bytesPerPixel];
+			}
+		}
+		for (int c = c0; c <= c1; ++c) {
+			byte[] bbArray = readTile(getTileKey(c, row, lb.numTiles, level));
+			for (int i = 0; i < n; ++i) {
+				System.arraycopy(bbArray, i * rowSize, rows[first + i], c * tileWidth * bytesPerPixel, rowSize);
+			}
+		}
+	}
+
+	/**
+	 * Read a tile back from the layer directory as rows of samples, the
+	 * reverse of writing a tile from a band of rows.
+	 * 
+	 * @param key
+	 *            the tile key
+	 * @return the samples of the tile
+	 * @throws IOException
+	 */
+	protected byte[] readTile(QuadKey key) throws IOException {
+		int tWidth = tileWidth + 1;
+		int tLength = tileLength + 1;
+		byte[] bbArray = readTile(key, dirPath, tWidth, tLength, layerType);
+		if (bbArray == null) {
+			// an empty tile is only missing values
+			bbArray = new byte[tWidth * tLength * bytesPerPixel];
+			if ((layerType == LayerType.elevation) || (layerType == LayerType.field)) {
+				FloatBuffer fbuf = ByteBuffer.wrap(bbArray).asFloatBuffer();
+				while (fbuf.hasRemaining()) {
+					fbuf.put(Float.NaN);
+				}
+			}
+		} else if (layerType == LayerType.colorimage) {
+			// unpack the pixels packed by writeTile
+			IntBuffer ibuf = ByteBuffer.wrap(bbArray).order(ByteOrder.nativeOrder()).asIntBuffer();
+			ByteBuffer bbuf = ByteBuffer.wrap(bbArray);
+			for (int i = 0; i < tWidth * tLength; ++i) {
+				bbuf.putInt(i * 4, ibuf.get(i));
+			}
+		}
+		return (bbArray);
+	}
+
+	/**
+	 * Add a row to the band for a level. Write the tiles for the band if it is
+	 * complete and reduce the row with the previous one into the next level.
+	 * 
+	 * @param band
+	 *            the bands for all levels
+	 * @param level
+	 * @param row
+	 * @throws InterruptedException
+	 */
+	protected void addRow(LevelBand[] band, int level, byte[] row) throws InterruptedException {
+		LevelBand lb = band[level];
+		lb.rows.add(row);
+		if (lb.rows.size() == tileLength + 1) {
+			byte[][] rows = lb.rows.toArray(new byte[lb.rows.size()][]);
+			submitRow(null, 0, 0, rows, lb.tileRow, lb.numTiles, level, lb.rowsDone, level == maxLevel);
+			lb.tileRow++;
+			// the last row is shared with the next band of tiles
+			lb.rows.clear();
+			lb.rows.add(row);
+		}
+		if ((level > 0) && (band[level - 1] != null)) {
+			if (lb.pending == null) {
+				lb.pending = row;
+			} else {
+				byte[] reduced = reduceRows(lb, band[level - 1], lb.pending, row);
+				lb.pending = null;
+				addRow(band, level - 1, reduced);
+			}
+		}
+	}
+
+	/**
+	 * Reduce a pair of rows from one level to a row for the next lower level.
+	 * 
+	 * @param from
+	 *            the band for the level of the rows
+	 * @param to
+	 *            the band for the next lower level
+	 * @param row0
+	 * @param row1
+	 *            the second row, or null if there is none
+	 * @return the reduced row
+	 */
+	protected byte[] reduceRows(LevelBand from, LevelBand to, byte[] row0, byte[] row1) {
+		byte[] out = new byte[to.width * bytesPerPixel];
+		switch (layerType) {
+		case none:
+		case footprint:
+		case viewshed:
+		case derivative:
+			break;
+		case elevation:
+		case field:
+			Raster.reduceRow(dataType, bytesPerPixel, ByteBuffer.wrap(row0), (row1 == null) ? null : ByteBuffer
+				.wrap(row1), 0, from.width, ByteBuffer.wrap(out), to.width, reduction);
+			break;
+		case colorimage:
+			Raster.reduceRowRGBA(row0, row1, 0, from.width, out, to.width);
+			break;
+		case grayimage:
+			Raster.reduceRow(dataType, bytesPerPixel, ByteBuffer.wrap(row0), (row1 == null) ? null : ByteBuffer
+				.wrap(row1), 0, from.width, ByteBuffer.wrap(out), to.width, Raster.Reduction.Mean);
+			break;
+		}
+		return (out);
+	}
+
+	/**
+	 * Rows of one level waiting to be written as a row of tiles.
+	 */
+	protected class LevelBand {
+
+		// Number of tiles on a side and number of samples in a row
+		protected int numTiles, width;
+
+		// Rows for the current band of tiles
+		protected ArrayList<byte[]> rows;
+
+		// Tile row index of the current band
+		protected int tileRow;
+
+		// Row waiting for the next row to be reduced with it
+		protected byte[] pending;
+
+		// Number of tile rows written
+		protected AtomicInteger rowsDone;
+
+		public LevelBand(int numTiles) {
+			this.numTiles = numTiles;
+			width = numTiles * tileWidth + 1;
+			rows = new ArrayList<byte[]>(tileLength + 1);
+			rowsDone = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * Queue a row of tiles to be written unless it is outside of the update
+	 * region or already written.
+	 * 
+	 * @param raster
+	 *            the raster for the level, null if using a band
+	 * @param left
+	 *            the position of the first tile in the raster
+	 * @param top
+	 * @param band
+	 *            the rows for the tiles, null if using a raster
+	 * @param row
+	 *            the row of tiles
+	 * @param numTiles
+	 *            the number of tiles on a side for the level
+	 * @param level
+	 * @param rowsDone
+	 *            count of rows written for the level
+	 * @param printProgress
+	 *            print progress to the console
+	 * @throws InterruptedException
+	 */
+	protected void submitRow(Raster raster, int left, int top, byte[][] band, int row, int numTiles, int level,
+		AtomicInteger rowsDone, boolean printProgress) throws InterruptedException {
+		if (!isRowNeeded(level, row)) {
+			return;
+		}
+		permits.acquire();
+		executor.execute(new TileRowTask(raster, left, top, band, row, numTiles, level, rowsDone, printProgress));
+	}
+
+	/**
+	 * Find out if a row of tiles is to be written, that is it overlaps the
+	 * update region and has not been written already.
+	 * 
+	 * @param level
+	 * @param row
+	 *            the row of tiles
+	 * @return
+	 */
+	protected boolean isRowNeeded(int level, int row) {
+		int[] range = tileRange[level];
+		if ((row < range[2]) || (row > range[3])) {
+			return (false);
+		}
+		return ((journal == null) || !journal.isRowDone(level, row));
+	}
+
+	/**
+	 * Find out if a level and all levels below it have been written.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	protected boolean isDone(int level) {
+		if (journal == null) {
+			return (false);
+		}
+		for (int i = level; i >= 0; i--) {
+			if (!journal.isLevelDone(i)) {
+				return (false);
+			}
+		}
+		return (true);
+	}
+
+	/**
+	 * Start the tile writing threads. Each row of tiles is a task for the
+	 * worker pool. The number of rows in the queue is limited to bound the
+	 * memory used for tiles.
+	 */
+	protected void startWorkers() {
+		executor = Executors.newFixedThreadPool(numThreads);
+		permits = new Semaphore(2 * numThreads);
+		failure = new AtomicReference<Exception>();
+	}
+
+	/**
+	 * Wait for all queued rows of tiles to be written.
+	 * 
+	 * @throws Exception
+	 *             the first exception thrown by a tile writing thread
+	 */
+	protected void waitForWorkers() throws Exception {
+		permits.acquire(2 * numThreads);
+		permits.release(2 * numThreads);
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	/**
+	 * Stop the tile writing threads.
+	 */
+	protected void stopWorkers() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
 	/**
 	 * Write out a tile.
 	 * 
 	 * @param raster
-	 *            the raster array from which the tile comes
+	 *            the raster array for the tile's level
 	 * @param column
 	 *            the column start in the array
 	 * @param row
 	 *            the row start in the array
-	 * @param size
-	 *            the tile size (width and height)
-	 * @param filePath
-	 *            the path for the file
+	 * @param key
+	 *            the tile key
+	 * @param dirPath
+	 *            the directory for the layer
 	 * @param layerType
 	 *            the type of layer
 	 * @throws IOException
 	 */
-	protected void writeTile(Raster raster, int column, int row, int kernelSize, String filePath, LayerType layerType)
+	protected void writeTile(Raster raster, int column, int row, QuadKey key, String dirPath, LayerType layerType)
 		throws IOException {
 
 		int tWidth = tileWidth + 1;
@@ -538,10 +1378,8 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		int tileTop = 0;
 		int tileLeft = 0;
 
-		int rasterLeft = leftInset + column;
-		int rasterTop = topInset + row;
-		int rasterTWidth = tWidth * kernelSize;
-		int rasterTLength = tLength * kernelSize;
+		int rasterLeft = column;
+		int rasterTop = row;
 
 		// allocate buffer for writing the file
 		byte[] bbArray = new byte[tSize];
@@ -557,13 +1395,12 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		case elevation:
 		case field:
 		case grayimage:
-			raster.get(rasterTop, rasterLeft, rasterTWidth, rasterTLength, bbuf, tileTop, tileLeft, tWidth, kernelSize);
+			raster.get(rasterTop, rasterLeft, tWidth, tLength, bbuf, tileTop, tileLeft, tWidth, 1);
 			break;
 		case colorimage:
 			bbuf.order(ByteOrder.nativeOrder());
 			bbuf.rewind();
-			raster.getRGBA(rasterTop, rasterLeft, rasterTWidth, rasterTLength, bbuf, tileTop, tileLeft, tWidth,
-				kernelSize);
+			raster.getRGBA(rasterTop, rasterLeft, tWidth, tLength, bbuf, tileTop, tileLeft, tWidth, 1);
 			break;
 		}
 
@@ -572,7 +1409,123 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			bbuf.limit(0);
 		}
 
-		writeTile(filePath, bbArray, tWidth, tLength, layerType);
+		writeTile(key, dirPath, bbArray, tWidth, tLength, layerType);
+	}
+
+	/**
+	 * Write out a tile from a band of rows.
+	 * 
+	 * @param band
+	 *            the rows for the tile
+	 * @param column
+	 *            the column start in the rows
+	 * @param key
+	 *            the tile key
+	 * @param dirPath
+	 *            the directory for the layer
+	 * @param layerType
+	 *            the type of layer
+	 * @throws IOException
+	 */
+	protected void writeTile(byte[][] band, int column, QuadKey key, String dirPath, LayerType layerType)
+		throws IOException {
+
+		int tWidth = tileWidth + 1;
+		int tLength = tileLength + 1;
+		int rowSize = tWidth * bytesPerPixel;
+
+		// allocate buffer for writing the file
+		byte[] bbArray = new byte[tLength * rowSize];
+		ByteBuffer bbuf = ByteBuffer.wrap(bbArray);
+
+		// fill the tile
+		if (layerType == LayerType.colorimage) {
+			// pack the pixels as Raster.getRGBA does
+			bbuf.order(ByteOrder.nativeOrder());
+			IntBuffer ibuf = bbuf.asIntBuffer();
+			for (int r = 0; r < tLength; ++r) {
+				byte[] row = band[r];
+				for (int i = column * 4; i < (column + tWidth) * 4; i += 4) {
+					ibuf.put(MathUtil.bytes2Int(row[i], row[i + 1], row[i + 2], row[i + 3]));
+				}
+			}
+		} else {
+			for (int r = 0; r < tLength; ++r) {
+				System.arraycopy(band[r], column * bytesPerPixel, bbArray, r * rowSize, rowSize);
+			}
+		}
+
+		// zero the file if it is only missing values
+		if (isEmpty(bbuf)) {
+			bbuf.limit(0);
+		}
+
+		writeTile(key, dirPath, bbArray, tWidth, tLength, layerType);
+	}
+
+	/**
+	 * Writes one row of tiles for a level and reports progress. The tiles come
+	 * either from a raster for the level or from a band of rows.
+	 */
+	protected class TileRowTask implements Runnable {
+
+		private Raster raster;
+		private int left, top;
+		private byte[][] band;
+		private int row, numTiles, level;
+		private AtomicInteger rowsDone;
+		private boolean printProgress;
+
+		public TileRowTask(Raster raster, int left, int top, byte[][] band, int row, int numTiles, int level,
+			AtomicInteger rowsDone, boolean printProgress) {
+			this.raster = raster;
+			this.left = left;
+			this.top = top;
+			this.band = band;
+			this.row = row;
+			this.numTiles = numTiles;
+			this.level = level;
+			this.rowsDone = rowsDone;
+			this.printProgress = printProgress;
+		}
+
+		@Override
+		public void run() {
+			try {
+				int[] range = tileRange[level];
+				for (int c = range[0]; c <= range[1]; ++c) {
+					if (!doIt) {
+						return;
+					}
+					QuadKey key = getTileKey(c, row, numTiles, level);
+					if (band == null) {
+						writeTile(raster, left + c * tileWidth, top + row * tileLength, key, dirPath, layerType);
+					} else {
+						writeTile(band, c * tileWidth, key, dirPath, layerType);
+					}
+				}
+				if (journal != null) {
+					journal.rowDone(level, row);
+				}
+				int n = rowsDone.incrementAndGet();
+				if (messageText != null) {
+					messageText.setText("Writing " + layerName + " level " + (level + 1) + " of " + (maxLevel + 1)
+						+ ", tile row " + n + " of " + numTiles + " . . .");
+				} else if (printProgress) {
+					synchronized (System.out) {
+						if ((n-1)%10 == 0)
+							System.out.print(n-1);
+						else
+							System.out.print(".");
+					}
+				}
+			} catch (Exception e) {
+				failure.compareAndSet(null, e);
+				doIt = false;
+			} finally {
+				permits.release();
+			}
+		}
 	}
 
 	/**
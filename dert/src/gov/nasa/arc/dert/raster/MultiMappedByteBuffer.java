@@ -99,6 +99,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 **/
 
+
 package gov.nasa.arc.dert.raster;
 
 import gov.nasa.arc.dert.util.MathUtil;
@@ -110,41 +111,51 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 
 /**
  * Provides a MappedByteBuffer for a file larger than Integer.MAX_VALUE. This is
- * done by creating an array of MappedByteBuffers, positioned at regular
- * intervals in the file and covering only a portion of the file.
+ * done by creating an array of MappedByteBuffers (segments) of a fixed size,
+ * each covering a consecutive portion of the file. Data is addressed with a
+ * 64 bit byte offset and a scan line may span two segments.
+ * 
+ * Reads and writes never change the position of a shared buffer. Each thread
+ * gets its own views of the segments, so any number of threads may read at
+ * once and threads may write to separate regions at once. Float, int, and
+ * short samples are big endian and are read and written in bulk. Their byte
+ * offset must be a multiple of the sample size.
+ * 
+ * The backing file is deleted as soon as it is mapped where the operating
+ * system allows it, so nothing is left behind even if the application does
+ * not exit normally. Otherwise it is deleted by dispose(), or at exit if it
+ * is still mapped then.
  *
  */
 public class MultiMappedByteBuffer {
 
-	// The maximum size for a sub-buffer
-	private static int MAX_BUFFER_SIZE = Integer.MAX_VALUE;
-
-	// The file channel for the sub-buffers
-	private FileChannel fileChannel;
+	// The size of a segment, a multiple of the largest sample size
+	private static final int SEGMENT_SIZE = 1 << 30;
 
-	// An array of sub-buffers
+	// An array of segments
 	private MappedByteBuffer[] mbBuf;
 
-	// Number of rows in a sub-buffer
-	private int numRows;
+	// Per thread views of the segments so concurrent readers do not share a
+	// buffer position
+	private ThreadLocal<View[]> views = new ThreadLocal<View[]>();
 
 	// Raster dimensions
 	private int width, length;
 
-	// Size of a sub-buffer
-	private long bufSize;
+	// Size of the file
+	private long size;
 
-	// Number of sub-buffers
+	// Number of segments
 	private int numBuffers;
 
-	// The mapped memory file
+	// The mapped memory file, null once it has been deleted
 	private File file;
-	private RandomAccessFile raf;
 
 	/**
 	 * Constructor Create a MultiMappedByteBuffer with a given file path, raster
@@ -164,32 +175,39 @@ public class MultiMappedByteBuffer {
 
 		// Determine the number of MappedByteBuffers needed
 
-		long size = MathUtil.unsignedInt(width) * MathUtil.unsignedInt(length);
-
-		numRows = Math.min(length, MAX_BUFFER_SIZE / width);
-		bufSize = numRows * width;
-
-		numBuffers = (int) Math.ceil((double) size / bufSize);
+		size = MathUtil.unsignedInt(width) * MathUtil.unsignedInt(length);
+		numBuffers = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
 		mbBuf = new MappedByteBuffer[numBuffers];
 
-		// System.err.println("MultiMappedByteBuffer "+width+" "+height+" "+size+" "+numRows+" "+bufSize+" "+numBuffers);
-
 		// Create the file
 
 		file = new File(path);
 		file.mkdirs();
-		file = new File(file, "tmp_" + System.currentTimeMillis());
-		file.deleteOnExit();
-		raf = new RandomAccessFile(file, "rw");
-		fileChannel = raf.getChannel();
+		// rasters may be created in quick succession so use a unique name
+		file = File.createTempFile("tmp_", null, file);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
 
-		// Create the MappedByteBuffers
+		// Create the MappedByteBuffers, they remain valid after the file is
+		// closed
 
-		long position = 0;
+		try {
+			FileChannel fileChannel = raf.getChannel();
+			long position = 0;
+			for (int i = 0; i < numBuffers; ++i) {
+				long bufSize = Math.min(SEGMENT_SIZE, size - position);
+				mbBuf[i] = fileChannel.map(MapMode.READ_WRITE, position, bufSize);
+				position += bufSize;
+			}
+		} catch (IOException e) {
+			raf.close();
+			file.delete();
+			throw e;
+		}
+		raf.close();
 
-		for (int i = 0; i < numBuffers; ++i) {
-			mbBuf[i] = fileChannel.map(MapMode.READ_WRITE, position, bufSize);
-			position += bufSize;
+		// Remove the file from the directory now if the mapping survives it
+		if (file.delete()) {
+			file = null;
 		}
 	}
 
@@ -202,22 +220,29 @@ public class MultiMappedByteBuffer {
 		}
 	}
 
+	/**
+	 * Get the size in bytes.
+	 * 
+	 * @return
+	 */
+	public long getSize() {
+		return (size);
+	}
+
 	/**
 	 * Fill a byte array from a row in the file. The array must have the length
-	 * of a scan line.
+	 * of a scan line. This may be called from multiple threads at once.
 	 * 
 	 * @param row
 	 * @param bArray
 	 */
 	public void get(int row, byte[] bArray) {
-		int index = row / numRows;
-		row = row % numRows;
-		mbBuf[index].position(row * width);
-		mbBuf[index].get(bArray, 0, width);
+		get((long) row * width, bArray, 0, width);
 	}
 
 	/**
 	 * Fill a byte array starting at a given file row and column with wid bytes.
+	 * This may be called from multiple threads at once.
 	 * 
 	 * @param row
 	 * @param column
@@ -225,10 +250,113 @@ public class MultiMappedByteBuffer {
 	 * @param bArray
 	 */
 	public void get(int row, int column, int wid, byte[] bArray) {
-		int index = row / numRows;
-		row = row % numRows;
-		mbBuf[index].position(row * width + column);
-		mbBuf[index].get(bArray, 0, wid);
+		get((long) row * width + column, bArray, 0, wid);
+	}
+
+	/**
+	 * Fill part of a byte array starting at a byte offset in the file. This may
+	 * be called from multiple threads at once.
+	 * 
+	 * @param offset
+	 *            byte offset in the file
+	 * @param bArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of bytes
+	 */
+	public void get(long offset, byte[] bArray, int pos, int len) {
+		while (len > 0) {
+			View view = getView(offset);
+			int local = (int) (offset % SEGMENT_SIZE);
+			int n = Math.min(len, view.bytes.capacity() - local);
+			view.bytes.position(local);
+			view.bytes.get(bArray, pos, n);
+			offset += n;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Fill part of a float array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once.
+	 * 
+	 * @param offset
+	 *            byte offset in the file, a multiple of 4
+	 * @param fArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of floats
+	 */
+	public void getFloats(long offset, float[] fArray, int pos, int len) {
+		checkAlignment(offset, 4);
+		while (len > 0) {
+			View view = getView(offset);
+			FloatBuffer fBuf = view.getFloats();
+			int local = (int) (offset % SEGMENT_SIZE) / 4;
+			int n = Math.min(len, fBuf.capacity() - local);
+			fBuf.position(local);
+			fBuf.get(fArray, pos, n);
+			offset += n * 4L;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Fill part of an int array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once.
+	 * 
+	 * @param offset
+	 *            byte offset in the file, a multiple of 4
+	 * @param iArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of ints
+	 */
+	public void getInts(long offset, int[] iArray, int pos, int len) {
+		checkAlignment(offset, 4);
+		while (len > 0) {
+			View view = getView(offset);
+			IntBuffer iBuf = view.getInts();
+			int local = (int) (offset % SEGMENT_SIZE) / 4;
+			int n = Math.min(len, iBuf.capacity() - local);
+			iBuf.position(local);
+			iBuf.get(iArray, pos, n);
+			offset += n * 4L;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Fill part of a short array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once.
+	 * 
+	 * @param offset
+	 *            byte offset in the file, a multiple of 2
+	 * @param sArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of shorts
+	 */
+	public void getShorts(long offset, short[] sArray, int pos, int len) {
+		checkAlignment(offset, 2);
+		while (len > 0) {
+			View view = getView(offset);
+			ShortBuffer sBuf = view.getShorts();
+			int local = (int) (offset % SEGMENT_SIZE) / 2;
+			int n = Math.min(len, sBuf.capacity() - local);
+			sBuf.position(local);
+			sBuf.get(sArray, pos, n);
+			offset += n * 2L;
+			pos += n;
+			len -= n;
+		}
 	}
 
 	/**
@@ -237,17 +365,12 @@ public class MultiMappedByteBuffer {
 	 * @param val
 	 */
 	public void set(int val) {
-		byte[] bArray = new byte[width];
-		ByteBuffer bBuf = ByteBuffer.wrap(bArray);
-		bBuf.rewind();
-		IntBuffer iBuf = bBuf.asIntBuffer();
-		int w = width / 4;
-		for (int c = 0; c < w; ++c) {
-			iBuf.put(val);
+		int[] iArray = new int[width / 4];
+		for (int c = 0; c < iArray.length; ++c) {
+			iArray[c] = val;
 		}
-		iBuf.rewind();
 		for (int r = 0; r < length; ++r) {
-			set(r, 0, width, 0, bArray);
+			putInts((long) r * width, iArray, 0, iArray.length);
 		}
 	}
 
@@ -257,37 +380,55 @@ public class MultiMappedByteBuffer {
 	 * @param val
 	 */
 	public void set(float val) {
-		byte[] bArray = new byte[width];
-		ByteBuffer bBuf = ByteBuffer.wrap(bArray);
-		bBuf.rewind();
-		FloatBuffer fBuf = bBuf.asFloatBuffer();
-		int w = width / 4;
-		for (int c = 0; c < w; ++c) {
-			fBuf.put(val);
+		float[] fArray = new float[width / 4];
+		for (int c = 0; c < fArray.length; ++c) {
+			fArray[c] = val;
 		}
-		fBuf.rewind();
 		for (int r = 0; r < length; ++r) {
-			set(r, 0, width, 0, bArray);
+			putFloats((long) r * width, fArray, 0, fArray.length);
 		}
 	}
 
 	/**
 	 * Set a row from a byte array. The array must have the length of a scan
-	 * line.
+	 * line. This may be called from multiple threads at once for different
+	 * rows.
 	 * 
 	 * @param row
 	 * @param bArray
 	 */
 	public void set(int row, byte[] bArray) {
-		int index = row / numRows;
-		row = row % numRows;
-		mbBuf[index].position(row * width);
-		mbBuf[index].put(bArray);
+		put((long) row * width, bArray, 0, width);
+	}
+
+	/**
+	 * Set a row from the current position of a buffer, advancing the buffer
+	 * position by the length of a scan line. This may be called from multiple
+	 * threads at once for different rows.
+	 * 
+	 * @param row
+	 * @param bBuf
+	 */
+	public void set(int row, ByteBuffer bBuf) {
+		long offset = (long) row * width;
+		int limit = bBuf.limit();
+		int end = bBuf.position() + width;
+		while (bBuf.position() < end) {
+			View view = getView(offset);
+			int local = (int) (offset % SEGMENT_SIZE);
+			int n = Math.min(end - bBuf.position(), view.bytes.capacity() - local);
+			view.bytes.position(local);
+			bBuf.limit(bBuf.position() + n);
+			view.bytes.put(bBuf);
+			offset += n;
+		}
+		bBuf.limit(limit);
 	}
 
 	/**
 	 * Set a row starting at a given column from the specified position in a
-	 * byte array
+	 * byte array. This may be called from multiple threads at once for
+	 * different regions.
 	 * 
 	 * @param row
 	 *            row in file
@@ -300,11 +441,144 @@ public class MultiMappedByteBuffer {
 	 * @param bArray
 	 */
 	public void set(int row, int column, int wid, int pos, byte[] bArray) {
-		int index = row / numRows;
-		row = row % numRows;
-		// System.err.println("MultiMappedByteBuffer.set "+index+" "+row+" "+column+" "+width+" "+pos+" "+wid);
-		mbBuf[index].position(row * width + column);
-		mbBuf[index].put(bArray, pos, wid);
+		put((long) row * width + column, bArray, pos, wid);
+	}
+
+	/**
+	 * Write part of a byte array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once for different regions.
+	 * 
+	 * @param offset
+	 *            byte offset in the file
+	 * @param bArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of bytes
+	 */
+	public void put(long offset, byte[] bArray, int pos, int len) {
+		while (len > 0) {
+			View view = getView(offset);
+			int local = (int) (offset % SEGMENT_SIZE);
+			int n = Math.min(len, view.bytes.capacity() - local);
+			view.bytes.position(local);
+			view.bytes.put(bArray, pos, n);
+			offset += n;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write part of a float array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once for different regions.
+	 * 
+	 * @param offset
+	 *            byte offset in the file, a multiple of 4
+	 * @param fArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of floats
+	 */
+	public void putFloats(long offset, float[] fArray, int pos, int len) {
+		checkAlignment(offset, 4);
+		while (len > 0) {
+			View view = getView(offset);
+			FloatBuffer fBuf = view.getFloats();
+			int local = (int) (offset % SEGMENT_SIZE) / 4;
+			int n = Math.min(len, fBuf.capacity() - local);
+			fBuf.position(local);
+			fBuf.put(fArray, pos, n);
+			offset += n * 4L;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write part of an int array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once for different regions.
+	 * 
+	 * @param offset
+	 *            byte offset in the file, a multiple of 4
+	 * @param iArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of ints
+	 */
+	public void putInts(long offset, int[] iArray, int pos, int len) {
+		checkAlignment(offset, 4);
+		while (len > 0) {
+			View view = getView(offset);
+			IntBuffer iBuf = view.getInts();
+			int local = (int) (offset % SEGMENT_SIZE) / 4;
+			int n = Math.min(len, iBuf.capacity() - local);
+			iBuf.position(local);
+			iBuf.put(iArray, pos, n);
+			offset += n * 4L;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write part of a short array starting at a byte offset in the file. This
+	 * may be called from multiple threads at once for different regions.
+	 * 
+	 * @param offset
+	 *            byte offset in the file, a multiple of 2
+	 * @param sArray
+	 * @param pos
+	 *            starting position in the array
+	 * @param len
+	 *            number of shorts
+	 */
+	public void putShorts(long offset, short[] sArray, int pos, int len) {
+		checkAlignment(offset, 2);
+		while (len > 0) {
+			View view = getView(offset);
+			ShortBuffer sBuf = view.getShorts();
+			int local = (int) (offset % SEGMENT_SIZE) / 2;
+			int n = Math.min(len, sBuf.capacity() - local);
+			sBuf.position(local);
+			sBuf.put(sArray, pos, n);
+			offset += n * 2L;
+			pos += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Make sure a typed sample does not straddle two segments.
+	 */
+	private void checkAlignment(long offset, int sampleSize) {
+		if ((offset % sampleSize) != 0) {
+			throw new IllegalArgumentException("Offset " + offset + " is not a multiple of " + sampleSize + ".");
+		}
+	}
+
+	/**
+	 * Get the calling thread's view of the segment containing a byte offset.
+	 * 
+	 * @param offset
+	 * @return
+	 */
+	private View getView(long offset) {
+		if ((offset < 0) || (offset >= size)) {
+			throw new IndexOutOfBoundsException("Offset " + offset + " is outside of 0 to " + size + ".");
+		}
+		int index = (int) (offset / SEGMENT_SIZE);
+		View[] view = views.get();
+		if (view == null) {
+			view = new View[numBuffers];
+			views.set(view);
+		}
+		if (view[index] == null) {
+			view[index] = new View(mbBuf[index].duplicate());
+		}
+		return (view[index]);
 	}
 
 	/**
@@ -316,20 +590,60 @@ public class MultiMappedByteBuffer {
 	}
 
 	/**
-	 * Free the buffers so they can be garbage collected.
+	 * Free the buffers so they can be garbage collected and delete the file if
+	 * it is still there.
 	 */
 	public void dispose() {
 		for (int i = 0; i < mbBuf.length; ++i) {
 			mbBuf[i] = null;
 		}
-		try {
-			if (raf != null) {
-				raf.close();
+		views.remove();
+		if (file != null) {
+			// this fails on platforms that keep a file open while it is
+			// mapped, as a last resort remove it when the application exits
+			if (!file.delete()) {
+				file.deleteOnExit();
 			}
-			raf = null;
-			file.delete();
-		} catch (Exception e) {
-			// do nothing
+			file = null;
+		}
+	}
+
+	/**
+	 * One thread's views of a segment. Each has its own position.
+	 */
+	private static class View {
+
+		private ByteBuffer bytes;
+		private FloatBuffer floats;
+		private IntBuffer ints;
+		private ShortBuffer shorts;
+
+		public View(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		public FloatBuffer getFloats() {
+			if (floats == null) {
+				bytes.position(0);
+				floats = bytes.asFloatBuffer();
+			}
+			return (floats);
+		}
+
+		public IntBuffer getInts() {
+			if (ints == null) {
+				bytes.position(0);
+				ints = bytes.asIntBuffer();
+			}
+			return (ints);
+		}
+
+		public ShortBuffer getShorts() {
+			if (shorts == null) {
+				bytes.position(0);
+				shorts = bytes.asShortBuffer();
+			}
+			return (shorts);
 		}
 	}
 
@@ -106,6 +106,7 @@ import gov.nasa.arc.dert.util.MathUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -118,6 +119,13 @@ import java.util.Arrays;
  */
 public class Raster {
 
+	/**
+	 * Ways to combine a 2x2 block of samples when reducing a raster
+	 */
+	public static enum Reduction {
+		Mean, Minimum, Maximum
+	}
+
 	protected static long MAX_SIZE = 4294967296l; // 4096 MB
 
 	// Raster dimensions
@@ -133,22 +141,14 @@ public class Raster {
 	protected MultiMappedByteBuffer mmbBuf;
 	protected long size;
 
-	// Used to compute mean pixel values
-	protected ByteBuffer meanBuf;
-	protected byte[] meanArray;
-
 	public Raster(int width, int length, int numBytes, DataType dataType, String path) throws IOException {
 		this.width = width;
 		this.length = length;
 		this.numBytes = numBytes;
 		this.dataType = dataType;
-		size = width * length * numBytes;
+		size = (long) width * length * numBytes;
 
 		mmbBuf = new MultiMappedByteBuffer(path, width * numBytes, length);
-
-		meanArray = new byte[width * numBytes];
-		meanBuf = ByteBuffer.wrap(meanArray);
-		meanBuf.rewind();
 	}
 
 	/**
@@ -193,7 +193,8 @@ public class Raster {
 	}
 
 	/**
-	 * Fill a buffer with a portion of the raster
+	 * Fill a buffer with a portion of the raster. This may be called from
+	 * multiple threads at once.
 	 * 
 	 * @param rasterTop
 	 * @param rasterLeft
@@ -210,53 +211,84 @@ public class Raster {
 		int rasterBottom = rasterTop + rasterHgt;
 		int rasterRight = rasterLeft + rasterWid;
 		int bufferRow = bufferTop;
+		// at full resolution the samples are copied unchanged
+		if ((kernelSize == 1) && (bBuf.order() == ByteOrder.BIG_ENDIAN)
+			&& ((dataType == DataType.Float) || (dataType == DataType.Integer) || (dataType == DataType.Byte) || (dataType == DataType.UnsignedByte))) {
+			byte[] rowArray = new byte[rasterWid * numBytes];
+			for (int r = rasterTop; r < rasterBottom; ++r) {
+				mmbBuf.get(r, rasterLeft * numBytes, rowArray.length, rowArray);
+				bBuf.position((bufferRow * bufferWid + bufferLeft) * numBytes);
+				bBuf.put(rowArray);
+				bufferRow++;
+			}
+			bBuf.rewind();
+			return;
+		}
+		ByteBuffer meanBuf = ByteBuffer.wrap(new byte[kernelSize * numBytes]);
 		switch (dataType) {
 		case Float:
 			FloatBuffer fbuf = bBuf.asFloatBuffer();
+			if (kernelSize == 1) {
+				// full resolution in a different byte order, let the float
+				// view do the swapping
+				float[] rowFloats = new float[rasterWid];
+				for (int r = rasterTop; r < rasterBottom; ++r) {
+					mmbBuf.getFloats(getOffset(r, rasterLeft), rowFloats, 0, rasterWid);
+					fbuf.position(bufferRow * bufferWid + bufferLeft);
+					fbuf.put(rowFloats);
+					bufferRow++;
+				}
+				break;
+			}
+			float[] meanFloats = new float[kernelSize];
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				fbuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					fbuf.put(meanFloat(r, c, kernelSize));
+					fbuf.put(meanFloat(r, c, kernelSize, meanFloats));
 				}
 				bufferRow++;
 			}
 			break;
 		case Integer:
 			IntBuffer ibuf = bBuf.asIntBuffer();
+			int[] meanInts = new int[kernelSize];
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				ibuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					ibuf.put(meanInt(r, c, kernelSize));
+					ibuf.put(meanInt(r, c, kernelSize, meanInts));
 				}
 				bufferRow++;
 			}
 			break;
 		case UnsignedInteger:
 			IntBuffer uibuf = bBuf.asIntBuffer();
+			int[] meanUInts = new int[kernelSize];
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				uibuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					uibuf.put((int) (meanUnsignedInt(r, c, kernelSize) & 0xffffffff));
+					uibuf.put((int) (meanUnsignedInt(r, c, kernelSize, meanUInts) & 0xffffffff));
 				}
 				bufferRow++;
 			}
 			break;
 		case Short:
 			IntBuffer sbuf = bBuf.asIntBuffer();
+			short[] meanShorts = new short[kernelSize];
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				sbuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					sbuf.put(meanShort(r, c, kernelSize));
+					sbuf.put(meanShort(r, c, kernelSize, meanShorts));
 				}
 				bufferRow++;
 			}
 			break;
 		case UnsignedShort:
 			IntBuffer usbuf = bBuf.asIntBuffer();
+			short[] meanUShorts = new short[kernelSize];
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				usbuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					usbuf.put((short) (meanUnsignedShort(r, c, kernelSize) & 0xffff));
+					usbuf.put((short) (meanUnsignedShort(r, c, kernelSize, meanUShorts) & 0xffff));
 				}
 				bufferRow++;
 			}
@@ -265,7 +297,7 @@ public class Raster {
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				bBuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					bBuf.put(meanByte(r, c, kernelSize));
+					bBuf.put(meanByte(r, c, kernelSize, meanBuf));
 				}
 				bufferRow++;
 			}
@@ -274,7 +306,7 @@ public class Raster {
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				bBuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					bBuf.put((byte) (meanUnsignedByte(r, c, kernelSize) & 0xff));
+					bBuf.put((byte) (meanUnsignedByte(r, c, kernelSize, meanBuf) & 0xff));
 				}
 				bufferRow++;
 			}
@@ -284,7 +316,7 @@ public class Raster {
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				dbuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					dbuf.put(meanDouble(r, c, kernelSize));
+					dbuf.put(meanDouble(r, c, kernelSize, meanBuf));
 				}
 				bufferRow++;
 			}
@@ -294,7 +326,7 @@ public class Raster {
 			for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 				lbuf.position(bufferRow * bufferWid + bufferLeft);
 				for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-					lbuf.put(meanLong(r, c, kernelSize));
+					lbuf.put(meanLong(r, c, kernelSize, meanBuf));
 				}
 				bufferRow++;
 			}
@@ -306,7 +338,8 @@ public class Raster {
 	}
 
 	/**
-	 * Fill a color buffer with a portion of the raster
+	 * Fill a color buffer with a portion of the raster. This may be called from
+	 * multiple threads at once.
 	 * 
 	 * @param rasterTop
 	 * @param rasterLeft
@@ -324,16 +357,306 @@ public class Raster {
 		int rasterRight = rasterLeft + rasterWid;
 		int bufferRow = bufferTop;
 		IntBuffer ibuf = bBuf.asIntBuffer();
+		// at full resolution the samples are copied without averaging
+		if (kernelSize == 1) {
+			byte[] rowArray = new byte[rasterWid * numBytes];
+			for (int r = rasterTop; r < rasterBottom; ++r) {
+				mmbBuf.get(r, rasterLeft * numBytes, rowArray.length, rowArray);
+				ibuf.position(bufferRow * bufferWid + bufferLeft);
+				for (int c = 0; c < rowArray.length; c += 4) {
+					ibuf.put(MathUtil.bytes2Int(rowArray[c], rowArray[c + 1], rowArray[c + 2], rowArray[c + 3]));
+				}
+				bufferRow++;
+			}
+			bBuf.rewind();
+			return;
+		}
+		ByteBuffer meanBuf = ByteBuffer.wrap(new byte[kernelSize * numBytes]);
 		for (int r = rasterTop; r < rasterBottom; r += kernelSize) {
 			ibuf.position(bufferRow * bufferWid + bufferLeft);
 			for (int c = rasterLeft; c < rasterRight; c += kernelSize) {
-				ibuf.put(meanRGBA(r, c, kernelSize));
+				ibuf.put(meanRGBA(r, c, kernelSize, meanBuf));
 			}
 			bufferRow++;
 		}
 		bBuf.rewind();
 	}
 
+	/**
+	 * Reduce a portion of this raster by a factor of 2 on each side into
+	 * another raster of the same data type. Each destination sample combines
+	 * the 2x2 block of samples starting at (top+2*row, left+2*column). Samples
+	 * that fall outside of this raster are ignored, as are NaN values. This
+	 * raster is read sequentially, two rows at a time.
+	 * 
+	 * @param top
+	 *            the first row of the portion
+	 * @param left
+	 *            the first column of the portion
+	 * @param dest
+	 *            the destination raster
+	 * @param reduction
+	 *            how to combine the samples
+	 */
+	public void reduce(int top, int left, Raster dest, Reduction reduction) {
+		if ((dest.dataType != dataType) || (dest.numBytes != numBytes)) {
+			throw new IllegalArgumentException("Cannot reduce " + dataType + " raster into " + dest.dataType + " raster.");
+		}
+		ByteBuffer inBuf0 = ByteBuffer.wrap(new byte[width * numBytes]);
+		ByteBuffer inBuf1 = ByteBuffer.wrap(new byte[width * numBytes]);
+		ByteBuffer outBuf = ByteBuffer.wrap(new byte[dest.width * numBytes]);
+		for (int r = 0; r < dest.length; ++r) {
+			int r0 = top + 2 * r;
+			boolean has0 = (r0 < length);
+			boolean has1 = (r0 + 1 < length);
+			if (has0) {
+				mmbBuf.get(r0, inBuf0.array());
+			}
+			if (has1) {
+				mmbBuf.get(r0 + 1, inBuf1.array());
+			}
+			reduceRow(dataType, numBytes, has0 ? inBuf0 : null, has1 ? inBuf1 : null, left, width, outBuf, dest.width,
+				reduction);
+			dest.mmbBuf.set(r, outBuf.array());
+		}
+	}
+
+	/**
+	 * Reduce a portion of an rgba pixel raster by a factor of 2 on each side
+	 * into another rgba raster. Each sample of a destination pixel is the mean
+	 * of the 2x2 block of pixels starting at (top+2*row, left+2*column).
+	 * Pixels that fall outside of this raster are ignored.
+	 * 
+	 * @param top
+	 *            the first row of the portion
+	 * @param left
+	 *            the first column of the portion
+	 * @param dest
+	 *            the destination raster
+	 */
+	public void reduceRGBA(int top, int left, Raster dest) {
+		if ((numBytes != 4) || (dest.numBytes != 4)) {
+			throw new IllegalArgumentException("Cannot reduce raster with " + numBytes + " bytes per pixel as RGBA.");
+		}
+		byte[] inArray0 = new byte[width * 4];
+		byte[] inArray1 = new byte[width * 4];
+		byte[] outArray = new byte[dest.width * 4];
+		for (int r = 0; r < dest.length; ++r) {
+			int r0 = top + 2 * r;
+			boolean has0 = (r0 < length);
+			boolean has1 = (r0 + 1 < length);
+			if (has0) {
+				mmbBuf.get(r0, inArray0);
+			}
+			if (has1) {
+				mmbBuf.get(r0 + 1, inArray1);
+			}
+			reduceRowRGBA(has0 ? inArray0 : null, has1 ? inArray1 : null, left, width, outArray, dest.width);
+			dest.mmbBuf.set(r, outArray);
+		}
+	}
+
+	/**
+	 * Reduce a pair of raster rows to a single row with half the resolution.
+	 * Each destination sample combines the 2x2 block of samples starting at
+	 * column left+2*column. Samples past the end of the rows are ignored, as
+	 * are NaN values.
+	 * 
+	 * @param dataType
+	 *            the sample data type
+	 * @param numBytes
+	 *            the bytes per sample
+	 * @param in0
+	 *            the first row, or null if there is none
+	 * @param in1
+	 *            the second row, or null if there is none
+	 * @param left
+	 *            the first column
+	 * @param inWidth
+	 *            the number of samples in an input row
+	 * @param out
+	 *            the destination row
+	 * @param outWidth
+	 *            the number of samples in the destination row
+	 * @param reduction
+	 *            how to combine the samples
+	 */
+	public static void reduceRow(DataType dataType, int numBytes, ByteBuffer in0, ByteBuffer in1, int left,
+		int inWidth, ByteBuffer out, int outWidth, Reduction reduction) {
+		double[] val = new double[4];
+		for (int c = 0; c < outWidth; ++c) {
+			int c0 = left + 2 * c;
+			int n = 0;
+			for (int j = c0; (j < c0 + 2) && (j < inWidth); ++j) {
+				if (in0 != null) {
+					val[n++] = getSample(dataType, numBytes, in0, j);
+				}
+				if (in1 != null) {
+					val[n++] = getSample(dataType, numBytes, in1, j);
+				}
+			}
+			putSample(dataType, numBytes, out, c, combine(val, n, reduction));
+		}
+	}
+
+	/**
+	 * Reduce a pair of rgba pixel rows to a single row with half the
+	 * resolution. Each sample of a destination pixel is the mean of the 2x2
+	 * block of pixels starting at column left+2*column. Pixels past the end of
+	 * the rows are ignored.
+	 * 
+	 * @param in0
+	 *            the first row, or null if there is none
+	 * @param in1
+	 *            the second row, or null if there is none
+	 * @param left
+	 *            the first column
+	 * @param inWidth
+	 *            the number of pixels in an input row
+	 * @param out
+	 *            the destination row
+	 * @param outWidth
+	 *            the number of pixels in the destination row
+	 */
+	public static void reduceRowRGBA(byte[] in0, byte[] in1, int left, int inWidth, byte[] out, int outWidth) {
+		int[] sum = new int[4];
+		for (int c = 0; c < outWidth; ++c) {
+			int c0 = left + 2 * c;
+			int n = 0;
+			Arrays.fill(sum, 0);
+			for (int j = c0; (j < c0 + 2) && (j < inWidth); ++j) {
+				if (in0 != null) {
+					for (int k = 0; k < 4; ++k) {
+						sum[k] += MathUtil.unsignedByte(in0[j * 4 + k]);
+					}
+					n++;
+				}
+				if (in1 != null) {
+					for (int k = 0; k < 4; ++k) {
+						sum[k] += MathUtil.unsignedByte(in1[j * 4 + k]);
+					}
+					n++;
+				}
+			}
+			for (int k = 0; k < 4; ++k) {
+				out[c * 4 + k] = (byte) ((n == 0) ? 0 : sum[k] / n);
+			}
+		}
+	}
+
+	/**
+	 * Combine samples, ignoring NaN values.
+	 * 
+	 * @param val
+	 * @param n
+	 *            number of samples in val
+	 * @param reduction
+	 * @return the combined value, NaN if there are no valid samples
+	 */
+	protected static double combine(double[] val, int n, Reduction reduction) {
+		double result = Double.NaN;
+		double sum = 0;
+		int count = 0;
+		for (int i = 0; i < n; ++i) {
+			double v = val[i];
+			if (Double.isNaN(v)) {
+				continue;
+			}
+			count++;
+			switch (reduction) {
+			case Mean:
+				sum += v;
+				break;
+			case Minimum:
+				result = (count == 1) ? v : Math.min(result, v);
+				break;
+			case Maximum:
+				result = (count == 1) ? v : Math.max(result, v);
+				break;
+			}
+		}
+		if ((reduction == Reduction.Mean) && (count > 0)) {
+			result = sum / count;
+		}
+		return (result);
+	}
+
+	/**
+	 * Get a sample from a buffer of raster samples.
+	 * 
+	 * @param dataType
+	 * @param numBytes
+	 * @param buf
+	 * @param i
+	 *            the sample index
+	 * @return the sample value
+	 */
+	protected static double getSample(DataType dataType, int numBytes, ByteBuffer buf, int i) {
+		switch (dataType) {
+		case Float:
+			return (buf.getFloat(i * numBytes));
+		case Integer:
+			return (buf.getInt(i * numBytes));
+		case UnsignedInteger:
+			return (MathUtil.unsignedInt(buf.getInt(i * numBytes)));
+		case Short:
+			return (buf.getShort(i * numBytes));
+		case UnsignedShort:
+			return (MathUtil.unsignedShort(buf.getShort(i * numBytes)));
+		case Byte:
+			return (buf.get(i * numBytes));
+		case UnsignedByte:
+			return (MathUtil.unsignedByte(buf.get(i * numBytes)));
+		case Double:
+			return (buf.getDouble(i * numBytes));
+		case Long:
+			return (buf.getLong(i * numBytes));
+		case Unknown:
+			break;
+		}
+		return (Double.NaN);
+	}
+
+	/**
+	 * Put a sample in a buffer of raster samples. For integer data types, NaN
+	 * is stored as 0.
+	 * 
+	 * @param dataType
+	 * @param numBytes
+	 * @param buf
+	 * @param i
+	 *            the sample index
+	 * @param val
+	 *            the sample value
+	 */
+	protected static void putSample(DataType dataType, int numBytes, ByteBuffer buf, int i, double val) {
+		switch (dataType) {
+		case Float:
+			buf.putFloat(i * numBytes, (float) val);
+			break;
+		case Integer:
+		case UnsignedInteger:
+			buf.putInt(i * numBytes, (int) Math.round(val));
+			break;
+		case Short:
+		case UnsignedShort:
+			buf.putShort(i * numBytes, (short) Math.round(val));
+			break;
+		case Byte:
+		case UnsignedByte:
+			buf.put(i * numBytes, (byte) Math.round(val));
+			break;
+		case Double:
+			buf.putDouble(i * numBytes, val);
+			break;
+		case Long:
+			buf.putLong(i * numBytes, Math.round(val));
+			break;
+		case Unknown:
+			break;
+		}
+	}
+
 	/**
 	 * Fill a portion of the raster with a byte array
 	 * 
@@ -349,6 +672,23 @@ public class Raster {
 		}
 	}
 
+	/**
+	 * Fill whole rows of the raster from a buffer, starting at the beginning
+	 * of the buffer. The samples are copied in bulk so they must already be
+	 * in the raster data type and big endian byte order.
+	 * 
+	 * @param row
+	 * @param hgt
+	 * @param bBuf
+	 */
+	public void set(int row, int hgt, ByteBuffer bBuf) {
+		bBuf.rewind();
+		for (int r = row; r < (row + hgt); ++r) {
+			mmbBuf.set(r, bBuf);
+		}
+		bBuf.rewind();
+	}
+
 	/**
 	 * Fill a portion of the raster with a buffer
 	 * 
@@ -400,6 +740,28 @@ public class Raster {
 	 */
 	public void setAsFloat(int top, int left, int wid, int hgt, ByteBuffer bBuf, DataType type, float scalingFactor,
 		double[] min, double[] max, float missing) {
+		setAsFloat(top, left, wid, hgt, bBuf, type, scalingFactor, min, max, missing, null);
+	}
+
+	/**
+	 * Fill a portion of the raster with floats from a buffer and add the
+	 * converted values to the given statistics.
+	 * 
+	 * @param top
+	 * @param left
+	 * @param wid
+	 * @param hgt
+	 * @param bBuf
+	 * @param type
+	 * @param scalingFactor
+	 * @param min
+	 * @param max
+	 * @param missing
+	 * @param statistics
+	 *            accumulates band 0 statistics, may be null
+	 */
+	public void setAsFloat(int top, int left, int wid, int hgt, ByteBuffer bBuf, DataType type, float scalingFactor,
+		double[] min, double[] max, float missing, RasterStatistics statistics) {
 		byte[] bArray = new byte[wid * 4 * hgt];
 		ByteBuffer rBuf = ByteBuffer.wrap(bArray);
 		rBuf.rewind();
@@ -521,6 +883,9 @@ public class Raster {
 		}
 		bBuf.rewind();
 		rBuf.rewind();
+		if (statistics != null) {
+			statistics.addFloat(rBuf, wid * hgt);
+		}
 		set(top, left, wid, hgt, bArray);
 	}
 
@@ -539,6 +904,27 @@ public class Raster {
 	 */
 	public void setAsGray(int top, int left, int wid, int hgt, ByteBuffer bBuf, DataType type, double[] min,
 		double[] max, float missing) {
+		setAsGray(top, left, wid, hgt, bBuf, type, min, max, missing, null);
+	}
+
+	/**
+	 * Fill a portion of the raster with gray scale values from a buffer and
+	 * add the gray scale values to the given statistics.
+	 * 
+	 * @param top
+	 * @param left
+	 * @param wid
+	 * @param hgt
+	 * @param bBuf
+	 * @param type
+	 * @param min
+	 * @param max
+	 * @param missing
+	 * @param statistics
+	 *            accumulates band 0 statistics, may be null
+	 */
+	public void setAsGray(int top, int left, int wid, int hgt, ByteBuffer bBuf, DataType type, double[] min,
+		double[] max, float missing, RasterStatistics statistics) {
 		double range = max[0] - min[0];
 //		System.err.println("Raster.setAsGray "+range+" "+type+" "+missing+" "+wid+" "+bBuf.limit());
 		byte[] bArray = new byte[bBuf.limit()];
@@ -670,6 +1056,9 @@ public class Raster {
 		}
 		bBuf.rewind();
 		rBuf.rewind();
+		if (statistics != null) {
+			statistics.addGray(bArray, wid * hgt);
+		}
 		set(top, left, wid, hgt, bArray);
 	}
 
@@ -860,33 +1249,47 @@ public class Raster {
 	 */
 	public void setMissingValuesToNaN(float missing, double[] minimum, double[] maximum) {
 
-		byte[] inArray = new byte[width * numBytes];
-		ByteBuffer inBuf = ByteBuffer.wrap(inArray);
-		inBuf.rewind();
-		byte[] outArray = new byte[width * numBytes];
-		ByteBuffer outBuf = ByteBuffer.wrap(outArray);
-		outBuf.rewind();
-
+		float[] fArray = new float[width];
 		for (int i = 0; i < length; ++i) {
-			mmbBuf.get(i, inArray);
-			inBuf.rewind();
+			long offset = getOffset(i, 0);
+			mmbBuf.getFloats(offset, fArray, 0, width);
 			for (int j = 0; j < width; ++j) {
-				float val = inBuf.getFloat(); // don't use getFloat(j) - gets
-												// every byte as a float
+				float val = fArray[j];
 				if (!Float.isNaN(missing) && (val == missing)) {
-					outBuf.putFloat(Float.NaN);
+					fArray[j] = Float.NaN;
 				} else if ((minimum != null) && (val < minimum[0])) {
-					outBuf.putFloat(Float.NaN);
+					fArray[j] = Float.NaN;
 				} else if ((maximum != null) && (val > maximum[0])) {
-					outBuf.putFloat(Float.NaN);
-				} else {
-					outBuf.putFloat(val);
-					// System.err.println("Raster.setMissingValuesToNaN "+val);
+					fArray[j] = Float.NaN;
 				}
 			}
-			inBuf.rewind();
-			outBuf.rewind();
-			mmbBuf.set(i, outArray);
+			mmbBuf.putFloats(offset, fArray, 0, width);
+		}
+	}
+
+	/**
+	 * Set the missing values in a row of float samples to NaN, along with
+	 * values outside of the given range.
+	 * 
+	 * @param bBuf
+	 *            the row
+	 * @param n
+	 *            the number of samples
+	 * @param missing
+	 * @param minimum
+	 * @param maximum
+	 */
+	public static void setMissingValuesToNaN(ByteBuffer bBuf, int n, float missing, double[] minimum,
+		double[] maximum) {
+		for (int j = 0; j < n; ++j) {
+			float val = bBuf.getFloat(j * 4);
+			if (!Float.isNaN(missing) && (val == missing)) {
+				bBuf.putFloat(j * 4, Float.NaN);
+			} else if ((minimum != null) && (val < minimum[0])) {
+				bBuf.putFloat(j * 4, Float.NaN);
+			} else if ((maximum != null) && (val > maximum[0])) {
+				bBuf.putFloat(j * 4, Float.NaN);
+			}
 		}
 	}
 
@@ -1003,6 +1406,17 @@ public class Raster {
 		mmbBuf.get(row, bArray);
 	}
 
+	/**
+	 * Get the byte offset of a sample in the memory mapped buffer.
+	 * 
+	 * @param row
+	 * @param column
+	 * @return the offset
+	 */
+	protected final long getOffset(int row, int column) {
+		return (((long) row * width + column) * numBytes);
+	}
+
 	/**
 	 * Compute the mean of an area in a raster array.
 	 * 
@@ -1012,73 +1426,70 @@ public class Raster {
 	 *            the start column
 	 * @param size
 	 *            the size of the area (width and height)
+	 * @param meanArray
+	 *            scratch array holding at least size samples
 	 * @return the mean value
 	 */
 
-	protected final float meanFloat(int i, int j, int size) {
+	protected final float meanFloat(int i, int j, int size, float[] meanArray) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
-			for (int c = j; c < (j + size); ++c) {
-				sum += meanBuf.getFloat();
+			mmbBuf.getFloats(getOffset(r, j), meanArray, 0, size);
+			for (int c = 0; c < size; ++c) {
+				sum += meanArray[c];
 			}
-			meanBuf.rewind();
 		}
 		return ((float) (sum / (size * size)));
 	}
 
-	protected final int meanInt(int i, int j, int size) {
+	protected final int meanInt(int i, int j, int size, int[] meanArray) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
-			for (int c = j; c < (j + size); ++c) {
-				sum += meanBuf.getInt();
+			mmbBuf.getInts(getOffset(r, j), meanArray, 0, size);
+			for (int c = 0; c < size; ++c) {
+				sum += meanArray[c];
 			}
-			meanBuf.rewind();
 		}
 		return ((int) Math.round(sum / (size * size)));
 	}
 
-	protected final long meanUnsignedInt(int i, int j, int size) {
+	protected final long meanUnsignedInt(int i, int j, int size, int[] meanArray) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
-			for (int c = j; c < (j + size); ++c) {
-				sum += MathUtil.unsignedInt(meanBuf.getInt());
+			mmbBuf.getInts(getOffset(r, j), meanArray, 0, size);
+			for (int c = 0; c < size; ++c) {
+				sum += MathUtil.unsignedInt(meanArray[c]);
 			}
-			meanBuf.rewind();
 		}
 		return (Math.round(sum / (size * size)));
 	}
 
-	protected final short meanShort(int i, int j, int size) {
+	protected final short meanShort(int i, int j, int size, short[] meanArray) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
-			for (int c = j; c < (j + size); ++c) {
-				sum += meanBuf.getShort();
+			mmbBuf.getShorts(getOffset(r, j), meanArray, 0, size);
+			for (int c = 0; c < size; ++c) {
+				sum += meanArray[c];
 			}
-			meanBuf.rewind();
 		}
 		return ((short) Math.round(sum / (size * size)));
 	}
 
-	protected final int meanUnsignedShort(int i, int j, int size) {
+	protected final int meanUnsignedShort(int i, int j, int size, short[] meanArray) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
-			for (int c = j; c < (j + size); ++c) {
-				sum += MathUtil.unsignedShort(meanBuf.getShort());
+			mmbBuf.getShorts(getOffset(r, j), meanArray, 0, size);
+			for (int c = 0; c < size; ++c) {
+				sum += MathUtil.unsignedShort(meanArray[c]);
 			}
-			meanBuf.rewind();
 		}
 		return ((int) Math.round(sum / (size * size)));
 	}
 
-	protected final byte meanByte(int i, int j, int size) {
+	protected final byte meanByte(int i, int j, int size, ByteBuffer meanBuf) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
+			mmbBuf.get(r, j * numBytes, size * numBytes, meanBuf.array());
 			for (int c = j; c < (j + size); ++c) {
 				sum += meanBuf.get();
 			}
@@ -1087,10 +1498,10 @@ public class Raster {
 		return ((byte) Math.round(sum / (size * size)));
 	}
 
-	protected final int meanUnsignedByte(int i, int j, int size) {
+	protected final int meanUnsignedByte(int i, int j, int size, ByteBuffer meanBuf) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
+			mmbBuf.get(r, j * numBytes, size * numBytes, meanBuf.array());
 			for (int c = j; c < (j + size); ++c) {
 				sum += MathUtil.unsignedByte(meanBuf.get());
 			}
@@ -1099,10 +1510,10 @@ public class Raster {
 		return ((int) Math.round(sum / (size * size)));
 	}
 
-	protected final double meanDouble(int i, int j, int size) {
+	protected final double meanDouble(int i, int j, int size, ByteBuffer meanBuf) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
+			mmbBuf.get(r, j * numBytes, size * numBytes, meanBuf.array());
 			for (int c = j; c < (j + size); ++c) {
 				sum += meanBuf.getDouble();
 			}
@@ -1111,10 +1522,10 @@ public class Raster {
 		return (sum / (size * size));
 	}
 
-	protected final long meanLong(int i, int j, int size) {
+	protected final long meanLong(int i, int j, int size, ByteBuffer meanBuf) {
 		double sum = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
+			mmbBuf.get(r, j * numBytes, size * numBytes, meanBuf.array());
 			for (int c = j; c < (j + size); ++c) {
 				sum += meanBuf.getInt();
 			}
@@ -1132,15 +1543,18 @@ public class Raster {
 	 *            the start column
 	 * @param size
 	 *            the section size (width and height)
+	 * @param meanBuf
+	 *            scratch buffer holding at least size pixels
 	 * @return the mean value for each sample packed in an int
 	 */
-	protected final int meanRGBA(int i, int j, int size) {
+	protected final int meanRGBA(int i, int j, int size, ByteBuffer meanBuf) {
 		int red = 0;
 		int gre = 0;
 		int blu = 0;
 		int alp = 0;
 		for (int r = i; r < (i + size); ++r) {
-			mmbBuf.get(r, j * numBytes, size * numBytes, meanArray);
+			mmbBuf.get(r, j * numBytes, size * numBytes, meanBuf.array());
+			byte[] meanArray = meanBuf.array();
 			for (int c = 0; c < size * 4; c += 4) {
 				red += MathUtil.unsignedByte(meanArray[c]);
 				gre += MathUtil.unsignedByte(meanArray[c + 1]);
@@ -182,6 +182,13 @@ public interface RasterFile {
 	 */
 	public double[] getMaximumSampleValue();
 
+	/**
+	 * Get the statistics gathered during the last load.
+	 * 
+	 * @return the statistics or null if the file has not been loaded
+	 */
+	public RasterStatistics getStatistics();
+
 	/**
 	 * Get the value that represents no data.
 	 * 
@@ -232,4 +239,53 @@ public interface RasterFile {
 	 */
 	public void loadGray(Raster raster) throws IOException;
 
+	/**
+	 * Get the number of rows in a band for the band load methods. This is the
+	 * height of a strip or tile in the file so no strip or tile is read for
+	 * more than one band.
+	 * 
+	 * @return the number of rows
+	 */
+	public int getBandLength();
+
+	/**
+	 * Load a band of rows from the raster file into a float array, converting
+	 * data as load does. Bands must be loaded in order starting at row 0. The
+	 * extrema and statistics are complete once the last band is loaded.
+	 * 
+	 * @param raster
+	 *            a raster as wide as the file, its length is the number of
+	 *            rows to load and must be a multiple of the band length
+	 * @param top
+	 *            the first row of the band, a multiple of the band length
+	 */
+	public void loadBand(Raster raster, int top) throws IOException;
+
+	/**
+	 * Load a band of rows from the raster file as an RGBA image.
+	 * 
+	 * @param raster
+	 * @param top
+	 * @see #loadBand(Raster, int)
+	 */
+	public void loadBandRGBA(Raster raster, int top) throws IOException;
+
+	/**
+	 * Load a band of rows from the raster file as height map.
+	 * 
+	 * @param raster
+	 * @param top
+	 * @see #loadBand(Raster, int)
+	 */
+	public void loadBandHeightMap(Raster raster, int top) throws IOException;
+
+	/**
+	 * Load a band of rows from the raster file as unsigned byte gray scale.
+	 * 
+	 * @param raster
+	 * @param top
+	 * @see #loadBand(Raster, int)
+	 */
+	public void loadBandGray(Raster raster, int top) throws IOException;
+
 }
@@ -149,6 +149,15 @@ public abstract class RasterFileImpl implements RasterFile {
 	
 	protected float scalingFactor = 1f;
 
+	// Statistics gathered while loading
+	protected RasterStatistics statistics;
+
+	// Range that accepts every value when the extrema are not known ahead of loading
+	protected static final double[] ANY_MINIMUM = { -Double.MAX_VALUE }, ANY_MAXIMUM = { Double.MAX_VALUE };
+
+	// Whether the extrema are being gathered while loading bands
+	protected boolean findBandMinMax;
+
 	/**
 	 * Constructor.
 	 * 
@@ -275,6 +284,35 @@ public abstract class RasterFileImpl implements RasterFile {
 		return (max);
 	}
 
+	/**
+	 * Get the statistics gathered during the last load.
+	 * 
+	 * @return the statistics or null if the file has not been loaded
+	 */
+	@Override
+	public RasterStatistics getStatistics() {
+		return (statistics);
+	}
+
+	/**
+	 * Set the extrema from the band 0 statistics of a float load. The
+	 * statistics are scaled so they are converted back to file units.
+	 */
+	protected void setMinMaxFromStatistics() {
+		minimum = new double[samplesPerPixel];
+		maximum = new double[samplesPerPixel];
+		if (statistics.getCount(0) == 0) {
+			Arrays.fill(minimum, Double.MAX_VALUE);
+			Arrays.fill(maximum, -Double.MAX_VALUE);
+			return;
+		}
+		double min = statistics.getMinimum(0) / scalingFactor;
+		double max = statistics.getMaximum(0) / scalingFactor;
+		// widen by an ulp so rescaling doesn't exclude the extreme samples
+		Arrays.fill(minimum, Math.nextAfter(Math.min(min, max), Double.NEGATIVE_INFINITY));
+		Arrays.fill(maximum, Math.nextAfter(Math.max(min, max), Double.POSITIVE_INFINITY));
+	}
+
 	/**
 	 * Get the type of the raster data.
 	 * 
@@ -329,6 +367,65 @@ public abstract class RasterFileImpl implements RasterFile {
 	@Override
 	public abstract void loadRGBA(Raster raster) throws IOException;
 
+	/**
+	 * Get the number of rows to load from a band raster and check that the
+	 * band starts on a band boundary.
+	 * 
+	 * @param raster
+	 * @param top
+	 * @return the number of rows in the band that are in the file
+	 */
+	protected int getBandRows(Raster raster, int top) {
+		int bandLength = getBandLength();
+		if ((top < 0) || (top >= rasterLength) || ((top % bandLength) != 0)
+			|| ((raster.getLength() % bandLength) != 0)) {
+			throw new IllegalArgumentException("Band at row " + top + " with " + raster.getLength()
+				+ " rows is not aligned with the " + bandLength + " row bands of " + filePath + ".");
+		}
+		return (Math.min(raster.getLength(), rasterLength - top));
+	}
+
+	/**
+	 * Start a float band load at the first band. The extrema are gathered with
+	 * the other statistics if the file does not give them.
+	 * 
+	 * @param top
+	 */
+	protected void startFloatBand(int top) {
+		if (top > 0) {
+			return;
+		}
+		statistics = new RasterStatistics(1);
+		findBandMinMax = (minimum == null) || (maximum == null);
+		if (findBandMinMax) {
+			minimum = ANY_MINIMUM.clone();
+			maximum = ANY_MAXIMUM.clone();
+		}
+	}
+
+	/**
+	 * Finish a float band load after the last band.
+	 * 
+	 * @param top
+	 * @param rows
+	 */
+	protected void endFloatBand(int top, int rows) {
+		if (((top + rows) == rasterLength) && findBandMinMax) {
+			setMinMaxFromStatistics();
+		}
+	}
+
+	/**
+	 * Load a band of rows as height map. The default is to load it as float.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandHeightMap(Raster raster, int top) throws IOException {
+		loadBand(raster, top);
+	}
+
 	protected void computeMinMax(ByteBuffer bBuf) {
 		int len = bBuf.limit();
 		switch (dataType) {
@@ -0,0 +1,620 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+
+package gov.nasa.arc.dert.raster;
+
+import gov.nasa.arc.dert.util.StringUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Accumulates the minimum, maximum, mean, NaN count, and a histogram for each
+ * band of a raster while it is loaded. Statistics for separate strips or tiles
+ * may be gathered independently on separate threads and merged afterward.
+ * 
+ * The histogram has a fixed number of bins whose width is a power of 2
+ * anchored at 0. When a value falls outside of the span of the bins, the bins
+ * are combined in pairs until it fits. This allows the histogram to be
+ * accumulated in a single pass with no prior knowledge of the data range.
+ * Instances are not thread safe.
+ *
+ */
+public class RasterStatistics {
+
+	// Number of histogram bins
+	public static final int NUM_BINS = 256;
+
+	// Smallest bin width exponent
+	protected static final int MIN_EXPONENT = -32;
+
+	// Statistics for each band
+	protected Band[] band;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param numBands
+	 */
+	public RasterStatistics(int numBands) {
+		band = new Band[numBands];
+		for (int i = 0; i < numBands; ++i) {
+			band[i] = new Band();
+		}
+	}
+
+	/**
+	 * Get the number of bands.
+	 * 
+	 * @return
+	 */
+	public int getNumberOfBands() {
+		return (band.length);
+	}
+
+	/**
+	 * Add a value to a band. NaN and infinite values are counted as missing.
+	 * 
+	 * @param b
+	 *            the band
+	 * @param value
+	 */
+	public final void add(int b, double value) {
+		band[b].add(value);
+	}
+
+	/**
+	 * Add float samples to band 0.
+	 * 
+	 * @param bBuf
+	 *            the samples
+	 * @param n
+	 *            number of samples
+	 */
+	public void addFloat(ByteBuffer bBuf, int n) {
+		Band b0 = band[0];
+		for (int i = 0; i < n; ++i) {
+			b0.add(bBuf.getFloat(i * 4));
+		}
+	}
+
+	/**
+	 * Add gray scale samples to band 0. A value of 0 is counted as missing.
+	 * 
+	 * @param bArray
+	 *            the samples
+	 * @param n
+	 *            number of samples
+	 */
+	public void addGray(byte[] bArray, int n) {
+		Band b0 = band[0];
+		for (int i = 0; i < n; ++i) {
+			int val = bArray[i] & 0xff;
+			if (val == 0) {
+				b0.nanCount++;
+			} else {
+				b0.add(val);
+			}
+		}
+	}
+
+	/**
+	 * Add RGBA pixels to bands 0 through 3.
+	 * 
+	 * @param bArray
+	 *            the pixels
+	 * @param n
+	 *            number of pixels
+	 */
+	public void addRGBA(byte[] bArray, int n) {
+		for (int i = 0; i < n; ++i) {
+			int k = i * 4;
+			for (int j = 0; j < 4; ++j) {
+				band[j].add(bArray[k + j] & 0xff);
+			}
+		}
+	}
+
+	/**
+	 * Merge statistics gathered elsewhere into these.
+	 * 
+	 * @param that
+	 */
+	public void add(RasterStatistics that) {
+		for (int i = 0; i < band.length; ++i) {
+			band[i].add(that.band[i]);
+		}
+	}
+
+	/**
+	 * Get the minimum value of a band.
+	 * 
+	 * @param b
+	 * @return the minimum or NaN if the band has no values
+	 */
+	public double getMinimum(int b) {
+		return (band[b].count == 0 ? Double.NaN : band[b].minimum);
+	}
+
+	/**
+	 * Get the maximum value of a band.
+	 * 
+	 * @param b
+	 * @return the maximum or NaN if the band has no values
+	 */
+	public double getMaximum(int b) {
+		return (band[b].count == 0 ? Double.NaN : band[b].maximum);
+	}
+
+	/**
+	 * Get the mean value of a band.
+	 * 
+	 * @param b
+	 * @return the mean or NaN if the band has no values
+	 */
+	public double getMean(int b) {
+		return (band[b].count == 0 ? Double.NaN : band[b].sum / band[b].count);
+	}
+
+	/**
+	 * Get the number of values in a band, not including NaNs.
+	 * 
+	 * @param b
+	 * @return
+	 */
+	public long getCount(int b) {
+		return (band[b].count);
+	}
+
+	/**
+	 * Get the number of NaN or missing values in a band.
+	 * 
+	 * @param b
+	 * @return
+	 */
+	public long getNaNCount(int b) {
+		return (band[b].nanCount);
+	}
+
+	/**
+	 * Get the histogram bin width of a band.
+	 * 
+	 * @param b
+	 * @return
+	 */
+	public double getHistogramBinWidth(int b) {
+		return (Math.scalb(1.0, band[b].exponent));
+	}
+
+	/**
+	 * Get the lower edge of the first histogram bin of a band.
+	 * 
+	 * @param b
+	 * @return
+	 */
+	public double getHistogramStart(int b) {
+		return (Math.scalb((double) band[b].origin, band[b].exponent));
+	}
+
+	/**
+	 * Get the histogram counts of a band.
+	 * 
+	 * @param b
+	 * @return a copy of the NUM_BINS counts
+	 */
+	public long[] getHistogram(int b) {
+		return (Arrays.copyOf(band[b].bin, NUM_BINS));
+	}
+
+	/**
+	 * Get the value below which the given percentage of a band lies. The
+	 * value is interpolated within the histogram bin.
+	 * 
+	 * @param b
+	 * @param percent
+	 *            between 0 and 100
+	 * @return the value or NaN if the band has no values
+	 */
+	public double getPercentile(int b, double percent) {
+		Band bnd = band[b];
+		if (bnd.count == 0) {
+			return (Double.NaN);
+		}
+		double target = Math.max(0, Math.min(100, percent)) * bnd.count / 100.0;
+		double width = getHistogramBinWidth(b);
+		double start = getHistogramStart(b);
+		long sum = 0;
+		for (int i = 0; i < NUM_BINS; ++i) {
+			if ((bnd.bin[i] > 0) && (sum + bnd.bin[i] >= target)) {
+				double value = start + width * (i + (target - sum) / bnd.bin[i]);
+				return (Math.max(bnd.minimum, Math.min(bnd.maximum, value)));
+			}
+			sum += bnd.bin[i];
+		}
+		return (bnd.maximum);
+	}
+
+	/**
+	 * Save these statistics to a properties object.
+	 * 
+	 * @param properties
+	 */
+	public void saveToProperties(Properties properties) {
+		int n = band.length;
+		double[] min = new double[n];
+		double[] max = new double[n];
+		double[] mean = new double[n];
+		double[] width = new double[n];
+		double[] start = new double[n];
+		StringBuilder count = new StringBuilder();
+		StringBuilder nanCount = new StringBuilder();
+		for (int i = 0; i < n; ++i) {
+			min[i] = getMinimum(i);
+			max[i] = getMaximum(i);
+			mean[i] = getMean(i);
+			width[i] = getHistogramBinWidth(i);
+			start[i] = getHistogramStart(i);
+			if (i > 0) {
+				count.append(",");
+				nanCount.append(",");
+			}
+			count.append(band[i].count);
+			nanCount.append(band[i].nanCount);
+			properties.setProperty("Histogram" + i, longArrayToString(band[i].bin));
+		}
+		properties.setProperty("StatisticsBands", Integer.toString(n));
+		properties.setProperty("StatisticsMinimum", StringUtil.doubleArrayToString(min));
+		properties.setProperty("StatisticsMaximum", StringUtil.doubleArrayToString(max));
+		properties.setProperty("StatisticsMean", StringUtil.doubleArrayToString(mean));
+		properties.setProperty("StatisticsCount", count.toString());
+		properties.setProperty("StatisticsNaNCount", nanCount.toString());
+		properties.setProperty("HistogramBinWidth", StringUtil.doubleArrayToString(width));
+		properties.setProperty("HistogramStart", StringUtil.doubleArrayToString(start));
+	}
+
+	/**
+	 * Create a statistics object from properties.
+	 * 
+	 * @param properties
+	 * @return the statistics or null if the properties have none
+	 */
+	public static RasterStatistics createFromProperties(Properties properties) {
+		String str = properties.getProperty("StatisticsBands");
+		if (str == null) {
+			return (null);
+		}
+		try {
+			int n = Integer.parseInt(str.trim());
+			double[] min = StringUtil.getDoubleArray(properties, "StatisticsMinimum", null, true);
+			double[] max = StringUtil.getDoubleArray(properties, "StatisticsMaximum", null, true);
+			double[] mean = StringUtil.getDoubleArray(properties, "StatisticsMean", null, true);
+			long[] count = stringToLongArray(properties.getProperty("StatisticsCount"));
+			long[] nanCount = stringToLongArray(properties.getProperty("StatisticsNaNCount"));
+			double[] width = StringUtil.getDoubleArray(properties, "HistogramBinWidth", null, true);
+			double[] start = StringUtil.getDoubleArray(properties, "HistogramStart", null, true);
+			RasterStatistics statistics = new RasterStatistics(n);
+			for (int i = 0; i < n; ++i) {
+				Band b = statistics.band[i];
+				long[] bin = stringToLongArray(properties.getProperty("Histogram" + i));
+				if (bin.length != NUM_BINS) {
+					throw new IllegalArgumentException("Histogram" + i + " does not have " + NUM_BINS + " bins.");
+				}
+				b.count = count[i];
+				b.nanCount = nanCount[i];
+				if (b.count > 0) {
+					b.minimum = min[i];
+					b.maximum = max[i];
+					b.sum = mean[i] * b.count;
+				}
+				b.exponent = Math.getExponent(width[i]);
+				b.origin = Math.round(Math.scalb(start[i], -b.exponent));
+				b.bin = bin;
+				b.hi = b.origin;
+				for (int j = 0; j < NUM_BINS; ++j) {
+					if (bin[j] > 0) {
+						b.hi = b.origin + j;
+					}
+				}
+			}
+			return (statistics);
+		} catch (Exception e) {
+			System.out.println("Unable to read raster statistics, see log.");
+			e.printStackTrace();
+			return (null);
+		}
+	}
+
+	private static String longArrayToString(long[] value) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(value[0]);
+		for (int i = 1; i < value.length; ++i) {
+			sb.append("," + value[i]);
+		}
+		return (sb.toString());
+	}
+
+	private static long[] stringToLongArray(String str) {
+		String[] token = str.split(",");
+		long[] value = new long[token.length];
+		for (int i = 0; i < value.length; ++i) {
+			value[i] = Long.parseLong(token[i].trim());
+		}
+		return (value);
+	}
+
+	/**
+	 * Statistics for a single band.
+	 */
+	protected static class Band {
+
+		// Extrema
+		protected double minimum = Double.MAX_VALUE, maximum = -Double.MAX_VALUE;
+
+		// Sum of values and running compensation for lost low order bits
+		protected double sum, compensation;
+
+		// Number of values and NaNs
+		protected long count, nanCount;
+
+		// Histogram bins, bin i covers [(origin+i)*2^exponent, (origin+i+1)*2^exponent)
+		protected long[] bin = new long[NUM_BINS];
+		protected int exponent;
+		protected long origin;
+
+		// Index of the highest non-empty bin, in units of the bin width
+		protected long hi;
+
+		/**
+		 * Add a value.
+		 * 
+		 * @param value
+		 */
+		protected final void add(double value) {
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				nanCount++;
+				return;
+			}
+			if (value < minimum) {
+				minimum = value;
+			}
+			if (value > maximum) {
+				maximum = value;
+			}
+			addToSum(value);
+			if (count == 0) {
+				exponent = Math.max(MIN_EXPONENT, Math.getExponent(value) - 8);
+				origin = (long) Math.floor(Math.scalb(value, -exponent));
+				hi = origin;
+			}
+			count++;
+			// binIndex may replace the bin array
+			int i = binIndex(value);
+			bin[i]++;
+		}
+
+		/**
+		 * Merge another band into this one.
+		 * 
+		 * @param that
+		 */
+		protected void add(Band that) {
+			nanCount += that.nanCount;
+			if (that.count == 0) {
+				return;
+			}
+			if (count == 0) {
+				exponent = that.exponent;
+				origin = that.origin;
+				hi = that.hi;
+			}
+			minimum = Math.min(minimum, that.minimum);
+			maximum = Math.max(maximum, that.maximum);
+			addToSum(that.sum);
+			addToSum(-that.compensation);
+			count += that.count;
+			while (exponent < that.exponent) {
+				coarsen();
+			}
+			// widen until both ends of the other bins fit, fitting one end
+			// may coarsen the bins
+			int e;
+			do {
+				e = exponent;
+				fit(shiftRight(that.origin, exponent - that.exponent));
+				fit(shiftRight(that.hi, exponent - that.exponent));
+			} while (exponent != e);
+			// merge the other bins at our (possibly coarser) bin width
+			int shift = exponent - that.exponent;
+			for (int i = 0; i < NUM_BINS; ++i) {
+				if (that.bin[i] > 0) {
+					bin[(int) (shiftRight(that.origin + i, shift) - origin)] += that.bin[i];
+				}
+			}
+		}
+
+		/**
+		 * Add to the sum using Kahan summation.
+		 * 
+		 * @param value
+		 */
+		private void addToSum(double value) {
+			double y = value - compensation;
+			double t = sum + y;
+			compensation = (t - sum) - y;
+			sum = t;
+		}
+
+		/**
+		 * Get the index of the bin for a value, widening the bins as needed.
+		 * 
+		 * @param value
+		 * @return
+		 */
+		private int binIndex(double value) {
+			double d = Math.floor(Math.scalb(value, -exponent));
+			// keep the index in long range before fitting it
+			while ((Math.max(d, hi) - Math.min(d, origin)) >= NUM_BINS) {
+				coarsen();
+				d = Math.floor(Math.scalb(value, -exponent));
+			}
+			long index = (long) d;
+			fit(index);
+			return ((int) (index - origin));
+		}
+
+		/**
+		 * Widen the bins, if necessary, and move the origin so an index in
+		 * units of the bin width falls within the histogram.
+		 * 
+		 * @param index
+		 */
+		private void fit(long index) {
+			while (((double) Math.max(index, hi) - (double) Math.min(index, origin)) >= NUM_BINS) {
+				coarsen();
+				index >>= 1;
+			}
+			if (index < origin) {
+				int shift = (int) (origin - index);
+				System.arraycopy(bin, 0, bin, shift, NUM_BINS - shift);
+				Arrays.fill(bin, 0, shift, 0);
+				origin = index;
+			}
+			if (index > hi) {
+				hi = index;
+			}
+		}
+
+		/**
+		 * Divide by a power of 2, rounding toward negative infinity. Java only
+		 * uses the low 6 bits of a long shift distance.
+		 * 
+		 * @param value
+		 * @param shift
+		 * @return
+		 */
+		private static long shiftRight(long value, int shift) {
+			if (shift >= 63) {
+				return (value < 0 ? -1 : 0);
+			}
+			return (value >> shift);
+		}
+
+		/**
+		 * Double the bin width, combining bins in pairs.
+		 */
+		private void coarsen() {
+			long newOrigin = origin >> 1;
+			long[] newBin = new long[NUM_BINS];
+			for (int i = 0; i < NUM_BINS; ++i) {
+				if (bin[i] > 0) {
+					newBin[(int) (((origin + i) >> 1) - newOrigin)] += bin[i];
+				}
+			}
+			bin = newBin;
+			origin = newOrigin;
+			hi >>= 1;
+			exponent++;
+		}
+	}
+
+}
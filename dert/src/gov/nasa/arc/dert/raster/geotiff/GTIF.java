@@ -105,6 +105,7 @@ import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
 import gov.nasa.arc.dert.landscape.srs.ProjectionInfo;
 import gov.nasa.arc.dert.raster.Raster;
 import gov.nasa.arc.dert.raster.RasterFileImpl;
+import gov.nasa.arc.dert.raster.RasterStatistics;
 import gov.nasa.arc.dert.raster.geotiff.GeoKey.KeyID;
 import gov.nasa.arc.dert.util.ImageUtil;
 
@@ -403,16 +404,24 @@ public class GTIF extends RasterFileImpl {
 	 */
 	protected native String getTIFFError();
 
+	// The native library has been loaded
+	private static boolean libraryLoaded;
+
 	/**
-	 * Load native library.
+	 * Load native library the first time a file is opened.
 	 */
-
-	static {
-		String os = System.getProperty("os.name").toLowerCase();
-		if (os.contains("mac")) {
-			loadNativeLibrary("/libgeo.jnilib");
-		} else if (os.contains("lin")) {
-			loadNativeLibrary("/libgeo.so");
+	protected void loadLibrary() {
+		synchronized (GTIF.class) {
+			if (libraryLoaded) {
+				return;
+			}
+			libraryLoaded = true;
+			String os = System.getProperty("os.name").toLowerCase();
+			if (os.contains("mac")) {
+				loadNativeLibrary("/libgeo.jnilib");
+			} else if (os.contains("lin")) {
+				loadNativeLibrary("/libgeo.so");
+			}
 		}
 	}
 
@@ -457,6 +466,7 @@ public class GTIF extends RasterFileImpl {
 	 */
 	@Override
 	public boolean open(String access) {
+		loadLibrary();
 		handle = openTIFF(filePath, access);
 		if (handle == 0) {
 			String str = getTIFFError();
@@ -1157,6 +1167,30 @@ public class GTIF extends RasterFileImpl {
 		return (rowsPerStrip);
 	}
 
+	/**
+	 * Get the number of tiles in a row of tiles.
+	 * 
+	 * @return the number of tiles
+	 */
+	public int getTilesAcross() {
+		return ((rasterWidth + tileWidth - 1) / tileWidth);
+	}
+
+	/**
+	 * Get the number of rows in a band, the tile length or rows per strip.
+	 * 
+	 * @return the number of rows
+	 */
+	@Override
+	public int getBandLength() {
+		int rows = isTiled() ? getTileLength() : getRowsPerStrip();
+		if ((rows <= 0) || (rows > rasterLength)) {
+			// the whole image is one strip
+			rows = rasterLength;
+		}
+		return (rows);
+	}
+
 	/**
 	 * Is the GeoTIFF tiled?
 	 * 
@@ -1424,6 +1458,14 @@ public class GTIF extends RasterFileImpl {
 	@Override
 	public void load(Raster raster) {
 
+		// The extrema are gathered with the other statistics while loading
+		statistics = new RasterStatistics(1);
+		boolean findMinMax = (minimum == null) || (maximum == null);
+		if (findMinMax) {
+			minimum = ANY_MINIMUM.clone();
+			maximum = ANY_MAXIMUM.clone();
+		}
+
 		// TIFF is organized in tiles.
 		if (isTiled()) {
 			int n = getTileCount();
@@ -1439,10 +1481,6 @@ public class GTIF extends RasterFileImpl {
 					+ Integer.MAX_VALUE + ".");
 			}
 
-			if ((minimum == null) || (maximum == null)) {
-				computeMinMaxFromTile(dataType, n, (int) s);
-			}
-
 			loadFromTile(dataType, n, (int) s, w, h, raster, false);
 		}
 
@@ -1461,12 +1499,12 @@ public class GTIF extends RasterFileImpl {
 					+ Integer.MAX_VALUE + ".");
 			}
 
-			if ((minimum == null) || (maximum == null)) {
-				computeMinMaxFromStrip(dataType, n, (int) s);
-			}
-
 			loadFromStrip(dataType, n, (int) s, w, raster, false);
 		}
+
+		if (findMinMax) {
+			setMinMaxFromStatistics();
+		}
 	}
 
 	/**
@@ -1529,6 +1567,8 @@ public class GTIF extends RasterFileImpl {
 	@Override
 	public void loadRGBA(Raster raster) {
 
+		statistics = new RasterStatistics(4);
+
 		// TIFF is organized in tiles.
 		if (isTiled()) {
 			int n = getTileCount();
@@ -1584,31 +1624,7 @@ public class GTIF extends RasterFileImpl {
 				throw new IllegalArgumentException("Cannot load TIFF file with strip size > " + Integer.MAX_VALUE + ".");
 			}
 
-			// Allocate memory
-			ByteBuffer bbuf = ByteBuffer.allocateDirect(s);
-			bbuf.order(byteOrder);
-			byte[] bArray = new byte[s];
-			// ByteBuffer bbuf = ByteBuffer.wrap(bArray);
-			bbuf.rewind();
-
-			// Read each strip and place it in the full size raster.
-			int r = 0; // row pixel of upper left corner of strip
-			for (int i = 0; i < n; ++i) {
-				boolean success = readRGBAStrip(handle, r, bbuf);
-				if (!success) {
-					throw new IllegalStateException(getTIFFError());
-				}
-				bbuf.rewind();
-				// libtiff doesn't flip the RGBA image (only RGB) so we need to
-				if (samplesPerPixel == 4)
-					ImageUtil.doFlip(bbuf, rasterWidth*4, h);
-				bbuf.get(bArray);
-				int hgt = Math.min(h, rasterLength - r);
-				// raster.set(r, rasterWidth, hgt, bbuf);
-				raster.set(r, hgt, bArray);
-				r += h;
-				Thread.yield();
-			}
+			loadRGBAFromStrip(0, n, 0, s, raster);
 		}
 
 		if (minimum == null) {
@@ -1628,6 +1644,9 @@ public class GTIF extends RasterFileImpl {
 	@Override
 	public void loadGray(Raster raster) {
 
+		// The gray scale conversion needs the extrema before loading
+		statistics = new RasterStatistics(1);
+
 		// TIFF is organized in tiles.
 		if (isTiled()) {
 			int n = getTileCount();
@@ -1675,6 +1694,176 @@ public class GTIF extends RasterFileImpl {
 		maximum = new double[] { 255 };
 	}
 
+	/**
+	 * Load a band of rows into a raster.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBand(Raster raster, int top) {
+		int rows = getBandRows(raster, top);
+		startFloatBand(top);
+
+		// TIFF is organized in tiles.
+		if (isTiled()) {
+			int w = getTileWidth() * samplesPerPixel; // true scanline width
+			int h = getTileLength();
+			long s = getTileSize(); // size of tile in bytes
+			if (s > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Cannot load floating point TIFF file with tile size > "
+					+ Integer.MAX_VALUE + ".");
+			}
+			int across = getTilesAcross();
+			loadFromTile(dataType, (top / h) * across, ((rows + h - 1) / h) * across, top, (int) s, w, h, raster,
+				false);
+		}
+
+		// TIFF is organized in strips.
+		else {
+			int w = rasterWidth * samplesPerPixel; // true scanline width
+			long s = getStripSize(); // size of strip in bytes
+			if (s > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Cannot load floating point TIFF file with strip size > "
+					+ Integer.MAX_VALUE + ".");
+			}
+			int h = getBandLength();
+			loadFromStrip(dataType, top / h, (rows + h - 1) / h, top, (int) s, w, raster, false);
+		}
+
+		endFloatBand(top, rows);
+	}
+
+	/**
+	 * Load a band of rows into a raster of RGBA pixels.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandRGBA(Raster raster, int top) {
+		int rows = getBandRows(raster, top);
+		if (top == 0) {
+			statistics = new RasterStatistics(4);
+		}
+
+		// TIFF is organized in tiles.
+		if (isTiled()) {
+			int h = getTileLength();
+			long s = getTileSize(); // size of tile in bytes
+			if (s > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Cannot load TIFF file with tile size > " + Integer.MAX_VALUE + ".");
+			}
+			int across = getTilesAcross();
+			loadFromTile((top / h) * across, ((rows + h - 1) / h) * across, top, (int) s, getTileWidth(), h, raster);
+		}
+
+		// TIFF is organized in strips.
+		else {
+			int h = getBandLength();
+			loadRGBAFromStrip(top / h, (rows + h - 1) / h, top, rasterWidth * h * 4, raster);
+		}
+
+		if ((top + rows) == rasterLength) {
+			if (minimum == null) {
+				minimum = new double[] { 0, 0, 0, 1 };
+			}
+			if (maximum == null) {
+				maximum = new double[] { 255, 255, 255, 255 };
+			}
+		}
+	}
+
+	/**
+	 * Load a band of rows into a raster of unsigned byte.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandGray(Raster raster, int top) {
+		int rows = getBandRows(raster, top);
+
+		// The gray scale conversion needs the extrema before loading
+		if (top == 0) {
+			statistics = new RasterStatistics(1);
+			if ((minimum == null) || (maximum == null)) {
+				if (isTiled()) {
+					computeMinMaxFromTile(dataType, getTileCount(), (int) getTileSize());
+				} else {
+					computeMinMaxFromStrip(dataType, getStripCount(), (int) getStripSize());
+				}
+			}
+		}
+
+		// TIFF is organized in tiles.
+		if (isTiled()) {
+			int w = getTileWidth() * samplesPerPixel; // true scanline width
+			int h = getTileLength();
+			int across = getTilesAcross();
+			loadFromTile(dataType, (top / h) * across, ((rows + h - 1) / h) * across, top, (int) getTileSize(), w,
+				h, raster, true);
+		}
+
+		// TIFF is organized in strips.
+		else {
+			int w = rasterWidth * samplesPerPixel; // true scanline width
+			int h = getBandLength();
+			loadFromStrip(dataType, top / h, (rows + h - 1) / h, top, (int) getStripSize(), w, raster, true);
+		}
+
+		if ((top + rows) == rasterLength) {
+			minimum = new double[] { 1 };
+			maximum = new double[] { 255 };
+		}
+	}
+
+	/**
+	 * Load a range of strips as RGBA pixels into a raster that starts at a
+	 * given row of the file.
+	 * 
+	 * @param first
+	 *            the first strip
+	 * @param n
+	 *            the number of strips
+	 * @param top
+	 *            the file row of the first raster row
+	 * @param size
+	 *            the size of an RGBA strip
+	 * @param raster
+	 *            the raster
+	 */
+	protected final void loadRGBAFromStrip(int first, int n, int top, int size, Raster raster) {
+		int h = getBandLength(); // number of rows in a strip
+
+		// Allocate memory
+		ByteBuffer bbuf = ByteBuffer.allocateDirect(size);
+		bbuf.order(byteOrder);
+		byte[] bArray = new byte[size];
+		// ByteBuffer bbuf = ByteBuffer.wrap(bArray);
+		bbuf.rewind();
+
+		// Read each strip and place it in the raster.
+		int r = first * h; // row pixel of upper left corner of strip
+		for (int i = first; i < (first + n); ++i) {
+			boolean success = readRGBAStrip(handle, r, bbuf);
+			if (!success) {
+				throw new IllegalStateException(getTIFFError());
+			}
+			bbuf.rewind();
+			// libtiff doesn't flip the RGBA image (only RGB) so we need to
+			if (samplesPerPixel == 4)
+				ImageUtil.doFlip(bbuf, rasterWidth*4, h);
+			bbuf.get(bArray);
+			int hgt = Math.min(h, rasterLength - r);
+			statistics.addRGBA(bArray, rasterWidth * hgt);
+			// raster.set(r, rasterWidth, hgt, bbuf);
+			raster.set(r - top, hgt, bArray);
+			r += h;
+			Thread.yield();
+		}
+	}
+
 	/**
 	 * Load bytes from a strip into a raster.
 	 * 
@@ -1733,15 +1922,41 @@ public class GTIF extends RasterFileImpl {
 	 * 			  these are gray scale pixels (0-255), convert to unsigned byte
 	 */
 	protected final void loadFromStrip(DataType dataType, int n, int size, int w, Raster raster, boolean gray) {
+		loadFromStrip(dataType, 0, n, 0, size, w, raster, gray);
+	}
+
+	/**
+	 * Load data from a range of strips into a raster that starts at a given
+	 * row of the file.
+	 * 
+	 * @param dataType
+	 *            the strip data type
+	 * @param first
+	 *            the first strip
+	 * @param n
+	 *            the number of strips
+	 * @param top
+	 *            the file row of the first raster row
+	 * @param size
+	 *            the strip size
+	 * @param w
+	 *            the strip width
+	 * @param raster
+	 *            the raster
+	 * @param gray
+	 *            convert pixels to gray scale unsigned bytes
+	 */
+	protected final void loadFromStrip(DataType dataType, int first, int n, int top, int size, int w, Raster raster,
+		boolean gray) {
 
 		// Allocate memory directly
 		ByteBuffer bbuf = ByteBuffer.allocateDirect(size);
 		bbuf.order(byteOrder);
 
 		// Read each strip and place it in the raster.
-		int row = 0; // row pixel of upper left corner of strip
+		int row = first * rowsPerStrip - top; // row pixel of upper left corner of strip
 		int h = 0;
-		for (int i = 0; i < n; ++i) {
+		for (int i = first; i < (first + n); ++i) {
 			bbuf.rewind();
 			long as = readStrip(i, bbuf, size);
 			if (as == -1) {
@@ -1751,9 +1966,10 @@ public class GTIF extends RasterFileImpl {
 			h = (int) (as / (w * bytesPerSample)); // compute the height of the
 													// strip
 			if (gray) {
-				raster.setAsGray(row, 0, rasterWidth, h, bbuf, dataType, minimum, maximum, missing);
+				raster.setAsGray(row, 0, rasterWidth, h, bbuf, dataType, minimum, maximum, missing, statistics);
 			} else {
-				raster.setAsFloat(row, 0, rasterWidth, h, bbuf, dataType, scalingFactor, minimum, maximum, missing);
+				raster.setAsFloat(row, 0, rasterWidth, h, bbuf, dataType, scalingFactor, minimum, maximum, missing,
+					statistics);
 			}
 			row += h;
 			Thread.yield();
@@ -1775,6 +1991,29 @@ public class GTIF extends RasterFileImpl {
 	 *            the raster
 	 */
 	protected final void loadFromTile(int n, int size, int w, int h, Raster raster) {
+		loadFromTile(0, n, 0, size, w, h, raster);
+	}
+
+	/**
+	 * Load data from a range of tiles into a raster that starts at a given row
+	 * of the file. The range starts at the beginning of a row of tiles.
+	 * 
+	 * @param first
+	 *            the first tile
+	 * @param n
+	 *            the number of tiles
+	 * @param top
+	 *            the file row of the first raster row
+	 * @param size
+	 *            the tile size
+	 * @param w
+	 *            the tile width
+	 * @param h
+	 *            the tile height
+	 * @param raster
+	 *            the raster
+	 */
+	protected final void loadFromTile(int first, int n, int top, int size, int w, int h, Raster raster) {
 
 		// Allocate memory
 		ByteBuffer bbuf = ByteBuffer.allocateDirect(size);
@@ -1783,10 +2022,10 @@ public class GTIF extends RasterFileImpl {
 		bbuf.order(byteOrder);
 
 		// Read each tile and place it in the full size raster.
-		int row = 0, left = 0, wid = 0, hgt = 0; // row and column pixels of the
+		int row = (first / getTilesAcross()) * h, left = 0, wid = 0, hgt = 0; // row and column pixels of the
 													// upper left corner of the
 													// tile
-		for (int i = 0; i < n; ++i) {
+		for (int i = first; i < (first + n); ++i) {
 			bbuf.rewind();
 			long len = readTile(i, bbuf, size);
 			if (len == -1) {
@@ -1796,8 +2035,11 @@ public class GTIF extends RasterFileImpl {
 			bbuf.get(bArray);
 			wid = Math.min(w, rasterWidth - left);
 			hgt = Math.min(h, rasterLength - row);
+			if (statistics != null) {
+				statistics.addRGBA(bArray, wid * hgt);
+			}
 			// raster.set(row, left, wid, hgt, bbuf);
-			raster.set(row, left, wid, hgt, bArray);
+			raster.set(row - top, left, wid, hgt, bArray);
 			left += w;
 			if (left >= rasterWidth) {
 				left = 0;
@@ -1827,6 +2069,34 @@ public class GTIF extends RasterFileImpl {
 	 *            convert pixels to gray scale unsigned bytes
 	 */
 	protected final void loadFromTile(DataType dataType, int n, int size, int w, int h, Raster raster, boolean gray) {
+		loadFromTile(dataType, 0, n, 0, size, w, h, raster, gray);
+	}
+
+	/**
+	 * Load data from a range of tiles into a raster that starts at a given row
+	 * of the file. The range starts at the beginning of a row of tiles.
+	 * 
+	 * @param dataType
+	 *            the tile data type
+	 * @param first
+	 *            the first tile
+	 * @param n
+	 *            the number of tiles
+	 * @param top
+	 *            the file row of the first raster row
+	 * @param size
+	 *            the tile size
+	 * @param w
+	 *            the tile width
+	 * @param h
+	 *            the tile height
+	 * @param raster
+	 *            the raster
+	 * @param gray
+	 *            convert pixels to gray scale unsigned bytes
+	 */
+	protected final void loadFromTile(DataType dataType, int first, int n, int top, int size, int w, int h,
+		Raster raster, boolean gray) {
 		// System.err.println("GTIF.loadFromTile "+dataType+" "+gray+" "+byteOrder+" "+ByteOrder.nativeOrder()+" "+missing);
 
 		// Allocate memory
@@ -1834,10 +2104,10 @@ public class GTIF extends RasterFileImpl {
 		bbuf.order(byteOrder);
 
 		// Read each tile and place it in the full size raster.
-		int row = 0, left = 0, wid = 0, hgt = 0; // row and column pixels of the
+		int row = (first / getTilesAcross()) * h, left = 0, wid = 0, hgt = 0; // row and column pixels of the
 													// upper left corner of the
 													// tile
-		for (int i = 0; i < n; ++i) {
+		for (int i = first; i < (first + n); ++i) {
 			bbuf.rewind();
 			long len = readTile(i, bbuf, size);
 			if (len == -1) {
@@ -1847,9 +2117,10 @@ public class GTIF extends RasterFileImpl {
 			wid = Math.min(w, rasterWidth - left);
 			hgt = Math.min(h, rasterLength - row);
 			if (gray) {
-				raster.setAsGray(row, left, wid, hgt, bbuf, dataType, minimum, maximum, missing);
+				raster.setAsGray(row - top, left, wid, hgt, bbuf, dataType, minimum, maximum, missing, statistics);
 			} else {
-				raster.setAsFloat(row, left, wid, hgt, bbuf, dataType, scalingFactor, minimum, maximum, missing);
+				raster.setAsFloat(row - top, left, wid, hgt, bbuf, dataType, scalingFactor, minimum, maximum,
+					missing, statistics);
 			}
 			left += w;
 			if (left >= rasterWidth) {
@@ -0,0 +1,805 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.raster.geotiff;
+
+import gov.nasa.arc.dert.raster.Raster;
+import gov.nasa.arc.dert.raster.RasterStatistics;
+import gov.nasa.arc.dert.raster.geotiff.TiffReader.Field;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * GeoTIFF and BigTIFF reader that does not use libtiff. The file is memory
+ * mapped and the libtiff entry points of GTIF are implemented with a
+ * TiffReader, so tags and projection information are handled as before.
+ * Strips and tiles are decoded in parallel and written directly into the
+ * destination raster. This class is read only.
+ *
+ */
+public class MappedGTIF extends GTIF {
+
+	public static final int PHOTOMETRIC_MINISWHITE = 0;
+	public static final int PHOTOMETRIC_MINISBLACK = 1;
+	public static final int PHOTOMETRIC_PALETTE = 3;
+
+	// What to do with each decoded strip or tile
+	private static final int MINMAX = 0;
+	private static final int FLOAT = 1;
+	private static final int GRAY = 2;
+	private static final int RGBA = 3;
+
+	// The file reader
+	protected TiffReader reader;
+
+	// The last error
+	protected String error = "";
+
+	// Number of decoding threads
+	protected int numThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Create a RasterFile for a GeoTIFF. The file is read in Java if it can
+	 * be decoded, otherwise with libtiff.
+	 * 
+	 * @param filePath
+	 * @param properties
+	 * @return
+	 */
+	public static GTIF createInstance(String filePath, Properties properties) {
+		TiffReader tiffReader = new TiffReader(filePath);
+		try {
+			tiffReader.open();
+			String reason = tiffReader.getUnsupportedReason();
+			if (reason == null) {
+				return (new MappedGTIF(filePath, properties));
+			}
+			System.out.println("Reading " + filePath + " with libtiff, " + reason + " is not supported.");
+		} catch (Exception e) {
+			System.out.println("Reading " + filePath + " with libtiff, " + e.getMessage());
+		} finally {
+			tiffReader.close();
+		}
+		return (new GTIF(filePath, properties));
+	}
+
+	/**
+	 * Constructor
+	 */
+	public MappedGTIF(String filePath, Properties properties) {
+		super(filePath, properties);
+	}
+
+	/**
+	 * Set the number of threads used to decode strips and tiles.
+	 * 
+	 * @param numThreads
+	 */
+	public void setNumberOfThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * libtiff is not used.
+	 */
+	@Override
+	protected void loadLibrary() {
+		// nothing here
+	}
+
+	@Override
+	protected long openTIFF(String filePath, String access) {
+		if (!access.equals("r")) {
+			error = "Only read access is supported.";
+			return (0);
+		}
+		reader = new TiffReader(filePath);
+		try {
+			reader.open();
+		} catch (IOException e) {
+			error = e.getMessage();
+			reader = null;
+			return (0);
+		}
+		String reason = reader.getUnsupportedReason();
+		if (reason != null) {
+			error = reason + " is not supported.";
+			reader.close();
+			reader = null;
+			return (0);
+		}
+		// decoded data is left in file order
+		byteOrder = reader.getByteOrder();
+		return (1);
+	}
+
+	@Override
+	protected void closeTIFF(long handle) {
+		if (reader != null) {
+			reader.close();
+		}
+		reader = null;
+	}
+
+	@Override
+	protected String getTIFFError() {
+		return (error);
+	}
+
+	@Override
+	protected int getTIFFFieldString(long handle, int tag, String[] value) {
+		Field field = reader.getField(tag);
+		if ((field == null) || (field.string == null)) {
+			return (0);
+		}
+		value[0] = field.string;
+		return (1);
+	}
+
+	@Override
+	protected int getTIFFFieldInt(long handle, int tag, int[] value) {
+		double[] number = getNumbers(tag);
+		if (number == null) {
+			return (0);
+		}
+		int n = Math.min(number.length, value.length);
+		for (int i = 0; i < n; ++i) {
+			value[i] = (int) number[i];
+		}
+		return (n);
+	}
+
+	@Override
+	protected int getTIFFFieldShort(long handle, int tag, short[] value) {
+		double[] number = getNumbers(tag);
+		if (number == null) {
+			return (0);
+		}
+		int n = Math.min(number.length, value.length);
+		for (int i = 0; i < n; ++i) {
+			value[i] = (short) number[i];
+		}
+		return (n);
+	}
+
+	@Override
+	protected int getTIFFFieldDouble(long handle, int tag, double[] value) {
+		double[] number = getNumbers(tag);
+		if (number == null) {
+			return (0);
+		}
+		int n = Math.min(number.length, value.length);
+		System.arraycopy(number, 0, value, 0, n);
+		return (n);
+	}
+
+	@Override
+	protected int getTIFFFieldFloat(long handle, int tag, float[] value) {
+		double[] number = getNumbers(tag);
+		if (number == null) {
+			return (0);
+		}
+		int n = Math.min(number.length, value.length);
+		for (int i = 0; i < n; ++i) {
+			value[i] = (float) number[i];
+		}
+		return (n);
+	}
+
+	/**
+	 * Get the values of a numeric tag, with the defaults libtiff supplies for
+	 * missing tags.
+	 * 
+	 * @param tag
+	 * @return
+	 */
+	private double[] getNumbers(int tag) {
+		Field field = reader.getField(tag);
+		if ((field != null) && (field.number != null)) {
+			return (field.number);
+		}
+		switch (tag) {
+		case TIFFTAG_SAMPLEFORMAT:
+			return (new double[] { SAMPLEFORMAT_UINT });
+		case TIFFTAG_PLANARCONFIG:
+			return (new double[] { PLANARCONFIG_CONTIG });
+		case TIFFTAG_SAMPLESPERPIXEL:
+		case TIFFTAG_BITSPERSAMPLE:
+		case TIFFTAG_FILLORDER:
+			return (new double[] { 1 });
+		case TIFFTAG_ROWSPERSTRIP:
+			return (new double[] { reader.getLength() });
+		default:
+			return (null);
+		}
+	}
+
+	@Override
+	protected boolean setTIFFFieldString(long handle, int tag, String value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldInt(long handle, int tag, int value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldShort(long handle, int tag, short value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldDouble(long handle, int tag, double value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldFloat(long handle, int tag, float value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldIntArray(long handle, int tag, int[] value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldShortArray(long handle, int tag, short[] value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldDoubleArray(long handle, int tag, double[] value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean setTIFFFieldFloatArray(long handle, int tag, float[] value) {
+		return (false);
+	}
+
+	@Override
+	protected boolean isTiled(long handle) {
+		return (reader.isTiled());
+	}
+
+	@Override
+	protected int getNumberOfStrips(long handle) {
+		return (reader.getChunkCount());
+	}
+
+	@Override
+	protected long getStripSize(long handle) {
+		return (reader.getChunkSize());
+	}
+
+	@Override
+	protected int getNumberOfTiles(long handle) {
+		return (reader.getChunkCount());
+	}
+
+	@Override
+	protected long getTileSize(long handle) {
+		return (reader.getChunkSize());
+	}
+
+	@Override
+	protected long readStrip(long handle, int stripNumber, Buffer buffer, long size) {
+		return (readChunk(stripNumber, buffer, size));
+	}
+
+	@Override
+	protected long readTile(long handle, int tileNumber, Buffer buffer, long size) {
+		return (readChunk(tileNumber, buffer, size));
+	}
+
+	private long readChunk(int chunk, Buffer buffer, long size) {
+		try {
+			byte[] data = reader.decode(chunk);
+			int n = (int) Math.min(data.length, Math.min(size, buffer.capacity()));
+			ByteBuffer bBuf = ((ByteBuffer) buffer).duplicate();
+			bBuf.clear();
+			bBuf.put(data, 0, n);
+			return (n);
+		} catch (Exception e) {
+			error = e.getMessage();
+			return (-1);
+		}
+	}
+
+	@Override
+	protected boolean readRGBAStrip(long handle, int row, Buffer buffer) {
+		error = "Use loadRGBA to read RGBA images.";
+		return (false);
+	}
+
+	@Override
+	protected boolean readRGBATile(long handle, int x, int y, Buffer buffer) {
+		error = "Use loadRGBA to read RGBA images.";
+		return (false);
+	}
+
+	@Override
+	protected long writeStrip(long handle, int stripNumber, Buffer buffer, long size) {
+		error = "Write access is not supported.";
+		return (-1);
+	}
+
+	@Override
+	protected long writeTile(long handle, int tileNumber, Buffer buffer, long size) {
+		error = "Write access is not supported.";
+		return (-1);
+	}
+
+	/**
+	 * Load entire file into a raster.
+	 * 
+	 * @param raster
+	 */
+	@Override
+	public void load(Raster raster) {
+		// The extrema are gathered with the other statistics while loading
+		boolean findMinMax = (minimum == null) || (maximum == null);
+		if (findMinMax) {
+			minimum = ANY_MINIMUM.clone();
+			maximum = ANY_MAXIMUM.clone();
+		}
+		decodeAll(raster, FLOAT);
+		if (findMinMax) {
+			setMinMaxFromStatistics();
+		}
+	}
+
+	/**
+	 * Load entire height map file into a raster.
+	 * 
+	 * @param raster
+	 */
+	@Override
+	public void loadHeightMap(Raster raster) {
+		load(raster);
+	}
+
+	/**
+	 * Load entire file into a raster of unsigned byte.
+	 * 
+	 * @param raster
+	 */
+	@Override
+	public void loadGray(Raster raster) {
+		// The gray scale conversion needs the extrema before loading
+		if ((minimum == null) || (maximum == null)) {
+			computeMinMax();
+		}
+		decodeAll(raster, GRAY);
+		minimum = new double[] { 1 };
+		maximum = new double[] { 255 };
+	}
+
+	/**
+	 * Load entire file into a raster of RGBA pixels.
+	 * 
+	 * @param raster
+	 */
+	@Override
+	public void loadRGBA(Raster raster) {
+		decodeAll(raster, RGBA);
+		if (minimum == null) {
+			minimum = new double[] { 0, 0, 0, 1 };
+		}
+		if (maximum == null) {
+			maximum = new double[] { 255, 255, 255, 255 };
+		}
+	}
+
+	/**
+	 * Get the number of rows in a band, the tile length or rows per strip.
+	 * 
+	 * @return the number of rows
+	 */
+	@Override
+	public int getBandLength() {
+		int rows = reader.getChunkLength();
+		if ((rows <= 0) || (rows > rasterLength)) {
+			rows = rasterLength;
+		}
+		return (rows);
+	}
+
+	/**
+	 * Load a band of rows into a raster.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBand(Raster raster, int top) {
+		int rows = getBandRows(raster, top);
+		startFloatBand(top);
+		decodeBand(raster, FLOAT, top, rows);
+		endFloatBand(top, rows);
+	}
+
+	/**
+	 * Load a band of rows into a raster of unsigned byte.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandGray(Raster raster, int top) {
+		int rows = getBandRows(raster, top);
+		// The gray scale conversion needs the extrema before loading
+		if (top == 0) {
+			statistics = new RasterStatistics(1);
+			if ((minimum == null) || (maximum == null)) {
+				computeMinMax();
+			}
+		}
+		decodeBand(raster, GRAY, top, rows);
+		if ((top + rows) == rasterLength) {
+			minimum = new double[] { 1 };
+			maximum = new double[] { 255 };
+		}
+	}
+
+	/**
+	 * Load a band of rows into a raster of RGBA pixels.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandRGBA(Raster raster, int top) {
+		int rows = getBandRows(raster, top);
+		if (top == 0) {
+			statistics = new RasterStatistics(4);
+		}
+		decodeBand(raster, RGBA, top, rows);
+		if ((top + rows) == rasterLength) {
+			if (minimum == null) {
+				minimum = new double[] { 0, 0, 0, 1 };
+			}
+			if (maximum == null) {
+				maximum = new double[] { 255, 255, 255, 255 };
+			}
+		}
+	}
+
+	/**
+	 * Compute the minimum and maximum of the entire file.
+	 */
+	protected void computeMinMax() {
+		minimum = new double[samplesPerPixel];
+		maximum = new double[samplesPerPixel];
+		Arrays.fill(minimum, Double.MAX_VALUE);
+		Arrays.fill(maximum, -Double.MAX_VALUE);
+		decodeAll(null, MINMAX);
+	}
+
+	/**
+	 * Decode all strips or tiles on a pool of threads. Each strip or tile
+	 * gathers its own statistics and they are merged as the tasks complete.
+	 * 
+	 * @param raster
+	 * @param mode
+	 */
+	private void decodeAll(Raster raster, int mode) {
+		RasterStatistics stats = decodeChunks(raster, mode, 0, rasterLength);
+		if (stats != null) {
+			statistics = stats;
+		}
+	}
+
+	/**
+	 * Decode the strips or tiles of a band of rows and add their statistics
+	 * to those of the previous bands.
+	 * 
+	 * @param raster
+	 *            the band raster
+	 * @param mode
+	 * @param top
+	 *            the first row of the band
+	 * @param rows
+	 *            the number of rows in the band
+	 */
+	private void decodeBand(Raster raster, int mode, int top, int rows) {
+		RasterStatistics stats = decodeChunks(raster, mode, top, rows);
+		statistics.add(stats);
+	}
+
+	/**
+	 * Decode the strips or tiles that start in a range of rows on a pool of
+	 * threads. Each strip or tile gathers its own statistics and they are
+	 * merged in file order as the tasks complete.
+	 * 
+	 * @param raster
+	 *            the raster, its first row is the first row of the range
+	 * @param mode
+	 * @param top
+	 *            the first row of the range
+	 * @param rows
+	 *            the number of rows in the range
+	 * @return the statistics, null if only finding the extrema
+	 */
+	private RasterStatistics decodeChunks(Raster raster, int mode, int top, int rows) {
+		if (reader == null) {
+			throw new IllegalStateException("No open file.");
+		}
+		ArrayList<Integer> chunks = new ArrayList<Integer>();
+		for (int i = 0; i < reader.getChunkCount(); ++i) {
+			int chunkTop = reader.getChunkTop(i);
+			if ((chunkTop >= top) && (chunkTop < (top + rows))) {
+				chunks.add(i);
+			}
+		}
+		int n = chunks.size();
+		RasterStatistics stats = null;
+		if (mode != MINMAX) {
+			stats = new RasterStatistics(mode == RGBA ? 4 : 1);
+		}
+		if (n == 0) {
+			return (stats);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, n));
+		try {
+			ArrayList<Future<RasterStatistics>> futures = new ArrayList<Future<RasterStatistics>>(n);
+			for (int i = 0; i < n; ++i) {
+				futures.add(executor.submit(new DecodeTask(chunks.get(i), raster, mode, top)));
+			}
+			for (int i = 0; i < n; ++i) {
+				RasterStatistics chunkStats = futures.get(i).get();
+				if (stats != null) {
+					stats.add(chunkStats);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading " + filePath + ".", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to load " + filePath + ".", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return (stats);
+	}
+
+	/**
+	 * Decode one strip or tile, put it in the raster, and return its
+	 * statistics.
+	 */
+	private class DecodeTask implements Callable<RasterStatistics> {
+
+		private int chunk;
+		private Raster raster;
+		private int mode;
+		private int rasterTop;
+
+		public DecodeTask(int chunk, Raster raster, int mode, int rasterTop) {
+			this.chunk = chunk;
+			this.raster = raster;
+			this.mode = mode;
+			this.rasterTop = rasterTop;
+		}
+
+		@Override
+		public RasterStatistics call() {
+			byte[] data = reader.crop(chunk, reader.decode(chunk));
+			int top = reader.getChunkTop(chunk) - rasterTop;
+			int left = reader.getChunkLeft(chunk);
+			int wid = reader.getChunkColumns(chunk);
+			int hgt = reader.getChunkRows(chunk);
+			ByteBuffer bBuf = ByteBuffer.wrap(data).order(byteOrder);
+			RasterStatistics stats = null;
+			switch (mode) {
+			case MINMAX:
+				synchronized (MappedGTIF.this) {
+					computeMinMax(bBuf);
+				}
+				break;
+			case FLOAT:
+				stats = new RasterStatistics(1);
+				raster.setAsFloat(top, left, wid, hgt, bBuf, dataType, scalingFactor, minimum, maximum, missing,
+					stats);
+				break;
+			case GRAY:
+				stats = new RasterStatistics(1);
+				raster.setAsGray(top, left, wid, hgt, bBuf, dataType, minimum, maximum, missing, stats);
+				break;
+			case RGBA:
+				stats = new RasterStatistics(4);
+				byte[] rgba = toRGBA(data, wid * hgt);
+				stats.addRGBA(rgba, wid * hgt);
+				raster.set(top, left, wid, hgt, rgba);
+				break;
+			}
+			return (stats);
+		}
+	}
+
+	/**
+	 * Convert decoded pixels to RGBA bytes.
+	 * 
+	 * @param data
+	 * @param n
+	 *            number of pixels
+	 * @return
+	 */
+	protected byte[] toRGBA(byte[] data, int n) {
+		int photometric = reader.getInt(TIFFTAG_PHOTOMETRIC, PHOTOMETRIC_MINISBLACK);
+		double[] colorMap = null;
+		if (photometric == PHOTOMETRIC_PALETTE) {
+			Field field = reader.getField(TiffReader.TIFFTAG_COLORMAP);
+			if ((field == null) || (field.number == null)) {
+				throw new IllegalStateException("Palette image has no color map.");
+			}
+			colorMap = field.number;
+		} else if ((photometric != PHOTOMETRIC_MINISWHITE) && (photometric != PHOTOMETRIC_MINISBLACK)
+			&& (photometric != PHOTOMETRIC_RGB)) {
+			throw new IllegalStateException("Photometric interpretation " + photometric + " is not supported.");
+		}
+		byte[] rgba = new byte[n * 4];
+		int pixelSize = samplesPerPixel * bytesPerSample;
+		for (int i = 0; i < n; ++i) {
+			int k = i * pixelSize;
+			int j = i * 4;
+			if (colorMap != null) {
+				int colors = colorMap.length / 3;
+				int index = Math.min(getSample(data, k), colors - 1);
+				rgba[j] = (byte) ((int) colorMap[index] >> 8);
+				rgba[j + 1] = (byte) ((int) colorMap[colors + index] >> 8);
+				rgba[j + 2] = (byte) ((int) colorMap[2 * colors + index] >> 8);
+				rgba[j + 3] = (byte) 255;
+			} else if (samplesPerPixel >= 3) {
+				rgba[j] = getByteSample(data, k);
+				rgba[j + 1] = getByteSample(data, k + bytesPerSample);
+				rgba[j + 2] = getByteSample(data, k + 2 * bytesPerSample);
+				rgba[j + 3] = (samplesPerPixel > 3) ? getByteSample(data, k + 3 * bytesPerSample) : (byte) 255;
+			} else {
+				byte v = getByteSample(data, k);
+				if (photometric == PHOTOMETRIC_MINISWHITE) {
+					v = (byte) (255 - (v & 0xff));
+				}
+				rgba[j] = v;
+				rgba[j + 1] = v;
+				rgba[j + 2] = v;
+				rgba[j + 3] = (samplesPerPixel > 1) ? getByteSample(data, k + bytesPerSample) : (byte) 255;
+			}
+		}
+		return (rgba);
+	}
+
+	/**
+	 * Get an unsigned 8 or 16 bit sample.
+	 */
+	private int getSample(byte[] data, int k) {
+		if (bytesPerSample == 1) {
+			return (data[k] & 0xff);
+		}
+		if (byteOrder == ByteOrder.BIG_ENDIAN) {
+			return (((data[k] & 0xff) << 8) | (data[k + 1] & 0xff));
+		}
+		return (((data[k + 1] & 0xff) << 8) | (data[k] & 0xff));
+	}
+
+	/**
+	 * Get the most significant byte of a sample.
+	 */
+	private byte getByteSample(byte[] data, int k) {
+		if (byteOrder == ByteOrder.BIG_ENDIAN) {
+			return (data[k]);
+		}
+		return (data[k + bytesPerSample - 1]);
+	}
+
+}
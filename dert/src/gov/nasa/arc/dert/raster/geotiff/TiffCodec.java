@@ -0,0 +1,413 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.raster.geotiff;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decoders for the TIFF compression schemes and predictors that DERT reads
+ * without libtiff. Each method works on a single strip or tile.
+ *
+ */
+public class TiffCodec {
+
+	public static final int COMPRESSION_NONE = 1;
+	public static final int COMPRESSION_LZW = 5;
+	public static final int COMPRESSION_DEFLATE = 8;
+	public static final int COMPRESSION_PACKBITS = 32773;
+	public static final int COMPRESSION_ADOBE_DEFLATE = 32946;
+
+	public static final int PREDICTOR_NONE = 1;
+	public static final int PREDICTOR_HORIZONTAL = 2;
+	public static final int PREDICTOR_FLOATINGPOINT = 3;
+
+	// LZW codes
+	private static final int LZW_CLEAR = 256;
+	private static final int LZW_EOI = 257;
+	private static final int LZW_FIRST = 258;
+	private static final int LZW_MAX_BITS = 12;
+
+	/**
+	 * Determine if a compression scheme can be decoded.
+	 * 
+	 * @param compression
+	 * @return
+	 */
+	public static boolean isSupported(int compression) {
+		switch (compression) {
+		case COMPRESSION_NONE:
+		case COMPRESSION_LZW:
+		case COMPRESSION_DEFLATE:
+		case COMPRESSION_ADOBE_DEFLATE:
+		case COMPRESSION_PACKBITS:
+			return (true);
+		default:
+			return (false);
+		}
+	}
+
+	/**
+	 * Decompress a strip or tile.
+	 * 
+	 * @param compression
+	 *            the compression scheme
+	 * @param src
+	 *            the compressed data, from position to limit
+	 * @param dst
+	 *            the array to fill, it is zero filled beyond the decoded data
+	 * @return the number of bytes decoded
+	 */
+	public static int decompress(int compression, ByteBuffer src, byte[] dst) {
+		switch (compression) {
+		case COMPRESSION_NONE:
+			int n = Math.min(src.remaining(), dst.length);
+			src.get(dst, 0, n);
+			return (n);
+		case COMPRESSION_LZW:
+			return (decodeLZW(src, dst));
+		case COMPRESSION_DEFLATE:
+		case COMPRESSION_ADOBE_DEFLATE:
+			return (inflate(src, dst));
+		case COMPRESSION_PACKBITS:
+			return (decodePackBits(src, dst));
+		default:
+			throw new UnsupportedOperationException("TIFF compression " + compression + " is not supported.");
+		}
+	}
+
+	/**
+	 * Decode PackBits run length encoding.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the number of bytes decoded
+	 */
+	public static int decodePackBits(ByteBuffer src, byte[] dst) {
+		int k = 0;
+		while (src.hasRemaining() && (k < dst.length)) {
+			int n = src.get();
+			if (n >= 0) {
+				// literal run of n+1 bytes
+				n = Math.min(n + 1, Math.min(src.remaining(), dst.length - k));
+				src.get(dst, k, n);
+				k += n;
+			} else if (n != -128) {
+				// replicate the next byte 1-n times
+				if (!src.hasRemaining()) {
+					break;
+				}
+				byte b = src.get();
+				n = Math.min(1 - n, dst.length - k);
+				for (int i = 0; i < n; ++i) {
+					dst[k++] = b;
+				}
+			}
+		}
+		return (k);
+	}
+
+	/**
+	 * Decode TIFF flavored LZW (most significant bit first, with early
+	 * change of the code width).
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the number of bytes decoded
+	 */
+	public static int decodeLZW(ByteBuffer src, byte[] dst) {
+		int tableSize = 1 << LZW_MAX_BITS;
+		int[] prefix = new int[tableSize];
+		byte[] suffix = new byte[tableSize];
+		byte[] first = new byte[tableSize];
+		int[] length = new int[tableSize];
+		for (int i = 0; i < 256; ++i) {
+			prefix[i] = -1;
+			suffix[i] = (byte) i;
+			first[i] = (byte) i;
+			length[i] = 1;
+		}
+		int next = LZW_FIRST;
+		int width = 9;
+		int old = -1;
+		int k = 0;
+		int bits = 0, bitCount = 0;
+		while (k < dst.length) {
+			// read the next code
+			while ((bitCount < width) && src.hasRemaining()) {
+				bits = (bits << 8) | (src.get() & 0xff);
+				bitCount += 8;
+			}
+			if (bitCount < width) {
+				break;
+			}
+			int code = (bits >>> (bitCount - width)) & ((1 << width) - 1);
+			bitCount -= width;
+			bits &= (1 << bitCount) - 1;
+
+			if (code == LZW_EOI) {
+				break;
+			}
+			if (code == LZW_CLEAR) {
+				next = LZW_FIRST;
+				width = 9;
+				old = -1;
+				continue;
+			}
+			if (old == -1) {
+				if (code > 255) {
+					throw new IllegalStateException("Corrupt LZW data, code " + code + " follows a clear code.");
+				}
+				dst[k++] = (byte) code;
+				old = code;
+				continue;
+			}
+			if (code > next) {
+				throw new IllegalStateException("Corrupt LZW data, code " + code + " is not in the table.");
+			}
+			// add the new table entry, the previous string plus the first byte of this one
+			if (next < tableSize) {
+				prefix[next] = old;
+				suffix[next] = (code == next) ? first[old] : first[code];
+				first[next] = first[old];
+				length[next] = length[old] + 1;
+				next++;
+				if ((next >= (1 << width) - 1) && (width < LZW_MAX_BITS)) {
+					width++;
+				}
+			}
+			// write the string for this code, last byte first
+			int len = length[code];
+			int end = k + len;
+			int c = code;
+			for (int i = end - 1; i >= k; --i) {
+				if (i < dst.length) {
+					dst[i] = suffix[c];
+				}
+				c = prefix[c];
+			}
+			k = Math.min(end, dst.length);
+			old = code;
+		}
+		return (k);
+	}
+
+	/**
+	 * Decode zlib (Deflate) compression.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the number of bytes decoded
+	 */
+	public static int inflate(ByteBuffer src, byte[] dst) {
+		byte[] in = new byte[src.remaining()];
+		src.get(in);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(in);
+			int k = 0;
+			while ((k < dst.length) && !inflater.finished()) {
+				int n = inflater.inflate(dst, k, dst.length - k);
+				if ((n == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				k += n;
+			}
+			return (k);
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Corrupt Deflate data.", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Undo horizontal differencing. Each sample of a row is stored as the
+	 * difference from the same sample of the previous pixel.
+	 * 
+	 * @param data
+	 *            the decoded data
+	 * @param order
+	 *            byte order of the data
+	 * @param width
+	 *            pixels in a row
+	 * @param rows
+	 *            number of rows
+	 * @param samplesPerPixel
+	 * @param bytesPerSample
+	 */
+	public static void undoHorizontalPredictor(byte[] data, ByteOrder order, int width, int rows,
+		int samplesPerPixel, int bytesPerSample) {
+		int rowSize = width * samplesPerPixel * bytesPerSample;
+		int stride = samplesPerPixel * bytesPerSample;
+		ByteBuffer buf = ByteBuffer.wrap(data).order(order);
+		for (int r = 0; r < rows; ++r) {
+			int begin = r * rowSize;
+			int end = begin + rowSize;
+			switch (bytesPerSample) {
+			case 1:
+				for (int i = begin + stride; i < end; ++i) {
+					data[i] += data[i - stride];
+				}
+				break;
+			case 2:
+				for (int i = begin + stride; i < end; i += 2) {
+					buf.putShort(i, (short) (buf.getShort(i) + buf.getShort(i - stride)));
+				}
+				break;
+			case 4:
+				for (int i = begin + stride; i < end; i += 4) {
+					buf.putInt(i, buf.getInt(i) + buf.getInt(i - stride));
+				}
+				break;
+			case 8:
+				for (int i = begin + stride; i < end; i += 8) {
+					buf.putLong(i, buf.getLong(i) + buf.getLong(i - stride));
+				}
+				break;
+			default:
+				throw new UnsupportedOperationException("Horizontal predictor with " + bytesPerSample
+					+ " bytes per sample is not supported.");
+			}
+		}
+	}
+
+	/**
+	 * Undo the floating point predictor. The bytes of each row are
+	 * differenced and then grouped by significance, most significant first.
+	 * The result is written in the given byte order.
+	 * 
+	 * @param data
+	 *            the decoded data
+	 * @param order
+	 *            byte order for the result
+	 * @param width
+	 *            pixels in a row
+	 * @param rows
+	 *            number of rows
+	 * @param samplesPerPixel
+	 * @param bytesPerSample
+	 */
+	public static void undoFloatingPointPredictor(byte[] data, ByteOrder order, int width, int rows,
+		int samplesPerPixel, int bytesPerSample) {
+		int count = width * samplesPerPixel;
+		int rowSize = count * bytesPerSample;
+		boolean bigEndian = (order == ByteOrder.BIG_ENDIAN);
+		byte[] tmp = new byte[rowSize];
+		for (int r = 0; r < rows; ++r) {
+			int begin = r * rowSize;
+			for (int i = begin + samplesPerPixel; i < begin + rowSize; ++i) {
+				data[i] += data[i - samplesPerPixel];
+			}
+			System.arraycopy(data, begin, tmp, 0, rowSize);
+			for (int i = 0; i < count; ++i) {
+				for (int b = 0; b < bytesPerSample; ++b) {
+					int plane = bigEndian ? b : bytesPerSample - b - 1;
+					data[begin + i * bytesPerSample + b] = tmp[plane * count + i];
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,672 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.raster.geotiff;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * Reads the first image of a TIFF or BigTIFF file through memory mapped
+ * buffers. Tags are parsed when the file is opened. Strips and tiles are
+ * decoded on demand and may be decoded from several threads at once.
+ *
+ */
+public class TiffReader {
+
+	public static final int TIFFTAG_COMPRESSION = 259;
+	public static final int TIFFTAG_STRIPOFFSETS = 273;
+	public static final int TIFFTAG_PREDICTOR = 317;
+	public static final int TIFFTAG_COLORMAP = 320;
+	public static final int TIFFTAG_TILEOFFSETS = 324;
+	public static final int TIFFTAG_TILEBYTECOUNTS = 325;
+
+	// Mapped segments are this far apart in the file
+	private static final long SEGMENT_STEP = 1L << 30;
+
+	// Segments overlap by this much so that most strips and tiles lie inside one
+	private static final long SEGMENT_OVERLAP = 1L << 26;
+
+	// Value types
+	private static final int TYPE_ASCII = 2;
+	private static final int TYPE_RATIONAL = 5;
+	private static final int TYPE_SRATIONAL = 10;
+
+	// Size of each value type in bytes, indexed by type code
+	private static final int[] TYPE_SIZE = { 0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8, 4, 0, 0, 8, 8, 8 };
+
+	/**
+	 * A TIFF tag value.
+	 */
+	public static class Field {
+		public final int tag, type;
+		public final int count;
+		public final double[] number;
+		public final String string;
+
+		public Field(int tag, int type, int count, double[] number, String string) {
+			this.tag = tag;
+			this.type = type;
+			this.count = count;
+			this.number = number;
+			this.string = string;
+		}
+	}
+
+	// The file path
+	private String filePath;
+
+	// File contents
+	private FileChannel fileChannel;
+	private MappedByteBuffer[] segment;
+	private long fileSize;
+
+	// Header
+	private ByteOrder byteOrder;
+	private boolean bigTiff;
+
+	// Tags of the first image
+	private HashMap<Integer, Field> fieldMap;
+
+	// Image layout
+	private int width, length;
+	private int samplesPerPixel, bitsPerSample, bytesPerSample;
+	private int planarConfiguration, compression, predictor;
+	private boolean tiled;
+	private int chunkWidth, chunkLength, chunksAcross, chunksDown, chunksPerPlane;
+	private long[] chunkOffset, chunkByteCount;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param filePath
+	 */
+	public TiffReader(String filePath) {
+		this.filePath = filePath;
+	}
+
+	/**
+	 * Map the file and read the tags of the first image.
+	 * 
+	 * @throws IOException
+	 */
+	public void open() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(filePath, "r");
+		try {
+			fileChannel = raf.getChannel();
+			fileSize = fileChannel.size();
+			int n = (int) Math.max(1, (fileSize + SEGMENT_STEP - 1) / SEGMENT_STEP);
+			segment = new MappedByteBuffer[n];
+			for (int i = 0; i < n; ++i) {
+				long position = i * SEGMENT_STEP;
+				long size = Math.min(SEGMENT_STEP + SEGMENT_OVERLAP, fileSize - position);
+				segment[i] = fileChannel.map(MapMode.READ_ONLY, position, Math.max(0, size));
+			}
+		} finally {
+			// the mappings remain valid after the file is closed
+			raf.close();
+			fileChannel = null;
+		}
+		readHeader();
+	}
+
+	/**
+	 * Release the mapped buffers. They are unmapped when garbage collected.
+	 */
+	public void close() {
+		segment = null;
+		fieldMap = null;
+	}
+
+	private void readHeader() throws IOException {
+		if (fileSize < 8) {
+			throw new IOException(filePath + " is not a TIFF file.");
+		}
+		ByteBuffer buf = getBuffer(0, 16);
+		byte b0 = buf.get(0);
+		byte b1 = buf.get(1);
+		if ((b0 == 'I') && (b1 == 'I')) {
+			byteOrder = ByteOrder.LITTLE_ENDIAN;
+		} else if ((b0 == 'M') && (b1 == 'M')) {
+			byteOrder = ByteOrder.BIG_ENDIAN;
+		} else {
+			throw new IOException(filePath + " is not a TIFF file.");
+		}
+		buf.order(byteOrder);
+		int version = buf.getShort(2) & 0xffff;
+		long ifdOffset;
+		if (version == 42) {
+			bigTiff = false;
+			ifdOffset = buf.getInt(4) & 0xffffffffL;
+		} else if (version == 43) {
+			bigTiff = true;
+			if ((buf.getShort(4) != 8) || (fileSize < 16)) {
+				throw new IOException(filePath + " has an unsupported BigTIFF offset size.");
+			}
+			ifdOffset = buf.getLong(8);
+		} else {
+			throw new IOException(filePath + " has an unknown TIFF version " + version + ".");
+		}
+		readDirectory(ifdOffset);
+		readLayout();
+	}
+
+	private void readDirectory(long offset) throws IOException {
+		fieldMap = new HashMap<Integer, Field>();
+		int countSize = bigTiff ? 8 : 2;
+		int entrySize = bigTiff ? 20 : 12;
+		int valueSize = bigTiff ? 8 : 4;
+		ByteBuffer buf = getBuffer(offset, countSize);
+		long n = bigTiff ? buf.getLong(0) : (buf.getShort(0) & 0xffff);
+		if ((n <= 0) || (n > 65535)) {
+			throw new IOException(filePath + " has a corrupt image directory.");
+		}
+		buf = getBuffer(offset + countSize, (int) n * entrySize);
+		for (int i = 0; i < n; ++i) {
+			int p = i * entrySize;
+			int tag = buf.getShort(p) & 0xffff;
+			int type = buf.getShort(p + 2) & 0xffff;
+			long count = bigTiff ? buf.getLong(p + 4) : (buf.getInt(p + 4) & 0xffffffffL);
+			if ((type >= TYPE_SIZE.length) || (TYPE_SIZE[type] == 0) || (count > Integer.MAX_VALUE / 8)) {
+				// skip types we do not know
+				continue;
+			}
+			long size = count * TYPE_SIZE[type];
+			ByteBuffer value;
+			if (size <= valueSize) {
+				value = slice(buf, p + entrySize - valueSize, valueSize);
+			} else {
+				long valueOffset = bigTiff ? buf.getLong(p + 12) : (buf.getInt(p + 8) & 0xffffffffL);
+				value = getBuffer(valueOffset, (int) size);
+			}
+			fieldMap.put(tag, readField(tag, type, (int) count, value));
+		}
+	}
+
+	private Field readField(int tag, int type, int count, ByteBuffer buf) {
+		if (type == TYPE_ASCII) {
+			byte[] bytes = new byte[count];
+			buf.get(bytes);
+			int n = 0;
+			while ((n < count) && (bytes[n] != 0)) {
+				n++;
+			}
+			return (new Field(tag, type, count, null, new String(bytes, 0, n, Charset.forName("ISO-8859-1"))));
+		}
+		double[] number = new double[count];
+		for (int i = 0; i < count; ++i) {
+			switch (type) {
+			case 1:
+			case 7:
+				number[i] = buf.get() & 0xff;
+				break;
+			case 6:
+				number[i] = buf.get();
+				break;
+			case 3:
+				number[i] = buf.getShort() & 0xffff;
+				break;
+			case 8:
+				number[i] = buf.getShort();
+				break;
+			case 4:
+			case 13:
+				number[i] = buf.getInt() & 0xffffffffL;
+				break;
+			case 9:
+				number[i] = buf.getInt();
+				break;
+			case TYPE_RATIONAL:
+				double num = buf.getInt() & 0xffffffffL;
+				number[i] = num / (buf.getInt() & 0xffffffffL);
+				break;
+			case TYPE_SRATIONAL:
+				num = buf.getInt();
+				number[i] = num / buf.getInt();
+				break;
+			case 11:
+				number[i] = buf.getFloat();
+				break;
+			case 12:
+				number[i] = buf.getDouble();
+				break;
+			case 16:
+			case 17:
+			case 18:
+				number[i] = buf.getLong();
+				break;
+			}
+		}
+		return (new Field(tag, type, count, number, null));
+	}
+
+	private void readLayout() throws IOException {
+		width = getInt(GTIF.TIFFTAG_IMAGEWIDTH, 0);
+		length = getInt(GTIF.TIFFTAG_IMAGELENGTH, 0);
+		samplesPerPixel = getInt(GTIF.TIFFTAG_SAMPLESPERPIXEL, 1);
+		bitsPerSample = getInt(GTIF.TIFFTAG_BITSPERSAMPLE, 1);
+		bytesPerSample = bitsPerSample / 8;
+		planarConfiguration = getInt(GTIF.TIFFTAG_PLANARCONFIG, GTIF.PLANARCONFIG_CONTIG);
+		compression = getInt(TIFFTAG_COMPRESSION, TiffCodec.COMPRESSION_NONE);
+		predictor = getInt(TIFFTAG_PREDICTOR, TiffCodec.PREDICTOR_NONE);
+		if ((width <= 0) || (length <= 0)) {
+			throw new IOException(filePath + " has no image dimensions.");
+		}
+		tiled = fieldMap.containsKey(GTIF.TIFFTAG_TILEWIDTH);
+		Field offsets, counts;
+		if (tiled) {
+			chunkWidth = getInt(GTIF.TIFFTAG_TILEWIDTH, 0);
+			chunkLength = getInt(GTIF.TIFFTAG_TILELENGTH, 0);
+			offsets = fieldMap.get(TIFFTAG_TILEOFFSETS);
+			counts = fieldMap.get(TIFFTAG_TILEBYTECOUNTS);
+		} else {
+			chunkWidth = width;
+			chunkLength = Math.min(getInt(GTIF.TIFFTAG_ROWSPERSTRIP, length), length);
+			offsets = fieldMap.get(TIFFTAG_STRIPOFFSETS);
+			counts = fieldMap.get(GTIF.TIFFTAG_STRIPBYTECOUNTS);
+		}
+		if ((chunkWidth <= 0) || (chunkLength <= 0) || (offsets == null) || (offsets.number == null)) {
+			throw new IOException(filePath + " has no strip or tile layout.");
+		}
+		chunksAcross = (width + chunkWidth - 1) / chunkWidth;
+		chunksDown = (length + chunkLength - 1) / chunkLength;
+		chunksPerPlane = chunksAcross * chunksDown;
+		int n = chunksPerPlane;
+		if (planarConfiguration == GTIF.PLANARCONFIG_SEPARATE) {
+			n *= samplesPerPixel;
+		}
+		if (offsets.count < n) {
+			throw new IOException(filePath + " has " + offsets.count + " strips or tiles, expected " + n + ".");
+		}
+		chunkOffset = new long[n];
+		chunkByteCount = new long[n];
+		for (int i = 0; i < n; ++i) {
+			chunkOffset[i] = (long) offsets.number[i];
+			if ((counts != null) && (counts.number != null) && (i < counts.count)) {
+				chunkByteCount[i] = (long) counts.number[i];
+			} else {
+				// uncompressed data without byte counts
+				chunkByteCount[i] = getChunkSize();
+			}
+		}
+	}
+
+	/**
+	 * Determine if this reader can decode the image. Images it cannot decode
+	 * should be read with libtiff.
+	 * 
+	 * @return
+	 */
+	public String getUnsupportedReason() {
+		if (!TiffCodec.isSupported(compression)) {
+			return ("compression " + compression);
+		}
+		if ((bitsPerSample != 8) && (bitsPerSample != 16) && (bitsPerSample != 32) && (bitsPerSample != 64)) {
+			return (bitsPerSample + " bits per sample");
+		}
+		if ((planarConfiguration == GTIF.PLANARCONFIG_SEPARATE) && (samplesPerPixel > 1)) {
+			return ("separate sample planes");
+		}
+		if ((predictor != TiffCodec.PREDICTOR_NONE) && (predictor != TiffCodec.PREDICTOR_HORIZONTAL)
+			&& (predictor != TiffCodec.PREDICTOR_FLOATINGPOINT)) {
+			return ("predictor " + predictor);
+		}
+		// the color conversion handles gray scale, palette, and RGB only,
+		// libtiff converts the rest (YCbCr, CMYK, CIELab, ...)
+		int photometric = getInt(GTIF.TIFFTAG_PHOTOMETRIC, MappedGTIF.PHOTOMETRIC_MINISBLACK);
+		if ((photometric != MappedGTIF.PHOTOMETRIC_MINISWHITE) && (photometric != MappedGTIF.PHOTOMETRIC_MINISBLACK)
+			&& (photometric != MappedGTIF.PHOTOMETRIC_PALETTE) && (photometric != GTIF.PHOTOMETRIC_RGB)) {
+			return ("photometric interpretation " + photometric);
+		}
+		if ((photometric == MappedGTIF.PHOTOMETRIC_PALETTE) && (bitsPerSample > 16)) {
+			return (bitsPerSample + " bit palette indices");
+		}
+		int sampleFormat = getInt(GTIF.TIFFTAG_SAMPLEFORMAT, GTIF.SAMPLEFORMAT_UINT);
+		if ((sampleFormat != GTIF.SAMPLEFORMAT_UINT) && (sampleFormat != GTIF.SAMPLEFORMAT_INT)
+			&& (sampleFormat != GTIF.SAMPLEFORMAT_IEEEFP)) {
+			return ("sample format " + sampleFormat);
+		}
+		if ((sampleFormat == GTIF.SAMPLEFORMAT_IEEEFP) && (samplesPerPixel > 1)) {
+			return ("floating point color");
+		}
+		return (null);
+	}
+
+	/**
+	 * Get a tag value.
+	 * 
+	 * @param tag
+	 * @return null if the tag is not present
+	 */
+	public Field getField(int tag) {
+		return (fieldMap.get(tag));
+	}
+
+	/**
+	 * Get the first value of a numeric tag.
+	 * 
+	 * @param tag
+	 * @param defaultValue
+	 * @return
+	 */
+	public int getInt(int tag, int defaultValue) {
+		Field field = fieldMap.get(tag);
+		if ((field == null) || (field.number == null) || (field.count == 0)) {
+			return (defaultValue);
+		}
+		return ((int) Math.min(field.number[0], Integer.MAX_VALUE));
+	}
+
+	public ByteOrder getByteOrder() {
+		return (byteOrder);
+	}
+
+	public boolean isBigTiff() {
+		return (bigTiff);
+	}
+
+	public boolean isTiled() {
+		return (tiled);
+	}
+
+	public int getWidth() {
+		return (width);
+	}
+
+	public int getLength() {
+		return (length);
+	}
+
+	public int getSamplesPerPixel() {
+		return (samplesPerPixel);
+	}
+
+	public int getBitsPerSample() {
+		return (bitsPerSample);
+	}
+
+	public int getCompression() {
+		return (compression);
+	}
+
+	/**
+	 * Get the number of strips or tiles.
+	 * 
+	 * @return
+	 */
+	public int getChunkCount() {
+		return (chunkOffset.length);
+	}
+
+	/**
+	 * Get the width of a tile, or the image width for strips.
+	 * 
+	 * @return
+	 */
+	public int getChunkWidth() {
+		return (chunkWidth);
+	}
+
+	/**
+	 * Get the length of a tile, or the rows per strip.
+	 * 
+	 * @return
+	 */
+	public int getChunkLength() {
+		return (chunkLength);
+	}
+
+	/**
+	 * Get the decoded size of a full strip or tile in bytes.
+	 * 
+	 * @return
+	 */
+	public long getChunkSize() {
+		int spp = (planarConfiguration == GTIF.PLANARCONFIG_SEPARATE) ? 1 : samplesPerPixel;
+		return ((long) chunkWidth * chunkLength * spp * Math.max(1, bytesPerSample));
+	}
+
+	/**
+	 * Get the first raster row of a strip or tile.
+	 * 
+	 * @param chunk
+	 * @return
+	 */
+	public int getChunkTop(int chunk) {
+		return (((chunk % chunksPerPlane) / chunksAcross) * chunkLength);
+	}
+
+	/**
+	 * Get the first raster column of a strip or tile.
+	 * 
+	 * @param chunk
+	 * @return
+	 */
+	public int getChunkLeft(int chunk) {
+		return (((chunk % chunksPerPlane) % chunksAcross) * chunkWidth);
+	}
+
+	/**
+	 * Get the number of rows of a strip or tile that lie inside the image.
+	 * 
+	 * @param chunk
+	 * @return
+	 */
+	public int getChunkRows(int chunk) {
+		return (Math.min(chunkLength, length - getChunkTop(chunk)));
+	}
+
+	/**
+	 * Get the number of columns of a strip or tile that lie inside the image.
+	 * 
+	 * @param chunk
+	 * @return
+	 */
+	public int getChunkColumns(int chunk) {
+		return (Math.min(chunkWidth, width - getChunkLeft(chunk)));
+	}
+
+	/**
+	 * Decode a strip or tile. The result has the full strip or tile
+	 * dimensions, in the byte order of the file. Strips at the bottom of the
+	 * image hold only the rows inside the image.
+	 * 
+	 * @param chunk
+	 * @return the decoded bytes
+	 */
+	public byte[] decode(int chunk) {
+		int rows = tiled ? chunkLength : getChunkRows(chunk);
+		int spp = (planarConfiguration == GTIF.PLANARCONFIG_SEPARATE) ? 1 : samplesPerPixel;
+		byte[] data = new byte[chunkWidth * rows * spp * bytesPerSample];
+		long size = chunkByteCount[chunk];
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Cannot decode strip or tile larger than " + Integer.MAX_VALUE + " bytes.");
+		}
+		if (size > 0) {
+			TiffCodec.decompress(compression, getBuffer(chunkOffset[chunk], (int) size), data);
+		}
+		switch (predictor) {
+		case TiffCodec.PREDICTOR_HORIZONTAL:
+			TiffCodec.undoHorizontalPredictor(data, byteOrder, chunkWidth, rows, spp, bytesPerSample);
+			break;
+		case TiffCodec.PREDICTOR_FLOATINGPOINT:
+			TiffCodec.undoFloatingPointPredictor(data, byteOrder, chunkWidth, rows, spp, bytesPerSample);
+			break;
+		}
+		return (data);
+	}
+
+	/**
+	 * Copy the part of a decoded strip or tile that lies inside the image to
+	 * a packed array.
+	 * 
+	 * @param chunk
+	 * @param data
+	 *            the decoded bytes
+	 * @return the packed bytes, data itself if there is nothing to remove
+	 */
+	public byte[] crop(int chunk, byte[] data) {
+		int cols = getChunkColumns(chunk);
+		int rows = getChunkRows(chunk);
+		int spp = (planarConfiguration == GTIF.PLANARCONFIG_SEPARATE) ? 1 : samplesPerPixel;
+		int pixelSize = spp * bytesPerSample;
+		int size = cols * rows * pixelSize;
+		if (size == data.length) {
+			return (data);
+		}
+		byte[] result = new byte[size];
+		for (int r = 0; r < rows; ++r) {
+			System.arraycopy(data, r * chunkWidth * pixelSize, result, r * cols * pixelSize, cols * pixelSize);
+		}
+		return (result);
+	}
+
+	/**
+	 * Get a buffer for a range of the file. The buffer is independent of any
+	 * other so it may be used by one thread while others read the file.
+	 * 
+	 * @param offset
+	 * @param size
+	 * @return
+	 */
+	private ByteBuffer getBuffer(long offset, int size) {
+		if ((offset < 0) || (offset + size > fileSize)) {
+			throw new IllegalStateException(filePath + " is truncated, cannot read " + size + " bytes at " + offset
+				+ ".");
+		}
+		int i = (int) (offset / SEGMENT_STEP);
+		long position = offset - i * SEGMENT_STEP;
+		if (position + size <= segment[i].capacity()) {
+			return (slice(segment[i], (int) position, size));
+		}
+		// a range that spans segments is copied
+		byte[] bytes = new byte[size];
+		int k = 0;
+		while (k < size) {
+			long p = offset + k;
+			i = (int) (p / SEGMENT_STEP);
+			int start = (int) (p - i * SEGMENT_STEP);
+			int n = (int) Math.min(size - k, SEGMENT_STEP - start);
+			ByteBuffer view = segment[i].duplicate();
+			view.position(start);
+			view.get(bytes, k, n);
+			k += n;
+		}
+		return (ByteBuffer.wrap(bytes).order(byteOrder == null ? ByteOrder.BIG_ENDIAN : byteOrder));
+	}
+
+	private ByteBuffer slice(ByteBuffer buf, int position, int size) {
+		ByteBuffer view = buf.duplicate();
+		view.limit(position + size);
+		view.position(position);
+		view = view.slice();
+		view.order(byteOrder == null ? ByteOrder.BIG_ENDIAN : byteOrder);
+		return (view);
+	}
+
+}
@@ -105,7 +105,9 @@ import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
 import gov.nasa.arc.dert.landscape.srs.ProjectionInfo;
 import gov.nasa.arc.dert.raster.Raster;
 import gov.nasa.arc.dert.raster.RasterFileImpl;
+import gov.nasa.arc.dert.raster.RasterStatistics;
 import gov.nasa.arc.dert.raster.pds.PdsLabel.KeyValue;
+import gov.nasa.arc.dert.util.MathUtil;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
@@ -115,8 +117,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Properties;
@@ -247,6 +252,11 @@ public class PDS extends RasterFileImpl {
 		if (type.contains("_REAL")) {
 			dataType = DataType.Float;
 			bytesPerSample = 4;
+			if (type.startsWith("PC_")) {
+				byteOrder = ByteOrder.LITTLE_ENDIAN;
+			} else if (type.startsWith("IEEE_") || type.startsWith("MAC_") || type.startsWith("SUN_")) {
+				byteOrder = ByteOrder.BIG_ENDIAN;
+			}
 		} else {
 			boolean unsigned = type.contains("UNSIGNED");
 			if (type.startsWith("LSB_")) {
@@ -595,11 +605,19 @@ public class PDS extends RasterFileImpl {
 			throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
 		}
 
-		if ((minimum == null) || (maximum == null)) {
-			computeMinMaxFromStrip(dataType, numStrips, stripSize, stripWidth, stripHeight);
+		// The extrema are gathered with the other statistics while loading
+		statistics = new RasterStatistics(1);
+		boolean findMinMax = (minimum == null) || (maximum == null);
+		if (findMinMax) {
+			minimum = ANY_MINIMUM.clone();
+			maximum = ANY_MAXIMUM.clone();
 		}
 
 		loadFromStrip(dataType, numStrips, stripSize, stripWidth, stripHeight, raster, false);
+
+		if (findMinMax) {
+			setMinMaxFromStatistics();
+		}
 	}
 
 	/**
@@ -620,11 +638,19 @@ public class PDS extends RasterFileImpl {
 			throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
 		}
 
-		if ((minimum == null) || (maximum == null)) {
-			computeMinMaxFromStrip(dataType, numStrips, stripSize, stripWidth, stripHeight);
+		// The extrema are gathered with the other statistics while loading
+		statistics = new RasterStatistics(1);
+		boolean findMinMax = (minimum == null) || (maximum == null);
+		if (findMinMax) {
+			minimum = ANY_MINIMUM.clone();
+			maximum = ANY_MAXIMUM.clone();
 		}
 
 		loadFromStrip(dataType, numStrips, stripSize, stripWidth, stripHeight, raster, false);
+
+		if (findMinMax) {
+			setMinMaxFromStatistics();
+		}
 	}
 
 	/**
@@ -645,6 +671,8 @@ public class PDS extends RasterFileImpl {
 			throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
 		}
 
+		// The gray scale conversion needs the extrema before loading
+		statistics = new RasterStatistics(1);
 		if ((minimum == null) || (maximum == null)) {
 			computeMinMaxFromStrip(dataType, numStrips, stripSize, stripWidth, stripHeight);
 		}
@@ -720,11 +748,43 @@ public class PDS extends RasterFileImpl {
 	 */
 	protected final void loadFromStrip(DataType dataType, int numStrips, int size, int width, int height,
 		Raster raster, boolean gray) throws IOException {
+		loadFromStrip(dataType, 0, numStrips, size, width, height, raster, gray);
+	}
+
+	/**
+	 * Load data from a range of strips into a raster that starts with the
+	 * first strip, converting data.
+	 * 
+	 * @param dataType
+	 *            the data type of the raster.
+	 * @param first
+	 *            the first strip
+	 * @param numStrips
+	 *            number of strips to read from the file.
+	 * @param size
+	 *            size of a strip
+	 * @param width
+	 *            width of a strip
+	 * @param height
+	 *            height of a strip
+	 * @param raster
+	 *            the raster
+	 * @param gray
+	 *            convert to gray scale unsigned byte
+	 * @throws IOException
+	 */
+	protected final void loadFromStrip(DataType dataType, int first, int numStrips, int size, int width, int height,
+		Raster raster, boolean gray) throws IOException {
+		// single band images are read straight from a memory map of the file
+		if (samplesPerPixel == 1) {
+			loadFromMappedStrip(first, numStrips, width, height, raster, gray);
+			return;
+		}
 		if (iStream != null) {
 			iStream.close();
 		}
 		iStream = new FileImageInputStream(new File(dataFilePath));
-		iStream.seek(imageStart);
+		iStream.seek(imageStart + (long) first * width * height * bytesPerSample);
 
 		// Allocate memory
 		byte[] bbArray = new byte[size];
@@ -732,9 +792,9 @@ public class PDS extends RasterFileImpl {
 		bbuf.order(byteOrder);
 		bbuf.rewind();
 
-		// Read each strip and place it in the full size raster.
+		// Read each strip and place it in the raster.
 		int r = 0; // row pixel of upper left corner of strip
-		for (int i = 0; i < numStrips; ++i) {
+		for (int i = first; i < (first + numStrips); ++i) {
 			// determine the height of each strip in case it is short
 			int h = Math.min(rasterLength - height * i, height); // strip height
 			int len = h * width * bytesPerSample;
@@ -742,9 +802,10 @@ public class PDS extends RasterFileImpl {
 			bbuf.rewind();
 			bbuf.limit(len);
 			if (gray) {
-				raster.setAsGray(r, 0, rasterWidth, h, bbuf, dataType, minimum, maximum, missing);
+				raster.setAsGray(r, 0, rasterWidth, h, bbuf, dataType, minimum, maximum, missing, statistics);
 			} else {
-				raster.setAsFloat(r, 0, rasterWidth, h, bbuf, dataType, scalingFactor, minimum, maximum, missing);
+				raster.setAsFloat(r, 0, rasterWidth, h, bbuf, dataType, scalingFactor, minimum, maximum, missing,
+					statistics);
 			}
 			r += h;
 		}
@@ -767,31 +828,233 @@ public class PDS extends RasterFileImpl {
 	 */
 	protected final void computeMinMaxFromStrip(DataType dataType, int numStrips, int size, int width, int height)
 		throws IOException {
-		if (iStream != null) {
-			iStream.close();
-		}
-		iStream = new FileImageInputStream(new File(dataFilePath));
-		iStream.seek(imageStart);
 
 		minimum = new double[samplesPerPixel];
 		Arrays.fill(minimum, Double.MAX_VALUE);
 		maximum = new double[samplesPerPixel];
 		Arrays.fill(maximum, -Double.MAX_VALUE);
 
-		// Allocate memory
-		byte[] bbArray = new byte[size];
-		ByteBuffer bbuf = ByteBuffer.wrap(bbArray);
+		RandomAccessFile raf = new RandomAccessFile(dataFilePath, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long stripSize = (long) width * height * bytesPerSample;
+
+			// Map each strip and visit its samples in place.
+			for (int i = 0; i < numStrips; ++i) {
+				// determine the height of each strip in case it is short
+				int h = Math.min(rasterLength - height * i, height); // strip height
+				computeMinMax(mapStrip(channel, i * stripSize, (long) h * width * bytesPerSample));
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Load single band data from a memory map of the file into a raster,
+	 * converting data. Float samples already in the byte order of the raster
+	 * that need no scaling or replacement are copied from the map to the
+	 * raster in bulk. Otherwise the samples are converted into a buffer that
+	 * is reused for every strip.
+	 * 
+	 * @param numStrips
+	 *            number of strips to read from the file.
+	 * @param width
+	 *            width of a strip
+	 * @param height
+	 *            height of a strip
+	 * @param raster
+	 *            the raster
+	 * @param gray
+	 *            convert to gray scale unsigned byte
+	 * @throws IOException
+	 */
+	protected final void loadFromMappedStrip(int numStrips, int width, int height, Raster raster, boolean gray)
+		throws IOException {
+		loadFromMappedStrip(0, numStrips, width, height, raster, gray);
+	}
+
+	/**
+	 * Load single band data from a memory map of a range of strips into a
+	 * raster that starts with the first strip, converting data.
+	 * 
+	 * @param first
+	 *            the first strip
+	 * @param numStrips
+	 *            number of strips to read from the file.
+	 * @param width
+	 *            width of a strip
+	 * @param height
+	 *            height of a strip
+	 * @param raster
+	 *            the raster
+	 * @param gray
+	 *            convert to gray scale unsigned byte
+	 * @throws IOException
+	 */
+	protected final void loadFromMappedStrip(int first, int numStrips, int width, int height, Raster raster,
+		boolean gray) throws IOException {
+
+		// rasters hold big endian samples
+		boolean direct = !gray && (dataType == DataType.Float) && (scalingFactor == 1)
+			&& (byteOrder == ByteOrder.BIG_ENDIAN);
+		ByteBuffer outBuf = ByteBuffer.allocate(width * height * (gray ? 1 : 4));
+
+		RandomAccessFile raf = new RandomAccessFile(dataFilePath, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long stripSize = (long) width * height * bytesPerSample;
+
+			// Map each strip and place it in the raster.
+			int r = 0; // row pixel of upper left corner of strip
+			for (int i = first; i < (first + numStrips); ++i) {
+				// determine the height of each strip in case it is short
+				int h = Math.min(rasterLength - height * i, height); // strip height
+				int n = h * width;
+				ByteBuffer bbuf = mapStrip(channel, i * stripSize, (long) n * bytesPerSample);
+				if (direct && scanFloatStrip(bbuf, n)) {
+					raster.set(r, h, bbuf);
+				} else {
+					// the statistics were already gathered by the scan
+					convertStrip(bbuf, n, outBuf, gray, direct ? null : statistics);
+					raster.set(r, h, outBuf);
+				}
+				r += h;
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Map a portion of the image read only.
+	 * 
+	 * @param channel
+	 * @param offset
+	 *            offset from the start of the image
+	 * @param size
+	 * @return the mapped buffer in the file byte order
+	 * @throws IOException
+	 */
+	private ByteBuffer mapStrip(FileChannel channel, long offset, long size) throws IOException {
+		if ((imageStart + offset + size) > channel.size()) {
+			throw new IOException(dataFilePath + " is shorter than the image described by its label.");
+		}
+		ByteBuffer bbuf = channel.map(MapMode.READ_ONLY, imageStart + offset, size);
 		bbuf.order(byteOrder);
-		bbuf.rewind();
+		return (bbuf);
+	}
 
-		// Read each strip and place it in the full size raster.
-		for (int i = 0; i < numStrips; ++i) {
-			// determine the height of each strip in case it is short
-			int h = Math.min(rasterLength - height * i, height); // strip height
-			int len = h * width * bytesPerSample;
-			iStream.read(bbArray, 0, len);
-			bbuf.rewind();
-			computeMinMax(bbuf);
+	/**
+	 * Add a strip of float samples to the statistics and determine if it can
+	 * be copied without conversion.
+	 * 
+	 * @param bbuf
+	 * @param n
+	 *            number of samples
+	 * @return true if no sample needs to be replaced with NaN
+	 */
+	private boolean scanFloatStrip(ByteBuffer bbuf, int n) {
+		double lo = minimum[0];
+		double hi = maximum[0];
+		boolean unchanged = true;
+		for (int i = 0; i < n; ++i) {
+			float val = bbuf.getFloat(i * 4);
+			if (Float.isNaN(val)) {
+				statistics.add(0, Double.NaN);
+			} else if ((val == missing) || (val < lo) || (val > hi)) {
+				statistics.add(0, Double.NaN);
+				unchanged = false;
+			} else {
+				statistics.add(0, val);
+			}
+		}
+		return (unchanged);
+	}
+
+	/**
+	 * Convert a strip of samples to float or gray scale unsigned byte.
+	 * 
+	 * @param bbuf
+	 *            the samples in the file byte order
+	 * @param n
+	 *            number of samples
+	 * @param outBuf
+	 *            the converted samples
+	 * @param gray
+	 *            convert to gray scale
+	 * @param stats
+	 *            statistics for the converted samples, may be null
+	 */
+	private void convertStrip(ByteBuffer bbuf, int n, ByteBuffer outBuf, boolean gray, RasterStatistics stats) {
+		double lo = minimum[0];
+		double hi = maximum[0];
+		switch (dataType) {
+		case Float:
+			for (int i = 0; i < n; ++i) {
+				convert(bbuf.getFloat(i * 4), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		case Integer:
+			for (int i = 0; i < n; ++i) {
+				convert(bbuf.getInt(i * 4), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		case UnsignedInteger:
+			for (int i = 0; i < n; ++i) {
+				convert(MathUtil.unsignedInt(bbuf.getInt(i * 4)), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		case Short:
+			for (int i = 0; i < n; ++i) {
+				convert(bbuf.getShort(i * 2), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		case UnsignedShort:
+			for (int i = 0; i < n; ++i) {
+				convert(MathUtil.unsignedShort(bbuf.getShort(i * 2)), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		case Byte:
+			for (int i = 0; i < n; ++i) {
+				convert(bbuf.get(i), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		case UnsignedByte:
+			for (int i = 0; i < n; ++i) {
+				convert(MathUtil.unsignedByte(bbuf.get(i)), i, outBuf, gray, lo, hi, stats);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Cannot convert PDS data type " + dataType + ".");
+		}
+	}
+
+	/**
+	 * Convert one sample. Missing values and values outside of the range
+	 * become NaN or 0 (gray).
+	 */
+	private void convert(double val, int i, ByteBuffer outBuf, boolean gray, double lo, double hi,
+		RasterStatistics stats) {
+		boolean valid = !Double.isNaN(val) && (val != missing) && (val >= lo) && (val <= hi);
+		if (gray) {
+			byte b = 0;
+			if (valid) {
+				b = (byte) (254.0 * (val - lo) / (hi - lo) + 1);
+			}
+			outBuf.put(i, b);
+			if (stats != null) {
+				stats.add(0, valid ? (b & 0xff) : Double.NaN);
+			}
+		} else {
+			float f = Float.NaN;
+			if (valid) {
+				f = (float) val * scalingFactor;
+			}
+			outBuf.putFloat(i * 4, f);
+			if (stats != null) {
+				stats.add(0, f);
+			}
 		}
 	}
 
@@ -802,6 +1065,128 @@ public class PDS extends RasterFileImpl {
 	 */
 	@Override
 	public void loadRGBA(Raster raster) throws IOException {
+		int stripHeight = Math.min(STRIP_ROWS, rasterLength);
+		int numStrips = (int) Math.ceil((double) rasterLength / stripHeight);
+		statistics = new RasterStatistics(4);
+
+		loadRGBAFromStrip(0, numStrips, raster);
+
+		if (minimum == null) {
+			minimum = new double[] { 0, 0, 0, 1 };
+		}
+		if (maximum == null) {
+			maximum = new double[] { 255, 255, 255, 255 };
+		}
+
+	}
+
+	/**
+	 * Get the number of rows in a band, the height of the strips the file is
+	 * read in.
+	 * 
+	 * @return the number of rows
+	 */
+	@Override
+	public int getBandLength() {
+		return (Math.min(STRIP_ROWS, rasterLength));
+	}
+
+	/**
+	 * Load a band of rows into a raster, converting data to float.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBand(Raster raster, int top) throws IOException {
+		int rows = getBandRows(raster, top);
+		int stripHeight = getBandLength();
+		int stripWidth = rasterWidth * samplesPerPixel;
+		long stripSize = (long) stripWidth * stripHeight * bytesPerSample;
+
+		// Java limits ByteBuffer sizes
+		if (stripSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
+		}
+
+		startFloatBand(top);
+		loadFromStrip(dataType, top / stripHeight, (rows + stripHeight - 1) / stripHeight, (int) stripSize,
+			stripWidth, stripHeight, raster, false);
+		endFloatBand(top, rows);
+	}
+
+	/**
+	 * Load a band of rows into a raster, converting data to unsigned byte
+	 * gray scale.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandGray(Raster raster, int top) throws IOException {
+		int rows = getBandRows(raster, top);
+		int stripHeight = getBandLength();
+		int stripWidth = rasterWidth * samplesPerPixel;
+		long stripSize = (long) stripWidth * stripHeight * bytesPerSample;
+
+		// Java limits ByteBuffer sizes
+		if (stripSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
+		}
+
+		// The gray scale conversion needs the extrema before loading
+		if (top == 0) {
+			statistics = new RasterStatistics(1);
+			if ((minimum == null) || (maximum == null)) {
+				computeMinMaxFromStrip(dataType, (int) Math.ceil((double) rasterLength / stripHeight),
+					(int) stripSize, stripWidth, stripHeight);
+			}
+		}
+		loadFromStrip(dataType, top / stripHeight, (rows + stripHeight - 1) / stripHeight, (int) stripSize,
+			stripWidth, stripHeight, raster, true);
+		if ((top + rows) == rasterLength) {
+			minimum = new double[] { 0 };
+			maximum = new double[] { 255 };
+		}
+	}
+
+	/**
+	 * Load a band of rows as an RGBA image.
+	 * 
+	 * @param raster
+	 * @param top
+	 */
+	@Override
+	public void loadBandRGBA(Raster raster, int top) throws IOException {
+		int rows = getBandRows(raster, top);
+		int stripHeight = getBandLength();
+		if (top == 0) {
+			statistics = new RasterStatistics(4);
+		}
+		loadRGBAFromStrip(top / stripHeight, (rows + stripHeight - 1) / stripHeight, raster);
+		if ((top + rows) == rasterLength) {
+			if (minimum == null) {
+				minimum = new double[] { 0, 0, 0, 1 };
+			}
+			if (maximum == null) {
+				maximum = new double[] { 255, 255, 255, 255 };
+			}
+		}
+	}
+
+	/**
+	 * Load a range of strips as RGBA pixels into a raster that starts with
+	 * the first strip.
+	 * 
+	 * @param first
+	 *            the first strip
+	 * @param numStrips
+	 *            the number of strips
+	 * @param raster
+	 *            the raster
+	 * @throws IOException
+	 */
+	protected final void loadRGBAFromStrip(int first, int numStrips, Raster raster) throws IOException {
 		if (bandStorageType == null) {
 			throw new IllegalArgumentException("Unable to find BAND_STORAGE_TYPE.");
 		}
@@ -812,11 +1197,9 @@ public class PDS extends RasterFileImpl {
 			iStream.close();
 		}
 		iStream = new FileImageInputStream(new File(dataFilePath));
-		iStream.seek(imageStart);
 
 		int stripHeight = Math.min(STRIP_ROWS, rasterLength);
 		int stripWidth = rasterWidth * samplesPerPixel;
-		int numStrips = (int) Math.ceil((double) rasterLength / stripHeight);
 
 		// samples are grouped together for each pixel
 		if (bandStorageType.equals("SAMPLE_INTERLEAVED")) {
@@ -830,11 +1213,11 @@ public class PDS extends RasterFileImpl {
 			// Allocate memory directly
 			byte[] bbArray = new byte[stripSize];
 			ByteBuffer bbuf = ByteBuffer.allocate(4 * rasterWidth * stripHeight);
-			iStream.seek(imageStart);
+			iStream.seek(imageStart + (long) first * stripHeight * stripWidth);
 
-			// Read each strip and place it in the full size raster.
+			// Read each strip and place it in the raster.
 			int r = 0; // row pixel of upper left corner of strip
-			for (int i = 0; i < numStrips; ++i) {
+			for (int i = first; i < (first + numStrips); ++i) {
 				// determine the height of each strip in case it is short
 				int h = Math.min(rasterLength - stripHeight * i, stripHeight); // compute
 																				// the
@@ -844,20 +1227,22 @@ public class PDS extends RasterFileImpl {
 																				// strip
 				int len = h * stripWidth;
 				len = iStream.read(bbArray, 0, len);
+				bbuf.clear();
 				for (int j = 0; j < h; ++j) {
 					for (int k = 0; k < stripWidth; k += samplesPerPixel) {
 						for (int l = 0; l < samplesPerPixel; ++l) {
-							bbuf.put(bbArray[k + l]);
+							bbuf.put(bbArray[j * stripWidth + k + l]);
 						}
 						if (samplesPerPixel == 3) {
 							bbuf.put((byte) 255);
 						}
 					}
-					r++;
 				}
 				bbuf.rewind();
+				statistics.addRGBA(bbuf.array(), rasterWidth * h);
 				// raster.set(r, rasterWidth, h, bbuf);
-				raster.set(r, h, bbArray);
+				raster.set(r, h, bbuf.array());
+				r += h;
 			}
 		}
 		// samples are separated into bands
@@ -870,44 +1255,33 @@ public class PDS extends RasterFileImpl {
 				throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
 			}
 
-			raster.set(255);
 			byte[] bArray = new byte[4 * rasterWidth * stripHeight];
 
 			// Allocate memory
 			byte[] bbArray = new byte[stripSize];
-			iStream.seek(imageStart);
-
-			for (int k = 0; k < samplesPerPixel; ++k) {
-				// Read each strip and place it in the full size raster.
-				int r = 0; // row pixel of upper left corner of strip
-				for (int i = 0; i < numStrips; ++i) {
-					// determine the height of each strip in case it is short
-					int h = Math.min(rasterLength - stripHeight * i, stripHeight); // compute
-																					// the
-																					// height
-																					// of
-																					// the
-																					// strip
-					int len = h * rasterWidth;
-					len = iStream.read(bbArray, 0, len);
-					for (int j = 0; j < h; ++j) {
-						raster.get(r, bArray);
-						for (int c = 0; c < rasterWidth; ++c) {
+
+			// Read each strip from every band and place it in the raster.
+			int r = 0; // row pixel of upper left corner of strip
+			for (int i = first; i < (first + numStrips); ++i) {
+				// determine the height of each strip in case it is short
+				int h = Math.min(rasterLength - stripHeight * i, stripHeight);
+				int len = h * rasterWidth;
+				Arrays.fill(bArray, (byte) 255);
+				for (int k = 0; k < samplesPerPixel; ++k) {
+					iStream.seek(imageStart + ((long) k * rasterLength + (long) i * stripHeight) * rasterWidth);
+					iStream.read(bbArray, 0, len);
+					if (k < 4) {
+						for (int c = 0; c < len; ++c) {
 							bArray[c * 4 + k] = bbArray[c];
 						}
-						raster.set(r, 1, bArray);
-						r++;
 					}
 				}
+				// the pixels are complete with the last band
+				statistics.addRGBA(bArray, len);
+				raster.set(r, h, bArray);
+				r += h;
 			}
 		}
-		if (minimum == null) {
-			minimum = new double[] { 0, 0, 0, 1 };
-		}
-		if (maximum == null) {
-			maximum = new double[] { 255, 255, 255, 255 };
-		}
-
 	}
 
 	/**
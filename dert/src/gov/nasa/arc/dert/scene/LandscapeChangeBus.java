@@ -0,0 +1,265 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.scene;
+
+import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Collects the landscape quad trees that change during a frame and delivers
+ * them to the listeners in one batch after the frame. A quad tree that
+ * changes more than once, or that lies inside another changed quad tree, is
+ * only delivered once.
+ *
+ */
+public class LandscapeChangeBus {
+
+	// Orders quad trees from the coarsest level to the finest
+	private static final Comparator<QuadTree> levelComparator = new Comparator<QuadTree>() {
+		@Override
+		public int compare(QuadTree qt0, QuadTree qt1) {
+			return (qt0.getKey().getLevel() - qt1.getKey().getLevel());
+		}
+	};
+
+	// Quad trees changed since the last dispatch
+	private ArrayList<QuadTree> pendingList;
+
+	// Listeners
+	private ArrayList<LandscapeListener> listenerList;
+
+	// Counters
+	private long postedCount, coalescedCount, deliveredCount, dispatchCount;
+
+	/**
+	 * Constructor
+	 */
+	public LandscapeChangeBus() {
+		pendingList = new ArrayList<QuadTree>();
+		listenerList = new ArrayList<LandscapeListener>();
+	}
+
+	/**
+	 * Add a listener.
+	 * 
+	 * @param listener
+	 */
+	public synchronized void addListener(LandscapeListener listener) {
+		listenerList.add(listener);
+	}
+
+	/**
+	 * Remove a listener.
+	 * 
+	 * @param listener
+	 */
+	public synchronized void removeListener(LandscapeListener listener) {
+		listenerList.remove(listener);
+	}
+
+	/**
+	 * Record a changed quad tree. It is delivered at the next dispatch.
+	 * 
+	 * @param quadTree
+	 */
+	public synchronized void post(QuadTree quadTree) {
+		pendingList.add(quadTree);
+		postedCount++;
+	}
+
+	/**
+	 * Deliver the quad trees changed since the last dispatch to the
+	 * listeners, after removing duplicates and quad trees inside another one.
+	 * Called once per frame after the landscape is updated.
+	 */
+	public void dispatch() {
+		QuadTree[] changed;
+		LandscapeListener[] listener;
+		synchronized (this) {
+			if (pendingList.isEmpty()) {
+				return;
+			}
+			ArrayList<QuadTree> batch = collapse(pendingList);
+			coalescedCount += pendingList.size() - batch.size();
+			deliveredCount += batch.size();
+			dispatchCount++;
+			pendingList.clear();
+			changed = new QuadTree[batch.size()];
+			batch.toArray(changed);
+			listener = new LandscapeListener[listenerList.size()];
+			listenerList.toArray(listener);
+		}
+		for (int i = 0; i < listener.length; ++i) {
+			listener[i].landscapeChanged(changed);
+		}
+	}
+
+	/**
+	 * Keep the coarsest of each set of nested quad trees.
+	 */
+	private ArrayList<QuadTree> collapse(ArrayList<QuadTree> list) {
+		ArrayList<QuadTree> sorted = new ArrayList<QuadTree>(list);
+		Collections.sort(sorted, levelComparator);
+		ArrayList<QuadTree> batch = new ArrayList<QuadTree>();
+		for (int i = 0; i < sorted.size(); ++i) {
+			QuadTree qt = sorted.get(i);
+			boolean covered = false;
+			for (int j = 0; j < batch.size(); ++j) {
+				if (qt.getKey().startsWith(batch.get(j).getKey())) {
+					covered = true;
+					break;
+				}
+			}
+			if (!covered) {
+				batch.add(qt);
+			}
+		}
+		return (batch);
+	}
+
+	/**
+	 * Get the number of quad tree changes posted.
+	 * 
+	 * @return
+	 */
+	public synchronized long getPostedCount() {
+		return (postedCount);
+	}
+
+	/**
+	 * Get the number of quad tree changes dropped because they were repeated
+	 * or inside another change.
+	 * 
+	 * @return
+	 */
+	public synchronized long getCoalescedCount() {
+		return (coalescedCount);
+	}
+
+	/**
+	 * Get the number of quad tree changes delivered to the listeners.
+	 * 
+	 * @return
+	 */
+	public synchronized long getDeliveredCount() {
+		return (deliveredCount);
+	}
+
+	/**
+	 * Get the number of batches delivered.
+	 * 
+	 * @return
+	 */
+	public synchronized long getDispatchCount() {
+		return (dispatchCount);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return ("LandscapeChangeBus posted=" + postedCount + " coalesced=" + coalescedCount + " delivered="
+			+ deliveredCount + " batches=" + dispatchCount);
+	}
+
+}
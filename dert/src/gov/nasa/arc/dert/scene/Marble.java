@@ -125,7 +125,7 @@ import com.ardor3d.scenegraph.hint.CullHint;
  * displays the surface normal at the point and the direction to the light.
  *
  */
-public class Marble extends FigureMarker implements MapElement {
+public class Marble extends FigureMarker implements MapElement, LandscapeListener {
 
 	// the direction arrow to the light
 	private DirectionArrow solarDirectionArrow;
@@ -210,8 +210,11 @@ public class Marble extends FigureMarker implements MapElement {
 		updateGeometricState(0);
 	}
 	
-	public void landscapeChanged(QuadTree quadTree) {
-		updateElevation(quadTree);
+	@Override
+	public void landscapeChanged(QuadTree[] quadTree) {
+		for (int i = 0; i < quadTree.length; ++i) {
+			updateElevation(quadTree[i]);
+		}
 	}
 
 	/**
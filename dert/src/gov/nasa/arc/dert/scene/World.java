@@ -158,6 +158,9 @@ public class World extends GroupNode {
 	// Special figure
 	private Marble marble;
 
+	// Batches landscape changes for the map elements
+	private LandscapeChangeBus landscapeChangeBus;
+
 	// The current time
 	private long timeUTC;
 
@@ -255,6 +258,7 @@ public class World extends GroupNode {
 		dirtyEventHandler = new DirtyEventHandler(contents);
 		SceneGraphManager.getSceneGraphManager().addDirtyEventListener(dirtyEventHandler);
 		selectionHandler = new SelectionHandler();
+		landscapeChangeBus = new LandscapeChangeBus();
 	}
 
 	/**
@@ -292,6 +296,11 @@ public class World extends GroupNode {
 		marble.setSolarDirection(lighting.getLightDirection());
 		contents.attachChild(marble);
 
+		// re-ground map elements when the landscape changes
+		landscapeChangeBus.addListener(marble);
+		landscapeChangeBus.addListener(landmarks);
+		landscapeChangeBus.addListener(featureSets);
+
 		// initialize the ruler
 		ruler = new TapeMeasure();
 		ruler.getSceneHints().setCullHint(CullHint.Always);
@@ -482,6 +491,15 @@ public class World extends GroupNode {
 		return (marble);
 	}
 
+	/**
+	 * Get the bus for landscape change notifications
+	 * 
+	 * @return
+	 */
+	public LandscapeChangeBus getLandscapeChangeBus() {
+		return (landscapeChangeBus);
+	}
+
 	/**
 	 * Set the current time
 	 * 
@@ -258,8 +258,7 @@ public class Feature
 			if (child instanceof LineStrip) {
 				LineStrip lineStrip = (LineStrip) child;
 				if (lineStrip.intersects(quadTree)) {
-					lineStrip.updateElevation(quadTree);
-					modified = true;
+					modified |= lineStrip.updateElevation(quadTree);
 				}
 			}
 			else if (child instanceof FigureMarker) {
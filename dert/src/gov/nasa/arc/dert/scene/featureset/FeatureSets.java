@@ -102,6 +102,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.scene.featureset;
 
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.scene.LandscapeListener;
 import gov.nasa.arc.dert.scenegraph.GroupNode;
 import gov.nasa.arc.dert.state.FeatureSetState;
 import gov.nasa.arc.dert.view.Console;
@@ -124,13 +125,17 @@ import com.ardor3d.scenegraph.hint.CullHint;
  * Provides a set of FeatureSet map elements.
  *
  */
-public class FeatureSets extends GroupNode {
+public class FeatureSets extends GroupNode implements LandscapeListener {
 
 	// List of FeatureSets
 	private ArrayList<FeatureSetState> featureSetList;
 
 	// Thread service for updating
 	private ExecutorService executor;
+
+	// Quad trees changed since the last elevation update
+	private ArrayList<QuadTree> changedList = new ArrayList<QuadTree>();
+	private boolean updatePending;
 	
 	private ZBufferState zBufferState;
 
@@ -166,18 +171,42 @@ public class FeatureSets extends GroupNode {
 	}
 
 	/**
-	 * The landscape has changed, update the elevation of all the FeatureSets
+	 * The landscape has changed, update the elevation of all the FeatureSets.
+	 * Changes that arrive while an update is waiting are handled together in
+	 * one batch.
 	 * 
 	 * @param quadTree
 	 */
-	public void landscapeChanged(final QuadTree quadTree) {
-		for (int i = 0; i < getNumberOfChildren(); ++i) {
-			final Spatial child = getChild(i);
-			Runnable runnable = new Runnable() {
-				@Override
-				public void run() {
-					Thread.yield();
-					boolean modified = ((FeatureSet) child).updateElevation(quadTree);
+	@Override
+	public void landscapeChanged(QuadTree[] quadTree) {
+		synchronized (changedList) {
+			for (int i = 0; i < quadTree.length; ++i) {
+				changedList.add(quadTree[i]);
+			}
+			if (updatePending) {
+				return;
+			}
+			updatePending = true;
+		}
+		final Spatial[] featureSet = new Spatial[getNumberOfChildren()];
+		getChildren().toArray(featureSet);
+		Runnable runnable = new Runnable() {
+			@Override
+			public void run() {
+				Thread.yield();
+				QuadTree[] changed;
+				synchronized (changedList) {
+					changed = new QuadTree[changedList.size()];
+					changedList.toArray(changed);
+					changedList.clear();
+					updatePending = false;
+				}
+				for (int i = 0; i < featureSet.length; ++i) {
+					final Spatial child = featureSet[i];
+					boolean modified = false;
+					for (int j = 0; j < changed.length; ++j) {
+						modified |= ((FeatureSet) child).updateElevation(changed[j]);
+					}
 					if (modified) {
 						EventQueue.invokeLater(new Runnable() {
 							@Override
@@ -187,9 +216,9 @@ public class FeatureSets extends GroupNode {
 						});
 					}
 				}
-			};
-			executor.execute(runnable);
-		}
+			}
+		};
+		executor.execute(runnable);
 	}
 
 	/**
@@ -105,6 +105,7 @@ import gov.nasa.arc.dert.Dert;
 import gov.nasa.arc.dert.io.CsvWriter;
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.scene.LandscapeListener;
 import gov.nasa.arc.dert.scene.Marble;
 import gov.nasa.arc.dert.scene.World;
 import gov.nasa.arc.dert.scenegraph.GroupNode;
@@ -129,7 +130,7 @@ import com.ardor3d.scenegraph.event.DirtyType;
  * Group of Landmarks
  *
  */
-public class Landmarks extends GroupNode {
+public class Landmarks extends GroupNode implements LandscapeListener {
 
 	// Landmark state list
 	private ArrayList<LandmarkState> landmarkList;
@@ -172,11 +173,14 @@ public class Landmarks extends GroupNode {
 	 * 
 	 * @param quadTree
 	 */
-	public void landscapeChanged(final QuadTree quadTree) {
+	@Override
+	public void landscapeChanged(QuadTree[] quadTree) {
 		for (int i = 0; i < getNumberOfChildren(); ++i) {
-			final Spatial child = getChild(i);
+			Spatial child = getChild(i);
 			if (child instanceof Landmark) {
-				((Landmark) child).updateElevation(quadTree);
+				for (int j = 0; j < quadTree.length; ++j) {
+					((Landmark) child).updateElevation(quadTree[j]);
+				}
 			}
 		}
 	}
@@ -105,6 +105,8 @@ import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.io.CsvWriter;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
+import gov.nasa.arc.dert.landscape.RegionStatisticsListener;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.scenegraph.HiddenLine;
 import gov.nasa.arc.dert.scenegraph.MotionListener;
@@ -117,6 +119,7 @@ import gov.nasa.arc.dert.state.WaypointState;
 import gov.nasa.arc.dert.util.MathUtil;
 import gov.nasa.arc.dert.util.SpatialUtil;
 import gov.nasa.arc.dert.util.StringUtil;
+import gov.nasa.arc.dert.util.TriangleGrid;
 import gov.nasa.arc.dert.util.UIUtil;
 import gov.nasa.arc.dert.view.Console;
 import gov.nasa.arc.dert.view.world.GroundEdit;
@@ -835,6 +838,11 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 				Waypoint wp = (Waypoint) pointSet.getChild(i);
 				coord.set(wp.getTranslation());
 				double elev = landscape.getElevationAtHighestLevel(coord.getX(), coord.getY());
+				// write the fill value where the landscape has no elevation,
+				// as the landscape mesh shows it
+				if (Double.isNaN(elev) && landscape.getElevationSampler().contains(coord.getX(), coord.getY())) {
+					elev = landscape.getFillElevation();
+				}
 				landscape.localToWorldCoordinate(coord);
 				coord.setZ(elev);
 				value[0] = Integer.toString(i);
@@ -1011,14 +1019,74 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 				vol = Landscape.getInstance().getSampledVolumeOfRegion(vertex, lowerBound, upperBound, volElev);
 			}
 			else {
-				poly.getSceneHints().setPickingHint(PickingHint.Pickable, true);
 				vol = Landscape.getInstance().getSampledVolumeOfRegion(vertex, lowerBound, upperBound, poly);
-				poly.getSceneHints().setPickingHint(PickingHint.Pickable, false);
 			}
 		}
 		return(vol);
 	}
 
+	/**
+	 * Compute statistics of the landscape inside the polygon in a single pass.
+	 * 
+	 * @param statistics
+	 *            the statistics to compute (RegionStatistics constants)
+	 * @param volElev
+	 *            the reference elevation for volume, NaN to use the polygon
+	 * @return the statistics, or null if there are too few points or the
+	 *         calculation was interrupted
+	 */
+	public RegionStatistics getRegionStatistics(int statistics, double volElev) {
+		return(getRegionStatistics(statistics, volElev, -1, null));
+	}
+
+	/**
+	 * Compute statistics of the landscape inside the polygon, refining from a
+	 * coarse pyramid level until the error estimate is within a tolerance.
+	 * 
+	 * @param statistics
+	 *            the statistics to compute (RegionStatistics constants)
+	 * @param volElev
+	 *            the reference elevation for volume, NaN to use the polygon
+	 * @param tolerance
+	 *            the relative error allowed, 0 to refine to the highest level,
+	 *            less than 0 to use only the highest level
+	 * @param listener
+	 *            notified with the result of each level, may be null
+	 * @return the statistics, or null if there are too few points or the
+	 *         calculation was interrupted
+	 */
+	public RegionStatistics getRegionStatistics(int statistics, double volElev, double tolerance, RegionStatisticsListener listener) {
+		int n = getNumberOfPoints();
+		if (n < 3) {
+			return(null);
+		}
+		Vector3[] vertex = pointSet.getPolygonVertices();
+		TriangleGrid surface = null;
+		if (((statistics & RegionStatistics.VOLUME) != 0) && Double.isNaN(volElev)) {
+			surface = new TriangleGrid(poly);
+		}
+		if (tolerance < 0) {
+			return(Landscape.getInstance().getRegionStatistics(vertex, lowerBound, upperBound, statistics, volElev, surface));
+		}
+		return(Landscape.getInstance().getRegionStatistics(vertex, lowerBound, upperBound, statistics, volElev, surface, tolerance, listener));
+	}
+
+	/**
+	 * Get the mean and standard deviation of the elevation inside the polygon
+	 * from the summed-area tables of the elevation tiles. The tables are kept,
+	 * so this is fast when repeated while the path is edited.
+	 * 
+	 * @return the statistics, or null if there are too few points
+	 */
+	public RegionStatistics getElevationStatistics() {
+		int n = getNumberOfPoints();
+		if (n < 3) {
+			return(null);
+		}
+		Vector3[] vertex = pointSet.getPolygonVertices();
+		return(Landscape.getInstance().getElevationStatistics(vertex, lowerBound, upperBound));
+	}
+
 //	public String getStatistics() {
 //		pointSet.updatePolygon(poly);
 //		int n = getNumberOfPoints();
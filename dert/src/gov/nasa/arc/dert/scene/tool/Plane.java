@@ -104,6 +104,7 @@ package gov.nasa.arc.dert.scene.tool;
 import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.scenegraph.BillboardMarker;
 import gov.nasa.arc.dert.scenegraph.HiddenLine;
@@ -808,12 +809,46 @@ public class Plane extends Node implements Tool, ViewDependent {
 	 * @param size
 	 * @param diff
 	 * @param minMaxElev
-	 * @return
+	 * @return the number of rows and columns, or null if interrupted
 	 */
 	public int[] getElevationDifference(int imageSize, float[][] diff, float[] minMaxElev) {
 		updatePlane();
 		updatePolygon();
-		
+		Vector3[] vertex = getVertices();
+
+		// determine sample size
+		double sampleWidth = (upperBound.getX() - lowerBound.getX()) / imageSize;
+		double sampleLength = (upperBound.getY() - lowerBound.getY()) / imageSize;
+		sampleWidth = Math.max(sampleWidth, Landscape.getInstance().getPixelWidth());
+		sampleLength = Math.max(sampleLength, Landscape.getInstance().getPixelLength());
+		double sampleSize = Math.max(sampleWidth, sampleLength);
+
+		// get elevation differences
+		double[] planeEqCopy = new double[planeEq.length];
+		System.arraycopy(planeEq, 0, planeEqCopy, 0, planeEq.length);
+		int[] result = Landscape.getInstance().getSampledDifferenceOfRegion(vertex, lowerBound, upperBound, planeEqCopy, sampleSize, diff, minMaxElev);
+		return (result);
+	}
+
+	/**
+	 * Get the mean and standard deviation of the terrain elevation inside
+	 * the plane from the summed-area tables of the elevation tiles. The
+	 * tables are kept, so this is fast when repeated while the plane is
+	 * edited.
+	 * 
+	 * @return
+	 */
+	public RegionStatistics getElevationStatistics() {
+		updatePlane();
+		updatePolygon();
+		Vector3[] vertex = getVertices();
+		return (Landscape.getInstance().getElevationStatistics(vertex, lowerBound, upperBound));
+	}
+
+	/**
+	 * Get the closed polygon of the plane corners and update the bounds.
+	 */
+	private Vector3[] getVertices() {
 		// get plane vertices
 		Vector3[] vertex = new Vector3[5];
 		vertex[0] = new Vector3(p0Loc);
@@ -833,19 +868,7 @@ public class Plane extends Node implements Tool, ViewDependent {
 			lowerBound.setZ(Math.min(lowerBound.getZ(), vertex[i].getZ()));
 			upperBound.setZ(Math.max(upperBound.getZ(), vertex[i].getZ()));
 		}
-
-		// determine sample size
-		double sampleWidth = (upperBound.getX() - lowerBound.getX()) / imageSize;
-		double sampleLength = (upperBound.getY() - lowerBound.getY()) / imageSize;
-		sampleWidth = Math.max(sampleWidth, Landscape.getInstance().getPixelWidth());
-		sampleLength = Math.max(sampleLength, Landscape.getInstance().getPixelLength());
-		double sampleSize = Math.max(sampleWidth, sampleLength);
-
-		// get elevation differences
-		double[] planeEqCopy = new double[planeEq.length];
-		System.arraycopy(planeEq, 0, planeEqCopy, 0, planeEq.length);
-		int[] result = Landscape.getInstance().getSampledDifferenceOfRegion(vertex, lowerBound, upperBound, planeEqCopy, sampleSize, diff, minMaxElev);
-		return (result);
+		return (vertex);
 	}
 
 	/**
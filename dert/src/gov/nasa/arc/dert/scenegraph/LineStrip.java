@@ -103,6 +103,7 @@ package gov.nasa.arc.dert.scenegraph;
 
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.util.GridIndex;
 import gov.nasa.arc.dert.util.UIUtil;
 
 import java.awt.Color;
@@ -124,6 +125,11 @@ import com.ardor3d.scenegraph.hint.TextureCombineMode;
  */
 public class LineStrip extends Line {
 
+	// Spatial index of the vertices for updating elevation
+	private GridIndex gridIndex;
+	private FloatBuffer indexedBuffer;
+	private int[] found;
+
 	/**
 	 * Constructor
 	 * 
@@ -141,26 +147,45 @@ public class LineStrip extends Line {
 	}
 
 	/**
-	 * Update the elevation when the landscape changes.
+	 * Update the elevation when the landscape changes. Only the vertices
+	 * inside the changed quad tree are re-sampled.
 	 * 
 	 * @param quadTree
+	 * @return true if any vertices were updated
 	 */
-	public synchronized void updateElevation(QuadTree quadTree) {
+	public synchronized boolean updateElevation(QuadTree quadTree) {
 		FloatBufferData vertexData = _meshData.getVertexCoords();
 		FloatBuffer vertex = vertexData.getBuffer();
-		int n = vertex.limit();
+		int n = vertex.limit() / 3;
+		Vector3[] corner = quadTree.getCornerPoints();
+		if (corner == null) {
+			return (false);
+		}
+		// the X,Y coordinates do not change so the index is kept until the
+		// buffer is replaced
+		if ((gridIndex == null) || (indexedBuffer != vertex) || (gridIndex.getNumberOfPoints() != n)) {
+			gridIndex = new GridIndex(vertex, n);
+			indexedBuffer = vertex;
+			found = new int[n];
+		}
+		int count = gridIndex.find(corner[0].getX(), corner[0].getY(), corner[2].getX(), corner[2].getY(), found);
+		if (count == 0) {
+			return (false);
+		}
 		Landscape landscape = Landscape.getInstance();
-		for (int i = 0; i < n; i += 3) {
-			float x = vertex.get(i);
-			float y = vertex.get(i + 1);
+		for (int i = 0; i < count; ++i) {
+			int k = found[i] * 3;
+			float x = vertex.get(k);
+			float y = vertex.get(k + 1);
 			double z = landscape.getZ(x, y) + 0.1;
 			if (!Double.isNaN(z)) {
-				vertex.put(i + 2, (float) z);
+				vertex.put(k + 2, (float) z);
 			}
 		}
 		
 		_meshData.setVertexCoords(vertexData);
 		updateModelBound();
+		return (true);
 	}
 
 	/**
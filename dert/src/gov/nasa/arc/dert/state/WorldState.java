@@ -103,7 +103,7 @@ package gov.nasa.arc.dert.state;
 
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.landscape.LayerManager;
-import gov.nasa.arc.dert.landscape.io.FileSystemTileSource;
+import gov.nasa.arc.dert.landscape.io.PackedTileSource;
 import gov.nasa.arc.dert.landscape.io.TileSource;
 import gov.nasa.arc.dert.lighting.Lighting;
 import gov.nasa.arc.dert.scene.World;
@@ -162,7 +162,7 @@ public class WorldState extends State {
 		viewData.setVisible(true);
 		lighting = new Lighting();
 		layerManager = new LayerManager();
-		tileSource = new FileSystemTileSource();
+		tileSource = new PackedTileSource();
 		username = "dert";
 		password = "dert";
 	}
@@ -177,7 +177,7 @@ public class WorldState extends State {
 		lighting = new Lighting((HashMap<String,Object>)map.get("Lighting"));
 		layerManager = new LayerManager((HashMap<String,Object>)map.get("LayerManager"));
 		hiddenDashed = StateUtil.getBoolean(map, "HiddenDashed", World.defaultHiddenDashed);
-		tileSource = new FileSystemTileSource();
+		tileSource = new PackedTileSource();
 		username = "dert";
 		password = "dert";
 	}
@@ -102,13 +102,20 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.test;
 
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
+import gov.nasa.arc.dert.landscape.SummedAreaTable;
 import gov.nasa.arc.dert.util.MathUtil;
 import gov.nasa.arc.dert.util.Tessellator;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Random;
 
 import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.intersection.IntersectionRecord;
+import com.ardor3d.intersection.PickingUtil;
+import com.ardor3d.intersection.PrimitivePickResults;
+import com.ardor3d.math.Ray3;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyVector3;
 import com.ardor3d.scenegraph.Mesh;
@@ -176,6 +183,26 @@ public class LandscapeTest {
 			return(false);
 		}
 		
+		if (!testGetRegionStatistics(landscape)) {
+			System.err.println("Test of Landscape.getRegionStatistics failed.");
+			return(false);
+		}
+		
+		if (!testParallelRegionStatistics(landscape)) {
+			System.err.println("Test of parallel Landscape.getRegionStatistics failed.");
+			return(false);
+		}
+		
+		if (!testTriangleGridVolume(landscape)) {
+			System.err.println("Test of Landscape.getSampledVolumeOfRegion with a triangle grid failed.");
+			return(false);
+		}
+		
+		if (!testSummedAreaTable()) {
+			System.err.println("Test of SummedAreaTable failed.");
+			return(false);
+		}
+		
 		
 		return(true);
 	}
@@ -348,4 +375,263 @@ public class LandscapeTest {
 		System.err.println("LandscapeTest.testGetSampledDifferenceOfRegion "+diffDim[0]+" x "+diffDim[1]+" region.");
 		return(true);
 	}
+	
+	private boolean testGetRegionStatistics(Landscape landscape) {
+		// concave polygon at positions that are not on the pixel grid
+		double zVal = -landscape.getMinimumElevation();
+		Vector3[] vertex = new Vector3[] {new Vector3(-100.3,-100.3,zVal), new Vector3(60.7,-100.3,zVal), new Vector3(120.2,-20.6,zVal), new Vector3(20.4,10.1,zVal),
+			new Vector3(120.2,60.9,zVal), new Vector3(40.6,110.8,zVal), new Vector3(-100.3,110.8,zVal), new Vector3(-100.3,-100.3,zVal)};
+		Vector3 lowerBound = new Vector3(-100.3,-100.3,zVal);
+		Vector3 upperBound = new Vector3(120.2,110.8,zVal);
+		double volElev = landscape.getElevationAtHighestLevel(0, 0);
+		RegionStatistics stats = landscape.getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.ALL, volElev, null);
+		double[] sampled = getPerSampleStatistics(landscape, vertex, lowerBound, upperBound, volElev);
+		System.err.println("LandscapeTest.testGetRegionStatistics fused pass = "+stats);
+		System.err.println("LandscapeTest.testGetRegionStatistics per sample = count:"+(int)sampled[0]+" elevation:"+sampled[1]+" slope:"+sampled[2]
+			+" area:"+sampled[3]+" above:"+sampled[4]+" below:"+sampled[5]);
+		if (stats.sampleCount != (int)sampled[0])
+			return(false);
+		double range = landscape.getMaximumElevation()-landscape.getMinimumElevation();
+		if (Math.abs(stats.meanElevation-sampled[1]) > 0.000001*range)
+			return(false);
+		// the old slope came from the tile normals, the fused pass uses central differences
+		if (Math.abs(stats.meanSlope-sampled[2]) > 1)
+			return(false);
+		if (Math.abs(stats.surfaceArea-sampled[3]) > 0.000001*sampled[3])
+			return(false);
+		double volume = sampled[4]+sampled[5];
+		if ((Math.abs(stats.volumeAbove-sampled[4]) > 0.000001*volume) || (Math.abs(stats.volumeBelow-sampled[5]) > 0.000001*volume))
+			return(false);
+		return(true);
+	}
+	
+	private boolean testParallelRegionStatistics(Landscape landscape) {
+		// regions of 1, 7, and 16 bands
+		double zVal = -landscape.getMinimumElevation();
+		int[] size = new int[] {Landscape.BAND_ROWS/2, 7*Landscape.BAND_ROWS-5, 16*Landscape.BAND_ROWS};
+		double volElev = landscape.getElevationAtHighestLevel(0, 0);
+		boolean success = true;
+		for (int i=0; i<size.length; ++i) {
+			double h = size[i]/2.0;
+			Vector3[] vertex = new Vector3[] {new Vector3(-h,-h,zVal), new Vector3(h,-h,zVal), new Vector3(0,0,zVal), new Vector3(h,h,zVal), new Vector3(-h,h,zVal), new Vector3(-h,-h,zVal)};
+			Vector3 lowerBound = new Vector3(-h,-h,zVal);
+			Vector3 upperBound = new Vector3(h,h,zVal);
+			Landscape.setRegionThreads(1);
+			RegionStatistics serial = landscape.getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.ALL, volElev, null);
+			for (int n=2; n<=8; n*=2) {
+				Landscape.setRegionThreads(n);
+				RegionStatistics parallel = landscape.getRegionStatistics(vertex, lowerBound, upperBound, RegionStatistics.ALL, volElev, null);
+				System.err.println("LandscapeTest.testParallelRegionStatistics "+size[i]+"x"+size[i]+" region, "+n+" threads = "+parallel);
+				if ((parallel.sampleCount != serial.sampleCount) || (parallel.meanElevation != serial.meanElevation) || (parallel.meanSlope != serial.meanSlope)
+					|| (parallel.surfaceArea != serial.surfaceArea) || (parallel.volumeAbove != serial.volumeAbove) || (parallel.volumeBelow != serial.volumeBelow)) {
+					System.err.println("LandscapeTest.testParallelRegionStatistics 1 thread = "+serial);
+					success = false;
+				}
+			}
+		}
+		Landscape.setRegionThreads(0);
+		return(success);
+	}
+	
+	private boolean testTriangleGridVolume(Landscape landscape) {
+		double minZ = landscape.getMinimumElevation()*landscape.getPixelScale();
+		double zMid = (landscape.getMaximumElevation()-landscape.getMinimumElevation())*landscape.getPixelScale()/2;
+		double zVal = -landscape.getMinimumElevation();
+		Vector3 lowerBound = new Vector3(-64.3, -64.3, zVal);
+		Vector3 upperBound = new Vector3(64.3, 64.3, zVal);
+		Vector3[] vertex = new Vector3[] {new Vector3(lowerBound), new Vector3(upperBound.getX(),lowerBound.getY(),lowerBound.getZ()), new Vector3(upperBound), new Vector3(lowerBound.getX(),upperBound.getY(),lowerBound.getZ()), new Vector3(lowerBound)};
+		
+		// A tilted plane covered twice, by a quadrilateral split on each diagonal,
+		// and once more by a triangle in the middle. The triangles overlap but
+		// are coplanar so the height is the same whichever one is used.
+		double[][] corner = new double[][] {{-70.13, -69.71}, {70.37, -70.29}, {69.83, 70.41}, {-70.57, 69.97}};
+		double[][] center = new double[][] {{-30.7, -20.9}, {40.3, -10.1}, {5.9, 35.3}};
+		FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(5*3*3);
+		int[] index = new int[] {0, 1, 2, 0, 2, 3, 0, 1, 3, 1, 2, 3};
+		for (int i=0; i<index.length; ++i)
+			putPlaneVertex(vertexBuffer, corner[index[i]][0], corner[index[i]][1], zMid);
+		for (int i=0; i<center.length; ++i)
+			putPlaneVertex(vertexBuffer, center[i][0], center[i][1], zMid);
+		vertexBuffer.flip();
+		Mesh polygon = new Mesh("_polygon");
+		polygon.getMeshData().setVertexBuffer(vertexBuffer);
+		polygon.getSceneHints().setAllPickingHints(true);
+		polygon.setModelBound(new BoundingBox());
+		polygon.markDirty(DirtyType.Bounding);
+		polygon.updateModelBound();
+		polygon.updateGeometricState(0);
+		double[] sampledVolume = landscape.getSampledVolumeOfRegion(vertex, lowerBound, upperBound, polygon);
+		
+		// sample with pick rays up and down from the landscape, the way the
+		// volume was found before the triangle grid
+		double pixelWidth = landscape.getPixelWidth();
+		double pixelLength = landscape.getPixelLength();
+		int columns = (int)((upperBound.getX()-lowerBound.getX())/pixelWidth);
+		int rows = (int)((upperBound.getY()-lowerBound.getY())/pixelLength);
+		double volumeAbove = 0;
+		double volumeBelow = 0;
+		Vector3 p = new Vector3();
+		for (int r=0; r<rows; ++r) {
+			for (int c=0; c<columns; ++c) {
+				p.set(lowerBound.getX()+c*pixelWidth, lowerBound.getY()+r*pixelLength, 0);
+				if (!MathUtil.isInsidePolygon(p, vertex))
+					continue;
+				double el = landscape.getElevationAtHighestLevel(p.getX(), p.getY());
+				if (Double.isNaN(el))
+					continue;
+				p.setZ(el-minZ);
+				double d = getPickDistance(polygon, p, Vector3.NEG_UNIT_Z);
+				if (!Double.isNaN(d))
+					volumeAbove += d;
+				else {
+					d = getPickDistance(polygon, p, Vector3.UNIT_Z);
+					if (!Double.isNaN(d))
+						volumeBelow += d;
+				}
+			}
+		}
+		volumeAbove *= pixelWidth*pixelLength;
+		volumeBelow *= pixelWidth*pixelLength;
+		System.err.println("LandscapeTest.testTriangleGridVolume "+columns+"x"+rows+" region = above:"+volumeAbove+"="+sampledVolume[0]+" below:"+volumeBelow+"="+sampledVolume[1]);
+		double volume = volumeAbove+volumeBelow;
+		return((Math.abs(sampledVolume[0]-volumeAbove) <= 0.000001*volume) && (Math.abs(sampledVolume[1]-volumeBelow) <= 0.000001*volume));
+	}
+	
+	private void putPlaneVertex(FloatBuffer vertexBuffer, double x, double y, double z) {
+		vertexBuffer.put((float)x).put((float)y).put((float)(z+0.2*x-0.1*y));
+	}
+	
+	private double getPickDistance(Mesh mesh, ReadOnlyVector3 p, ReadOnlyVector3 dir) {
+		PrimitivePickResults pr = new PrimitivePickResults();
+		pr.setCheckDistance(true);
+		PickingUtil.findPick(mesh, new Ray3(p, dir), pr, false);
+		double dist = Double.NaN;
+		for (int i=0; i<pr.getNumber(); ++i) {
+			IntersectionRecord ir = pr.getPickData(i).getIntersectionRecord();
+			double d = ir.getIntersectionDistance(ir.getClosestIntersection());
+			if (Double.isNaN(dist) || (d < dist))
+				dist = d;
+		}
+		return(dist);
+	}
+	
+	private boolean testSummedAreaTable() {
+		// a tile with scattered and whole rows of missing values
+		int columns = 37;
+		int rows = 23;
+		float[] data = new float[columns*rows];
+		Random random = new Random(15);
+		for (int i=0; i<data.length; ++i) {
+			if ((random.nextInt(7) == 0) || (i/columns == 5))
+				data[i] = Float.NaN;
+			else
+				data[i] = demFactory.getZ(i%columns, i/columns);
+		}
+		SummedAreaTable table = new SummedAreaTable(data, columns, rows);
+		double[] store = new double[3];
+		for (int n=0; n<1000; ++n) {
+			// windows may extend past the tile and may be empty
+			int c0 = random.nextInt(columns+4)-2;
+			int c1 = c0+random.nextInt(columns+2);
+			int r0 = random.nextInt(rows+4)-2;
+			int r1 = r0+random.nextInt(rows+2);
+			store[0] = 0;
+			store[1] = 0;
+			store[2] = 0;
+			table.addStatistics(c0, r0, c1, r1, store);
+			double sum = 0;
+			double sumSq = 0;
+			int count = 0;
+			for (int r=Math.max(r0, 0); r<Math.min(r1, rows); ++r) {
+				for (int c=Math.max(c0, 0); c<Math.min(c1, columns); ++c) {
+					// rows of the table count from the bottom of the tile
+					float v = data[(rows-1-r)*columns+c];
+					if (!Float.isNaN(v)) {
+						sum += v;
+						sumSq += (double)v*v;
+						count ++;
+					}
+				}
+			}
+			if (((int)store[2] != count) || (Math.abs(store[0]-sum) > 0.000001*sumSq) || (Math.abs(store[1]-sumSq) > 0.000001*sumSq)) {
+				System.err.println("LandscapeTest.testSummedAreaTable window ("+c0+","+r0+") to ("+c1+","+r1+") = "+store[0]+" "+store[1]+" "+store[2]+", expected "+sum+" "+sumSq+" "+count);
+				return(false);
+			}
+			if ((count > 0) && (Math.abs(store[0]/store[2]-sum/count) > 0.000001)) {
+				System.err.println("LandscapeTest.testSummedAreaTable window ("+c0+","+r0+") to ("+c1+","+r1+") mean = "+(store[0]/store[2])+", expected "+(sum/count));
+				return(false);
+			}
+		}
+		System.err.println("LandscapeTest.testSummedAreaTable 1000 windows of a "+columns+"x"+rows+" tile.");
+		return(true);
+	}
+	
+	/**
+	 * Compute region statistics one sample at a time, testing each sample with
+	 * MathUtil.isInsidePolygon, the way the landscape did before the fused pass.
+	 * 
+	 * @return count, mean elevation, mean slope, surface area, volume above and below
+	 */
+	private double[] getPerSampleStatistics(Landscape landscape, Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound, double volElev) {
+		double pixelWidth = landscape.getPixelWidth();
+		double pixelLength = landscape.getPixelLength();
+		int columns = (int)((upperBound.getX()-lowerBound.getX())/pixelWidth);
+		int rows = (int)((upperBound.getY()-lowerBound.getY())/pixelLength);
+		Vector3 p = new Vector3();
+		Vector3 normal = new Vector3();
+		Vector3 meanNormal = new Vector3();
+		double elevation = 0;
+		double surfaceArea = 0;
+		double volumeAbove = 0;
+		double volumeBelow = 0;
+		int count = 0;
+		int normalCount = 0;
+		for (int r=0; r<rows; ++r) {
+			for (int c=0; c<columns; ++c) {
+				p.set(lowerBound.getX()+c*pixelWidth, lowerBound.getY()+r*pixelLength, 0);
+				if (MathUtil.isInsidePolygon(p, vertex)) {
+					double el = landscape.getElevationAtHighestLevel(p.getX(), p.getY());
+					if (!Double.isNaN(el)) {
+						elevation += el;
+						count ++;
+						if (el < volElev)
+							volumeBelow += volElev-el;
+						else
+							volumeAbove += el-volElev;
+					}
+					if (landscape.getNormalAtHighestLevel(p.getX(), p.getY(), normal)) {
+						meanNormal.addLocal(normal);
+						normalCount ++;
+					}
+				}
+				p.set(lowerBound.getX()+(c+0.5)*pixelWidth, lowerBound.getY()+(r+0.5)*pixelLength, 0);
+				if (MathUtil.isInsidePolygon(p, vertex)) {
+					double x = p.getX();
+					double y = p.getY();
+					double xd = pixelWidth/2;
+					double yd = pixelLength/2;
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x - xd, y + yd, x, y + yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x + xd, y + yd, x, y + yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x - xd, y, x - xd, y + yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x + xd, y, x + xd, y + yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x - xd, y, x - xd, y - yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x + xd, y, x + xd, y - yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x - xd, y - yd, x, y - yd);
+					surfaceArea += getAreaOfTriangle(landscape, x, y, x + xd, y - yd, x, y - yd);
+				}
+			}
+		}
+		meanNormal.multiplyLocal(1.0/normalCount);
+		double area = pixelWidth*pixelLength;
+		return(new double[] {count, elevation/count, MathUtil.getSlopeFromNormal(meanNormal), surfaceArea, volumeAbove*area, volumeBelow*area});
+	}
+
+	private double getAreaOfTriangle(Landscape landscape, double x0, double y0, double x1, double y1, double x2, double y2) {
+		double z0 = landscape.getElevationAtHighestLevel(x0, y0);
+		double z1 = landscape.getElevationAtHighestLevel(x1, y1);
+		double z2 = landscape.getElevationAtHighestLevel(x2, y2);
+		if (Double.isNaN(z0) || Double.isNaN(z1) || Double.isNaN(z2))
+			return(0);
+		return(MathUtil.getAreaOfTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2));
+	}
 }
@@ -101,10 +101,14 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.test;
 
+import gov.nasa.arc.dert.raster.RasterStatistics;
+import gov.nasa.arc.dert.util.CompensatedSum;
 import gov.nasa.arc.dert.util.MathUtil;
+import gov.nasa.arc.dert.util.PolygonRasterizer;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.bounding.BoundingSphere;
@@ -134,6 +138,18 @@ public class MathUtilTest {
 			System.err.println("Test of MathUtil.isInsidePolygon failed.");
 			return(false);
 		}
+		if (!testPolygonRasterizer()) {
+			System.err.println("Test of PolygonRasterizer failed.");
+			return(false);
+		}
+		if (!testCompensatedSum()) {
+			System.err.println("Test of CompensatedSum failed.");
+			return(false);
+		}
+		if (!testRasterStatistics()) {
+			System.err.println("Test of RasterStatistics failed.");
+			return(false);
+		}
 		if (!testComputePolygonArea2D()) {
 			System.err.println("Test of MathUtil.computePolygonArea2D failed.");
 			return(false);
@@ -402,6 +418,161 @@ public class MathUtilTest {
 		return(true);
 	}
 	
+	public boolean testPolygonRasterizer() {
+		// concave polygon
+		Vector3[] vertex = new Vector3[] {new Vector3(-1, -1, 0), new Vector3(1, -1, 0), new Vector3(2, -0.5, 0), new Vector3(1, 0, 0), new Vector3(2, 0.5, 0),
+				new Vector3(1, 1, 0), new Vector3(-1, 1, 0), new Vector3(-1, -1, 0)};
+		System.err.println("PolygonRasterizer concave polygon");
+		if (!testPolygonRasterizer(vertex))
+			return(false);
+		// concave polygon, clockwise
+		vertex = new Vector3[] {new Vector3(-2, -2, 0), new Vector3(-2, 2, 0), new Vector3(2, 2, 0), new Vector3(2, 1, 0), new Vector3(-1, 0.5, 0),
+				new Vector3(2, -1, 0), new Vector3(2, -2, 0), new Vector3(-2, -2, 0)};
+		System.err.println("PolygonRasterizer clockwise concave polygon");
+		if (!testPolygonRasterizer(vertex))
+			return(false);
+		// self-intersecting bow tie
+		vertex = new Vector3[] {new Vector3(-2, -1, 0), new Vector3(2, 1, 0), new Vector3(2, -1, 0), new Vector3(-2, 1, 0), new Vector3(-2, -1, 0)};
+		System.err.println("PolygonRasterizer bow tie");
+		if (!testPolygonRasterizer(vertex))
+			return(false);
+		// self-intersecting star, the center has a winding number of 2
+		vertex = new Vector3[6];
+		for (int i=0; i<5; ++i) {
+			double a = Math.PI/2+i*4*Math.PI/5;
+			vertex[i] = new Vector3(2*Math.cos(a), 2*Math.sin(a), 0);
+		}
+		vertex[5] = new Vector3(vertex[0]);
+		System.err.println("PolygonRasterizer star");
+		if (!testPolygonRasterizer(vertex))
+			return(false);
+		// a square traced twice has a winding number of 2 everywhere inside
+		vertex = new Vector3[] {new Vector3(-1, -1, 0), new Vector3(1, -1, 0), new Vector3(1, 1, 0), new Vector3(-1, 1, 0),
+				new Vector3(-1, -1, 0), new Vector3(1, -1, 0), new Vector3(1, 1, 0), new Vector3(-1, 1, 0), new Vector3(-1, -1, 0)};
+		System.err.println("PolygonRasterizer square traced twice");
+		if (!testPolygonRasterizer(vertex))
+			return(false);
+		return(true);
+	}
+	
+	/**
+	 * Compare the spans of each row of a grid that is larger than the polygon
+	 * with MathUtil.isInsidePolygon at every sample.
+	 */
+	private boolean testPolygonRasterizer(Vector3[] vertex) {
+		PolygonRasterizer rasterizer = new PolygonRasterizer(vertex);
+		int[] span = new int[rasterizer.getMaximumSpanArraySize()];
+		double x0 = -3.01;
+		double y0 = -3.01;
+		double step = 0.0237;
+		int columns = 256;
+		int rows = 256;
+		Vector3 p = new Vector3();
+		int inside = 0;
+		for (int r=0; r<rows; ++r) {
+			double y = y0+r*step;
+			int n = rasterizer.getSpans(y, x0, step, columns, span);
+			boolean[] isIn = new boolean[columns];
+			for (int k=0; k<n; ++k) {
+				if ((span[k*2] < 0) || (span[k*2+1] > columns) || (span[k*2] >= span[k*2+1]))
+					return(false);
+				if ((k > 0) && (span[k*2] <= span[k*2-1]))
+					return(false);
+				for (int c=span[k*2]; c<span[k*2+1]; ++c)
+					isIn[c] = true;
+			}
+			for (int c=0; c<columns; ++c) {
+				p.set(x0+c*step, y, 0);
+				if (isIn[c] != MathUtil.isInsidePolygon(p, vertex)) {
+					System.err.println("PolygonRasterizer disagrees with MathUtil.isInsidePolygon at "+p);
+					return(false);
+				}
+				if (isIn[c])
+					inside ++;
+			}
+		}
+		System.err.println("PolygonRasterizer "+inside+" of "+(rows*columns)+" samples inside");
+		return(inside > 0);
+	}
+	
+	public boolean testCompensatedSum() {
+		// values below half an ulp of the running sum are lost by plain addition
+		int n = 1000000;
+		double small = 1.0e-16;
+		double expected = 1+n*small;
+		CompensatedSum sum = new CompensatedSum();
+		double plainSum = 1;
+		sum.add(1);
+		for (int i=0; i<n; ++i) {
+			sum.add(small);
+			plainSum += small;
+		}
+		System.err.println("CompensatedSum sum of 1 and "+n+" x "+small+" = "+sum.getSum()+", plain sum = "+plainSum+", expected = "+expected);
+		if (Math.abs(sum.getSum()-expected) > 1.0e-15)
+			return(false);
+		if (plainSum != 1)
+			return(false);
+		
+		// sums of tenths, split into parts and combined
+		n = 10000000;
+		sum.clear();
+		CompensatedSum[] part = new CompensatedSum[] {new CompensatedSum(), new CompensatedSum(), new CompensatedSum()};
+		plainSum = 0;
+		for (int i=0; i<n; ++i) {
+			sum.add(0.1);
+			part[i%part.length].add(0.1);
+			plainSum += 0.1;
+		}
+		CompensatedSum combined = new CompensatedSum();
+		for (int i=0; i<part.length; ++i)
+			combined.add(part[i]);
+		System.err.println("CompensatedSum sum of "+n+" x 0.1 = "+sum.getSum()+", combined = "+combined.getSum()+", plain sum = "+plainSum);
+		if (Math.abs(sum.getSum()-n*0.1) > 1.0e-9)
+			return(false);
+		if (Math.abs(combined.getSum()-n*0.1) > 1.0e-9)
+			return(false);
+		if (Math.abs(plainSum-n*0.1) <= Math.abs(sum.getSum()-n*0.1))
+			return(false);
+		return(true);
+	}
+	
+	public boolean testRasterStatistics() {
+		// chunks of rows, as when a file is decoded by strip, that together
+		// span more than the number of histogram bins at the bin width of any
+		// one chunk
+		int n = 10000;
+		int numChunks = 4;
+		RasterStatistics sequential = new RasterStatistics(1);
+		RasterStatistics merged = new RasterStatistics(1);
+		RasterStatistics chunk = null;
+		for (int i=0; i<n; ++i) {
+			if ((i%(n/numChunks)) == 0) {
+				if (chunk != null)
+					merged.add(chunk);
+				chunk = new RasterStatistics(1);
+			}
+			double value = ((i%97) == 0) ? Double.NaN : -1000+i*0.37;
+			sequential.add(0, value);
+			chunk.add(0, value);
+		}
+		merged.add(chunk);
+		System.err.println("RasterStatistics merged "+numChunks+" chunks from "+merged.getMinimum(0)+" to "+merged.getMaximum(0)
+			+" with bin width "+merged.getHistogramBinWidth(0)+", sequential bin width "+sequential.getHistogramBinWidth(0));
+		if ((merged.getCount(0) != sequential.getCount(0)) || (merged.getNaNCount(0) != sequential.getNaNCount(0)))
+			return(false);
+		if ((merged.getMinimum(0) != sequential.getMinimum(0)) || (merged.getMaximum(0) != sequential.getMaximum(0)))
+			return(false);
+		if (Math.abs(merged.getMean(0)-sequential.getMean(0)) > 1.0e-9)
+			return(false);
+		if ((merged.getHistogramBinWidth(0) != sequential.getHistogramBinWidth(0))
+			|| (merged.getHistogramStart(0) != sequential.getHistogramStart(0)))
+			return(false);
+		if (!Arrays.equals(merged.getHistogram(0), sequential.getHistogram(0)))
+			return(false);
+		return(true);
+	}
+
+	
 	public boolean testComputePolygonArea2D() {
 		ArrayList<ReadOnlyVector3> points = new ArrayList<ReadOnlyVector3>();
 		double area = 0;
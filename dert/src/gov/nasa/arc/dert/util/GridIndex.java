@@ -0,0 +1,236 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.util;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A uniform grid of buckets over the XY coordinates of a set of points. Used
+ * to find the points inside a rectangle, such as a changed landscape tile,
+ * without visiting every point.
+ *
+ */
+public class GridIndex {
+
+	// Average number of points in a bucket
+	private static final int POINTS_PER_CELL = 32;
+
+	// Point coordinates
+	private float[] x, y;
+
+	// Grid origin, cell size, and dimensions
+	private double xMin, yMin, cellWidth, cellLength;
+	private int columns, rows;
+
+	// Points in each cell, cell k has points
+	// cellPoint[cellStart[k]] to cellPoint[cellStart[k+1]-1]
+	private int[] cellStart;
+	private int[] cellPoint;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param vertex
+	 *            the point coordinates, 3 values (x, y, z) per point
+	 * @param n
+	 *            the number of points
+	 */
+	public GridIndex(FloatBuffer vertex, int n) {
+		x = new float[n];
+		y = new float[n];
+		double xMax = -Double.MAX_VALUE, yMax = -Double.MAX_VALUE;
+		xMin = Double.MAX_VALUE;
+		yMin = Double.MAX_VALUE;
+		for (int i = 0; i < n; ++i) {
+			x[i] = vertex.get(i * 3);
+			y[i] = vertex.get(i * 3 + 1);
+			xMin = Math.min(xMin, x[i]);
+			xMax = Math.max(xMax, x[i]);
+			yMin = Math.min(yMin, y[i]);
+			yMax = Math.max(yMax, y[i]);
+		}
+		int side = Math.max(1, (int) Math.ceil(Math.sqrt((double) n / POINTS_PER_CELL)));
+		columns = side;
+		rows = side;
+		if (n == 0) {
+			xMin = 0;
+			yMin = 0;
+			xMax = 0;
+			yMax = 0;
+		}
+		cellWidth = Math.max((xMax - xMin) / columns, Double.MIN_NORMAL);
+		cellLength = Math.max((yMax - yMin) / rows, Double.MIN_NORMAL);
+
+		// count the points in each cell, then fill the cells
+		int[] cell = new int[n];
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < n; ++i) {
+			cell[i] = getRow(y[i]) * columns + getColumn(x[i]);
+			cellStart[cell[i] + 1]++;
+		}
+		for (int k = 1; k < cellStart.length; ++k) {
+			cellStart[k] += cellStart[k - 1];
+		}
+		cellPoint = new int[n];
+		int[] next = new int[columns * rows];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		for (int i = 0; i < n; ++i) {
+			cellPoint[next[cell[i]]++] = i;
+		}
+	}
+
+	private int getColumn(double x) {
+		return (Math.max(0, Math.min(columns - 1, (int) Math.floor((x - xMin) / cellWidth))));
+	}
+
+	private int getRow(double y) {
+		return (Math.max(0, Math.min(rows - 1, (int) Math.floor((y - yMin) / cellLength))));
+	}
+
+	/**
+	 * Find the points inside a rectangle, including its edges.
+	 * 
+	 * @param x0
+	 *            the lower left corner
+	 * @param y0
+	 * @param x1
+	 *            the upper right corner
+	 * @param y1
+	 * @param result
+	 *            the indices of the points found (length at least the number
+	 *            of points)
+	 * @return the number of points found
+	 */
+	public int find(double x0, double y0, double x1, double y1, int[] result) {
+		int count = 0;
+		if ((x.length == 0) || (x1 < xMin) || (y1 < yMin) || (x0 > xMin + columns * cellWidth)
+			|| (y0 > yMin + rows * cellLength)) {
+			return (count);
+		}
+		int c0 = getColumn(x0);
+		int c1 = getColumn(x1);
+		int r0 = getRow(y0);
+		int r1 = getRow(y1);
+		for (int r = r0; r <= r1; ++r) {
+			for (int c = c0; c <= c1; ++c) {
+				int k = r * columns + c;
+				for (int i = cellStart[k]; i < cellStart[k + 1]; ++i) {
+					int p = cellPoint[i];
+					if ((x[p] >= x0) && (x[p] <= x1) && (y[p] >= y0) && (y[p] <= y1)) {
+						result[count++] = p;
+					}
+				}
+			}
+		}
+		return (count);
+	}
+
+	/**
+	 * Get the number of points in the index.
+	 * 
+	 * @return
+	 */
+	public int getNumberOfPoints() {
+		return (x.length);
+	}
+
+}
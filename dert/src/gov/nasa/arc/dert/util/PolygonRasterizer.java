@@ -0,0 +1,225 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.util;
+
+import com.ardor3d.math.type.ReadOnlyVector3;
+
+/**
+ * Finds the parts of a regular grid of sample positions that are inside a
+ * polygon, one row at a time. The edges that cross a row are found once per
+ * row and sorted, so the cost of a row does not depend on the number of
+ * samples. A sample is inside if its winding number is not zero, the same
+ * rule as MathUtil.isInsidePolygon.
+ *
+ */
+public class PolygonRasterizer {
+
+	// Polygon vertices, the last is the same as the first
+	private double[] vx, vy;
+
+	// Edge crossings for the current row
+	private double[] crossX;
+	private int[] crossDir;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param vertex
+	 *            the polygon vertices, with the first vertex repeated at the
+	 *            end
+	 */
+	public PolygonRasterizer(ReadOnlyVector3[] vertex) {
+		vx = new double[vertex.length];
+		vy = new double[vertex.length];
+		for (int i = 0; i < vertex.length; ++i) {
+			vx[i] = vertex[i].getX();
+			vy[i] = vertex[i].getY();
+		}
+		crossX = new double[vertex.length];
+		crossDir = new int[vertex.length];
+	}
+
+	/**
+	 * Get the size of the array needed to hold the spans of any row.
+	 * 
+	 * @return the array size
+	 */
+	public int getMaximumSpanArraySize() {
+		return (crossX.length + 2);
+	}
+
+	/**
+	 * Get the spans of inside samples in a row. The samples are at x0 + j*dx
+	 * for j from 0 to columns-1.
+	 * 
+	 * @param y
+	 *            the Y coordinate of the row
+	 * @param x0
+	 *            the X coordinate of the first sample
+	 * @param dx
+	 *            the distance between samples
+	 * @param columns
+	 *            the number of samples
+	 * @param span
+	 *            the first column and the column after the last for each span
+	 *            (length at least getMaximumSpanArraySize)
+	 * @return the number of spans
+	 */
+	public int getSpans(double y, double x0, double dx, int columns, int[] span) {
+		// find the edges that cross the row
+		int n = 0;
+		int winding = 0;
+		for (int i = 0; i < vx.length - 1; ++i) {
+			int dir;
+			if (vy[i] <= y) {
+				if (vy[i + 1] <= y) {
+					continue;
+				}
+				dir = 1;
+			} else {
+				if (vy[i + 1] > y) {
+					continue;
+				}
+				dir = -1;
+			}
+			double x = vx[i] + (y - vy[i]) * (vx[i + 1] - vx[i]) / (vy[i + 1] - vy[i]);
+			// insertion sort by X, rows cross few edges
+			int k = n;
+			while ((k > 0) && (crossX[k - 1] > x)) {
+				crossX[k] = crossX[k - 1];
+				crossDir[k] = crossDir[k - 1];
+				k--;
+			}
+			crossX[k] = x;
+			crossDir[k] = dir;
+			winding += dir;
+			n++;
+		}
+
+		// A sample is counted by the crossings to its right. Walk from left to
+		// right, removing each crossing as it is passed.
+		int count = 0;
+		int first = 0;
+		for (int k = 0; k <= n; ++k) {
+			int last = columns;
+			if (k < n) {
+				last = (int) Math.min(columns, Math.max(0, Math.ceil((crossX[k] - x0) / dx)));
+			}
+			if ((winding != 0) && (last > first)) {
+				if ((count > 0) && (span[count * 2 - 1] == first)) {
+					// adjacent span
+					span[count * 2 - 1] = last;
+				} else {
+					span[count * 2] = first;
+					span[count * 2 + 1] = last;
+					count++;
+				}
+			}
+			if (k < n) {
+				winding -= crossDir[k];
+				first = Math.max(first, last);
+			}
+		}
+		return (count);
+	}
+
+}
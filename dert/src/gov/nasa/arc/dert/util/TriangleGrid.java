@@ -0,0 +1,321 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.util;
+
+import java.nio.FloatBuffer;
+
+import com.ardor3d.math.Vector3;
+import com.ardor3d.math.type.ReadOnlyTransform;
+import com.ardor3d.scenegraph.Mesh;
+
+/**
+ * Provides the height of a triangulated surface at any XY location. The
+ * triangles are indexed by a uniform grid over their XY bounds, so a lookup
+ * only tests the few triangles whose bounds overlap one grid cell. The height
+ * is found by barycentric interpolation of the triangle vertices.
+ * 
+ * Instances are read only after construction and may be used by several
+ * threads at once.
+ *
+ */
+public class TriangleGrid {
+
+	// Tolerance for points on a triangle edge, in barycentric units
+	private static final double EPSILON = 1e-9;
+
+	// Triangle vertices, 9 values (x0, y0, z0, x1, ...) per triangle
+	private double[] vertex;
+
+	// 1 / twice the signed XY area of each triangle
+	private double[] inverseDet;
+
+	// Number of triangles
+	private int numTriangles;
+
+	// Grid origin, cell size, and dimensions
+	private double xMin, yMin, cellWidth, cellLength;
+	private int columns, rows;
+
+	// Triangles in each cell, cell k has triangles
+	// cellTriangle[cellStart[k]] to cellTriangle[cellStart[k+1]-1]
+	private int[] cellStart;
+	private int[] cellTriangle;
+
+	/**
+	 * Constructor for a triangle mesh. The vertices are transformed to world
+	 * coordinates.
+	 * 
+	 * @param mesh
+	 *            a mesh of independent triangles
+	 */
+	public TriangleGrid(Mesh mesh) {
+		FloatBuffer vertexBuffer = mesh.getMeshData().getVertexBuffer();
+		int n = mesh.getMeshData().getVertexCount();
+		n -= n % 3;
+		float[] coord = new float[n * 3];
+		ReadOnlyTransform transform = mesh.getWorldTransform();
+		Vector3 vec = new Vector3();
+		for (int i = 0; i < n; ++i) {
+			vec.set(vertexBuffer.get(i * 3), vertexBuffer.get(i * 3 + 1), vertexBuffer.get(i * 3 + 2));
+			transform.applyForward(vec);
+			coord[i * 3] = vec.getXf();
+			coord[i * 3 + 1] = vec.getYf();
+			coord[i * 3 + 2] = vec.getZf();
+		}
+		build(coord, n / 3);
+	}
+
+	/**
+	 * Constructor for an array of triangle vertices.
+	 * 
+	 * @param coord
+	 *            the vertices, 9 values per triangle
+	 * @param numTriangles
+	 *            the number of triangles
+	 */
+	public TriangleGrid(float[] coord, int numTriangles) {
+		build(coord, numTriangles);
+	}
+
+	private void build(float[] coord, int n) {
+		// keep triangles that are not degenerate in XY
+		vertex = new double[n * 9];
+		inverseDet = new double[n];
+		numTriangles = 0;
+		double xMax = -Double.MAX_VALUE, yMax = -Double.MAX_VALUE;
+		xMin = Double.MAX_VALUE;
+		yMin = Double.MAX_VALUE;
+		for (int t = 0; t < n; ++t) {
+			int k = t * 9;
+			double det = (coord[k + 4] - coord[k + 7]) * (coord[k] - coord[k + 6]) + (coord[k + 6] - coord[k + 3])
+				* (coord[k + 1] - coord[k + 7]);
+			if ((det == 0) || Double.isNaN(det)) {
+				continue;
+			}
+			int m = numTriangles * 9;
+			for (int i = 0; i < 9; ++i) {
+				vertex[m + i] = coord[k + i];
+			}
+			inverseDet[numTriangles] = 1.0 / det;
+			for (int i = 0; i < 9; i += 3) {
+				xMin = Math.min(xMin, vertex[m + i]);
+				xMax = Math.max(xMax, vertex[m + i]);
+				yMin = Math.min(yMin, vertex[m + i + 1]);
+				yMax = Math.max(yMax, vertex[m + i + 1]);
+			}
+			numTriangles++;
+		}
+		if (numTriangles == 0) {
+			columns = 0;
+			rows = 0;
+			cellStart = new int[1];
+			cellTriangle = new int[0];
+			return;
+		}
+
+		// about one triangle per cell
+		int side = Math.max(1, (int) Math.ceil(Math.sqrt(numTriangles)));
+		columns = side;
+		rows = side;
+		cellWidth = Math.max((xMax - xMin) / columns, Double.MIN_NORMAL);
+		cellLength = Math.max((yMax - yMin) / rows, Double.MIN_NORMAL);
+
+		// count the triangles overlapping each cell, then fill the cells
+		int[] count = new int[columns * rows + 1];
+		int[] bounds = new int[4];
+		for (int t = 0; t < numTriangles; ++t) {
+			getCellBounds(t, bounds);
+			for (int r = bounds[2]; r <= bounds[3]; ++r) {
+				for (int c = bounds[0]; c <= bounds[1]; ++c) {
+					count[r * columns + c + 1]++;
+				}
+			}
+		}
+		cellStart = new int[columns * rows + 1];
+		for (int k = 1; k < cellStart.length; ++k) {
+			cellStart[k] = cellStart[k - 1] + count[k];
+		}
+		cellTriangle = new int[cellStart[cellStart.length - 1]];
+		int[] next = new int[columns * rows];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		for (int t = 0; t < numTriangles; ++t) {
+			getCellBounds(t, bounds);
+			for (int r = bounds[2]; r <= bounds[3]; ++r) {
+				for (int c = bounds[0]; c <= bounds[1]; ++c) {
+					cellTriangle[next[r * columns + c]++] = t;
+				}
+			}
+		}
+	}
+
+	private void getCellBounds(int t, int[] bounds) {
+		int k = t * 9;
+		double x0 = Math.min(vertex[k], Math.min(vertex[k + 3], vertex[k + 6]));
+		double x1 = Math.max(vertex[k], Math.max(vertex[k + 3], vertex[k + 6]));
+		double y0 = Math.min(vertex[k + 1], Math.min(vertex[k + 4], vertex[k + 7]));
+		double y1 = Math.max(vertex[k + 1], Math.max(vertex[k + 4], vertex[k + 7]));
+		bounds[0] = getColumn(x0);
+		bounds[1] = getColumn(x1);
+		bounds[2] = getRow(y0);
+		bounds[3] = getRow(y1);
+	}
+
+	private int getColumn(double x) {
+		return (Math.max(0, Math.min(columns - 1, (int) Math.floor((x - xMin) / cellWidth))));
+	}
+
+	private int getRow(double y) {
+		return (Math.max(0, Math.min(rows - 1, (int) Math.floor((y - yMin) / cellLength))));
+	}
+
+	/**
+	 * Get the height of the surface at a location. Where triangles overlap the
+	 * highest one is used.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return the height, or NaN if no triangle covers the location
+	 */
+	public double getZ(double x, double y) {
+		if (numTriangles == 0) {
+			return (Double.NaN);
+		}
+		if ((x < xMin) || (y < yMin) || (x > xMin + columns * cellWidth) || (y > yMin + rows * cellLength)) {
+			return (Double.NaN);
+		}
+		int cell = getRow(y) * columns + getColumn(x);
+		double z = Double.NaN;
+		for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+			int t = cellTriangle[i];
+			int k = t * 9;
+			double dx = x - vertex[k + 6];
+			double dy = y - vertex[k + 7];
+			double a = ((vertex[k + 4] - vertex[k + 7]) * dx + (vertex[k + 6] - vertex[k + 3]) * dy) * inverseDet[t];
+			if (a < -EPSILON) {
+				continue;
+			}
+			double b = ((vertex[k + 7] - vertex[k + 1]) * dx + (vertex[k] - vertex[k + 6]) * dy) * inverseDet[t];
+			if (b < -EPSILON) {
+				continue;
+			}
+			double c = 1 - a - b;
+			if (c < -EPSILON) {
+				continue;
+			}
+			double zt = a * vertex[k + 2] + b * vertex[k + 5] + c * vertex[k + 8];
+			if (Double.isNaN(z) || (zt > z)) {
+				z = zt;
+			}
+		}
+		return (z);
+	}
+
+	/**
+	 * Get the number of triangles in the surface.
+	 * 
+	 * @return
+	 */
+	public int getNumberOfTriangles() {
+		return (numTriangles);
+	}
+
+}
@@ -277,6 +277,10 @@ public class ContourScene extends BasicScene implements ColorMapListener {
 	public void updateContour() {
 		diff = new float[imageSize][imageSize];
 		int[] dim = plane.getElevationDifference(imageSize, diff, minMaxElev);
+		// interrupted, keep the current contours
+		if (dim == null) {
+			return;
+		}
 		rows = dim[0];
 		columns = dim[1];
 		offX = (imageSize - columns) / 2;
@@ -103,6 +103,8 @@ package gov.nasa.arc.dert.view.mapelement;
 
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
+import gov.nasa.arc.dert.landscape.RegionStatisticsListener;
 import gov.nasa.arc.dert.scene.tool.Path;
 import gov.nasa.arc.dert.state.MapElementState;
 import gov.nasa.arc.dert.state.State;
@@ -135,6 +137,10 @@ import com.ardor3d.math.Vector3;
  */
 public class PathView extends JPanelView {
 
+	// Relative error allowed in the region statistics, the result of each
+	// coarser level is shown while refining
+	public static double STATISTICS_TOLERANCE = 0.001;
+
 	private JTextArea textArea;
 	private JLabel messageLabel;
 	private JRadioButton polyMethod, planeMethod, noMethod;
@@ -258,51 +264,59 @@ public class PathView extends JPanelView {
 				messageLabel.setText("Calculating dimensions ...");
 				Thread.yield();
 				Path path = (Path)((MapElementState)state).getMapElement();
-				textArea.setText(getDimensions(path));
+				final String dimensions = getDimensions(path);
+				textArea.setText(dimensions);
 				
 				Vector3[] vertex = path.getPolygonVertices();
 				if (vertex != null) {
-					messageLabel.setText("Calculating mean elevation ...");
-					Thread.yield();
-					String str = getMeanElevation(vertex);
-					if (str == null) {
-						doCancel();
-						return;
-					}
-					textArea.append(str);
+					String str = null;
 					if (vertex.length > 3) {
-						messageLabel.setText("Calculating surface area ...");
+						messageLabel.setText("Calculating statistics ...");
 						Thread.yield();
-						str = getSurfaceArea(vertex);
+						// elevation statistics come from the summed-area tables
+						final RegionStatistics elevStats = path.getElevationStatistics();
+						if (elevStats == null) {
+							doCancel();
+							return;
+						}
+						// compute the rest in a single pass over the polygon
+						final boolean doVolume = polyMethod.isSelected() || planeMethod.isSelected();
+						int statistics = RegionStatistics.SURFACE_AREA | RegionStatistics.MEAN_SLOPE;
+						if (doVolume)
+							statistics |= RegionStatistics.VOLUME;
+						final double volElevation = getVolElevation();
+						// show the result of each coarse level while refining
+						RegionStatistics stats = path.getRegionStatistics(statistics, volElevation, STATISTICS_TOLERANCE,
+							new RegionStatisticsListener() {
+								@Override
+								public void statisticsUpdated(RegionStatistics stats) {
+									String str = getStatistics(elevStats, stats, doVolume, volElevation);
+									if (str != null) {
+										textArea.setText(dimensions + str);
+										messageLabel.setText("Refining statistics (level " + stats.level + ") ...");
+									}
+								}
+							});
+						if (stats == null) {
+							doCancel();
+							return;
+						}
+						str = getStatistics(elevStats, stats, doVolume, volElevation);
 						if (str == null) {
 							doCancel();
 							return;
 						}
-						textArea.append(str);
-						messageLabel.setText("Calculating mean slope ...");
+						textArea.setText(dimensions + str);
+					}
+					else {
+						messageLabel.setText("Calculating mean elevation ...");
 						Thread.yield();
-						str = getMeanSlope(vertex);
+						str = getMeanElevation(vertex);
 						if (str == null) {
 							doCancel();
 							return;
 						}
 						textArea.append(str);
-						if (polyMethod.isSelected() || planeMethod.isSelected()) {
-							messageLabel.setText("Calculating volume ...");
-							Thread.yield();
-							str = getVolume(getVolElevation(), path);
-							if (str == null) {
-								doCancel();
-								return;
-							}
-							textArea.append(str);
-						}
-						else {
-							str = "Volume Above: N/A\nVolume Below: N/A";
-							textArea.append(str);
-						}
-					}
-					else {
 						str = "Surface Area: N/A\n";
 						str += "Mean Slope: N/A\n";
 						if (noMethod.isSelected())
@@ -354,11 +368,40 @@ public class PathView extends JPanelView {
 		return(str);
 	}
 	
-	private String getSurfaceArea(Vector3[] vertex) {
-		double sampledVal = Landscape.getInstance().getSampledSurfaceAreaOfRegion(vertex, lowerBound, upperBound);
-		if (Double.isNaN(sampledVal))
+	private String getStatistics(RegionStatistics elevStats, RegionStatistics stats, boolean doVolume, double volElevation) {
+		String str = "";
+		String value = getStatistic("Mean Elevation", elevStats.meanElevation);
+		if (value == null)
+			return(null);
+		str += value;
+		value = getStatistic("Elevation Std Dev", elevStats.elevationDeviation);
+		if (value == null)
+			return(null);
+		str += value;
+		value = getStatistic("Surface Area", stats.surfaceArea);
+		if (value == null)
 			return(null);
-		return("Surface Area: "+String.format(Landscape.stringFormat, sampledVal)+"\n");
+		str += value;
+		value = getStatistic("Mean Slope", stats.meanSlope);
+		if (value == null)
+			return(null);
+		str += value;
+		if (doVolume)
+			str += getVolume(volElevation, stats.getVolume());
+		else
+			str += "Volume Above: N/A\nVolume Below: N/A\n";
+		// results from a level below the highest are approximate
+		if (Double.isNaN(stats.errorEstimate))
+			str += "Estimated Relative Error: N/A\n";
+		else if (stats.errorEstimate > 0)
+			str += "Estimated Relative Error: " + String.format("%.3g", 100 * stats.errorEstimate) + "%\n";
+		return(str);
+	}
+	
+	private String getStatistic(String name, double value) {
+		if (Double.isNaN(value))
+			return(null);
+		return(name+": "+String.format(Landscape.stringFormat, value)+"\n");
 	}
 	
 	private String getMeanElevation(Vector3[] vertex) {
@@ -372,7 +415,7 @@ public class PathView extends JPanelView {
 			str = "Mean Elevation: " + mElev + "\n";
 		}
 		else {
-			double sampledVal = Landscape.getInstance().getSampledMeanElevationOfRegion(vertex, lowerBound, upperBound);
+			double sampledVal = Landscape.getInstance().getElevationStatistics(vertex, lowerBound, upperBound).meanElevation;
 			if (Double.isNaN(sampledVal))
 				return(null);
 			str = "Mean Elevation: "+String.format(Landscape.stringFormat, sampledVal)+"\n";
@@ -380,18 +423,8 @@ public class PathView extends JPanelView {
 		return(str);
 	}
 	
-	private String getMeanSlope(Vector3[] vertex) {
-		double sampledVal = Landscape.getInstance().getSampledMeanSlopeOfRegion(vertex, lowerBound, upperBound);
-		if (Double.isNaN(sampledVal))
-			return(null);
-		return("Mean Slope: "+String.format(Landscape.stringFormat, sampledVal)+"\n");
-	}
-	
-	private String getVolume(double volElev, Path path) {
+	private String getVolume(double volElev, double[] vol) {
 		String str = null;
-		double[] vol = path.getVolume(volElev);
-		if (vol == null)
-			return(str);
 		if (!Double.isNaN(volElev)) {
 			str = "Volume Above "+"Elevation "+volElev+": " + String.format(Landscape.stringFormat, vol[0]) + "\n";
 			str += "Volume Below "+"Elevation "+volElev+": " + String.format(Landscape.stringFormat, vol[1]) + "\n";
@@ -205,6 +205,8 @@ public class WorldScene extends BasicScene implements DirtyEventListener {
 	public void update(ReadOnlyTimer timer) {
 		// update the landscape quad tree
 		Landscape.getInstance().update(viewpoint.getCamera());
+		// deliver the tiles that changed in this update
+		World.getInstance().getLandscapeChangeBus().dispatch();
 		// has the viewpoint changed?
 		boolean viewpointChanged = viewpoint.changed.getAndSet(false);
 		// if the viewpoint changed, update the other view dependent objects